@@ -95,6 +95,12 @@ public abstract class AbstractCloudBinaryManager extends CachingBinaryManager im
 
     public static final String DEFAULT_CACHE_MIN_AGE = "3600"; // 1h
 
+    /** @since 11.1 */
+    public static final String CACHE_READ_THROUGH_PROPERTY = "cachereadthrough";
+
+    /** @since 11.1 */
+    public static final String DEFAULT_CACHE_READ_THROUGH = "false";
+
     public static final String DIRECTDOWNLOAD_PROPERTY = "directdownload";
 
     public static final String DEFAULT_DIRECTDOWNLOAD = "false";
@@ -126,6 +132,7 @@ public abstract class AbstractCloudBinaryManager extends CachingBinaryManager im
         String cacheCountStr = getProperty(CACHE_COUNT_PROPERTY, DEFAULT_CACHE_COUNT);
         String minAgeStr = getProperty(CACHE_MIN_AGE_PROPERTY, DEFAULT_CACHE_MIN_AGE);
         initializeCache(cacheSizeStr, cacheCountStr, minAgeStr, getFileStorage());
+        readThrough = Boolean.parseBoolean(getProperty(CACHE_READ_THROUGH_PROPERTY, DEFAULT_CACHE_READ_THROUGH));
 
         garbageCollector = instantiateGarbageCollector();
     }
@@ -25,7 +25,9 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -39,15 +41,20 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.Environment;
+import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.ecm.blob.AbstractBinaryGarbageCollector;
 import org.nuxeo.ecm.blob.AbstractCloudBinaryManager;
 import org.nuxeo.ecm.core.api.Blob;
@@ -81,6 +88,8 @@ import com.amazonaws.services.s3.model.ListObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
 import com.amazonaws.services.s3.model.StaticEncryptionMaterialsProvider;
@@ -156,6 +165,27 @@ public class S3BinaryManager extends AbstractCloudBinaryManager {
      */
     public static final String PATHSTYLEACCESS_PROPERTY = "pathstyleaccess";
 
+    /**
+     * Size above which uploads are done in parts, in parallel. AWS TransferManager default 16 MB.
+     *
+     * @since 11.1
+     */
+    public static final String MULTIPART_UPLOAD_THRESHOLD_PROPERTY = "multipart.upload.threshold";
+
+    /**
+     * Minimum size of the parts of a multipart upload. AWS TransferManager default 5 MB.
+     *
+     * @since 11.1
+     */
+    public static final String MULTIPART_PART_SIZE_PROPERTY = "multipart.partsize";
+
+    /**
+     * Number of threads uploading or downloading parts in parallel. AWS TransferManager default 10.
+     *
+     * @since 11.1
+     */
+    public static final String TRANSFER_THREADS_PROPERTY = "transfer.threads";
+
     public static final String DIRECTDOWNLOAD_PROPERTY_COMPAT = "downloadfroms3";
 
     public static final String DIRECTDOWNLOAD_EXPIRE_PROPERTY_COMPAT = "downloadfroms3.expire";
@@ -386,10 +416,32 @@ public class S3BinaryManager extends AbstractCloudBinaryManager {
             directDownloadExpire = dde;
         }
 
-        transferManager = TransferManagerBuilder.standard().withS3Client(amazonS3).build();
+        transferManager = createTransferManager();
         abortOldUploads();
     }
 
+    /**
+     * Creates the transfer manager, doing multipart uploads of large files with parts sent in parallel.
+     *
+     * @since 11.1
+     */
+    protected TransferManager createTransferManager() {
+        TransferManagerBuilder builder = TransferManagerBuilder.standard().withS3Client(amazonS3);
+        String threshold = getProperty(MULTIPART_UPLOAD_THRESHOLD_PROPERTY);
+        if (isNotBlank(threshold)) {
+            builder.withMultipartUploadThreshold(Long.valueOf(SizeUtils.parseSizeInBytes(threshold)));
+        }
+        String partSize = getProperty(MULTIPART_PART_SIZE_PROPERTY);
+        if (isNotBlank(partSize)) {
+            builder.withMinimumUploadPartSize(Long.valueOf(SizeUtils.parseSizeInBytes(partSize)));
+        }
+        int threads = getIntProperty(TRANSFER_THREADS_PROPERTY);
+        if (threads > 0) {
+            builder.withExecutorFactory(() -> Executors.newFixedThreadPool(threads));
+        }
+        return builder.build();
+    }
+
     protected void removeBinary(String digest) {
         amazonS3.deleteObject(bucketName, bucketNamePrefix + digest);
     }
@@ -422,6 +474,22 @@ public class S3BinaryManager extends AbstractCloudBinaryManager {
         return MD5_RE.matcher(digest).matches();
     }
 
+    /**
+     * Gets the base64-encoded MD5 expected by S3 for a hex MD5 digest, or {@code null} if the digest is not an MD5.
+     *
+     * @since 11.1
+     */
+    protected static String getContentMD5(String digest) {
+        if (!isMD5(digest)) {
+            return null;
+        }
+        try {
+            return Base64.encodeBase64String(Hex.decodeHex(digest.toCharArray()));
+        } catch (DecoderException e) {
+            return null;
+        }
+    }
+
     /**
      * Used in the healthCheck; the transferManager should be initialized and the bucket accessible
      *
@@ -584,8 +652,8 @@ public class S3BinaryManager extends AbstractCloudBinaryManager {
                 PutObjectRequest request;
                 if (!isEncrypted) {
                     request = new PutObjectRequest(bucketName, key, file);
+                    ObjectMetadata objectMetadata = new ObjectMetadata();
                     if (useServerSideEncryption) {
-                        ObjectMetadata objectMetadata = new ObjectMetadata();
                         if (isNotBlank(serverSideKMSKeyID)) {
                             SSEAwsKeyManagementParams keyManagementParams = new SSEAwsKeyManagementParams(
                                     serverSideKMSKeyID);
@@ -593,8 +661,15 @@ public class S3BinaryManager extends AbstractCloudBinaryManager {
                         } else {
                             objectMetadata.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
                         }
-                        request.setMetadata(objectMetadata);
                     }
+                    if (file.length() < transferManager.getConfiguration().getMultipartUploadThreshold()) {
+                        // single part: S3 checks the content against the digest computed when storing the file
+                        String contentMD5 = getContentMD5(digest);
+                        if (contentMD5 != null) {
+                            objectMetadata.setContentMD5(contentMD5);
+                        }
+                    }
+                    request.setMetadata(objectMetadata);
                 } else {
                     request = new EncryptedPutObjectRequest(bucketName, key, file);
                 }
@@ -615,6 +690,20 @@ public class S3BinaryManager extends AbstractCloudBinaryManager {
             }
         }
 
+        @Override
+        public InputStream fetchStream(String digest) throws IOException {
+            try {
+                S3Object object = amazonS3.getObject(bucketName, bucketNamePrefix + digest);
+                return new S3ObjectStream(object.getObjectContent(), object.getObjectMetadata().getContentLength(),
+                        digest);
+            } catch (AmazonClientException e) {
+                if (!isMissingKey(e)) {
+                    throw new IOException(e);
+                }
+                return null;
+            }
+        }
+
         @Override
         public boolean fetchFile(String digest, File file) throws IOException {
             long t0 = 0;
@@ -658,6 +747,98 @@ public class S3BinaryManager extends AbstractCloudBinaryManager {
         }
     }
 
+    /**
+     * Stream on the content of an S3 object that aborts the HTTP request when it is closed before the end of the
+     * content. Otherwise the connection would be kept until the remaining bytes are read or the request times out.
+     *
+     * @since 11.1
+     */
+    protected static class S3ObjectStream extends FilterInputStream {
+
+        protected final S3ObjectInputStream content;
+
+        protected final long length;
+
+        protected final String digest;
+
+        protected final long t0;
+
+        protected long count;
+
+        protected boolean eof;
+
+        protected boolean closed;
+
+        public S3ObjectStream(S3ObjectInputStream content, long length, String digest) {
+            super(content);
+            this.content = content;
+            this.length = length;
+            this.digest = digest;
+            t0 = System.currentTimeMillis();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                eof = true;
+            } else {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n < 0) {
+                eof = true;
+            } else {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            // resetting would make the count of read bytes wrong
+            return false;
+        }
+
+        /**
+         * Whether all the content has been read.
+         */
+        public boolean isFullyRead() {
+            return eof || count >= length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean fullyRead = isFullyRead();
+            if (fullyRead) {
+                content.close();
+            } else {
+                content.abort();
+            }
+            if (log.isDebugEnabled()) {
+                long dtms = System.currentTimeMillis() - t0;
+                log.debug("streamed " + count + "/" + length + " bytes of blob " + digest + " from S3 in " + dtms
+                        + "ms" + (fullyRead ? "" : ", aborted"));
+            }
+        }
+    }
+
     /**
      * Garbage collector for S3 binaries that stores the marked (in use) binaries in memory.
      */
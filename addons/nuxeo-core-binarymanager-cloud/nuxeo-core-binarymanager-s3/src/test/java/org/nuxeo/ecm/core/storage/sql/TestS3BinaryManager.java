@@ -19,6 +19,7 @@
 package org.nuxeo.ecm.core.storage.sql;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -30,6 +31,8 @@ import static org.nuxeo.ecm.core.storage.sql.S3BinaryManager.AWS_SECRET_PROPERTY
 import static org.nuxeo.ecm.core.storage.sql.S3BinaryManager.AWS_SESSION_TOKEN_PROPERTY;
 import static org.nuxeo.ecm.core.storage.sql.S3BinaryManager.BUCKET_NAME_PROPERTY;
 import static org.nuxeo.ecm.core.storage.sql.S3BinaryManager.BUCKET_PREFIX_PROPERTY;
+import static org.nuxeo.ecm.core.storage.sql.S3BinaryManager.ENDPOINT_PROPERTY;
+import static org.nuxeo.ecm.core.storage.sql.S3BinaryManager.PATHSTYLEACCESS_PROPERTY;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -41,6 +44,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.conn.ConnectionPoolTimeoutException;
 import org.junit.After;
@@ -55,6 +59,7 @@ import org.nuxeo.ecm.core.api.impl.blob.ByteArrayBlob;
 import org.nuxeo.ecm.core.blob.BlobInfo;
 import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.blob.binary.Binary;
+import org.nuxeo.ecm.core.storage.sql.S3BinaryManager.S3ObjectStream;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.mockito.MockitoFeature;
 import org.nuxeo.runtime.mockito.RuntimeService;
@@ -77,6 +82,10 @@ import com.amazonaws.services.s3.model.S3Object;
  * <li>nuxeo.s3storage.awssecret (or AWS_SECRET_ACCESS_KEY environment variable)</li>
  * </ul>
  * <p>
+ * To run against a local S3-compatible storage instead of AWS, also set the nuxeo.s3storage.endpoint and
+ * nuxeo.s3storage.bucket system properties. The debug logs of {@link S3BinaryManager} then give the time taken by
+ * each download.
+ * <p>
  * ***** NOTE THAT THE TESTS WILL REMOVE ALL FILES IN THE BUCKET!!! *****
  */
 @RunWith(FeaturesRunner.class)
@@ -105,9 +114,14 @@ public class TestS3BinaryManager extends AbstractS3BinaryTest<S3BinaryManager> {
         PROPERTIES.put(AWS_ID_PROPERTY, envId);
         PROPERTIES.put(AWS_SECRET_PROPERTY, envSecret);
         PROPERTIES.put(AWS_SESSION_TOKEN_PROPERTY, envToken);
-        PROPERTIES.put(BUCKET_NAME_PROPERTY, "nuxeo-s3-directupload");
+        PROPERTIES.put(BUCKET_NAME_PROPERTY, System.getProperty("nuxeo.s3storage.bucket", "nuxeo-s3-directupload"));
         PROPERTIES.put(BUCKET_PREFIX_PROPERTY, "testfolder/");
         PROPERTIES.put(S3BinaryManager.BUCKET_REGION_PROPERTY, "eu-west-3");
+        String endpoint = System.getProperty("nuxeo.s3storage.endpoint");
+        if (StringUtils.isNotBlank(endpoint)) {
+            PROPERTIES.put(ENDPOINT_PROPERTY, endpoint);
+            PROPERTIES.put(PATHSTYLEACCESS_PROPERTY, "true");
+        }
     }
 
     @Before
@@ -276,6 +290,31 @@ public class TestS3BinaryManager extends AbstractS3BinaryTest<S3BinaryManager> {
         binaryManager.writeBlob(blob);
     }
 
+    @Test
+    public void testFetchStream() throws IOException {
+        String digest = binaryManager.writeBlob(new ByteArrayBlob(generateRandomBytes(1024 * 1024)));
+        S3ObjectStream stream = (S3ObjectStream) binaryManager.getFileStorage().fetchStream(digest);
+        try {
+            assertEquals(digest, DigestUtils.md5Hex(stream));
+            assertTrue(stream.isFullyRead());
+        } finally {
+            stream.close();
+        }
+        assertFalse(stream.content.getHttpRequest().isAborted());
+
+        // stop reading early, the request is aborted instead of reading the rest of the content
+        stream = (S3ObjectStream) binaryManager.getFileStorage().fetchStream(digest);
+        try {
+            assertEquals(1024, stream.read(new byte[1024]));
+            assertFalse(stream.isFullyRead());
+        } finally {
+            stream.close();
+        }
+        assertTrue(stream.content.getHttpRequest().isAborted());
+
+        assertNull(binaryManager.getFileStorage().fetchStream(CONTENT_MD5));
+    }
+
     protected byte[] generateRandomBytes(int length) {
         byte[] bytes = new byte[length];
         new Random().nextBytes(bytes);
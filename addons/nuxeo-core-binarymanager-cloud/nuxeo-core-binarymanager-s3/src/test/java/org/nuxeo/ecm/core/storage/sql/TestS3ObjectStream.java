@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.methods.HttpGet;
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.sql.S3BinaryManager.S3ObjectStream;
+
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+/**
+ * @since 11.1
+ */
+public class TestS3ObjectStream {
+
+    protected static final byte[] CONTENT = "0123456789abcdef".getBytes();
+
+    protected HttpGet request = new HttpGet("http://localhost/bucket/key");
+
+    protected S3ObjectStream newStream() {
+        S3ObjectInputStream content = new S3ObjectInputStream(new ByteArrayInputStream(CONTENT), request);
+        return new S3ObjectStream(content, CONTENT.length, "key");
+    }
+
+    @Test
+    public void testFullyRead() throws IOException {
+        try (S3ObjectStream stream = newStream()) {
+            assertArrayEquals(CONTENT, IOUtils.toByteArray(stream));
+            assertTrue(stream.isFullyRead());
+        }
+        assertFalse(request.isAborted());
+    }
+
+    @Test
+    public void testReadUpToLength() throws IOException {
+        // the end of the stream is not reached but all the content is read
+        try (S3ObjectStream stream = newStream()) {
+            byte[] bytes = new byte[CONTENT.length];
+            IOUtils.readFully(stream, bytes);
+            assertTrue(stream.isFullyRead());
+        }
+        assertFalse(request.isAborted());
+    }
+
+    @Test
+    public void testAbortWhenNotFullyRead() throws IOException {
+        try (S3ObjectStream stream = newStream()) {
+            assertEquals('0', stream.read());
+            assertEquals(4, stream.read(new byte[4]));
+            assertEquals(2, stream.skip(2));
+            assertFalse(stream.isFullyRead());
+        }
+        assertTrue(request.isAborted());
+    }
+
+    @Test
+    public void testAbortWhenNothingRead() throws IOException {
+        newStream().close();
+        assertTrue(request.isAborted());
+    }
+
+}
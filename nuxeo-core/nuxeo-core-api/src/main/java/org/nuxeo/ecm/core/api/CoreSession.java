@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.nuxeo.ecm.core.api.DocumentModel.DocumentModelRefresh;
 import org.nuxeo.ecm.core.api.event.DocumentEventTypes;
@@ -239,6 +240,18 @@ public interface CoreSession {
      */
     DocumentModelList getDocuments(DocumentRef[] docRefs) throws DocumentNotFoundException;
 
+    /**
+     * Fetches in bulk from the repository the given schemas of the given documents, so that reading them afterwards
+     * from their document models doesn't need a repository round trip per document.
+     * <p>
+     * This is only an optimization hint: missing or inaccessible documents are ignored.
+     *
+     * @param docRefs the document references
+     * @param schemas the schemas that will be read
+     * @since 11.1
+     */
+    void prefetchDocuments(Collection<DocumentRef> docRefs, Collection<String> schemas);
+
     /**
      * Gets a child document given its name and the parent reference.
      * <p>
@@ -1071,6 +1084,25 @@ public interface CoreSession {
      */
     IterableQueryResult queryAndFetch(String query, String queryType, boolean distinctDocuments, Object... params);
 
+    /**
+     * Executes the given query and returns a stream of maps containing the requested properties (which must be closed
+     * when done).
+     * <p>
+     * Unlike {@link #queryAndFetch}, the results are read lazily from a database cursor, so that only a bounded number
+     * of rows is held in memory whatever the size of the result. Some queries are still held and sorted in memory: on
+     * DBS the queries ordered by {@code ecm:path}, as the path is not stored, and on the in-memory repository all the
+     * ordered queries.
+     *
+     * @param query the query to execute
+     * @param queryType the query type, usually "NXQL"
+     * @param distinctDocuments if {@code true} then a maximum of one row per document will be returned
+     * @param params optional query-type-dependent parameters
+     * @return a {@link Stream}, which <b>must</b> be closed after use
+     * @since 11.1
+     */
+    Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType, boolean distinctDocuments,
+            Object... params);
+
     /**
      * Executes the given NXQL query and returns the result that matches the filter.
      *
@@ -21,6 +21,10 @@ package org.nuxeo.ecm.core.api;
 import java.io.Closeable;
 import java.io.Serializable;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An iterable query result based on a cursor.
@@ -82,4 +86,14 @@ public interface IterableQueryResult extends Iterable<Map<String, Serializable>>
      */
     void skipTo(long pos);
 
+    /**
+     * Gets a sequential {@link Stream} on the results not yet iterated. Closing the stream closes this query result.
+     *
+     * @since 11.1
+     */
+    default Stream<Map<String, Serializable>> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED), false)
+                            .onClose(this::close);
+    }
+
 }
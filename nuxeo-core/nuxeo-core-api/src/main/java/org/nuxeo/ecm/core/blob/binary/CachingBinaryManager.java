@@ -20,10 +20,13 @@
 package org.nuxeo.ecm.core.blob.binary;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
@@ -53,6 +56,14 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
 
     protected FileStorage fileStorage;
 
+    /**
+     * Whether a file missing from the cache is streamed from the storage while being written to the cache, instead of
+     * being fully fetched before the first byte is returned.
+     *
+     * @since 11.1
+     */
+    protected boolean readThrough;
+
     @Override
     public void initialize(String blobProviderId, Map<String, String> properties) throws IOException {
         super.initialize(blobProviderId, properties);
@@ -165,6 +176,33 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
 
     /* =============== Methods used by LazyBinary =============== */
 
+    /**
+     * Gets a stream on a file from cache or storage.
+     * <p>
+     * In read-through mode, a file missing from the cache is streamed from the storage if it supports it. The cache is
+     * filled as the stream is read, and the file is only put in the cache if the stream is read to the end and has the
+     * expected digest.
+     * <p>
+     * Used by {@link LazyBinary}.
+     *
+     * @return the stream, or {@code null} if the file is not in the storage
+     * @since 11.1
+     */
+    public InputStream getStream(String digest) throws IOException {
+        File file = fileCache.getFile(digest);
+        if (file == null && readThrough) {
+            InputStream stream = fileStorage.fetchStream(digest);
+            if (stream != null) {
+                return new CacheFillingInputStream(digest, stream);
+            }
+            // storage not able to stream, or missing file
+        }
+        if (file == null) {
+            file = getFile(digest);
+        }
+        return file == null ? null : new FileInputStream(file);
+    }
+
     /**
      * Gets a file from cache or storage.
      * <p>
@@ -189,4 +227,132 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
         }
     }
 
+    /**
+     * Stream returning the bytes of a storage stream, while writing them to a temporary file of the cache and computing
+     * their digest. A failure to write to the cache does not fail the stream.
+     *
+     * @since 11.1
+     */
+    protected class CacheFillingInputStream extends InputStream {
+
+        protected final String digest;
+
+        protected final InputStream in;
+
+        protected final MessageDigest messageDigest;
+
+        protected File tmp;
+
+        protected OutputStream out;
+
+        protected boolean eof;
+
+        protected CacheFillingInputStream(String digest, InputStream in) throws IOException {
+            this.digest = digest;
+            this.in = in;
+            try {
+                messageDigest = MessageDigest.getInstance(getDigestAlgorithm());
+            } catch (NoSuchAlgorithmException e) {
+                in.close();
+                throw new IOException(e);
+            }
+            try {
+                tmp = fileCache.getTempFile();
+                out = new FileOutputStream(tmp);
+            } catch (IOException e) {
+                log.warn("Cannot write to binary cache, streaming " + digest + " without caching: " + e);
+                discard();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                endOfStream();
+            } else {
+                messageDigest.update((byte) b);
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                endOfStream();
+            } else {
+                messageDigest.update(b, off, n);
+                write(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return in.available();
+        }
+
+        protected void write(byte[] b, int off, int len) {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                log.warn("Cannot write to binary cache, streaming " + digest + " without caching: " + e);
+                discard();
+            }
+        }
+
+        protected void endOfStream() throws IOException {
+            if (eof) {
+                return;
+            }
+            eof = true;
+            String currentDigest = toHexString(messageDigest.digest());
+            if (!currentDigest.equals(digest)) {
+                discard();
+                throw new IOException("Invalid stored file, expected digest is " + digest + " got " + currentDigest);
+            }
+            if (out != null) {
+                try {
+                    out.close();
+                    out = null;
+                    fileCache.putFile(digest, tmp);
+                    tmp = null;
+                } catch (IOException e) {
+                    log.warn("Cannot write to binary cache: " + digest + ": " + e);
+                    discard();
+                }
+            }
+        }
+
+        protected void discard() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    log.debug(e, e);
+                }
+                out = null;
+            }
+            if (tmp != null) {
+                tmp.delete();
+                tmp = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                // incomplete file not cached
+                discard();
+            } finally {
+                in.close();
+            }
+        }
+    }
+
 }
@@ -20,6 +20,7 @@ package org.nuxeo.ecm.core.blob.binary;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Interface to store a file or fetch a file or its length.
@@ -47,4 +48,18 @@ public interface FileStorage {
      */
     boolean fetchFile(String key, File file) throws IOException;
 
+    /**
+     * Opens a stream on a file based on its key, for storages able to stream their content.
+     * <p>
+     * Returns {@code null} if the storage cannot stream, or if the file was not found.
+     *
+     * @param key the file key
+     * @return the stream, or {@code null}
+     * @throws IOException if a storage error occurred
+     * @since 11.1
+     */
+    default InputStream fetchStream(String key) throws IOException {
+        return null;
+    }
+
 }
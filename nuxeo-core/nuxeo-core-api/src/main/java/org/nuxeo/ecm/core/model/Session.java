@@ -20,9 +20,11 @@
 package org.nuxeo.ecm.core.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentNotFoundException;
@@ -62,6 +64,18 @@ public interface Session<T extends QueryFilter> {
     IterableQueryResult queryAndFetch(String query, String queryType, T queryFilter, boolean distinctDocuments,
             Object[] params);
 
+    /**
+     * Does a query and streams the individual results as maps, holding a bounded number of them in memory.
+     * <p>
+     * The returned stream must be closed.
+     *
+     * @since 11.1
+     */
+    default Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType, T queryFilter,
+            boolean distinctDocuments, Object[] params) {
+        return queryAndFetch(query, queryType, queryFilter, distinctDocuments, params).stream();
+    }
+
     /**
      * Does a query and fetch the individual results as maps.
      *
@@ -134,6 +148,29 @@ public interface Session<T extends QueryFilter> {
      */
     Document getDocumentByUUID(String uuid) throws DocumentNotFoundException;
 
+    /**
+     * Gets several documents given their IDs, loading in bulk the data of the given schemas that will be read from
+     * them.
+     * <p>
+     * Missing documents, or documents that cannot be instantiated, are not returned.
+     *
+     * @param uuids the document ids
+     * @param schemas the schemas that will be read, in addition to the prefetched ones, or {@code null}
+     * @return the documents, in the order of the ids
+     * @since 11.1
+     */
+    default List<Document> getDocumentsByUUIDs(List<String> uuids, Collection<String> schemas) {
+        List<Document> docs = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            try {
+                docs.add(getDocumentByUUID(uuid));
+            } catch (DocumentNotFoundException e) {
+                // skip
+            }
+        }
+        return docs;
+    }
+
     /**
      * Gets the root document in this repository.
      *
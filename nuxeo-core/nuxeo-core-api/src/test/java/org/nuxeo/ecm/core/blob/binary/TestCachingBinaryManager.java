@@ -0,0 +1,176 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.blob.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+public class TestCachingBinaryManager {
+
+    private static final String CONTENT = "this is a file au caf\u00e9";
+
+    private static final String CONTENT_MD5 = "d25ea4f4642073b7f218024d397dbaef";
+
+    /** In-memory storage, able to stream. */
+    protected static class MemFileStorage implements FileStorage {
+
+        protected final Map<String, byte[]> files = new ConcurrentHashMap<>();
+
+        protected int fetchCount;
+
+        @Override
+        public void storeFile(String key, File file) throws IOException {
+            files.put(key, Files.readAllBytes(file.toPath()));
+        }
+
+        @Override
+        public boolean fetchFile(String key, File file) throws IOException {
+            fetchCount++;
+            byte[] bytes = files.get(key);
+            if (bytes == null) {
+                return false;
+            }
+            Files.write(file.toPath(), bytes);
+            return true;
+        }
+
+        @Override
+        public InputStream fetchStream(String key) {
+            fetchCount++;
+            byte[] bytes = files.get(key);
+            return bytes == null ? null : new ByteArrayInputStream(bytes);
+        }
+    }
+
+    protected static class MemCachingBinaryManager extends CachingBinaryManager {
+    }
+
+    protected MemFileStorage fileStorage;
+
+    protected CachingBinaryManager binaryManager;
+
+    @Before
+    public void setUp() throws IOException {
+        fileStorage = new MemFileStorage();
+        binaryManager = new MemCachingBinaryManager();
+        binaryManager.initialize("mem", Collections.emptyMap());
+        binaryManager.initializeCache("1 MB", fileStorage);
+    }
+
+    @After
+    public void tearDown() {
+        binaryManager.close();
+    }
+
+    protected Binary store(String content) throws IOException {
+        return binaryManager.getBinary(new ByteArrayInputStream(content.getBytes(UTF_8)));
+    }
+
+    protected static String read(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            return IOUtils.toString(in, UTF_8);
+        }
+    }
+
+    @Test
+    public void testReadThrough() throws IOException {
+        binaryManager.readThrough = true;
+        Binary binary = store(CONTENT);
+        assertEquals(CONTENT_MD5, binary.getDigest());
+        assertTrue(fileStorage.files.containsKey(CONTENT_MD5));
+
+        // not in cache, streamed from the storage
+        binaryManager.fileCache.clear();
+        assertNull(binaryManager.fileCache.getFile(CONTENT_MD5));
+        assertEquals(CONTENT, read(binary.getStream()));
+        assertEquals(1, fileStorage.fetchCount);
+
+        // now in cache
+        assertNotNull(binaryManager.fileCache.getFile(CONTENT_MD5));
+        assertEquals(CONTENT, read(binary.getStream()));
+        assertEquals(1, fileStorage.fetchCount);
+    }
+
+    @Test
+    public void testReadThroughPartialRead() throws IOException {
+        binaryManager.readThrough = true;
+        Binary binary = store(CONTENT);
+        binaryManager.fileCache.clear();
+
+        try (InputStream in = binary.getStream()) {
+            assertEquals('t', in.read());
+        }
+        // incomplete file not cached
+        assertNull(binaryManager.fileCache.getFile(CONTENT_MD5));
+    }
+
+    @Test
+    public void testReadThroughCorrupted() throws IOException {
+        binaryManager.readThrough = true;
+        Binary binary = store(CONTENT);
+        binaryManager.fileCache.clear();
+        fileStorage.files.put(CONTENT_MD5, "corrupted".getBytes(UTF_8));
+
+        try {
+            read(binary.getStream());
+            fail("should fail on corrupted content");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(CONTENT_MD5));
+        }
+        assertNull(binaryManager.fileCache.getFile(CONTENT_MD5));
+    }
+
+    @Test
+    public void testNoReadThrough() throws IOException {
+        Binary binary = store(CONTENT);
+        binaryManager.fileCache.clear();
+
+        // fetched fully into the cache first
+        assertEquals(CONTENT, read(binary.getStream()));
+        assertNotNull(binaryManager.fileCache.getFile(CONTENT_MD5));
+
+        // missing file
+        assertNull(binaryManager.getBinary("00000000000000000000000000000000").getStream());
+    }
+
+}
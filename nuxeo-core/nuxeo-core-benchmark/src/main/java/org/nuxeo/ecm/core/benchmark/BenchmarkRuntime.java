@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.List;
+
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.InitializationError;
+import org.nuxeo.ecm.core.test.StorageConfiguration;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Drives the lifecycle of a {@link FeaturesRunner} outside of JUnit, so that a JMH benchmark can reuse the features
+ * and deployments of the test framework from its {@code @Setup} and {@code @TearDown} methods.
+ * <p>
+ * The configuration class is a regular test class without test methods, annotated with {@code @Features},
+ * {@code @Deploy}, {@code @RepositoryConfig}...
+ *
+ * @since 11.1
+ */
+public class BenchmarkRuntime extends FeaturesRunner {
+
+    protected boolean started;
+
+    public BenchmarkRuntime(Class<?> configuration) throws InitializationError {
+        super(configuration);
+    }
+
+    /**
+     * Starts a runtime for the given configuration class, using the given core storage ({@code mem}, {@code vcs},
+     * {@code mongodb}).
+     */
+    public static BenchmarkRuntime start(Class<?> configuration, String core) throws InitializationError {
+        System.setProperty(StorageConfiguration.CORE_PROPERTY, core);
+        BenchmarkRuntime runtime = new BenchmarkRuntime(configuration);
+        runtime.startRuntime();
+        return runtime;
+    }
+
+    public void startRuntime() {
+        injector = onInjector(new RunNotifier());
+        try {
+            initialize();
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot initialize features of " + getTargetTestClass(), e);
+        }
+        start();
+        beforeRun();
+        started = true;
+    }
+
+    public void stopRuntime() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        try {
+            afterRun();
+        } finally {
+            stop();
+        }
+    }
+
+    @Override
+    protected void collectInitializationErrors(List<Throwable> errors) {
+        // a benchmark configuration has no test method
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.nuxeo.lib.stream.codec.AvroMessageCodec;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RawRecordCodec;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.log.LogAppender;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogOffset;
+import org.nuxeo.lib.stream.log.LogRecord;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.chronicle.ChronicleLogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Append and tail throughput of a Chronicle Queue based Log.
+ *
+ * @since 11.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChronicleLogBenchmark {
+
+    protected static final String LOG_NAME = "bench";
+
+    protected static final String GROUP = "bench-group";
+
+    protected static final Duration READ_TIMEOUT = Duration.ofSeconds(1);
+
+    /**
+     * {@code legacy} writes the record as Externalizable, {@code avro} uses an Avro codec, {@code raw} writes the
+     * record fields directly in the queue.
+     */
+    @Param({ "legacy", AvroMessageCodec.NAME, RawRecordCodec.NAME })
+    public String codecName;
+
+    @Param({ "100", "4096" })
+    public int dataSize;
+
+    protected Path basePath;
+
+    protected LogManager manager;
+
+    protected LogAppender<Record> appender;
+
+    protected LogTailer<Record> tailer;
+
+    protected Record record;
+
+    @SuppressWarnings("unchecked")
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        basePath = Files.createTempDirectory("nuxeo-bench-chronicle");
+        manager = new ChronicleLogManager(basePath);
+        manager.createIfNotExists(LOG_NAME, 1);
+        Codec<Record> codec = "legacy".equals(codecName) ? NO_CODEC : RecordCodecBenchmark.getCodec(codecName);
+        appender = manager.getAppender(LOG_NAME, codec);
+        tailer = manager.createTailer(GROUP, LOG_NAME, codec);
+        byte[] data = new byte[dataSize];
+        ThreadLocalRandom.current().nextBytes(data);
+        record = Record.of("key-0123456789", data);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        tailer.close();
+        manager.close();
+        FileUtils.deleteQuietly(basePath.toFile());
+    }
+
+    @Benchmark
+    public LogOffset append() {
+        return appender.append(0, record);
+    }
+
+    @Benchmark
+    public Record appendAndTail() throws InterruptedException {
+        appender.append(0, record);
+        LogRecord<Record> logRecord = tailer.read(READ_TIMEOUT);
+        if (logRecord == null) {
+            throw new IllegalStateException("Timeout reading Log: " + LOG_NAME);
+        }
+        return logRecord.message();
+    }
+
+}
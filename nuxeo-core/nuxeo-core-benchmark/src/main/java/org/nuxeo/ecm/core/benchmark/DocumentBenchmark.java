@@ -0,0 +1,127 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Document create/read/update through a {@link CoreSession}, each operation runs in its own transaction.
+ *
+ * @since 11.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DocumentBenchmark {
+
+    protected static final int NB_DOCUMENTS = 1000;
+
+    /** The core storage: {@code mem} for the in-memory DBS repository, {@code vcs} for VCS on H2. */
+    @Param({ "mem", "vcs" })
+    public String core;
+
+    protected BenchmarkRuntime runtime;
+
+    protected CoreSession session;
+
+    protected DocumentModel folder;
+
+    protected List<DocumentRef> refs;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        runtime = BenchmarkRuntime.start(CoreBenchmarkConfiguration.class, core);
+        session = runtime.getFeature(CoreFeature.class).getCoreSession();
+        refs = new ArrayList<>(NB_DOCUMENTS);
+        TransactionHelper.runInTransaction(() -> {
+            folder = session.createDocument(session.createDocumentModel("/", "bench", "Folder"));
+            for (int i = 0; i < NB_DOCUMENTS; i++) {
+                refs.add(createFile(i).getRef());
+            }
+            session.save();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        runtime.stopRuntime();
+    }
+
+    protected DocumentModel createFile(int i) {
+        DocumentModel doc = session.createDocumentModel(folder.getPathAsString(), "file" + i, "File");
+        doc.setPropertyValue("dc:title", "File " + i);
+        doc.setPropertyValue("dc:description", "A file created by the benchmark");
+        return session.createDocument(doc);
+    }
+
+    protected DocumentRef randomRef() {
+        return refs.get(ThreadLocalRandom.current().nextInt(refs.size()));
+    }
+
+    @Benchmark
+    public DocumentModel create() {
+        return TransactionHelper.runInTransaction(() -> {
+            DocumentModel doc = createFile(ThreadLocalRandom.current().nextInt());
+            session.save();
+            return doc;
+        });
+    }
+
+    @Benchmark
+    public Object read() {
+        return TransactionHelper.runInTransaction(() -> session.getDocument(randomRef()).getPropertyValue("dc:title"));
+    }
+
+    @Benchmark
+    public DocumentModel update() {
+        return TransactionHelper.runInTransaction(() -> {
+            DocumentModel doc = session.getDocument(randomRef());
+            doc.setPropertyValue("dc:description", String.valueOf(System.nanoTime()));
+            doc = session.saveDocument(doc);
+            session.save();
+            return doc;
+        });
+    }
+
+}
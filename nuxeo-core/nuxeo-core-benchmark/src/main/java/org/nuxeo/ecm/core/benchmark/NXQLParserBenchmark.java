@@ -0,0 +1,63 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NXQL parsing through {@link SQLQueryParser}, no runtime needed.
+ *
+ * @since 11.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NXQLParserBenchmark {
+
+    @Param({ "SELECT * FROM Document WHERE ecm:parentId = '0f7f8a4a-8a9e-4c9b-9b35-4bd3b8b58a4c'",
+            "SELECT * FROM Document WHERE ecm:mixinType != 'HiddenInNavigation' AND ecm:isProxy = 0"
+                    + " AND ecm:isVersion = 0 AND ecm:isTrashed = 0"
+                    + " AND ecm:ancestorId = '0f7f8a4a-8a9e-4c9b-9b35-4bd3b8b58a4c' ORDER BY dc:modified DESC",
+            "SELECT ecm:uuid, dc:title FROM File, Note WHERE ecm:fulltext = 'nuxeo platform'"
+                    + " AND dc:modified BETWEEN DATE '2019-01-01' AND DATE '2019-12-31'"
+                    + " AND dc:subjects IN ('art', 'science') AND dc:creator LIKE 'Adm%'" })
+    public String query;
+
+    @Benchmark
+    public SQLQuery parse() {
+        return SQLQueryParser.parse(query);
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.api.model.DocumentPart;
+import org.nuxeo.ecm.core.api.model.impl.DocumentPartImpl;
+import org.nuxeo.ecm.core.schema.SchemaManager;
+import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.runtime.api.Framework;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Property get/set on a {@link DocumentPartImpl} of the {@code dublincore} schema.
+ *
+ * @since 11.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PropertyBenchmark {
+
+    protected BenchmarkRuntime runtime;
+
+    protected Schema schema;
+
+    protected DocumentPart part;
+
+    protected Map<String, Serializable> values;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        runtime = BenchmarkRuntime.start(CoreBenchmarkConfiguration.class, "mem");
+        schema = Framework.getService(SchemaManager.class).getSchema("dublincore");
+        values = new HashMap<>();
+        values.put("title", "The title");
+        values.put("description", "The description");
+        values.put("subjects", new String[] { "art", "science", "sport" });
+        values.put("contributors", new String[] { "Administrator", "bob", "joe" });
+        values.put("modified", Calendar.getInstance());
+        part = new DocumentPartImpl(schema);
+        part.init((Serializable) values);
+        part.clearDirtyFlags();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        runtime.stopRuntime();
+    }
+
+    @Benchmark
+    public Serializable getScalar() {
+        return part.getValue("title");
+    }
+
+    @Benchmark
+    public Serializable getList() {
+        return part.getValue("subjects");
+    }
+
+    @Benchmark
+    public Serializable getPart() {
+        return part.getValue();
+    }
+
+    @Benchmark
+    public boolean setScalar() {
+        part.setValue("title", "Another title");
+        return part.isDirty();
+    }
+
+    @Benchmark
+    public boolean setList() {
+        part.setValue("subjects", Arrays.asList("music", "science"));
+        return part.isDirty();
+    }
+
+    @Benchmark
+    public DocumentPart initPart() {
+        DocumentPart dp = new DocumentPartImpl(schema);
+        dp.init((Serializable) values);
+        return dp;
+    }
+
+}
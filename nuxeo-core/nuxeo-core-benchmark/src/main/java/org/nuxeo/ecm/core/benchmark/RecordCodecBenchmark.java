@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.lib.stream.codec.AvroBinaryCodec;
+import org.nuxeo.lib.stream.codec.AvroMessageCodec;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RawRecordCodec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.lib.stream.computation.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of a stream {@link Record} with the available codecs.
+ *
+ * @since 11.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordCodecBenchmark {
+
+    @Param({ SerializableCodec.NAME, AvroMessageCodec.NAME, AvroBinaryCodec.NAME, RawRecordCodec.NAME })
+    public String codecName;
+
+    @Param({ "100", "4096" })
+    public int dataSize;
+
+    protected Codec<Record> codec;
+
+    protected Record record;
+
+    protected byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = getCodec(codecName);
+        byte[] data = new byte[dataSize];
+        ThreadLocalRandom.current().nextBytes(data);
+        record = Record.of("key-0123456789", data);
+        encoded = codec.encode(record);
+    }
+
+    protected static Codec<Record> getCodec(String name) {
+        switch (name) {
+        case SerializableCodec.NAME:
+            return new SerializableCodec<>();
+        case AvroMessageCodec.NAME:
+            return new AvroMessageCodec<>(Record.class);
+        case AvroBinaryCodec.NAME:
+            return new AvroBinaryCodec<>(Record.class);
+        case RawRecordCodec.NAME:
+            return new RawRecordCodec();
+        default:
+            throw new IllegalArgumentException("Unknown codec: " + name);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(record);
+    }
+
+    @Benchmark
+    public Record decode() {
+        return codec.decode(encoded);
+    }
+
+}
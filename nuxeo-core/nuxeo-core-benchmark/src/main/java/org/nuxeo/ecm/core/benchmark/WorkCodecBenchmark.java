@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.work.SleepWork;
+import org.nuxeo.ecm.core.work.WorkCodec;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.WorkSchedulePath;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding of a work with the compact format of the {@link WorkCodec} and with Java serialization.
+ * <p>
+ * The size of the encoded work is reported by the {@code encodedBytes} secondary result.
+ *
+ * @since 11.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkCodecBenchmark {
+
+    @Param({ SerializableCodec.NAME, WorkCodec.NAME })
+    public String codecName;
+
+    protected Codec<Work> codec;
+
+    protected Work work;
+
+    protected byte[] encoded;
+
+    /**
+     * Reports the size of the encoded work, constant for a trial.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Size {
+
+        public long encodedBytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        codec = SerializableCodec.NAME.equals(codecName) ? new SerializableCodec<>() : new WorkCodec();
+        SleepWork sleepWork = new SleepWork(123, "myCategory", "myId");
+        sleepWork.setDocuments("default", Arrays.asList("0ab5e3b2-1b1c-4b8f-9e0c-5a1cd1dd6b3a",
+                "7fcbe0e1-52b0-4bd8-8f3e-32a9b43c3a1d"));
+        sleepWork.setOriginatingUsername("Administrator");
+        sleepWork.setSchedulePath(new WorkSchedulePath("/parent", "myCategory:myId"));
+        work = sleepWork;
+        encoded = codec.encode(work);
+    }
+
+    @Benchmark
+    public byte[] encode(Size size) {
+        byte[] data = codec.encode(work);
+        size.encodedBytes = data.length;
+        return data;
+    }
+
+    @Benchmark
+    public Work decode() {
+        return codec.decode(encoded);
+    }
+
+}
@@ -74,10 +74,16 @@ public class BulkAdminServiceImpl implements BulkAdminService {
 
     public static final String BULK_STATUS_MAX_DELAY_PROPERTY = "nuxeo.core.bulk.status.maxDelayMillis";
 
+    /** @since 11.1 */
+    public static final String BULK_STATUS_BATCH_SIZE_PROPERTY = "nuxeo.core.bulk.status.batchSize";
+
     public static final String BULK_SCROLL_SIZE_PROPERTY = "nuxeo.core.bulk.scroller.scroll.size";
 
     public static final String BULK_SCROLL_KEEP_ALIVE_PROPERTY = "nuxeo.core.bulk.scroller.scroll.keepAliveSeconds";
 
+    /** @since 11.1 */
+    public static final String BULK_SCROLL_PARTITIONS_PROPERTY = "nuxeo.core.bulk.scroller.scroll.partitions";
+
     public static final String BULK_SCROLL_PRODUCE_IMMEDIATE_PROPERTY = "nuxeo.core.bulk.scroller.produceImmediate";
 
     public static final String BULK_SCROLL_CONTINUE_ON_FAILURE_PROPERTY = "nuxeo.core.bulk.scroller.continueOnFailure";
@@ -90,12 +96,24 @@ public class BulkAdminServiceImpl implements BulkAdminService {
 
     public static final int DEFAULT_STATUS_MAX_DELAY_MILLIS = 10000;
 
+    /** @since 11.1 */
+    public static final int DEFAULT_STATUS_BATCH_SIZE = 100;
+
+    /** @since 11.1 */
+    public static final long DEFAULT_STATUS_BATCH_MAX_BYTES = 1024 * 1024;
+
+    /** @since 11.1 */
+    public static final Duration DEFAULT_STATUS_BATCH_THRESHOLD = Duration.ofMillis(100);
+
     public static final int DEFAULT_SCROLLER_CONCURRENCY = 1;
 
     public static final int DEFAULT_SCROLL_SIZE = 100;
 
     public static final int DEFAULT_SCROLL_KEEP_ALIVE = 60;
 
+    /** @since 11.1 */
+    public static final int DEFAULT_SCROLL_PARTITIONS = 1;
+
     public static final Duration STOP_DURATION = Duration.ofSeconds(1);
 
     protected final Map<String, BulkActionDescriptor> descriptors;
@@ -144,16 +162,31 @@ public class BulkAdminServiceImpl implements BulkAdminService {
                                                            confService.getInteger(BULK_STATUS_MAX_DELAY_PROPERTY,
                                                                    DEFAULT_STATUS_MAX_DELAY_MILLIS),
                                                            TimeUnit.MILLISECONDS);
+        // deltas are merged by command when read by batch
+        int statusBatchSize = confService.getInteger(BULK_STATUS_BATCH_SIZE_PROPERTY, DEFAULT_STATUS_BATCH_SIZE);
         ComputationPolicy statusPolicy = new ComputationPolicyBuilder().continueOnFailure(
-                confService.isBooleanTrue(BULK_STATUS_CONTINUE_ON_FAILURE_PROPERTY)).retryPolicy(retryPolicy).build();
-        settings.setPolicy(SCROLLER_NAME, statusPolicy);
+                confService.isBooleanTrue(BULK_STATUS_CONTINUE_ON_FAILURE_PROPERTY))
+                                                                       .retryPolicy(retryPolicy)
+                                                                       .readBatchPolicy(statusBatchSize,
+                                                                               DEFAULT_STATUS_BATCH_MAX_BYTES,
+                                                                               DEFAULT_STATUS_BATCH_THRESHOLD)
+                                                                       .build();
+        settings.setPolicy(STATUS_NAME, statusPolicy);
         int scrollSize = confService.getInteger(BULK_SCROLL_SIZE_PROPERTY, DEFAULT_SCROLL_SIZE);
         int scrollKeepAlive = confService.getInteger(BULK_SCROLL_KEEP_ALIVE_PROPERTY, DEFAULT_SCROLL_KEEP_ALIVE);
+        int scrollPartitions = confService.getInteger(BULK_SCROLL_PARTITIONS_PROPERTY, DEFAULT_SCROLL_PARTITIONS);
         boolean scrollProduceImmediate = confService.isBooleanTrue(BULK_SCROLL_PRODUCE_IMMEDIATE_PROPERTY);
-        streamProcessor = streamManager.registerAndCreateProcessor("bulk", getTopology(scrollSize, scrollKeepAlive, scrollProduceImmediate), settings);
+        streamProcessor = streamManager.registerAndCreateProcessor("bulk",
+                getTopology(scrollSize, scrollKeepAlive, scrollPartitions, scrollProduceImmediate), settings);
     }
 
     protected Topology getTopology(int scrollBatchSize, int scrollKeepAlive, boolean scrollProduceImmediate) {
+        return getTopology(scrollBatchSize, scrollKeepAlive, DEFAULT_SCROLL_PARTITIONS, scrollProduceImmediate);
+    }
+
+    /** @since 11.1 */
+    protected Topology getTopology(int scrollBatchSize, int scrollKeepAlive, int scrollPartitions,
+            boolean scrollProduceImmediate) {
         List<String> mapping = new ArrayList<>();
         mapping.add(INPUT_1 + ":" + COMMAND_STREAM);
         int i = 1;
@@ -165,7 +198,7 @@ public class BulkAdminServiceImpl implements BulkAdminService {
         return Topology.builder()
                        .addComputation( //
                                () -> new BulkScrollerComputation(SCROLLER_NAME, actions.size() + 1, scrollBatchSize,
-                                       scrollKeepAlive, scrollProduceImmediate), //
+                                       scrollKeepAlive, scrollPartitions, scrollProduceImmediate), //
                                mapping)
                        .addComputation(() -> new BulkStatusComputation(STATUS_NAME),
                                Arrays.asList(INPUT_1 + ":" + STATUS_STREAM, //
@@ -19,6 +19,7 @@
 
 package org.nuxeo.ecm.core.bulk;
 
+import org.nuxeo.ecm.core.bulk.io.BulkBucketCodec;
 import org.nuxeo.ecm.core.bulk.message.BulkBucket;
 import org.nuxeo.ecm.core.bulk.message.BulkCommand;
 import org.nuxeo.ecm.core.bulk.message.BulkStatus;
@@ -26,6 +27,7 @@ import org.nuxeo.ecm.core.bulk.message.DataBucket;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.codec.CodecService;
+import org.nuxeo.runtime.services.config.ConfigurationService;
 
 /**
  * Helper class for codecs.
@@ -36,6 +38,19 @@ public class BulkCodecs {
 
     public static final String DEFAULT_CODEC = "avro";
 
+    /**
+     * The codec used to write the buckets, {@value #DEFAULT_CODEC} by default, or {@value BulkBucketCodec#NAME} once
+     * all the nodes of a cluster read the compact format. Both are always readable.
+     * <p>
+     * The codec is looked up once by each computation, see {@link #getBucketCodec()}.
+     *
+     * @since 11.1
+     */
+    public static final String BUCKET_CODEC_PROPERTY = "nuxeo.core.bulk.bucket.codec";
+
+    /** @since 11.1 */
+    public static final String BUCKET_COMPRESSION_PROPERTY = "nuxeo.core.bulk.bucket.compression";
+
     private BulkCodecs() {
         // utility class
     }
@@ -48,8 +63,19 @@ public class BulkCodecs {
         return Framework.getService(CodecService.class).getCodec(DEFAULT_CODEC, BulkStatus.class);
     }
 
+    /**
+     * Creates the codec of the buckets from the configuration, to be kept by the caller.
+     *
+     * @see #BUCKET_CODEC_PROPERTY
+     */
     public static Codec<BulkBucket> getBucketCodec() {
-        return Framework.getService(CodecService.class).getCodec(DEFAULT_CODEC, BulkBucket.class);
+        Codec<BulkBucket> legacyCodec = Framework.getService(CodecService.class)
+                                                 .getCodec(DEFAULT_CODEC, BulkBucket.class);
+        ConfigurationService confService = Framework.getService(ConfigurationService.class);
+        boolean compact = BulkBucketCodec.NAME.equals(
+                confService.getString(BUCKET_CODEC_PROPERTY, DEFAULT_CODEC));
+        boolean compress = confService.isBooleanTrue(BUCKET_COMPRESSION_PROPERTY);
+        return new BulkBucketCodec(legacyCodec, compact, compress);
     }
 
     public static Codec<DataBucket> getDataBucketCodec() {
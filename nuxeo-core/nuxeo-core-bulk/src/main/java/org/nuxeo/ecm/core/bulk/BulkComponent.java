@@ -55,6 +55,7 @@ public class BulkComponent extends DefaultComponent {
         super.start(context);
         bulkAdminService = new BulkAdminServiceImpl(getEnabledDescriptors());
         bulkService = new BulkServiceImpl();
+        ((BulkServiceImpl) bulkService).initInvalidator();
         new ComponentListener().install();
     }
 
@@ -77,6 +78,9 @@ public class BulkComponent extends DefaultComponent {
                 ((BulkAdminServiceImpl) bulkAdminService).beforeStop();
                 bulkAdminService = null;
             }
+            if (bulkService != null) {
+                ((BulkServiceImpl) bulkService).closeInvalidator();
+            }
             bulkService = null;
             Framework.getRuntime().getComponentManager().removeListener(this);
         }
@@ -18,20 +18,26 @@
  */
 package org.nuxeo.ecm.core.bulk;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.ABORTED;
 import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.COMPLETED;
 import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.SCHEDULED;
 import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.UNKNOWN;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.repository.RepositoryManager;
 import org.nuxeo.ecm.core.bulk.message.BulkCommand;
@@ -40,12 +46,18 @@ import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.log.LogManager;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.cluster.ClusterService;
 import org.nuxeo.runtime.codec.CodecService;
 import org.nuxeo.runtime.kv.KeyValueService;
 import org.nuxeo.runtime.kv.KeyValueStore;
 import org.nuxeo.runtime.kv.KeyValueStoreProvider;
+import org.nuxeo.runtime.pubsub.AbstractPubSubBroker;
+import org.nuxeo.runtime.pubsub.SerializableMessage;
 import org.nuxeo.runtime.stream.StreamService;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Basic implementation of {@link BulkService}.
  *
@@ -79,6 +91,99 @@ public class BulkServiceImpl implements BulkService {
     // How long we keep the command and its status in the kv store once aborted
     public static final long ABORTED_TTL_SECONDS = 7_200;
 
+    /** @since 11.1 */
+    public static final String ABORT_PUBSUB_TOPIC = "bulkabort";
+
+    /**
+     * How long a command known as not aborted is trusted before reading its status again, aborts on other nodes are
+     * pushed immediately when clustering is enabled.
+     *
+     * @since 11.1
+     */
+    public static final long ABORT_CHECK_TTL_SECONDS = 10;
+
+    /** Commands known as aborted, by an abort on this node, a message from another node or a status read. */
+    protected final Cache<String, Boolean> abortedCommands = CacheBuilder.newBuilder()
+                                                                        .expireAfterWrite(ABORTED_TTL_SECONDS,
+                                                                                TimeUnit.SECONDS)
+                                                                        .build();
+
+    /** Commands whose status was recently read as not aborted. */
+    protected final Cache<String, Boolean> notAbortedCommands = CacheBuilder.newBuilder()
+                                                                           .expireAfterWrite(ABORT_CHECK_TTL_SECONDS,
+                                                                                   TimeUnit.SECONDS)
+                                                                           .build();
+
+    protected AbortInvalidator invalidator;
+
+    /**
+     * Notification of a command abort sent to other nodes.
+     *
+     * @since 11.1
+     */
+    public static class AbortInvalidation implements SerializableMessage {
+
+        private static final long serialVersionUID = 1L;
+
+        public final String commandId;
+
+        public AbortInvalidation(String commandId) {
+            this.commandId = commandId;
+        }
+
+        @Override
+        public void serialize(OutputStream out) throws IOException {
+            IOUtils.write(commandId, out, UTF_8);
+        }
+
+        public static AbortInvalidation deserialize(InputStream in) throws IOException {
+            String commandId = IOUtils.toString(in, UTF_8);
+            return new AbortInvalidation(commandId);
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(" + commandId + ")";
+        }
+    }
+
+    /** @since 11.1 */
+    public class AbortInvalidator extends AbstractPubSubBroker<AbortInvalidation> {
+
+        @Override
+        public AbortInvalidation deserialize(InputStream in) throws IOException {
+            return AbortInvalidation.deserialize(in);
+        }
+
+        @Override
+        public void receivedMessage(AbortInvalidation message) {
+            setAbortedCommand(message.commandId);
+        }
+    }
+
+    /**
+     * Registers the invalidator propagating aborts to the other nodes, when clustering is enabled.
+     *
+     * @since 11.1
+     */
+    public void initInvalidator() {
+        ClusterService clusterService = Framework.getService(ClusterService.class);
+        if (clusterService == null || !clusterService.isEnabled()) {
+            log.debug("Not registering a bulk abort invalidator because clustering is not enabled");
+            return;
+        }
+        invalidator = new AbortInvalidator();
+        invalidator.initialize(ABORT_PUBSUB_TOPIC, clusterService.getNodeId());
+    }
+
+    /** @since 11.1 */
+    public void closeInvalidator() {
+        if (invalidator != null) {
+            invalidator.close();
+            invalidator = null;
+        }
+    }
+
     @Override
     public String submit(BulkCommand command) {
         log.debug("Run action with command={}", command);
@@ -201,9 +306,43 @@ public class BulkServiceImpl implements BulkService {
         delta.setState(ABORTED);
         byte[] statusAsBytes = BulkCodecs.getStatusCodec().encode(delta);
         abort(commandId, statusAsBytes);
+        setAbortedCommand(commandId);
+        if (invalidator != null) {
+            invalidator.sendMessage(new AbortInvalidation(commandId));
+        }
         return status;
     }
 
+    protected void setAbortedCommand(String commandId) {
+        abortedCommands.put(commandId, Boolean.TRUE);
+        notAbortedCommands.invalidate(commandId);
+    }
+
+    /**
+     * Checks if a command has been aborted.
+     * <p>
+     * Unlike {@link #getStatus}, this is cheap enough to be called frequently by computations: aborts done on this
+     * node or pushed by other nodes are known immediately, and the status is otherwise read at most every
+     * {@link #ABORT_CHECK_TTL_SECONDS}.
+     *
+     * @since 11.1
+     */
+    public boolean isAbortedCommand(String commandId) {
+        if (abortedCommands.getIfPresent(commandId) != null) {
+            return true;
+        }
+        if (notAbortedCommands.getIfPresent(commandId) != null) {
+            return false;
+        }
+        boolean aborted = ABORTED.equals(getStatus(commandId).getState());
+        if (aborted) {
+            setAbortedCommand(commandId);
+        } else {
+            notAbortedCommands.put(commandId, Boolean.TRUE);
+        }
+        return aborted;
+    }
+
     @SuppressWarnings("resource") // LogManager not ours to close
     protected void abort(String key, byte[] bytes) {
         LogManager logManager = Framework.getService(StreamService.class).getLogManager(BULK_LOG_MANAGER_NAME);
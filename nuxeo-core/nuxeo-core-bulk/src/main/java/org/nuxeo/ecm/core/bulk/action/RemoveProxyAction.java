@@ -29,11 +29,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.api.IdRef;
-import org.nuxeo.ecm.core.api.IterableQueryResult;
 import org.nuxeo.ecm.core.bulk.action.computation.AbstractBulkComputation;
 import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.lib.stream.computation.Topology;
@@ -69,10 +69,8 @@ public class RemoveProxyAction implements StreamProcessorTopology {
         protected void compute(CoreSession session, List<String> ids, Map<String, Serializable> properties) {
             String query = String.format(QUERY_TEMPLATE, String.join("', '", ids));
             Set<DocumentRef> proxies = new HashSet<>();
-            try (IterableQueryResult res = session.queryAndFetch(query, NXQL.NXQL)) {
-                for (Map<String, Serializable> map : res) {
-                    proxies.add(new IdRef((String) map.get(NXQL.ECM_UUID)));
-                }
+            try (Stream<Map<String, Serializable>> stream = session.queryAndFetchStream(query, NXQL.NXQL, false)) {
+                stream.forEach(map -> proxies.add(new IdRef((String) map.get(NXQL.ECM_UUID))));
             }
             session.removeDocuments(proxies.toArray(new DocumentRef[0]));
             session.save();
@@ -36,6 +36,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -96,10 +97,8 @@ public class TrashAction implements StreamProcessorTopology {
         protected void removeProxies(CoreSession session, List<String> ids) {
             Set<DocumentRef> proxies = new HashSet<>();
             String query = String.format(PROXY_QUERY_TEMPLATE, String.join("', '", ids));
-            try (IterableQueryResult res = session.queryAndFetch(query, NXQL.NXQL)) {
-                for (Map<String, Serializable> map : res) {
-                    proxies.add(new IdRef((String) map.get(NXQL.ECM_UUID)));
-                }
+            try (Stream<Map<String, Serializable>> stream = session.queryAndFetchStream(query, NXQL.NXQL, false)) {
+                stream.forEach(map -> proxies.add(new IdRef((String) map.get(NXQL.ECM_UUID))));
             }
             session.removeDocuments(proxies.toArray(new DocumentRef[0]));
             try {
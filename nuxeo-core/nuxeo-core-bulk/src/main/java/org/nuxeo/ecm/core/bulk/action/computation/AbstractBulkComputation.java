@@ -44,6 +44,7 @@ import org.nuxeo.ecm.core.bulk.BulkService;
 import org.nuxeo.ecm.core.bulk.message.BulkBucket;
 import org.nuxeo.ecm.core.bulk.message.BulkCommand;
 import org.nuxeo.ecm.core.bulk.message.BulkStatus;
+import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.AbstractComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
@@ -78,6 +79,9 @@ public abstract class AbstractBulkComputation extends AbstractComputation {
 
     protected BulkStatus delta;
 
+    /** @since 11.1 */
+    protected Codec<BulkBucket> bucketCodec;
+
     public AbstractBulkComputation(String name) {
         this(name, 1);
     }
@@ -88,7 +92,7 @@ public abstract class AbstractBulkComputation extends AbstractComputation {
 
     @Override
     public void processRecord(ComputationContext context, String inputStreamName, Record record) {
-        BulkBucket bucket = BulkCodecs.getBucketCodec().decode(record.getData());
+        BulkBucket bucket = getBucketCodec().decode(record.getData());
         command = getCommand(bucket.getCommandId());
         if (command != null) {
             delta = BulkStatus.deltaOf(command.getId());
@@ -120,6 +124,18 @@ public abstract class AbstractBulkComputation extends AbstractComputation {
         return ABORTED.equals(status.getState());
     }
 
+    /**
+     * Gets the codec of the buckets, created on first use.
+     *
+     * @since 11.1
+     */
+    protected Codec<BulkBucket> getBucketCodec() {
+        if (bucketCodec == null) {
+            bucketCodec = BulkCodecs.getBucketCodec();
+        }
+        return bucketCodec;
+    }
+
     protected BulkCommand getCommand(String commandId) {
         // This is to remove expired/completed commands from the cache map
         commands.size();
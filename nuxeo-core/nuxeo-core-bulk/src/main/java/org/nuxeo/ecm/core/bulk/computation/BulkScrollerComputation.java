@@ -29,7 +29,21 @@ import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.SCROLLING_RUNNING
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.security.auth.login.LoginContext;
 import javax.security.auth.login.LoginException;
@@ -38,16 +52,20 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.CloseableCoreSession;
 import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentNotFoundException;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.bulk.BulkAdminService;
 import org.nuxeo.ecm.core.bulk.BulkCodecs;
 import org.nuxeo.ecm.core.bulk.BulkService;
+import org.nuxeo.ecm.core.bulk.BulkServiceImpl;
 import org.nuxeo.ecm.core.bulk.message.BulkBucket;
 import org.nuxeo.ecm.core.bulk.message.BulkCommand;
 import org.nuxeo.ecm.core.bulk.message.BulkStatus;
 import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.AbstractComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
@@ -68,6 +86,11 @@ import org.nuxeo.runtime.transaction.TransactionHelper;
  * <li>- "actionName": Writes {@link BulkBucket} into the action stream</li>
  * <li>- "status": Writes {@link BulkStatus} into the action stream</li>
  * </ul>
+ * <p>
+ * When configured with several scroll partitions, the query is split into disjoint ranges of document ids that are
+ * scrolled in parallel, each one by its own thread, session and transaction. The buckets are still produced by the
+ * computation thread. As the ranges are UUID ranges, this is only done on repositories with UUID document ids, the
+ * commands on other repositories are scrolled from a single thread.
  *
  * @since 10.2
  */
@@ -77,14 +100,54 @@ public class BulkScrollerComputation extends AbstractComputation {
 
     public static final int MAX_SCROLL_SIZE = 4_000;
 
+    /**
+     * Delay after which the scroll transaction is renewed, so that a long scroll doesn't time out.
+     *
+     * @since 11.1
+     */
+    public static final long TRANSACTION_RENEW_MILLIS = 30_000;
+
+    /**
+     * Delay between two updates of the scrolled document count.
+     *
+     * @since 11.1
+     */
+    public static final long STATUS_UPDATE_MILLIS = 10_000;
+
+    /** @since 11.1 */
+    public static final String ID_RANGE_FORMAT = "%08x-0000-0000-0000-000000000000";
+
+    protected static final Pattern WHERE_PATTERN = Pattern.compile("(?<=\\s|\\))WHERE(?=\\s|\\()",
+            Pattern.CASE_INSENSITIVE);
+
+    protected static final Pattern ORDER_BY_PATTERN = Pattern.compile("\\sORDER\\s+BY\\s", Pattern.CASE_INSENSITIVE);
+
+    /** @since 11.1 */
+    protected static final Pattern UUID_PATTERN = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}", Pattern.CASE_INSENSITIVE);
+
+    protected static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
     protected final int scrollBatchSize;
 
     protected final int scrollKeepAliveSeconds;
 
+    protected final int scrollPartitions;
+
     protected final List<String> documentIds;
 
+    /** Whether the document ids of a repository are UUIDs, by repository name. */
+    protected final Map<String, Boolean> uuidRepositories = new HashMap<>();
+
     private final boolean produceImmediate;
 
+    protected long lastStatusUpdate;
+
+    protected long reportedCount;
+
+    /** @since 11.1 */
+    protected Codec<BulkBucket> bucketCodec;
+
     /**
      * @param name the computation name
      * @param nbOutputStreams the number of registered bulk action streams
@@ -94,9 +157,24 @@ public class BulkScrollerComputation extends AbstractComputation {
      */
     public BulkScrollerComputation(String name, int nbOutputStreams, int scrollBatchSize, int scrollKeepAliveSeconds,
             boolean produceImmediate) {
+        this(name, nbOutputStreams, scrollBatchSize, scrollKeepAliveSeconds, 1, produceImmediate);
+    }
+
+    /**
+     * @param name the computation name
+     * @param nbOutputStreams the number of registered bulk action streams
+     * @param scrollBatchSize the batch size to scroll
+     * @param scrollKeepAliveSeconds the scroll lifetime
+     * @param scrollPartitions the number of id ranges scrolled in parallel for a command
+     * @param produceImmediate whether or not the record should be produced immedialitely while scrolling
+     * @since 11.1
+     */
+    public BulkScrollerComputation(String name, int nbOutputStreams, int scrollBatchSize, int scrollKeepAliveSeconds,
+            int scrollPartitions, boolean produceImmediate) {
         super(name, 1, nbOutputStreams);
         this.scrollBatchSize = scrollBatchSize;
         this.scrollKeepAliveSeconds = scrollKeepAliveSeconds;
+        this.scrollPartitions = Math.max(1, scrollPartitions);
         this.produceImmediate = produceImmediate;
         documentIds = new ArrayList<>(scrollBatchSize);
     }
@@ -124,45 +202,28 @@ public class BulkScrollerComputation extends AbstractComputation {
                 }
             }
             updateStatusAsScrolling(context, commandId);
-            String username = command.getUsername();
-            LoginContext loginContext = SYSTEM_USERNAME.equals(username) ? Framework.login()
-                    : Framework.loginAsUser(username);
-            try (CloseableCoreSession session = CoreInstance.openCoreSession(command.getRepository())) {
-                // scroll documents
-                ScrollResult<String> scroll = session.scroll(command.getQuery(), scrollSize, scrollKeepAliveSeconds);
-                long documentCount = 0;
-                long bucketNumber = 1;
-                while (scroll.hasResults()) {
-                    if (isAbortedCommand(commandId)) {
-                        log.debug("Skipping aborted command: {}", commandId);
-                        context.askForCheckpoint();
-                        return;
-                    }
-                    List<String> docIds = scroll.getResults();
-                    documentIds.addAll(docIds);
-                    while (documentIds.size() >= bucketSize) {
-                        produceBucket(context, command.getAction(), commandId, bucketSize, bucketNumber++);
-                    }
-
-                    documentCount += docIds.size();
-                    // next batch
-                    scroll = session.scroll(scroll.getScrollId());
-                    TransactionHelper.commitOrRollbackTransaction();
-                    TransactionHelper.startTransaction();
+            documentIds.clear();
+            lastStatusUpdate = System.currentTimeMillis();
+            reportedCount = 0;
+            List<String> queries = scrollPartitions > 1 && hasUUIDs(command.getRepository())
+                    ? getPartitionQueries(command.getQuery(), scrollPartitions)
+                    : null;
+            try {
+                long documentCount;
+                if (queries == null) {
+                    documentCount = scroll(context, command, scrollSize, bucketSize);
+                } else {
+                    documentCount = scrollPartitions(context, command, queries, scrollSize, bucketSize);
                 }
-                // send remaining document ids
-                // there's at most one record because we loop while scrolling
-                if (!documentIds.isEmpty()) {
-                    produceBucket(context, command.getAction(), commandId, bucketSize, bucketNumber++);
+                if (documentCount < 0) {
+                    log.debug("Skipping aborted command: {}", commandId);
+                    context.askForCheckpoint();
+                    return;
                 }
                 updateStatusAfterScroll(context, commandId, documentCount);
             } catch (IllegalArgumentException | QueryParseException | DocumentNotFoundException e) {
                 log.error("Invalid query results in an empty document set: {}", command, e);
                 updateStatusAfterScroll(context, commandId, "Invalid query");
-            } finally {
-                if (loginContext != null) {
-                    loginContext.logout();
-                }
             }
         } catch (NuxeoException | LoginException e) {
             if (command != null) {
@@ -176,12 +237,312 @@ public class BulkScrollerComputation extends AbstractComputation {
         context.askForCheckpoint();
     }
 
+    /**
+     * Scrolls the command query from the computation thread.
+     *
+     * @return the number of scrolled documents, or {@code -1} if the command has been aborted
+     * @since 11.1
+     */
+    protected long scroll(ComputationContext context, BulkCommand command, int scrollSize, int bucketSize)
+            throws LoginException {
+        String commandId = command.getId();
+        LoginContext loginContext = login(command);
+        try (CloseableCoreSession session = CoreInstance.openCoreSession(command.getRepository())) {
+            // scroll documents
+            ScrollResult<String> scroll = session.scroll(command.getQuery(), scrollSize, scrollKeepAliveSeconds);
+            long documentCount = 0;
+            long bucketNumber = 1;
+            long transactionStart = System.currentTimeMillis();
+            while (scroll.hasResults()) {
+                if (isAbortedCommand(commandId)) {
+                    return -1;
+                }
+                List<String> docIds = scroll.getResults();
+                documentIds.addAll(docIds);
+                while (documentIds.size() >= bucketSize) {
+                    produceBucket(context, command.getAction(), commandId, bucketSize, bucketNumber++);
+                }
+
+                documentCount += docIds.size();
+                updateStatusWhileScrolling(context, commandId, documentCount);
+                // next batch
+                scroll = session.scroll(scroll.getScrollId());
+                if (System.currentTimeMillis() - transactionStart > TRANSACTION_RENEW_MILLIS) {
+                    TransactionHelper.commitOrRollbackTransaction();
+                    TransactionHelper.startTransaction();
+                    transactionStart = System.currentTimeMillis();
+                }
+            }
+            // send remaining document ids
+            // there's at most one record because we loop while scrolling
+            if (!documentIds.isEmpty()) {
+                produceBucket(context, command.getAction(), commandId, bucketSize, bucketNumber++);
+            }
+            return documentCount;
+        } finally {
+            if (loginContext != null) {
+                loginContext.logout();
+            }
+        }
+    }
+
+    /**
+     * Scrolls the partition queries in parallel, the document ids are queued by the scrolling threads and the buckets
+     * are produced from the computation thread.
+     *
+     * @return the number of scrolled documents, or {@code -1} if the command has been aborted
+     * @since 11.1
+     */
+    protected long scrollPartitions(ComputationContext context, BulkCommand command, List<String> queries,
+            int scrollSize, int bucketSize) throws LoginException {
+        String commandId = command.getId();
+        BlockingQueue<List<String>> queue = new ArrayBlockingQueue<>(2 * queries.size());
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger running = new AtomicInteger(queries.size());
+        ExecutorService executor = Executors.newFixedThreadPool(queries.size(), new ScrollerThreadFactory());
+        try {
+            List<Future<Void>> futures = new ArrayList<>(queries.size());
+            for (String query : queries) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        scrollPartition(command, query, scrollSize, queue, stop);
+                        return null;
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                }));
+            }
+            long documentCount = 0;
+            long bucketNumber = 1;
+            for (;;) {
+                // read the running count before the queue, a finished thread has queued all its ids
+                boolean done = running.get() == 0;
+                List<String> docIds = queue.poll(1, TimeUnit.SECONDS);
+                if (docIds == null) {
+                    if (done) {
+                        break;
+                    }
+                    checkPartitions(futures);
+                } else {
+                    documentIds.addAll(docIds);
+                    while (documentIds.size() >= bucketSize) {
+                        produceBucket(context, command.getAction(), commandId, bucketSize, bucketNumber++);
+                    }
+                    documentCount += docIds.size();
+                    updateStatusWhileScrolling(context, commandId, documentCount);
+                }
+                if (isAbortedCommand(commandId)) {
+                    return -1;
+                }
+            }
+            checkPartitions(futures);
+            if (!documentIds.isEmpty()) {
+                produceBucket(context, command.getAction(), commandId, bucketSize, bucketNumber++);
+            }
+            return documentCount;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException("Interrupted while scrolling: " + commandId, e);
+        } finally {
+            stop.set(true);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Rethrows the failure of a partition scroll, if any.
+     */
+    protected void checkPartitions(List<Future<Void>> futures) throws LoginException, InterruptedException {
+        for (Future<Void> future : futures) {
+            if (!future.isDone()) {
+                continue;
+            }
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof LoginException) {
+                    throw (LoginException) cause;
+                } else if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                throw new NuxeoException(cause);
+            }
+        }
+    }
+
+    /**
+     * Scrolls one partition query from a scroller thread, queuing the document ids.
+     *
+     * @since 11.1
+     */
+    protected void scrollPartition(BulkCommand command, String query, int scrollSize,
+            BlockingQueue<List<String>> queue, AtomicBoolean stop) throws LoginException, InterruptedException {
+        LoginContext loginContext = login(command);
+        TransactionHelper.startTransaction();
+        try (CloseableCoreSession session = CoreInstance.openCoreSession(command.getRepository())) {
+            ScrollResult<String> scroll = session.scroll(query, scrollSize, scrollKeepAliveSeconds);
+            long transactionStart = System.currentTimeMillis();
+            while (scroll.hasResults()) {
+                List<String> docIds = scroll.getResults();
+                while (!queue.offer(docIds, 1, TimeUnit.SECONDS)) {
+                    if (stop.get()) {
+                        return;
+                    }
+                }
+                if (stop.get()) {
+                    return;
+                }
+                scroll = session.scroll(scroll.getScrollId());
+                if (System.currentTimeMillis() - transactionStart > TRANSACTION_RENEW_MILLIS) {
+                    TransactionHelper.commitOrRollbackTransaction();
+                    TransactionHelper.startTransaction();
+                    transactionStart = System.currentTimeMillis();
+                }
+            }
+        } finally {
+            TransactionHelper.commitOrRollbackTransaction();
+            if (loginContext != null) {
+                loginContext.logout();
+            }
+        }
+    }
+
+    protected LoginContext login(BulkCommand command) throws LoginException {
+        String username = command.getUsername();
+        return SYSTEM_USERNAME.equals(username) ? Framework.login() : Framework.loginAsUser(username);
+    }
+
+    /**
+     * Checks whether the document ids of a repository are UUIDs, as the ids of the partition queries ranges, from the
+     * id of its root document.
+     *
+     * @since 11.1
+     */
+    protected boolean hasUUIDs(String repositoryName) {
+        return uuidRepositories.computeIfAbsent(repositoryName, name -> {
+            String rootId = CoreInstance.doPrivileged(name, (CoreSession session) -> session.getRootDocument().getId());
+            boolean uuids = UUID_PATTERN.matcher(rootId).matches();
+            if (!uuids) {
+                log.warn("Repository: {} doesn't use UUID document ids, scroll partitions are disabled", name);
+            }
+            return Boolean.valueOf(uuids);
+        }).booleanValue();
+    }
+
+    /**
+     * Splits a query into queries on disjoint ranges of document ids, covering together the same documents.
+     * <p>
+     * The ranges are based on the UUID format of the document ids, they can only be used on a repository with UUID
+     * ids. The {@code ORDER BY} clause is removed as the partitions are scrolled in parallel.
+     *
+     * @return the partition queries, or {@code null} if the query cannot be split
+     * @since 11.1
+     */
+    public static List<String> getPartitionQueries(String query, int partitions) {
+        if (partitions <= 1) {
+            return null;
+        }
+        String masked = maskStrings(query);
+        String select;
+        String where;
+        int orderBy = query.length();
+        Matcher matcher = ORDER_BY_PATTERN.matcher(masked);
+        if (matcher.find()) {
+            orderBy = matcher.start();
+        }
+        matcher = WHERE_PATTERN.matcher(masked);
+        if (matcher.find() && matcher.start() < orderBy) {
+            select = query.substring(0, matcher.start()).trim();
+            where = query.substring(matcher.end(), orderBy).trim();
+        } else {
+            select = query.substring(0, orderBy).trim();
+            where = null;
+        }
+        List<String> queries = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            StringBuilder sb = new StringBuilder(select);
+            sb.append(" WHERE ");
+            if (where != null) {
+                sb.append('(').append(where).append(')');
+            }
+            String and = where == null ? "" : " AND ";
+            if (i > 0) {
+                sb.append(and).append("ecm:uuid >= '").append(getIdRangeBound(i, partitions)).append('\'');
+                and = " AND ";
+            }
+            if (i < partitions - 1) {
+                sb.append(and).append("ecm:uuid < '").append(getIdRangeBound(i + 1, partitions)).append('\'');
+            }
+            String partitionQuery = sb.toString();
+            try {
+                SQLQueryParser.parse(partitionQuery);
+            } catch (QueryParseException e) {
+                log.debug("Cannot split query: {}, scrolling it from a single thread", query, e);
+                return null;
+            }
+            queries.add(partitionQuery);
+        }
+        return queries;
+    }
+
+    protected static String getIdRangeBound(int i, int partitions) {
+        return String.format(ID_RANGE_FORMAT, (i * 0x1_0000_0000L) / partitions);
+    }
+
+    /**
+     * Replaces the content of the string literals of a query by spaces, so that keywords are not searched in them.
+     */
+    protected static String maskStrings(String query) {
+        char[] chars = query.toCharArray();
+        char quote = 0;
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (quote == 0) {
+                if (c == '\'' || c == '"') {
+                    quote = c;
+                }
+            } else if (c == '\\' && i + 1 < chars.length) {
+                chars[i] = ' ';
+                chars[++i] = ' ';
+            } else if (c == quote) {
+                quote = 0;
+            } else {
+                chars[i] = ' ';
+            }
+        }
+        return new String(chars);
+    }
+
     protected boolean isAbortedCommand(String commandId) {
         BulkService bulkService = Framework.getService(BulkService.class);
+        if (bulkService instanceof BulkServiceImpl) {
+            return ((BulkServiceImpl) bulkService).isAbortedCommand(commandId);
+        }
         BulkStatus status = bulkService.getStatus(commandId);
         return ABORTED.equals(status.getState());
     }
 
+    /**
+     * Periodically reports the number of scrolled documents.
+     *
+     * @since 11.1
+     */
+    protected void updateStatusWhileScrolling(ComputationContext context, String commandId, long documentCount) {
+        long now = System.currentTimeMillis();
+        if (now - lastStatusUpdate < STATUS_UPDATE_MILLIS) {
+            return;
+        }
+        lastStatusUpdate = now;
+        BulkStatus delta = BulkStatus.deltaOf(commandId);
+        delta.setScrolled(documentCount - reportedCount);
+        reportedCount = documentCount;
+        ((ComputationContextImpl) context).produceRecordImmediate(STATUS_STREAM, commandId,
+                BulkCodecs.getStatusCodec().encode(delta));
+    }
+
     protected void updateStatusAsScrolling(ComputationContext context, String commandId) {
         BulkStatus delta = BulkStatus.deltaOf(commandId);
         delta.setState(SCROLLING_RUNNING);
@@ -211,6 +572,7 @@ public class BulkScrollerComputation extends AbstractComputation {
             delta.setState(RUNNING);
         }
         delta.setScrollEndTime(Instant.now());
+        delta.setScrolled(documentCount - reportedCount);
         delta.setTotal(documentCount);
         ((ComputationContextImpl) context).produceRecordImmediate(STATUS_STREAM, commandId,
                 BulkCodecs.getStatusCodec().encode(delta));
@@ -224,7 +586,10 @@ public class BulkScrollerComputation extends AbstractComputation {
         List<String> ids = documentIds.subList(0, min(bucketSize, documentIds.size()));
         BulkBucket bucket = new BulkBucket(commandId, ids);
         String key = commandId + ":" + Long.toString(bucketNumber);
-        Record record = Record.of(key, BulkCodecs.getBucketCodec().encode(bucket));
+        if (bucketCodec == null) {
+            bucketCodec = BulkCodecs.getBucketCodec();
+        }
+        Record record = Record.of(key, bucketCodec.encode(bucket));
         if (produceImmediate) {
             ((ComputationContextImpl) context).produceRecordImmediate(action, record);
         } else {
@@ -233,4 +598,14 @@ public class BulkScrollerComputation extends AbstractComputation {
         ids.clear(); // this clear the documentIds part that has been sent
     }
 
+    protected static class ScrollerThreadFactory implements ThreadFactory {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "bulk-scroller-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
 }
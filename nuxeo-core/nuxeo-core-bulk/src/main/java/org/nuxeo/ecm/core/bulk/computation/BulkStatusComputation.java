@@ -22,6 +22,13 @@ import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.ABORTED;
 import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.COMPLETED;
 import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.UNKNOWN;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.bulk.BulkCodecs;
@@ -46,6 +53,8 @@ import org.nuxeo.runtime.api.Framework;
  * <li>o1: Write {@link BulkStatus} full into the done stream.</li>
  * </ul>
  * </p>
+ * When records are read by batch, the deltas of a command are merged together so that its status is read and written
+ * only once per batch.
  *
  * @since 10.2
  */
@@ -59,26 +68,46 @@ public class BulkStatusComputation extends AbstractComputation {
 
     @Override
     public void processRecord(ComputationContext context, String inputStreamName, Record record) {
+        processRecords(context, inputStreamName, Collections.singletonList(record));
+    }
+
+    @Override
+    public void processRecords(ComputationContext context, String inputStreamName, List<Record> records) {
         Codec<BulkStatus> codec = BulkCodecs.getStatusCodec();
-        BulkStatus recordStatus = codec.decode(record.getData());
         BulkServiceImpl bulkService = (BulkServiceImpl) Framework.getService(BulkService.class);
-        BulkStatus status;
-        if (!recordStatus.isDelta()) {
-            status = recordStatus;
-        } else {
-            status = bulkService.getStatus(recordStatus.getId());
-            if (UNKNOWN.equals(status.getState())) {
-                // this requires a manual intervention, the kv store might have been lost
-                log.error("Stopping processing, unknown status for command: {}, offset: {}, record: {}.",
-                        recordStatus.getId(), context.getLastOffset(), record);
-                context.askForTermination();
-                return;
+        // the statuses being updated by command id, in the order of the records
+        Map<String, BulkStatus> statuses = new LinkedHashMap<>();
+        Set<String> done = new HashSet<>();
+        for (Record record : records) {
+            BulkStatus recordStatus = codec.decode(record.getData());
+            String commandId = recordStatus.getId();
+            BulkStatus status;
+            if (!recordStatus.isDelta()) {
+                status = recordStatus;
+            } else {
+                status = statuses.get(commandId);
+                if (status == null) {
+                    status = bulkService.getStatus(commandId);
+                }
+                if (UNKNOWN.equals(status.getState())) {
+                    // this requires a manual intervention, the kv store might have been lost
+                    log.error("Stopping processing, unknown status for command: {}, offset: {}, record: {}.",
+                            commandId, context.getLastOffset(), record);
+                    context.askForTermination();
+                    return;
+                }
+                status.merge(recordStatus);
+            }
+            statuses.put(commandId, status);
+            if (status.getState() == COMPLETED || recordStatus.getState() == ABORTED) {
+                done.add(commandId);
             }
-            status.merge(recordStatus);
         }
-        byte[] statusAsBytes = bulkService.setStatus(status);
-        if (status.getState() == COMPLETED || recordStatus.getState() == ABORTED) {
-            context.produceRecord(OUTPUT_1, status.getId(), statusAsBytes);
+        for (BulkStatus status : statuses.values()) {
+            byte[] statusAsBytes = bulkService.setStatus(status);
+            if (done.contains(status.getId())) {
+                context.produceRecord(OUTPUT_1, status.getId(), statusAsBytes);
+            }
         }
         context.askForCheckpoint();
     }
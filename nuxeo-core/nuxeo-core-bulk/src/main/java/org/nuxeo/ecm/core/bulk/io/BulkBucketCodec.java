@@ -0,0 +1,409 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.bulk.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.nuxeo.ecm.core.bulk.message.BulkBucket;
+import org.nuxeo.lib.stream.codec.Codec;
+
+/**
+ * Compact codec for the {@link BulkBucket}s, which make most of the volume of the bulk action streams.
+ * <p>
+ * Document ids that are canonical UUIDs are written as their 16 bytes instead of a 36 characters string, other ids
+ * are written as strings, and runs of ids of the same kind share a single header. Document UUIDs are random, so
+ * neither delta encoding nor compression gains anything on them, but the payload can optionally be deflated when it
+ * is large enough and the compression pays, which helps with repositories using other kinds of ids.
+ * <p>
+ * Records that are not in the compact format are decoded with the legacy codec, so that buckets written by a node
+ * still using Avro remain readable. Conversely, the codec can be configured to keep writing with the legacy codec
+ * while a cluster is upgraded.
+ *
+ * @since 11.1
+ */
+public class BulkBucketCodec implements Codec<BulkBucket> {
+
+    public static final String NAME = "compact";
+
+    /** First byte of the compact format. Avro single object encoding starts with 0xC3. */
+    protected static final byte MAGIC = 'B';
+
+    protected static final byte VERSION = 1;
+
+    protected static final int FLAG_DEFLATE = 0x01;
+
+    protected static final int HEADER_SIZE = 3;
+
+    /** Payloads smaller than this are never compressed. */
+    protected static final int COMPRESS_THRESHOLD = 512;
+
+    protected static final int KIND_UUID = 0;
+
+    protected static final int KIND_STRING = 1;
+
+    protected final Codec<BulkBucket> legacyCodec;
+
+    protected final boolean compact;
+
+    protected final boolean compress;
+
+    /**
+     * Creates a codec.
+     *
+     * @param legacyCodec the codec of the records not in the compact format
+     * @param compact {@code false} to write with the legacy codec
+     * @param compress {@code true} to deflate the large payloads
+     */
+    public BulkBucketCodec(Codec<BulkBucket> legacyCodec, boolean compact, boolean compress) {
+        this.legacyCodec = legacyCodec;
+        this.compact = compact;
+        this.compress = compress;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(BulkBucket bucket) {
+        if (!compact) {
+            return legacyCodec.encode(bucket);
+        }
+        List<String> ids = bucket.getIds();
+        int count = ids == null ? 0 : ids.size();
+        Output out = new Output(64 + count * 18);
+        out.writeString(bucket.getCommandId());
+        out.writeVarLong(count);
+        // parse the ids once, bits[2 * i] and bits[2 * i + 1] hold the UUID of the i-th id
+        long[] bits = new long[2 * count];
+        boolean[] uuids = new boolean[count];
+        long[] uuid = new long[2];
+        for (int i = 0; i < count; i++) {
+            if (parseUUID(ids.get(i), uuid)) {
+                uuids[i] = true;
+                bits[2 * i] = uuid[0];
+                bits[2 * i + 1] = uuid[1];
+            }
+        }
+        int i = 0;
+        while (i < count) {
+            // a run of ids of the same kind
+            boolean isUUID = uuids[i];
+            int end = i + 1;
+            while (end < count && uuids[end] == isUUID) {
+                end++;
+            }
+            out.writeVarLong(((long) (end - i) << 1) | (isUUID ? KIND_UUID : KIND_STRING));
+            for (; i < end; i++) {
+                if (isUUID) {
+                    out.writeLong(bits[2 * i]);
+                    out.writeLong(bits[2 * i + 1]);
+                } else {
+                    out.writeString(ids.get(i));
+                }
+            }
+        }
+        int flags = 0;
+        byte[] payload = out.toByteArray();
+        if (compress && payload.length >= COMPRESS_THRESHOLD) {
+            byte[] deflated = deflate(payload);
+            if (deflated.length < payload.length) {
+                payload = deflated;
+                flags |= FLAG_DEFLATE;
+            }
+        }
+        byte[] data = new byte[HEADER_SIZE + payload.length];
+        data[0] = MAGIC;
+        data[1] = VERSION;
+        data[2] = (byte) flags;
+        System.arraycopy(payload, 0, data, HEADER_SIZE, payload.length);
+        return data;
+    }
+
+    @Override
+    public BulkBucket decode(byte[] data) {
+        if (!isCompact(data)) {
+            return legacyCodec.decode(data);
+        }
+        Input in;
+        if ((data[2] & FLAG_DEFLATE) != 0) {
+            in = new Input(inflate(data, HEADER_SIZE), 0);
+        } else {
+            in = new Input(data, HEADER_SIZE);
+        }
+        String commandId = in.readString();
+        long count = in.readVarLong();
+        if (count > in.remaining()) {
+            // each id takes at least one byte
+            throw new IllegalArgumentException("Invalid bulk bucket id count: " + count);
+        }
+        List<String> ids = new ArrayList<>((int) count);
+        while (ids.size() < count) {
+            long header = in.readVarLong();
+            int runLength = (int) (header >>> 1);
+            boolean isUUID = (header & 1) == KIND_UUID;
+            if (runLength <= 0 || ids.size() + runLength > count) {
+                throw new IllegalArgumentException("Invalid bulk bucket run length: " + runLength);
+            }
+            for (int i = 0; i < runLength; i++) {
+                if (isUUID) {
+                    long msb = in.readLong();
+                    long lsb = in.readLong();
+                    ids.add(formatUUID(msb, lsb));
+                } else {
+                    ids.add(in.readString());
+                }
+            }
+        }
+        return new BulkBucket(commandId, ids);
+    }
+
+    /**
+     * Checks if the data are in the compact format.
+     */
+    public static boolean isCompact(byte[] data) {
+        return data.length >= HEADER_SIZE && data[0] == MAGIC && data[1] == VERSION;
+    }
+
+    /**
+     * Parses a UUID in its canonical lower case form, so that it is formatted back to the same string.
+     *
+     * @param value the string to parse
+     * @param result the array receiving the most and least significant bits
+     * @return {@code true} if the string is a canonical UUID
+     */
+    protected static boolean parseUUID(String value, long[] result) {
+        if (value == null || value.length() != 36) {
+            return false;
+        }
+        long msb = 0;
+        long lsb = 0;
+        int digits = 0;
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+                continue;
+            }
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            } else {
+                return false;
+            }
+            if (digits < 16) {
+                msb = (msb << 4) | digit;
+            } else {
+                lsb = (lsb << 4) | digit;
+            }
+            digits++;
+        }
+        result[0] = msb;
+        result[1] = lsb;
+        return true;
+    }
+
+    protected static String formatUUID(long msb, long lsb) {
+        char[] chars = new char[36];
+        formatHex(msb >>> 32, chars, 0, 8);
+        chars[8] = '-';
+        formatHex(msb >>> 16, chars, 9, 4);
+        chars[13] = '-';
+        formatHex(msb, chars, 14, 4);
+        chars[18] = '-';
+        formatHex(lsb >>> 48, chars, 19, 4);
+        chars[23] = '-';
+        formatHex(lsb, chars, 24, 12);
+        return new String(chars);
+    }
+
+    protected static void formatHex(long value, char[] chars, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = Character.forDigit((int) (value & 0xF), 16);
+            value >>>= 4;
+        }
+    }
+
+    protected static byte[] deflate(byte[] payload) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(payload.length);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int size = deflater.deflate(buffer);
+                bos.write(buffer, 0, size);
+            }
+            return bos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    protected static byte[] inflate(byte[] data, int offset) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, offset, data.length - offset);
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length * 2);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int size = inflater.inflate(buffer);
+                if (size == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated bulk bucket");
+                }
+                bos.write(buffer, 0, size);
+            }
+            return bos.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Growable output buffer.
+     */
+    protected static class Output {
+
+        protected byte[] buffer;
+
+        protected int size;
+
+        protected Output(int capacity) {
+            buffer = new byte[capacity];
+        }
+
+        protected void ensure(int length) {
+            if (size + length > buffer.length) {
+                byte[] newBuffer = new byte[Math.max(buffer.length * 2, size + length)];
+                System.arraycopy(buffer, 0, newBuffer, 0, size);
+                buffer = newBuffer;
+            }
+        }
+
+        protected void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        protected void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        /** Writes the length plus one, 0 for {@code null}, then the UTF-8 bytes. */
+        protected void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarLong(bytes.length + 1L);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, size, bytes.length);
+            size += bytes.length;
+        }
+
+        protected byte[] toByteArray() {
+            byte[] result = new byte[size];
+            System.arraycopy(buffer, 0, result, 0, size);
+            return result;
+        }
+    }
+
+    /**
+     * Input buffer.
+     */
+    protected static class Input {
+
+        protected final byte[] buffer;
+
+        protected int position;
+
+        protected Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        protected int remaining() {
+            return buffer.length - position;
+        }
+
+        protected byte readByte() {
+            if (position >= buffer.length) {
+                throw new IllegalArgumentException("Truncated bulk bucket");
+            }
+            return buffer[position++];
+        }
+
+        protected long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Invalid bulk bucket varint");
+        }
+
+        protected long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (readByte() & 0xFF);
+            }
+            return value;
+        }
+
+        protected String readString() {
+            long length = readVarLong() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > remaining()) {
+                throw new IllegalArgumentException("Truncated bulk bucket");
+            }
+            String value = new String(buffer, position, (int) length, UTF_8);
+            position += (int) length;
+            return value;
+        }
+    }
+
+}
@@ -39,6 +39,12 @@ public class BulkConstants {
 
     public static final String STATUS_SCROLL_END_TIME = "scrollEnd";
 
+    /** @since 11.1 */
+    public static final String STATUS_SCROLLED = "scrolled";
+
+    /** @since 11.1 */
+    public static final String STATUS_SCROLL_RATE = "scrollRate";
+
     public static final String STATUS_COMPLETED_TIME = "completed";
 
     public static final String STATUS_PROCESSING_START_TIME = "processingStart";
@@ -31,6 +31,7 @@ import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_PROCESSING_END_TIM
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_PROCESSING_MILLIS;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_PROCESSING_START_TIME;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_RESULT;
+import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_SCROLLED;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_SCROLL_END_TIME;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_SCROLL_START_TIME;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_STATE;
@@ -102,6 +103,10 @@ public class BulkStatusJsonReader extends EntityJsonReader<BulkStatus> {
         if (isNotEmpty(instantString)) {
             status.setScrollEndTime(Instant.parse(instantString));
         }
+        Long scrolled = getLongField(jn, STATUS_SCROLLED);
+        if (scrolled != null) {
+            status.setScrolled(scrolled);
+        }
         instantString = getStringField(jn, STATUS_PROCESSING_START_TIME);
         if (isNotEmpty(instantString)) {
             status.setProcessingStartTime(Instant.parse(instantString));
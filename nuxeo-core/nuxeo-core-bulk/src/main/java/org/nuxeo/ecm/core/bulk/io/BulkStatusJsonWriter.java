@@ -30,7 +30,9 @@ import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_PROCESSING_END_TIM
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_PROCESSING_MILLIS;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_PROCESSING_START_TIME;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_RESULT;
+import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_SCROLLED;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_SCROLL_END_TIME;
+import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_SCROLL_RATE;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_SCROLL_START_TIME;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_STATE;
 import static org.nuxeo.ecm.core.bulk.io.BulkConstants.STATUS_SUBMIT_TIME;
@@ -78,6 +80,8 @@ public class BulkStatusJsonWriter extends ExtensibleEntityJsonWriter<BulkStatus>
                 entity.getScrollStartTime() != null ? entity.getScrollStartTime().toString() : null);
         jg.writeStringField(STATUS_SCROLL_END_TIME,
                 entity.getScrollEndTime() != null ? entity.getScrollEndTime().toString() : null);
+        jg.writeNumberField(STATUS_SCROLLED, entity.getScrolled());
+        jg.writeNumberField(STATUS_SCROLL_RATE, entity.getScrollRate());
         jg.writeStringField(STATUS_PROCESSING_START_TIME,
                 entity.getProcessingStartTime() != null ? entity.getProcessingStartTime().toString() : null);
         jg.writeStringField(STATUS_PROCESSING_END_TIME,
@@ -96,6 +96,10 @@ public class BulkStatus implements AsyncStatus<String> {
     @Nullable
     protected Long scrollEndTime;
 
+    /** @since 11.1 */
+    @Nullable
+    protected Long scrolled;
+
     @Nullable
     protected Long processingStartTime;
 
@@ -170,6 +174,9 @@ public class BulkStatus implements AsyncStatus<String> {
         if (update.scrollEndTime != null) {
             scrollEndTime = update.scrollEndTime;
         }
+        if (update.scrolled != null) {
+            setScrolled(getScrolled() + update.getScrolled());
+        }
         if (update.submitTime != null) {
             submitTime = update.submitTime;
         }
@@ -273,6 +280,43 @@ public class BulkStatus implements AsyncStatus<String> {
         this.scrollEndTime = scrollEndTime.toEpochMilli();
     }
 
+    /**
+     * For a full status returns the number of documents materialized by the scroller so far.
+     *
+     * @since 11.1
+     */
+    public long getScrolled() {
+        if (scrolled == null) {
+            return 0;
+        }
+        return scrolled;
+    }
+
+    /**
+     * Sets the number of scrolled documents. For a delta this is a relative value that is aggregated during
+     * {@link #merge(BulkStatus)} operation.
+     *
+     * @since 11.1
+     */
+    public void setScrolled(long scrolled) {
+        this.scrolled = scrolled;
+    }
+
+    /**
+     * Gets the scroll rate in documents per second, computed up to now if the scroll is not yet completed. Returns 0
+     * when the scroll is not started.
+     *
+     * @since 11.1
+     */
+    public long getScrollRate() {
+        if (scrollStartTime == null) {
+            return 0;
+        }
+        long end = scrollEndTime == null ? System.currentTimeMillis() : scrollEndTime;
+        long elapsed = Math.max(1, end - scrollStartTime);
+        return getScrolled() * 1000 / elapsed;
+    }
+
     /**
      * Gets the time when the action computation starts.
      */
@@ -0,0 +1,62 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.bulk.computation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.nuxeo.ecm.core.bulk.computation.BulkScrollerComputation.getPartitionQueries;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TestBulkScrollerPartitions {
+
+    @Test
+    public void testSinglePartition() {
+        assertNull(getPartitionQueries("SELECT * FROM Document", 1));
+    }
+
+    @Test
+    public void testPartitionsWithoutWhere() {
+        assertEquals(Arrays.asList( //
+                "SELECT * FROM Document WHERE ecm:uuid < '55555555-0000-0000-0000-000000000000'",
+                "SELECT * FROM Document WHERE ecm:uuid >= '55555555-0000-0000-0000-000000000000'"
+                        + " AND ecm:uuid < 'aaaaaaaa-0000-0000-0000-000000000000'",
+                "SELECT * FROM Document WHERE ecm:uuid >= 'aaaaaaaa-0000-0000-0000-000000000000'"),
+                getPartitionQueries("SELECT * FROM Document", 3));
+    }
+
+    @Test
+    public void testPartitionsWithWhereAndOrderBy() {
+        String query = "SELECT * FROM Document WHERE dc:title = 'a WHERE b ORDER BY c' ORDER BY dc:title";
+        assertEquals(Arrays.asList( //
+                "SELECT * FROM Document WHERE (dc:title = 'a WHERE b ORDER BY c')"
+                        + " AND ecm:uuid < '80000000-0000-0000-0000-000000000000'",
+                "SELECT * FROM Document WHERE (dc:title = 'a WHERE b ORDER BY c')"
+                        + " AND ecm:uuid >= '80000000-0000-0000-0000-000000000000'"),
+                getPartitionQueries(query, 2));
+    }
+
+    @Test
+    public void testInvalidQuery() {
+        assertNull(getPartitionQueries("SELECT * FROM", 2));
+    }
+
+}
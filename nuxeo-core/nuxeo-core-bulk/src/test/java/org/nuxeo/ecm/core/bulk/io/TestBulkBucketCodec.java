@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.bulk.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.bulk.BulkCodecs;
+import org.nuxeo.ecm.core.bulk.CoreBulkFeature;
+import org.nuxeo.ecm.core.bulk.message.BulkBucket;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.codec.CodecService;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreBulkFeature.class)
+public class TestBulkBucketCodec {
+
+    protected Codec<BulkBucket> avroCodec;
+
+    @Before
+    public void setUp() {
+        avroCodec = Framework.getService(CodecService.class).getCodec(BulkCodecs.DEFAULT_CODEC, BulkBucket.class);
+    }
+
+    protected static BulkBucket newBucket(int size) {
+        List<String> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        return new BulkBucket(UUID.randomUUID().toString(), ids);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        BulkBucketCodec codec = new BulkBucketCodec(avroCodec, true, false);
+        BulkBucket bucket = newBucket(100);
+        byte[] data = codec.encode(bucket);
+        assertTrue(BulkBucketCodec.isCompact(data));
+        assertEquals(bucket, codec.decode(data));
+
+        byte[] avroData = avroCodec.encode(bucket);
+        assertTrue("compact: " + data.length + ", avro: " + avroData.length, data.length * 2 < avroData.length);
+    }
+
+    @Test
+    public void testMixedIds() {
+        BulkBucketCodec codec = new BulkBucketCodec(avroCodec, true, false);
+        String uuid = UUID.randomUUID().toString();
+        List<String> ids = Arrays.asList(uuid, UUID.randomUUID().toString(), "1234", uuid.toUpperCase(),
+                "12345678-1234-1234-1234-12345678901z", "", "d\u00e9j\u00e0 vu", UUID.randomUUID().toString());
+        BulkBucket bucket = new BulkBucket(null, ids);
+        assertEquals(bucket, codec.decode(codec.encode(bucket)));
+
+        bucket = new BulkBucket("myCommand", new ArrayList<>());
+        assertEquals(bucket, codec.decode(codec.encode(bucket)));
+    }
+
+    @Test
+    public void testCompression() {
+        BulkBucketCodec codec = new BulkBucketCodec(avroCodec, true, true);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ids.add("/default-domain/workspaces/folder/document-" + i);
+        }
+        BulkBucket bucket = new BulkBucket("myCommand", ids);
+        byte[] data = codec.encode(bucket);
+        byte[] uncompressed = new BulkBucketCodec(avroCodec, true, false).encode(bucket);
+        assertTrue("compressed: " + data.length + ", raw: " + uncompressed.length, data.length < uncompressed.length);
+        assertEquals(bucket, codec.decode(data));
+        // the compression flag is in the data
+        assertEquals(bucket, new BulkBucketCodec(avroCodec, true, false).decode(data));
+    }
+
+    @Test
+    public void testDecodeAvroRecord() {
+        BulkBucket bucket = newBucket(10);
+        byte[] avroData = avroCodec.encode(bucket);
+        assertFalse(BulkBucketCodec.isCompact(avroData));
+        assertEquals(bucket, new BulkBucketCodec(avroCodec, true, false).decode(avroData));
+    }
+
+    @Test
+    public void testWriteAvro() {
+        BulkBucketCodec codec = new BulkBucketCodec(avroCodec, false, false);
+        BulkBucket bucket = newBucket(10);
+        byte[] data = codec.encode(bucket);
+        assertFalse(BulkBucketCodec.isCompact(data));
+        assertEquals(bucket, avroCodec.decode(data));
+    }
+
+    @Test
+    public void testBulkCodecs() {
+        Codec<BulkBucket> codec = BulkCodecs.getBucketCodec();
+        BulkBucket bucket = newBucket(10);
+        byte[] data = codec.encode(bucket);
+        assertTrue(BulkBucketCodec.isCompact(data));
+        assertEquals(bucket, codec.decode(data));
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        BulkBucketCodec codec = new BulkBucketCodec(avroCodec, true, false);
+        byte[] data = codec.encode(newBucket(10));
+        try {
+            codec.decode(Arrays.copyOf(data, data.length - 5));
+            fail("should fail on truncated data");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+}
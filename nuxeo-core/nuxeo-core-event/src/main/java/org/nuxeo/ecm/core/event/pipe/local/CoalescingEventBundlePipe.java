@@ -0,0 +1,44 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.pipe.local;
+
+import org.nuxeo.common.annotation.Experimental;
+
+/**
+ * Local pipe collapsing the events of a bundle before relaying them to the asynchronous listeners.
+ * <p>
+ * Among the events of a bundle having the same name and the same source document, only the last one is passed to the
+ * listeners, the previous ones being counted as dropped. The pipe accepts the following parameters:
+ * <ul>
+ * <li>{@code listeners}: comma separated names of the listeners receiving coalesced bundles, the other listeners
+ * receive the bundles untouched. Defaults to all the listeners.</li>
+ * <li>{@code events}: comma separated names of the events that can be coalesced. Defaults to all the events.</li>
+ * </ul>
+ *
+ * @since 11.1
+ */
+@Experimental
+public class CoalescingEventBundlePipe extends LocalEventBundlePipe {
+
+    @Override
+    protected LocalEventBundlePipeConsumer newConsumer() {
+        return new CoalescingEventBundlePipeConsumer();
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.pipe.local;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.common.annotation.Experimental;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.EventContext;
+import org.nuxeo.ecm.core.event.EventServiceAdmin;
+import org.nuxeo.ecm.core.event.ReconnectedEventBundle;
+import org.nuxeo.ecm.core.event.impl.DocumentEventContext;
+import org.nuxeo.ecm.core.event.impl.EventBundleImpl;
+import org.nuxeo.ecm.core.event.impl.EventListenerDescriptor;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Consumer of the {@link CoalescingEventBundlePipe}: runs the configured listeners on coalesced bundles and the other
+ * ones on the original bundles.
+ *
+ * @since 11.1
+ */
+@Experimental
+public class CoalescingEventBundlePipeConsumer extends LocalEventBundlePipeConsumer {
+
+    private static final Log log = LogFactory.getLog(CoalescingEventBundlePipeConsumer.class);
+
+    public static final String LISTENERS_PARAM = "listeners";
+
+    public static final String EVENTS_PARAM = "events";
+
+    /** The listeners receiving coalesced bundles, {@code null} for all. */
+    protected Set<String> listeners;
+
+    /** The events that can be coalesced, {@code null} for all. */
+    protected Set<String> events;
+
+    protected Counter coalescedCount;
+
+    protected Counter droppedCount;
+
+    @Override
+    public void initConsumer(String name, Map<String, String> params) {
+        super.initConsumer(name, params);
+        Map<String, String> parameters = params == null ? Collections.emptyMap() : params;
+        listeners = parseNames(parameters.get(LISTENERS_PARAM));
+        events = parseNames(parameters.get(EVENTS_PARAM));
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        coalescedCount = registry.counter(MetricRegistry.name("nuxeo", "events", "pipe", name, "coalesced"));
+        droppedCount = registry.counter(MetricRegistry.name("nuxeo", "events", "pipe", name, "dropped"));
+    }
+
+    protected static Set<String> parseNames(String value) {
+        if (StringUtils.isBlank(value) || "*".equals(value.trim())) {
+            return null;
+        }
+        Set<String> names = new HashSet<>();
+        Arrays.stream(value.split(",")).map(String::trim).filter(StringUtils::isNotEmpty).forEach(names::add);
+        return names;
+    }
+
+    @Override
+    protected boolean processEventBundles(List<EventBundle> bundles) {
+        EventServiceAdmin eventService = Framework.getService(EventServiceAdmin.class);
+        List<EventListenerDescriptor> postCommitAsync = eventService.getListenerList()
+                                                                    .getEnabledAsyncPostCommitListenersDescriptors();
+        List<EventListenerDescriptor> coalescedListeners = new ArrayList<>();
+        List<EventListenerDescriptor> otherListeners = new ArrayList<>();
+        for (EventListenerDescriptor listener : postCommitAsync) {
+            if (listeners == null || listeners.contains(listener.getName())) {
+                coalescedListeners.add(listener);
+            } else {
+                otherListeners.add(listener);
+            }
+        }
+        for (EventBundle eventBundle : bundles) {
+            if (!otherListeners.isEmpty()) {
+                asyncExec.run(otherListeners, eventBundle);
+            }
+            if (!coalescedListeners.isEmpty()) {
+                asyncExec.run(coalescedListeners, coalesce(eventBundle));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a bundle keeping only the last event for each event name and source document, in the order of the
+     * original bundle. The bundle is returned as is when there is nothing to drop.
+     */
+    protected EventBundle coalesce(EventBundle bundle) {
+        if (bundle instanceof ReconnectedEventBundle || bundle.size() < 2) {
+            // events that have gone through a bus are reconnected later, keep them as is
+            return bundle;
+        }
+        List<Event> bundleEvents = new ArrayList<>(bundle.size());
+        List<String> keys = new ArrayList<>(bundle.size());
+        Map<String, Integer> lastIndexes = new HashMap<>();
+        int dropped = 0;
+        for (Event event : bundle) {
+            String key = getCoalescingKey(event);
+            if (key != null && lastIndexes.put(key, Integer.valueOf(bundleEvents.size())) != null) {
+                dropped++;
+            }
+            bundleEvents.add(event);
+            keys.add(key);
+        }
+        if (dropped == 0) {
+            return bundle;
+        }
+        EventBundle coalesced = new EventBundleImpl(bundle.getSourceVMID());
+        for (int i = 0; i < bundleEvents.size(); i++) {
+            String key = keys.get(i);
+            if (key == null || lastIndexes.get(key).intValue() == i) {
+                coalesced.push(bundleEvents.get(i));
+            }
+        }
+        coalescedCount.inc();
+        droppedCount.inc(dropped);
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Pipe %s dropped %d events out of %d", getName(), dropped, bundleEvents.size()));
+        }
+        return coalesced;
+    }
+
+    /**
+     * Gets the key identifying the events to collapse, or {@code null} if the event must be kept.
+     */
+    protected String getCoalescingKey(Event event) {
+        if (event.getName() == null || (events != null && !events.contains(event.getName()))) {
+            return null;
+        }
+        EventContext context = event.getContext();
+        if (!(context instanceof DocumentEventContext)) {
+            return null;
+        }
+        DocumentModel doc = ((DocumentEventContext) context).getSourceDocument();
+        if (doc == null || doc.getId() == null) {
+            return null;
+        }
+        return event.getName() + ':' + doc.getRepositoryName() + ':' + doc.getId();
+    }
+
+}
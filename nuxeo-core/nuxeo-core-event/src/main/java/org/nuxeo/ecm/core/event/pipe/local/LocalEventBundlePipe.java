@@ -40,10 +40,17 @@ public class LocalEventBundlePipe extends AbstractEventBundlePipe<EventBundle> i
     @Override
     public void initPipe(String name, Map<String, String> params) {
         super.initPipe(name, params);
-        consumer = new LocalEventBundlePipeConsumer();
+        consumer = newConsumer();
         consumer.initConsumer(name, params);
     }
 
+    /**
+     * @since 11.1
+     */
+    protected LocalEventBundlePipeConsumer newConsumer() {
+        return new LocalEventBundlePipeConsumer();
+    }
+
     @Override
     protected void send(EventBundle message) {
         List<EventBundle> messages = Collections.singletonList(message);
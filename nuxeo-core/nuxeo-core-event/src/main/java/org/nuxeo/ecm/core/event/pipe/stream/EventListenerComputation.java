@@ -0,0 +1,84 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.pipe.stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.EventService;
+import org.nuxeo.ecm.core.event.EventStats;
+import org.nuxeo.ecm.core.event.ReconnectedEventBundle;
+import org.nuxeo.ecm.core.event.impl.EventListenerDescriptor;
+import org.nuxeo.ecm.core.event.impl.ReconnectedEventBundleImpl;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.computation.AbstractComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Computation running an asynchronous post commit listener on the event bundles read from a stream.
+ * <p>
+ * Each listener has its own computation, so it consumes the stream with its own consumer group and offsets.
+ *
+ * @since 11.1
+ */
+public class EventListenerComputation extends AbstractComputation {
+
+    private static final Log log = LogFactory.getLog(EventListenerComputation.class);
+
+    protected final String listenerName;
+
+    protected final Codec<EventBundle> codec;
+
+    public EventListenerComputation(String name, String listenerName, Codec<EventBundle> codec) {
+        super(name, 1, 0);
+        this.listenerName = listenerName;
+        this.codec = codec;
+    }
+
+    @Override
+    public void processRecord(ComputationContext context, String inputStreamName, Record record) {
+        EventListenerDescriptor listener = Framework.getService(EventService.class).getEventListener(listenerName);
+        if (listener == null || !listener.isEnabled()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Listener " + listenerName + " not found or disabled, skipping bundle: " + record.getKey());
+            }
+            context.askForCheckpoint();
+            return;
+        }
+        EventBundle filtered = listener.filterBundle(codec.decode(record.getData()));
+        if (!filtered.isEmpty()) {
+            ReconnectedEventBundle bundle = new ReconnectedEventBundleImpl(filtered, listenerName);
+            long start = System.currentTimeMillis();
+            try {
+                TransactionHelper.runInTransaction(() -> listener.asPostCommitListener().handleEvent(bundle));
+            } finally {
+                bundle.disconnect();
+            }
+            EventStats stats = Framework.getService(EventStats.class);
+            if (stats != null) {
+                stats.logAsyncExec(listener, System.currentTimeMillis() - start);
+            }
+        }
+        context.askForCheckpoint();
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.pipe.stream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.common.annotation.Experimental;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.EventServiceAdmin;
+import org.nuxeo.ecm.core.event.impl.DocumentEventContext;
+import org.nuxeo.ecm.core.event.impl.EventListenerDescriptor;
+import org.nuxeo.ecm.core.event.pipe.AbstractEventBundlePipe;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.lib.stream.computation.ComputationPolicy;
+import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Settings;
+import org.nuxeo.lib.stream.computation.StreamManager;
+import org.nuxeo.lib.stream.computation.StreamProcessor;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.codec.CodecService;
+import org.nuxeo.runtime.stream.StreamService;
+
+import net.jodah.failsafe.RetryPolicy;
+
+/**
+ * Pipe appending the event bundles to a stream, each asynchronous post commit listener being run by its own
+ * {@link EventListenerComputation}.
+ * <p>
+ * Listeners consume the stream independently, with their own offsets and concurrency: a slow listener does not delay
+ * the others, and after a restart the bundles are processed from the last checkpoint. The listeners are the enabled
+ * asynchronous post commit listeners at the pipe initialization. The pipe accepts the following parameters:
+ * <ul>
+ * <li>{@code logConfig}: the Log configuration to use, defaults to {@code default}.</li>
+ * <li>{@code stream}: the name of the stream, defaults to the name of the pipe.</li>
+ * <li>{@code partitions}: the number of partitions of the stream, defaults to 4.</li>
+ * <li>{@code codec}: the codec used to encode the records, defaults to {@code legacy}.</li>
+ * <li>{@code concurrency}: the number of threads of each listener, defaults to 1.</li>
+ * <li>{@code concurrency.<listener>}: the number of threads of the given listener.</li>
+ * <li>{@code maxRetries}: the number of retries when a listener fails on a bundle, defaults to 2.</li>
+ * </ul>
+ *
+ * @since 11.1
+ */
+@Experimental
+public class StreamEventBundlePipe extends AbstractEventBundlePipe<Record> {
+
+    private static final Log log = LogFactory.getLog(StreamEventBundlePipe.class);
+
+    public static final String LOG_CONFIG_PARAM = "logConfig";
+
+    public static final String DEFAULT_LOG_CONFIG = "default";
+
+    public static final String STREAM_PARAM = "stream";
+
+    public static final String PARTITIONS_PARAM = "partitions";
+
+    public static final int DEFAULT_PARTITIONS = 4;
+
+    public static final String CODEC_PARAM = "codec";
+
+    public static final String DEFAULT_CODEC = "legacy";
+
+    public static final String CONCURRENCY_PARAM = "concurrency";
+
+    public static final int DEFAULT_CONCURRENCY = 1;
+
+    public static final String MAX_RETRIES_PARAM = "maxRetries";
+
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    protected static final Duration STOP_TIMEOUT = Duration.ofSeconds(10);
+
+    protected final Codec<EventBundle> codec = new SerializableCodec<>();
+
+    protected String stream;
+
+    protected LogManager logManager;
+
+    protected StreamManager streamManager;
+
+    protected StreamProcessor processor;
+
+    protected final List<String> computations = new ArrayList<>();
+
+    @Override
+    public void initPipe(String name, Map<String, String> params) {
+        super.initPipe(name, params);
+        Map<String, String> parameters = params == null ? Collections.emptyMap() : params;
+        stream = parameters.getOrDefault(STREAM_PARAM, name);
+        List<EventListenerDescriptor> listeners = Framework.getService(EventServiceAdmin.class)
+                                                           .getListenerList()
+                                                           .getEnabledAsyncPostCommitListenersDescriptors();
+        if (listeners.isEmpty()) {
+            log.info("No asynchronous listener, pipe " + name + " is disabled");
+            return;
+        }
+        String logConfig = parameters.getOrDefault(LOG_CONFIG_PARAM, DEFAULT_LOG_CONFIG);
+        StreamService service = Framework.getService(StreamService.class);
+        logManager = service.getLogManager(logConfig);
+        streamManager = service.getStreamManager(logConfig);
+
+        Codec<Record> recordCodec = Framework.getService(CodecService.class)
+                                             .getCodec(parameters.getOrDefault(CODEC_PARAM, DEFAULT_CODEC),
+                                                     Record.class);
+        // retry a failing listener, then skip the bundle like the WorkManager does
+        RetryPolicy retryPolicy = new RetryPolicy().withMaxRetries(
+                getInt(parameters, MAX_RETRIES_PARAM, DEFAULT_MAX_RETRIES));
+        ComputationPolicy policy = new ComputationPolicyBuilder().retryPolicy(retryPolicy)
+                                                                 .continueOnFailure(true)
+                                                                 .build();
+        int concurrency = getInt(parameters, CONCURRENCY_PARAM, DEFAULT_CONCURRENCY);
+        Settings settings = new Settings(concurrency, getInt(parameters, PARTITIONS_PARAM, DEFAULT_PARTITIONS),
+                recordCodec, policy);
+        Topology.Builder builder = Topology.builder();
+        for (EventListenerDescriptor listener : listeners) {
+            String listenerName = listener.getName();
+            String computationName = getComputationName(listenerName);
+            builder.addComputation(() -> new EventListenerComputation(computationName, listenerName, codec),
+                    Collections.singletonList("i1:" + stream));
+            settings.setConcurrency(computationName,
+                    getInt(parameters, CONCURRENCY_PARAM + "." + listenerName, concurrency));
+            computations.add(computationName);
+        }
+        processor = streamManager.registerAndCreateProcessor(name, builder.build(), settings);
+        processor.start();
+        log.info("Pipe " + name + " started on stream " + stream + " for listeners: " + computations);
+    }
+
+    protected static int getInt(Map<String, String> parameters, String key, int defaultValue) {
+        String value = parameters.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Invalid " + key + " parameter: " + value + ", using: " + defaultValue, e);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Gets the name of the computation running the listener, which is also its consumer group.
+     */
+    protected String getComputationName(String listenerName) {
+        return getName() + "-" + listenerName;
+    }
+
+    @Override
+    protected Record marshall(EventBundle events) {
+        return Record.of(getPartitionKey(events), codec.encode(events));
+    }
+
+    /**
+     * Uses the first source document as key, so that the bundles of a document are processed in order.
+     */
+    protected String getPartitionKey(EventBundle events) {
+        for (Event event : events) {
+            if (event.getContext() instanceof DocumentEventContext) {
+                DocumentModel doc = ((DocumentEventContext) event.getContext()).getSourceDocument();
+                if (doc != null && doc.getId() != null) {
+                    return doc.getId();
+                }
+            }
+        }
+        return UUID.randomUUID().toString();
+    }
+
+    @Override
+    protected void send(Record message) {
+        if (processor == null) {
+            return;
+        }
+        streamManager.append(stream, message);
+    }
+
+    @Override
+    public boolean waitForCompletion(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        if (deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        long pause = Math.min(timeoutMillis, 100L);
+        do {
+            if (isDone()) {
+                return true;
+            }
+            Thread.sleep(pause);
+        } while (System.currentTimeMillis() < deadline);
+        return isDone();
+    }
+
+    /**
+     * Checks if all the listeners have processed all the bundles.
+     */
+    protected boolean isDone() {
+        if (processor == null) {
+            return true;
+        }
+        return computations.stream().allMatch(computation -> logManager.getLag(stream, computation).lag() == 0);
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        if (processor == null) {
+            return;
+        }
+        if (!processor.stop(STOP_TIMEOUT)) {
+            log.warn("Pipe " + getName() + " listeners not stopped within " + STOP_TIMEOUT);
+        }
+        processor = null;
+    }
+
+}
@@ -23,6 +23,9 @@ import static org.nuxeo.ecm.core.work.WorkManagerImpl.DEAD_LETTER_QUEUE;
 import static org.nuxeo.ecm.core.work.WorkManagerImpl.DEFAULT_LOG_MANAGER;
 import static org.nuxeo.ecm.core.work.api.Work.Progress.PROGRESS_INDETERMINATE;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.security.SecureRandom;
 import java.util.ArrayList;
@@ -593,6 +596,71 @@ public abstract class AbstractWork implements Work {
         return getClass().getSimpleName();
     }
 
+    /**
+     * Writes the fields of this work for the compact format of the {@link WorkCodec}.
+     * <p>
+     * Only used by subclasses implementing {@link CompactWork}, which write their own fields after calling this
+     * method.
+     *
+     * @since 11.1
+     */
+    public void writeFields(DataOutput out) throws IOException {
+        WorkCodec.writeString(out, id);
+        WorkCodec.writeString(out, state == null ? null : state.name());
+        Progress p = progress == null ? PROGRESS_INDETERMINATE : progress;
+        out.writeFloat(p.getPercent());
+        out.writeLong(p.getCurrent());
+        out.writeLong(p.getTotal());
+        WorkCodec.writeString(out, repositoryName);
+        WorkCodec.writeString(out, docId);
+        WorkCodec.writeStrings(out, docIds);
+        out.writeBoolean(isTree);
+        WorkCodec.writeString(out, originatingUsername);
+        WorkCodec.writeString(out, status);
+        out.writeLong(schedulingTime);
+        out.writeLong(startTime);
+        out.writeLong(completionTime);
+        out.writeBoolean(schedulePath != null);
+        if (schedulePath != null) {
+            out.writeUTF(schedulePath.getParentPath());
+            out.writeUTF(schedulePath.getName());
+        }
+        WorkCodec.writeString(out, callerThread);
+    }
+
+    /**
+     * Reads the fields of this work written by {@link #writeFields}.
+     *
+     * @param version the version of the {@link WorkCodec} format the fields were written with
+     * @since 11.1
+     */
+    public void readFields(DataInput in, int version) throws IOException {
+        id = WorkCodec.readString(in);
+        String stateName = WorkCodec.readString(in);
+        state = stateName == null ? null : State.valueOf(stateName);
+        float percent = in.readFloat();
+        long current = in.readLong();
+        long total = in.readLong();
+        progress = current == Progress.CURRENT_INDETERMINATE ? new Progress(percent) : new Progress(current, total);
+        repositoryName = WorkCodec.readString(in);
+        docId = WorkCodec.readString(in);
+        docIds = WorkCodec.readStrings(in);
+        isTree = in.readBoolean();
+        originatingUsername = WorkCodec.readString(in);
+        status = WorkCodec.readString(in);
+        schedulingTime = in.readLong();
+        startTime = in.readLong();
+        completionTime = in.readLong();
+        if (in.readBoolean()) {
+            String parentPath = in.readUTF();
+            String name = in.readUTF();
+            schedulePath = new WorkSchedulePath(parentPath, name);
+        } else {
+            schedulePath = null;
+        }
+        callerThread = WorkCodec.readString(in);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,50 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.nuxeo.ecm.core.work.api.Work;
+
+/**
+ * A {@link Work} encoded by the {@link WorkCodec} as a table of its fields instead of with Java serialization.
+ * <p>
+ * The class must have a no-arg constructor, used before {@link #readFields} is called. The fields must be read in the
+ * order they were written. {@link AbstractWork} subclasses opt in by implementing this interface and overriding
+ * {@link AbstractWork#writeFields} and {@link AbstractWork#readFields} to add their own fields after the base ones.
+ *
+ * @since 11.1
+ */
+public interface CompactWork extends Work {
+
+    /**
+     * Writes the fields of the work.
+     */
+    void writeFields(DataOutput out) throws IOException;
+
+    /**
+     * Reads the fields of the work, as written by {@link #writeFields}.
+     *
+     * @param version the version of the {@link WorkCodec} format the fields were written with
+     */
+    void readFields(DataInput in, int version) throws IOException;
+
+}
@@ -0,0 +1,306 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.Environment;
+import org.nuxeo.common.utils.DurationUtils;
+import org.nuxeo.lib.stream.computation.Record;
+
+/**
+ * Filter that writes big record values into segment files, on a local or shared disk, instead of a store.
+ * <p>
+ * Each filter instance appends values to its own segment file, the appended record contains a reference to the value:
+ * the segment name, the position and the length of the value. A new segment is created after a duration or when it
+ * reaches a size, segments that are not modified since the store TTL are deleted.
+ * <p>
+ * A segment older than twice the duration cannot receive values anymore, its values are read through a memory-mapped
+ * buffer without copy, the segment being mapped once until it is older than the store TTL. The values of a more recent
+ * segment are read with a positional read.
+ * <p>
+ * When nodes share a stream, the base path must be on a disk shared by the nodes. A value is forced to the disk before
+ * its reference is returned, so that another node reading the record finds the whole value.
+ *
+ * @since 11.1
+ */
+public class FileOverflowRecordFilter extends AbstractOverflowRecordFilter {
+    private static final Logger log = LogManager.getLogger(FileOverflowRecordFilter.class);
+
+    public static final String BASE_PATH_OPTION = "basePath";
+
+    public static final String DEFAULT_BASE_PATH = "stream/overflow";
+
+    public static final String SEGMENT_DURATION_OPTION = "segmentDuration";
+
+    public static final String DEFAULT_SEGMENT_DURATION = "10m";
+
+    public static final String SEGMENT_SIZE_OPTION = "segmentSize";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 256 * 1024 * 1024;
+
+    protected static final String SEGMENT_SUFFIX = ".seg";
+
+    protected static final String REFERENCE_SEPARATOR = ":";
+
+    protected final String instanceId = UUID.randomUUID().toString();
+
+    protected final Map<String, MappedByteBuffer> mappedSegments = new ConcurrentHashMap<>();
+
+    protected Path segmentsPath;
+
+    protected Duration segmentDuration;
+
+    protected int segmentSize;
+
+    protected String segmentName;
+
+    protected FileChannel segment;
+
+    protected long segmentStart;
+
+    protected long segmentPosition;
+
+    protected long purgedStamp;
+
+    @Override
+    public void init(Map<String, String> options) {
+        super.init(options);
+        segmentDuration = DurationUtils.parse(
+                options.getOrDefault(SEGMENT_DURATION_OPTION, DEFAULT_SEGMENT_DURATION));
+        segmentSize = parseIntOrDefault(options.get(SEGMENT_SIZE_OPTION), DEFAULT_SEGMENT_SIZE);
+        String basePath = options.get(BASE_PATH_OPTION);
+        if (basePath == null) {
+            basePath = new File(Environment.getDefault().getData(), DEFAULT_BASE_PATH).getPath();
+        }
+        segmentsPath = Paths.get(basePath, getStoreName());
+        try {
+            Files.createDirectories(segmentsPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create overflow directory: " + segmentsPath, e);
+        }
+        purge();
+    }
+
+    public Path getSegmentsPath() {
+        return segmentsPath;
+    }
+
+    @Override
+    protected boolean hasExternalValue(Record record) {
+        // the record data is the reference to the value
+        return record.getFlags().contains(Record.Flag.EXTERNAL_VALUE) && record.getData().length > 0;
+    }
+
+    @Override
+    protected synchronized byte[] storeRecordValue(Record record) {
+        byte[] data = record.getData();
+        try {
+            if (segment == null || segmentPosition + data.length > segmentSize
+                    || System.currentTimeMillis() - segmentStart > segmentDuration.toMillis()) {
+                rollSegment();
+            }
+            long position = segmentPosition;
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                segment.write(buffer);
+            }
+            segmentPosition += data.length;
+            // the record may be read by another node as soon as it is appended
+            segment.force(false);
+            String reference = String.join(REFERENCE_SEPARATOR, segmentName, Long.toString(position),
+                    Integer.toString(data.length));
+            return reference.getBytes(UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write overflow value of record: " + record.getKey(), e);
+        }
+    }
+
+    @Override
+    protected ByteBuffer fetchRecordValue(Record record) {
+        String[] reference = new String(record.getData(), UTF_8).split(REFERENCE_SEPARATOR);
+        String name;
+        long position;
+        int length;
+        try {
+            name = reference[0];
+            position = Long.parseLong(reference[1]);
+            length = Integer.parseInt(reference[2]);
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            log.error("Invalid overflow reference for record: {}", record::getKey);
+            return null;
+        }
+        if (name.contains(File.separator) || !name.endsWith(SEGMENT_SUFFIX) || position < 0 || length < 0) {
+            log.error("Invalid overflow reference for record: {}", record::getKey);
+            return null;
+        }
+        ByteBuffer value = isSegmentComplete(name) ? readMappedSegment(name, position, length)
+                : readSegment(name, position, length);
+        if (value == null) {
+            log.error("Overflow value not found for record: {} in segment: {}", record::getKey, () -> name);
+        }
+        return value;
+    }
+
+    /**
+     * Checks if values can no longer be appended to a segment: a writer only appends to a segment during its duration,
+     * twice the duration leaves room for the appends in progress.
+     */
+    protected boolean isSegmentComplete(String name) {
+        long start = getSegmentStart(name);
+        return start >= 0 && System.currentTimeMillis() - start > 2 * segmentDuration.toMillis();
+    }
+
+    /**
+     * Gets the creation time of a segment from its name, or {@code -1} if the name is invalid.
+     */
+    protected long getSegmentStart(String name) {
+        try {
+            return Long.parseLong(name.substring(0, name.indexOf('-')));
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    protected ByteBuffer readMappedSegment(String name, long position, int length) {
+        if (System.currentTimeMillis() - purgedStamp >= segmentDuration.toMillis()) {
+            // a node only reading values must also release its mappings
+            purge();
+        }
+        MappedByteBuffer mapped = mappedSegments.computeIfAbsent(name, this::mapSegment);
+        if (mapped == null || mapped.capacity() < position + length) {
+            return null;
+        }
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position((int) position);
+        buffer.limit((int) position + length);
+        return buffer.slice();
+    }
+
+    protected MappedByteBuffer mapSegment(String name) {
+        try (FileChannel channel = FileChannel.open(segmentsPath.resolve(name), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map overflow segment: " + name, e);
+        }
+    }
+
+    protected ByteBuffer readSegment(String name, long position, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(segmentsPath.resolve(name), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    // the value is not fully written
+                    return null;
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read overflow segment: " + name, e);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    protected void rollSegment() throws IOException {
+        closeSegment();
+        // the start is part of the segment name
+        segmentStart = Math.max(System.currentTimeMillis(), segmentStart + 1);
+        segmentName = String.format("%013d-%s%s", segmentStart, instanceId, SEGMENT_SUFFIX);
+        segment = FileChannel.open(segmentsPath.resolve(segmentName), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE);
+        segmentPosition = 0;
+        log.debug("New overflow segment: {}", segmentName);
+        if (System.currentTimeMillis() - purgedStamp >= segmentDuration.toMillis()) {
+            purge();
+        }
+    }
+
+    protected synchronized void closeSegment() {
+        if (segment == null) {
+            return;
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Cannot close overflow segment: {}", segmentName, e);
+        }
+        segment = null;
+    }
+
+    /**
+     * Deletes the segments that are not modified since the store TTL, and releases the mappings of the segments older
+     * than the store TTL, which may have been deleted by another node.
+     */
+    public synchronized void purge() {
+        purgedStamp = System.currentTimeMillis();
+        long limit = purgedStamp - getStoreTTL().toMillis();
+        mappedSegments.keySet().removeIf(name -> getSegmentStart(name) < limit);
+        try (Stream<Path> paths = Files.list(segmentsPath)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                 .filter(path -> !path.getFileName().toString().equals(segmentName))
+                 .filter(path -> path.toFile().lastModified() < limit)
+                 .forEach(this::deleteSegment);
+        } catch (IOException e) {
+            log.warn("Cannot list overflow segments: {}", segmentsPath, e);
+        }
+    }
+
+    protected void deleteSegment(Path path) {
+        log.info("Deleting overflow segment: {} according to retention: {}", path, getStoreTTL());
+        mappedSegments.remove(path.getFileName().toString());
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Unable to delete overflow segment: {}, {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the current segment and releases the mapped segments, a next value is appended to a new segment.
+     */
+    @Override
+    public void close() {
+        closeSegment();
+        mappedSegments.clear();
+    }
+
+}
@@ -18,6 +18,9 @@
  */
 package org.nuxeo.ecm.core.work;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -27,7 +30,7 @@ import org.apache.logging.log4j.Logger;
 /**
  * Simple work that just sleeps, mostly used for tests.
  */
-public class SleepWork extends AbstractWork {
+public class SleepWork extends AbstractWork implements CompactWork {
 
     private static final Logger log = LogManager.getLogger(SleepWork.class);
 
@@ -47,6 +50,17 @@ public class SleepWork extends AbstractWork {
 
     protected boolean coalescing = false;
 
+    // @since 11.1
+    protected boolean priority = false;
+
+    /**
+     * Constructor used by the {@link WorkCodec}.
+     *
+     * @since 11.1
+     */
+    protected SleepWork() {
+    }
+
     /**
      * Creates a work instance that does nothing but sleep.
      *
@@ -180,6 +194,40 @@ public class SleepWork extends AbstractWork {
         this.coalescing = coalescing;
     }
 
+    @Override
+    public boolean isPriority() {
+        return priority;
+    }
+
+    /**
+     * @since 11.1
+     */
+    public void setPriority(boolean priority) {
+        this.priority = priority;
+    }
+
+    @Override
+    public void writeFields(DataOutput out) throws IOException {
+        super.writeFields(out);
+        out.writeLong(durationMillis);
+        WorkCodec.writeString(out, category);
+        WorkCodec.writeString(out, partitionKey);
+        out.writeBoolean(idempotent);
+        out.writeBoolean(coalescing);
+        out.writeBoolean(priority);
+    }
+
+    @Override
+    public void readFields(DataInput in, int version) throws IOException {
+        super.readFields(in, version);
+        durationMillis = in.readLong();
+        category = WorkCodec.readString(in);
+        partitionKey = WorkCodec.readString(in);
+        idempotent = in.readBoolean();
+        coalescing = in.readBoolean();
+        priority = version >= 2 && in.readBoolean();
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + "(" + (getId().length() > 10 ? "" : getId() + ", ") + durationMillis
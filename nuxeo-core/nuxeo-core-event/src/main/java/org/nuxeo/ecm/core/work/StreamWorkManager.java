@@ -19,10 +19,10 @@
 package org.nuxeo.ecm.core.work;
 
 import static java.lang.Math.min;
-import static org.nuxeo.ecm.core.work.BaseOverflowRecordFilter.PREFIX_OPTION;
-import static org.nuxeo.ecm.core.work.BaseOverflowRecordFilter.STORE_NAME_OPTION;
-import static org.nuxeo.ecm.core.work.BaseOverflowRecordFilter.STORE_TTL_OPTION;
-import static org.nuxeo.ecm.core.work.BaseOverflowRecordFilter.THRESHOLD_SIZE_OPTION;
+import static org.nuxeo.ecm.core.work.AbstractOverflowRecordFilter.PREFIX_OPTION;
+import static org.nuxeo.ecm.core.work.AbstractOverflowRecordFilter.STORE_NAME_OPTION;
+import static org.nuxeo.ecm.core.work.AbstractOverflowRecordFilter.STORE_TTL_OPTION;
+import static org.nuxeo.ecm.core.work.AbstractOverflowRecordFilter.THRESHOLD_SIZE_OPTION;
 import static org.nuxeo.ecm.core.work.api.WorkManager.Scheduling.CANCEL_SCHEDULED;
 
 import java.time.Duration;
@@ -139,6 +139,21 @@ public class StreamWorkManager extends WorkManagerImpl {
      */
     public static final String COMPUTATION_FILTER_PREFIX_KEY = "nuxeo.stream.work.computation.filter.storeKeyPrefix";
 
+    /**
+     * The directory of the segment files used by the {@link FileOverflowRecordFilter}.
+     *
+     * @since 11.1
+     */
+    public static final String COMPUTATION_FILTER_BASE_PATH_KEY = "nuxeo.stream.work.computation.filter.basePath";
+
+    /**
+     * Writes the {@link CompactWork} instances in the compact format of the {@link WorkCodec} instead of with Java
+     * serialization. Must only be enabled once all the nodes of the cluster read the compact format.
+     *
+     * @since 11.1
+     */
+    public static final String WORK_CODEC_COMPACT_KEY = "nuxeo.stream.work.codec.compact";
+
     protected Topology topology;
 
     protected Topology topologyDisabled;
@@ -151,6 +166,8 @@ public class StreamWorkManager extends WorkManagerImpl {
 
     protected StreamManager streamManager;
 
+    protected RecordFilterChain recordFilter;
+
     protected boolean storeState;
 
     protected long stateTTL;
@@ -172,8 +189,8 @@ public class StreamWorkManager extends WorkManagerImpl {
     }
 
     @Override
-    public void schedule(Work work, Scheduling scheduling, boolean afterCommit) {
-        String queueId = getCategoryQueueId(work.getCategory());
+    protected void schedule(Work work, Scheduling scheduling, boolean afterCommit, boolean backPressure) {
+        String queueId = getWorkQueueId(work);
         if (log.isDebugEnabled()) {
             log.debug(String.format(
                     "Scheduling: workId: %s, category: %s, queue: %s, scheduling: %s, afterCommit: %s, work: %s",
@@ -197,6 +214,9 @@ public class StreamWorkManager extends WorkManagerImpl {
         if (afterCommit && scheduleAfterCommit(work, scheduling)) {
             return;
         }
+        if (backPressure && !applyBackPressure(queueId, work)) {
+            return;
+        }
         WorkSchedulePath.newInstance(work);
         // We don't need to set a codec because appender is initialized with proper codec during processor init
         LogAppender<Record> appender = logManager.getAppender(queueId);
@@ -258,6 +278,8 @@ public class StreamWorkManager extends WorkManagerImpl {
         configuration.getInteger(COMPUTATION_FILTER_THRESHOLD_SIZE_KEY)
                      .ifPresent(value -> ret.put(THRESHOLD_SIZE_OPTION, value.toString()));
         configuration.getString(COMPUTATION_FILTER_STORE_TTL_KEY).ifPresent(value -> ret.put(STORE_TTL_OPTION, value));
+        configuration.getString(COMPUTATION_FILTER_BASE_PATH_KEY)
+                     .ifPresent(value -> ret.put(FileOverflowRecordFilter.BASE_PATH_OPTION, value));
         return ret;
     }
 
@@ -297,6 +319,9 @@ public class StreamWorkManager extends WorkManagerImpl {
             if (!shutdown(10, TimeUnit.SECONDS)) {
                 log.error("Some processors are still active");
             }
+            if (recordFilter != null) {
+                recordFilter.close();
+            }
         }
 
         @Override
@@ -358,10 +383,17 @@ public class StreamWorkManager extends WorkManagerImpl {
         topologyDisabled = builderDisabled.build();
         // The retry policy is handled at AbstractWork level, but we want to skip failure
         ComputationPolicy policy = new ComputationPolicyBuilder().continueOnFailure(true).build();
-        RecordFilterChain filter = getRecordFilter();
-        settings = new Settings(DEFAULT_CONCURRENCY, getPartitions(DEFAULT_CONCURRENCY), getCodec(), policy, filter);
-        descriptors.forEach(item -> settings.setConcurrency(item.getId(), item.getMaxThreads()));
-        descriptors.forEach(item -> settings.setPartitions(item.getId(), getPartitions(item.getMaxThreads())));
+        recordFilter = getRecordFilter();
+        settings = new Settings(DEFAULT_CONCURRENCY, getPartitions(DEFAULT_CONCURRENCY), getCodec(), policy,
+                recordFilter);
+        descriptors.forEach(item -> settings.setConcurrency(item.getId(), item.getConcurrency()));
+        descriptors.forEach(item -> settings.setPartitions(item.getId(), getPartitions(item.getConcurrency())));
+        ComputationPolicy virtualPolicy = new ComputationPolicyBuilder().continueOnFailure(true)
+                                                                        .virtualThreads(true)
+                                                                        .build();
+        descriptors.stream()
+                   .filter(WorkQueueDescriptor::isVirtualThreads)
+                   .forEach(item -> settings.setPolicy(item.getId(), virtualPolicy));
     }
 
     protected int getPartitions(int maxThreads) {
@@ -389,7 +421,8 @@ public class StreamWorkManager extends WorkManagerImpl {
         @Override
         public void afterCompletion(int status) {
             if (status == Status.STATUS_COMMITTED) {
-                StreamWorkManager.this.schedule(work, scheduling, false);
+                // the back-pressure was applied before commit
+                StreamWorkManager.this.schedule(work, scheduling, false, false);
             } else {
                 if (status != Status.STATUS_ROLLEDBACK) {
                     throw new IllegalArgumentException("Unsupported transaction status " + status);
@@ -484,6 +517,14 @@ public class StreamWorkManager extends WorkManagerImpl {
         }
     }
 
+    @Override
+    protected long getLatency(String queueId) {
+        if (streamProcessor == null || !isProcessingEnabled(queueId)) {
+            return 0;
+        }
+        return streamProcessor.getLatency(queueId).latency();
+    }
+
     @Override
     public WorkQueueMetrics getMetrics(String queueId) {
         LogLag lag = logManager.getLag(queueId, queueId);
@@ -617,6 +658,9 @@ public class StreamWorkManager extends WorkManagerImpl {
             }
             int status = transaction.getStatus();
             if (status == Status.STATUS_ACTIVE) {
+                if (!applyBackPressure(getWorkQueueId(work), work)) {
+                    return true;
+                }
                 if (log.isDebugEnabled()) {
                     log.debug("Scheduled after commit: " + work.getId());
                 }
@@ -0,0 +1,193 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+
+/**
+ * Codec for the works stored in the stream records.
+ * <p>
+ * A {@link CompactWork} is written as its class name followed by the table of its fields, which is much smaller and
+ * faster than Java serialization. Other works are written with Java serialization, and records written with Java
+ * serialization are always readable.
+ * <p>
+ * The compact format is only used if the class of the work itself declares {@code writeFields} and a no-arg
+ * constructor, so that a subclass adding fields to a {@link CompactWork} without declaring them is still fully
+ * written, with Java serialization.
+ * <p>
+ * The compact format can only be written once all the nodes of a cluster read it, before that the codec is created
+ * with {@code compact} set to {@code false} to write Java serialization only.
+ *
+ * @since 11.1
+ */
+public class WorkCodec implements Codec<Work> {
+
+    public static final String NAME = "work";
+
+    /** First byte of the compact format. Java serialization always starts with 0xACED. */
+    protected static final byte MAGIC = 'W';
+
+    /**
+     * Version of the compact format, to be incremented whenever the fields written by a {@link CompactWork} change.
+     * <p>
+     * The version of a record is passed to {@link CompactWork#readFields} so that the records of the previous versions
+     * are still readable. Version 2 adds the priority of the {@link SleepWork}.
+     */
+    protected static final byte VERSION = 2;
+
+    protected static final ClassValue<Boolean> COMPACT_CLASSES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> klass) {
+            if (!CompactWork.class.isAssignableFrom(klass)) {
+                return Boolean.FALSE;
+            }
+            try {
+                klass.getDeclaredMethod("writeFields", DataOutput.class);
+                klass.getDeclaredConstructor();
+                return Boolean.TRUE;
+            } catch (NoSuchMethodException e) {
+                return Boolean.FALSE;
+            }
+        }
+    };
+
+    protected final SerializableCodec<Work> legacyCodec = new SerializableCodec<>();
+
+    protected final boolean compact;
+
+    public WorkCodec() {
+        this(true);
+    }
+
+    /**
+     * @param compact {@code false} to write with Java serialization only
+     */
+    public WorkCodec(boolean compact) {
+        this.compact = compact;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Work work) {
+        if (!compact || !COMPACT_CLASSES.get(work.getClass()).booleanValue()) {
+            return legacyCodec.encode(work);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(work.getClass().getName());
+            ((CompactWork) work).writeFields(out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    @Override
+    public Work decode(byte[] data) {
+        if (!isCompact(data)) {
+            return legacyCodec.decode(data);
+        }
+        int version = data[1];
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported work format version: " + version);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 2, data.length - 2))) {
+            String className = in.readUTF();
+            CompactWork work = newInstance(className);
+            work.readFields(in, version);
+            return work;
+        } catch (IOException | ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Checks if the data are in the compact format.
+     */
+    public static boolean isCompact(byte[] data) {
+        return data.length >= 2 && data[0] == MAGIC;
+    }
+
+    protected CompactWork newInstance(String className) throws ReflectiveOperationException {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = WorkCodec.class.getClassLoader();
+        }
+        Class<?> klass = Class.forName(className, true, classLoader);
+        Constructor<?> constructor = klass.getDeclaredConstructor();
+        constructor.setAccessible(true); // NOSONAR
+        return (CompactWork) constructor.newInstance();
+    }
+
+    /* ----- helpers for the fields of the works ----- */
+
+    public static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    public static List<String> readStrings(DataInput in) throws IOException {
+        int size = in.readInt();
+        if (size < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+}
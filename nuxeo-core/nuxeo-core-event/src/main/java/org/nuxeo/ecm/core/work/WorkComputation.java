@@ -21,14 +21,8 @@ package org.nuxeo.ecm.core.work;
 import static org.nuxeo.ecm.core.work.StreamWorkManager.STATETTL_DEFAULT_VALUE;
 import static org.nuxeo.ecm.core.work.StreamWorkManager.STATETTL_KEY;
 import static org.nuxeo.ecm.core.work.StreamWorkManager.STORESTATE_KEY;
+import static org.nuxeo.ecm.core.work.StreamWorkManager.WORK_CODEC_COMPACT_KEY;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutput;
-import java.io.ObjectOutputStream;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections.buffer.CircularFifoBuffer;
@@ -57,6 +51,24 @@ public class WorkComputation extends AbstractComputation {
 
     protected static final int IDS_SIZE = 50;
 
+    /** @since 11.1 */
+    protected static final WorkCodec WORK_CODEC = new WorkCodec();
+
+    /**
+     * The codec used to write the works, initialized on first use from the configuration.
+     *
+     * @since 11.1
+     */
+    protected static class WriteCodecHolder {
+
+        protected static final WorkCodec CODEC = new WorkCodec(isCompactEnabled());
+
+        protected static boolean isCompactEnabled() {
+            ConfigurationService configuration = Framework.getService(ConfigurationService.class);
+            return configuration != null && configuration.isBooleanTrue(WORK_CODEC_COMPACT_KEY);
+        }
+    }
+
     protected final CircularFifoBuffer workIds = new CircularFifoBuffer(IDS_SIZE);
 
     protected final Timer workTimer;
@@ -143,44 +155,18 @@ public class WorkComputation extends AbstractComputation {
         }
     }
 
-    @SuppressWarnings("squid:S2093")
+    /**
+     * Decodes a work, written in the compact format for a {@link CompactWork}, or with Java serialization.
+     */
     public static Work deserialize(byte[] data) {
-        // TODO: switch to commons-lang3 SerializationUtils
-        ByteArrayInputStream bis = new ByteArrayInputStream(data);
-        ObjectInput in = null;
-        try {
-            in = new ObjectInputStream(bis);
-            return (Work) in.readObject();
-        } catch (IOException | ClassNotFoundException e) {
-            throw new RuntimeException(e);
-        } finally {
-            try {
-                if (in != null) {
-                    in.close();
-                }
-            } catch (IOException ex) {
-                // ignore close exception so we cannot use a try-with-resources squid:S2093
-            }
-        }
+        return WORK_CODEC.decode(data);
     }
 
-    @SuppressWarnings("squid:S2093")
+    /**
+     * Encodes a work, in the compact format for a {@link CompactWork} if enabled by
+     * {@value StreamWorkManager#WORK_CODEC_COMPACT_KEY}, or with Java serialization.
+     */
     public static byte[] serialize(Work work) {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutput out;
-        try {
-            out = new ObjectOutputStream(bos);
-            out.writeObject(work);
-            out.flush();
-            return bos.toByteArray();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        } finally {
-            try {
-                bos.close();
-            } catch (IOException ex) {
-                // ignore close exception so we cannot use a try-with-resources squid:S2093
-            }
-        }
+        return WriteCodecHolder.CODEC.encode(work);
     }
 }
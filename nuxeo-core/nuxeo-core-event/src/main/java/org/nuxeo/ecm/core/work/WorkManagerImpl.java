@@ -27,8 +27,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -64,6 +68,7 @@ import org.nuxeo.ecm.core.work.api.WorkSchedulePath;
 import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.VirtualThreadFactory;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.metrics.NuxeoMetricSet;
@@ -138,6 +143,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     protected final Map<String, String> categoryToQueueId = new HashMap<>();
 
+    // @since 11.1
+    protected final Map<String, WorkQueueBackPressure> backPressures = new ConcurrentHashMap<>();
+
     protected WorkQueuing queuing;
 
     protected boolean active = true;
@@ -221,13 +229,23 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             throw new IllegalStateException("work queue " + config.id + " already have an executor");
         }
         NuxeoBlockingQueue queue = queuing.init(config);
-        ThreadFactory threadFactory = new NamedThreadFactory(THREAD_PREFIX + config.id + "-");
-        int maxPoolSize = config.getMaxThreads();
-        WorkThreadPoolExecutor executor = new WorkThreadPoolExecutor(maxPoolSize, maxPoolSize, 0, TimeUnit.SECONDS,
-                queue, threadFactory);
-        // prestart all core threads so that direct additions to the queue
-        // (from another Nuxeo instance) can be seen
-        executor.prestartAllCoreThreads();
+        NamedThreadFactory threadFactory = new NamedThreadFactory(THREAD_PREFIX + config.id + "-");
+        WorkThreadPoolExecutor executor;
+        if (config.isVirtualThreads()) {
+            ThreadFactory workThreadFactory = new VirtualThreadFactory(THREAD_PREFIX + config.id + "-v-",
+                    threadFactory::handleUncaughtException);
+            WorkVirtualThreadExecutor virtualExecutor = new WorkVirtualThreadExecutor(config.getMaxConcurrency(),
+                    queue, threadFactory, workThreadFactory);
+            virtualExecutor.startDispatcher();
+            executor = virtualExecutor;
+        } else {
+            int maxPoolSize = config.getMaxThreads();
+            executor = new WorkThreadPoolExecutor(maxPoolSize, maxPoolSize, 0, TimeUnit.SECONDS, queue,
+                    threadFactory);
+            // prestart all core threads so that direct additions to the queue
+            // (from another Nuxeo instance) can be seen
+            executor.prestartAllCoreThreads();
+        }
         executors.put(config.id, executor);
         log.info("Initialized work queue {}, {}", config.id, config);
     }
@@ -351,6 +369,60 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         return queueId;
     }
 
+    /**
+     * Gets the queue of a work, which is the priority queue of the queue of its category for a
+     * {@link Work#isPriority() priority} work, if any.
+     *
+     * @since 11.1
+     */
+    protected String getWorkQueueId(Work work) {
+        String queueId = getCategoryQueueId(work.getCategory());
+        if (work.isPriority()) {
+            WorkQueueDescriptor descriptor = getWorkQueueDescriptor(queueId);
+            if (descriptor != null && descriptor.priorityQueue != null
+                    && getWorkQueueDescriptor(descriptor.priorityQueue) != null) {
+                return descriptor.priorityQueue;
+            }
+        }
+        return queueId;
+    }
+
+    /**
+     * Applies the back-pressure policy of the queue, priority works are never held back.
+     *
+     * @return {@code true} if the work can be scheduled, {@code false} if it must be dropped
+     * @throws org.nuxeo.ecm.core.work.api.WorkRejectedException if the work is rejected
+     * @since 11.1
+     */
+    protected boolean applyBackPressure(String queueId, Work work) {
+        if (work.isPriority()) {
+            return true;
+        }
+        WorkQueueBackPressure backPressure = backPressures.computeIfAbsent(queueId, this::newBackPressure);
+        return backPressure == null || backPressure.acquire(work);
+    }
+
+    /**
+     * @since 11.1
+     */
+    protected WorkQueueBackPressure newBackPressure(String queueId) {
+        WorkQueueDescriptor descriptor = getWorkQueueDescriptor(queueId);
+        if (descriptor == null) {
+            return null;
+        }
+        return new WorkQueueBackPressure(descriptor, () -> getMetrics(queueId).getScheduled().longValue(),
+                () -> getLatency(queueId));
+    }
+
+    /**
+     * Gets the latency of a queue in milliseconds, {@code 0} if it is not measured.
+     *
+     * @since 11.1
+     */
+    protected long getLatency(String queueId) {
+        return 0;
+    }
+
     @Override
     public int getApplicationStartedOrder() {
         return EventServiceComponent.APPLICATION_STARTED_ORDER - 1;
@@ -556,7 +628,8 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
         @Override
         public void afterCompletion(int status) {
             if (status == Status.STATUS_COMMITTED) {
-                schedule(work, scheduling, false);
+                // the back-pressure was applied before commit
+                schedule(work, scheduling, false, false);
             } else if (status == Status.STATUS_ROLLEDBACK) {
                 work.setWorkInstanceState(State.UNKNOWN);
             } else {
@@ -762,6 +835,131 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     }
 
+    /**
+     * A {@link WorkThreadPoolExecutor} running each work on its own thread, virtual if the JVM provides them, with a
+     * semaphore bounding the number of works running at the same time instead of a fixed pool of threads.
+     * <p>
+     * A dispatcher thread takes the works from the queue when a permit is available, so that the works waiting for a
+     * permit are still seen as scheduled. The pool of the underlying executor itself is never used.
+     *
+     * @since 11.1
+     */
+    protected class WorkVirtualThreadExecutor extends WorkThreadPoolExecutor {
+
+        protected final int maxConcurrency;
+
+        protected final Semaphore permits;
+
+        protected final ThreadFactory workThreadFactory;
+
+        protected final Thread dispatcher;
+
+        protected final Set<Thread> workThreads = ConcurrentHashMap.newKeySet();
+
+        protected WorkVirtualThreadExecutor(int maxConcurrency, NuxeoBlockingQueue queue,
+                ThreadFactory dispatcherThreadFactory, ThreadFactory workThreadFactory) {
+            super(0, 1, 0, TimeUnit.SECONDS, queue, dispatcherThreadFactory);
+            this.maxConcurrency = maxConcurrency;
+            this.workThreadFactory = workThreadFactory;
+            permits = new Semaphore(maxConcurrency);
+            dispatcher = dispatcherThreadFactory.newThread(this::dispatch);
+        }
+
+        public void startDispatcher() {
+            dispatcher.start();
+        }
+
+        protected void dispatch() {
+            BlockingQueue<Runnable> queue = getQueue();
+            try {
+                while (!isShutdown()) {
+                    permits.acquire();
+                    Runnable r;
+                    try {
+                        r = queue.take();
+                    } catch (InterruptedException e) {
+                        permits.release();
+                        throw e;
+                    }
+                    if (r == null) {
+                        // work rescheduled by the queue
+                        permits.release();
+                        continue;
+                    }
+                    try {
+                        workThreadFactory.newThread(() -> runWork(r)).start();
+                    } catch (RuntimeException | Error e) {
+                        permits.release();
+                        throw e;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.debug("Dispatcher of queue {} interrupted", queueId);
+            }
+        }
+
+        /**
+         * Runs a work with the same lifecycle as a thread of the pool.
+         */
+        protected void runWork(Runnable r) {
+            Thread thread = Thread.currentThread();
+            workThreads.add(thread);
+            try {
+                beforeExecute(thread, r);
+                Throwable error = null;
+                try {
+                    r.run();
+                } catch (RuntimeException | Error e) {
+                    error = e;
+                    throw e;
+                } finally {
+                    afterExecute(r, error);
+                }
+            } finally {
+                workThreads.remove(thread);
+                permits.release();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            super.shutdown();
+            dispatcher.interrupt();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> tasks = super.shutdownNow();
+            dispatcher.interrupt();
+            workThreads.forEach(Thread::interrupt);
+            return tasks;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return super.isTerminated() && !dispatcher.isAlive() && permits.availablePermits() == maxConcurrency;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            if (dispatcher.isAlive()) {
+                TimeUnit.NANOSECONDS.timedJoin(dispatcher, Math.max(deadline - System.nanoTime(), 1));
+                if (dispatcher.isAlive()) {
+                    return false;
+                }
+            }
+            // all the permits are released when all the works are done
+            if (!permits.tryAcquire(maxConcurrency, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            permits.release(maxConcurrency);
+            return super.awaitTermination(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        }
+
+    }
+
     @Override
     public void schedule(Work work) {
         schedule(work, Scheduling.ENQUEUE, false);
@@ -779,14 +977,27 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
 
     @Override
     public void schedule(Work work, Scheduling scheduling, boolean afterCommit) {
+        schedule(work, scheduling, afterCommit, true);
+    }
+
+    /**
+     * Schedules a work, applying the back-pressure policy of its queue if requested. A work scheduled after commit is
+     * held back when it is registered, while the caller can still handle a rejection, not at commit time.
+     *
+     * @since 11.1
+     */
+    protected void schedule(Work work, Scheduling scheduling, boolean afterCommit, boolean backPressure) {
         String workId = work.getId();
-        String queueId = getCategoryQueueId(work.getCategory());
+        String queueId = getWorkQueueId(work);
         if (!isQueuingEnabled(queueId)) {
             return;
         }
         if (afterCommit && scheduleAfterCommit(work, scheduling)) {
             return;
         }
+        if (backPressure && scheduling != Scheduling.CANCEL_SCHEDULED && !applyBackPressure(queueId, work)) {
+            return;
+        }
         work.setWorkInstanceState(State.SCHEDULED);
         WorkSchedulePath.newInstance(work);
         switch (scheduling) {
@@ -836,6 +1047,9 @@ public class WorkManagerImpl extends DefaultComponent implements WorkManager {
             }
             int status = transaction.getStatus();
             if (status == Status.STATUS_ACTIVE) {
+                if (scheduling != Scheduling.CANCEL_SCHEDULED && !applyBackPressure(getWorkQueueId(work), work)) {
+                    return true;
+                }
                 log.debug("Scheduling work after commit: {}", work);
                 transaction.registerSynchronization(new WorkScheduling(work, scheduling));
                 return true;
@@ -0,0 +1,182 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.nuxeo.ecm.core.work.api.WorkQueueDescriptor.BACK_PRESSURE_BLOCK;
+import static org.nuxeo.ecm.core.work.api.WorkQueueDescriptor.BACK_PRESSURE_REJECT;
+import static org.nuxeo.ecm.core.work.api.WorkQueueDescriptor.BACK_PRESSURE_SHED;
+
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.ecm.core.work.api.WorkRejectedException;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Applies the back-pressure policy of a queue to the works scheduled on it.
+ * <p>
+ * The queue is saturated when its number of scheduled works, or its latency, exceeds the limits of the
+ * {@link WorkQueueDescriptor}. Measuring a stream can be costly, so the state of the queue is refreshed at most once
+ * per {@link #CHECK_INTERVAL_MS}.
+ *
+ * @since 11.1
+ */
+public class WorkQueueBackPressure {
+
+    private static final Logger log = LogManager.getLogger(WorkQueueBackPressure.class);
+
+    protected static final long CHECK_INTERVAL_MS = 1000;
+
+    protected static final long BLOCK_PAUSE_MS = 100;
+
+    protected final String queueId;
+
+    protected final String policy;
+
+    protected final long maxScheduled;
+
+    protected final long maxLatencyMs;
+
+    protected final long timeoutMs;
+
+    protected final LongSupplier scheduled;
+
+    protected final LongSupplier latencyMs;
+
+    protected volatile long lastCheck;
+
+    protected volatile boolean saturated;
+
+    protected final Counter blockedCount;
+
+    protected final Counter rejectedCount;
+
+    protected final Counter shedCount;
+
+    /**
+     * @param descriptor the queue descriptor
+     * @param scheduled supplies the number of scheduled works
+     * @param latencyMs supplies the latency of the queue in milliseconds
+     */
+    public WorkQueueBackPressure(WorkQueueDescriptor descriptor, LongSupplier scheduled, LongSupplier latencyMs) {
+        queueId = descriptor.getId();
+        policy = getPolicy(descriptor);
+        maxScheduled = descriptor.getBackPressureMaxScheduled();
+        maxLatencyMs = descriptor.getBackPressureMaxLatency().toMillis();
+        timeoutMs = descriptor.getBackPressureTimeout().toMillis();
+        this.scheduled = scheduled;
+        this.latencyMs = latencyMs;
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        blockedCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "blocked"));
+        rejectedCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "rejected"));
+        shedCount = registry.counter(MetricRegistry.name("nuxeo", "works", queueId, "shed"));
+    }
+
+    protected static String getPolicy(WorkQueueDescriptor descriptor) {
+        if (!descriptor.isBackPressure()) {
+            return null;
+        }
+        String policy = descriptor.getBackPressurePolicy();
+        if (!BACK_PRESSURE_BLOCK.equals(policy) && !BACK_PRESSURE_REJECT.equals(policy)
+                && !BACK_PRESSURE_SHED.equals(policy)) {
+            log.error("Invalid back-pressure policy: {} for queue: {}, ignored", policy, descriptor.getId());
+            return null;
+        }
+        return policy;
+    }
+
+    /**
+     * Whether a policy is applied to the queue.
+     */
+    public boolean isEnabled() {
+        return policy != null;
+    }
+
+    /**
+     * Applies the policy to a work before it is scheduled.
+     *
+     * @return {@code true} if the work can be scheduled, {@code false} if it must be dropped
+     * @throws WorkRejectedException if the work is rejected
+     */
+    public boolean acquire(Work work) {
+        if (policy == null || !isSaturated()) {
+            return true;
+        }
+        switch (policy) {
+        case BACK_PRESSURE_SHED:
+            shedCount.inc();
+            log.debug("Queue {} saturated, dropping work: {}", queueId, work);
+            return false;
+        case BACK_PRESSURE_REJECT:
+            rejectedCount.inc();
+            throw new WorkRejectedException("Queue " + queueId + " saturated, rejecting work: " + work.getId());
+        default:
+            blockedCount.inc();
+            waitForCapacity(work);
+            return true;
+        }
+    }
+
+    protected void waitForCapacity(Work work) {
+        log.debug("Queue {} saturated, blocking work: {}", queueId, work);
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        try {
+            do {
+                Thread.sleep(BLOCK_PAUSE_MS);
+                if (!isSaturated()) {
+                    return;
+                }
+            } while (System.currentTimeMillis() < deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WorkRejectedException("Interrupted while blocked on queue " + queueId + ", rejecting work: "
+                    + work.getId(), e);
+        }
+        rejectedCount.inc();
+        throw new WorkRejectedException(
+                "Queue " + queueId + " saturated after " + timeoutMs + "ms, rejecting work: " + work.getId());
+    }
+
+    /**
+     * Checks if the queue is saturated, using the last measure if it is recent enough.
+     */
+    public boolean isSaturated() {
+        long now = System.currentTimeMillis();
+        if (now - lastCheck >= CHECK_INTERVAL_MS) {
+            lastCheck = now;
+            saturated = measure();
+        }
+        return saturated;
+    }
+
+    protected boolean measure() {
+        if (maxScheduled > 0 && scheduled.getAsLong() >= maxScheduled) {
+            return true;
+        }
+        return maxLatencyMs > 0 && latencyMs.getAsLong() >= maxLatencyMs;
+    }
+
+}
@@ -405,4 +405,15 @@ public interface Work extends Serializable {
         return false;
     }
 
+    /**
+     * Returns true for an interactive work that must not wait behind bulk works: it is not subject to the
+     * back-pressure of its queue and is scheduled to the {@link WorkQueueDescriptor#priorityQueue priority queue} of
+     * its queue when there is one.
+     *
+     * @since 11.1
+     */
+    default boolean isPriority() {
+        return false;
+    }
+
 }
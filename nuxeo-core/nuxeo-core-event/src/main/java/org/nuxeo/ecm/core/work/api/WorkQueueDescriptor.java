@@ -18,6 +18,7 @@
  */
 package org.nuxeo.ecm.core.work.api;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -43,6 +44,58 @@ public class WorkQueueDescriptor implements Descriptor {
 
     public static final int DEFAULT_CAPACITY = -1;
 
+    /**
+     * Execution mode where the works run on a fixed pool of {@link #getMaxThreads maxThreads} threads.
+     *
+     * @since 11.1
+     */
+    public static final String EXECUTION_MODE_POOL = "pool";
+
+    /**
+     * Execution mode where each work runs on its own virtual thread, at most {@link #getMaxConcurrency
+     * maxConcurrency} at the same time. Suited to works spending most of their time blocked on I/O.
+     * <p>
+     * When the JVM does not provide virtual threads, platform threads are created on demand instead of pooled.
+     *
+     * @since 11.1
+     */
+    public static final String EXECUTION_MODE_VIRTUAL = "virtual";
+
+    /** @since 11.1 */
+    public static final int DEFAULT_MAX_CONCURRENCY = 32;
+
+    /**
+     * Back-pressure policy where the works are scheduled whatever the state of the queue.
+     *
+     * @since 11.1
+     */
+    public static final String BACK_PRESSURE_NONE = "none";
+
+    /**
+     * Back-pressure policy where the caller is blocked until the queue is no longer saturated, or rejected after the
+     * {@link #getBackPressureTimeout timeout}.
+     *
+     * @since 11.1
+     */
+    public static final String BACK_PRESSURE_BLOCK = "block";
+
+    /**
+     * Back-pressure policy where the caller gets a {@link WorkRejectedException} while the queue is saturated.
+     *
+     * @since 11.1
+     */
+    public static final String BACK_PRESSURE_REJECT = "reject";
+
+    /**
+     * Back-pressure policy where the works are dropped while the queue is saturated.
+     *
+     * @since 11.1
+     */
+    public static final String BACK_PRESSURE_SHED = "shed";
+
+    /** @since 11.1 */
+    public static final Duration DEFAULT_BACK_PRESSURE_TIMEOUT = Duration.ofSeconds(30);
+
     @XNode("@id")
     public String id;
 
@@ -81,6 +134,51 @@ public class WorkQueueDescriptor implements Descriptor {
         return maxThreads == null ? DEFAULT_MAX_THREADS : maxThreads.intValue();
     }
 
+    /** @since 11.1 */
+    @XNode("executionMode")
+    public String executionMode;
+
+    /**
+     * Gets the execution mode, {@link #EXECUTION_MODE_POOL} or {@link #EXECUTION_MODE_VIRTUAL}.
+     *
+     * @since 11.1
+     */
+    public String getExecutionMode() {
+        return executionMode == null ? EXECUTION_MODE_POOL : executionMode;
+    }
+
+    /**
+     * Whether the works of this queue run on virtual threads.
+     *
+     * @since 11.1
+     */
+    public boolean isVirtualThreads() {
+        return EXECUTION_MODE_VIRTUAL.equals(getExecutionMode());
+    }
+
+    /** @since 11.1 */
+    @XNode("maxConcurrency")
+    public Integer maxConcurrency;
+
+    /**
+     * Gets the maximum number of works running at the same time in the {@link #EXECUTION_MODE_VIRTUAL virtual}
+     * execution mode.
+     *
+     * @since 11.1
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency == null ? DEFAULT_MAX_CONCURRENCY : maxConcurrency.intValue();
+    }
+
+    /**
+     * Gets the maximum number of works running at the same time, depending on the execution mode.
+     *
+     * @since 11.1
+     */
+    public int getConcurrency() {
+        return isVirtualThreads() ? getMaxConcurrency() : getMaxThreads();
+    }
+
     @XNodeList(value = "category", type = HashSet.class, componentType = String.class)
     public Set<String> categories = Collections.emptySet();
 
@@ -97,6 +195,80 @@ public class WorkQueueDescriptor implements Descriptor {
         return capacity == null ? DEFAULT_CAPACITY : capacity.intValue();
     }
 
+    /** @since 11.1 */
+    @XNode("backPressure@policy")
+    public String backPressurePolicy;
+
+    /** @since 11.1 */
+    @XNode("backPressure@maxScheduled")
+    public Long backPressureMaxScheduled;
+
+    /** @since 11.1 */
+    @XNode("backPressure@maxLatency")
+    public Duration backPressureMaxLatency;
+
+    /** @since 11.1 */
+    @XNode("backPressure@timeout")
+    public Duration backPressureTimeout;
+
+    /**
+     * Gets the back-pressure policy applied when the queue is saturated, {@link #BACK_PRESSURE_NONE},
+     * {@link #BACK_PRESSURE_BLOCK}, {@link #BACK_PRESSURE_REJECT} or {@link #BACK_PRESSURE_SHED}.
+     *
+     * @since 11.1
+     */
+    public String getBackPressurePolicy() {
+        return backPressurePolicy == null ? BACK_PRESSURE_NONE : backPressurePolicy;
+    }
+
+    /**
+     * Gets the number of scheduled works, or the lag of the stream, above which the queue is saturated, {@code 0} for
+     * no limit.
+     *
+     * @since 11.1
+     */
+    public long getBackPressureMaxScheduled() {
+        return backPressureMaxScheduled == null ? 0 : backPressureMaxScheduled.longValue();
+    }
+
+    /**
+     * Gets the latency above which the queue is saturated, {@link Duration#ZERO} for no limit. The latency is only
+     * measured by the WorkManager implementations based on a stream.
+     *
+     * @since 11.1
+     */
+    public Duration getBackPressureMaxLatency() {
+        return backPressureMaxLatency == null ? Duration.ZERO : backPressureMaxLatency;
+    }
+
+    /**
+     * Gets how long a caller can be blocked by the {@link #BACK_PRESSURE_BLOCK} policy.
+     *
+     * @since 11.1
+     */
+    public Duration getBackPressureTimeout() {
+        return backPressureTimeout == null ? DEFAULT_BACK_PRESSURE_TIMEOUT : backPressureTimeout;
+    }
+
+    /**
+     * Whether a back-pressure policy is applied to this queue.
+     *
+     * @since 11.1
+     */
+    public boolean isBackPressure() {
+        return !BACK_PRESSURE_NONE.equals(getBackPressurePolicy())
+                && (getBackPressureMaxScheduled() > 0 || !getBackPressureMaxLatency().isZero());
+    }
+
+    /**
+     * The queue receiving the {@link Work#isPriority priority} works of this queue, bypassing its back-pressure and
+     * its scheduled works.
+     *
+     * @since 11.1
+     */
+    @XNode("priorityQueue")
+    public String priorityQueue;
+
     @Override
     public Descriptor merge(Descriptor o) {
         WorkQueueDescriptor other = (WorkQueueDescriptor) o;
@@ -107,6 +279,16 @@ public class WorkQueueDescriptor implements Descriptor {
         merged.capacity = other.capacity != null ? other.capacity : capacity;
         merged.processing = other.processing != null ? other.processing : processing;
         merged.maxThreads = other.maxThreads != null ? other.maxThreads : maxThreads;
+        merged.executionMode = other.executionMode != null ? other.executionMode : executionMode;
+        merged.maxConcurrency = other.maxConcurrency != null ? other.maxConcurrency : maxConcurrency;
+        merged.backPressurePolicy = other.backPressurePolicy != null ? other.backPressurePolicy : backPressurePolicy;
+        merged.backPressureMaxScheduled = other.backPressureMaxScheduled != null ? other.backPressureMaxScheduled
+                : backPressureMaxScheduled;
+        merged.backPressureMaxLatency = other.backPressureMaxLatency != null ? other.backPressureMaxLatency
+                : backPressureMaxLatency;
+        merged.backPressureTimeout = other.backPressureTimeout != null ? other.backPressureTimeout
+                : backPressureTimeout;
+        merged.priorityQueue = other.priorityQueue != null ? other.priorityQueue : priorityQueue;
         merged.categories = new HashSet<>(categories);
         merged.categories.addAll(other.categories);
         return merged;
@@ -123,10 +305,25 @@ public class WorkQueueDescriptor implements Descriptor {
         sb.append(isQueuingEnabled());
         sb.append(" processing=");
         sb.append(isProcessingEnabled());
-        sb.append(" maxThreads=");
-        sb.append(getMaxThreads());
+        if (isVirtualThreads()) {
+            sb.append(" executionMode=");
+            sb.append(getExecutionMode());
+            sb.append(" maxConcurrency=");
+            sb.append(getMaxConcurrency());
+        } else {
+            sb.append(" maxThreads=");
+            sb.append(getMaxThreads());
+        }
         sb.append(" capacity=");
         sb.append(getCapacity());
+        if (isBackPressure()) {
+            sb.append(" backPressure=");
+            sb.append(getBackPressurePolicy());
+        }
+        if (priorityQueue != null) {
+            sb.append(" priorityQueue=");
+            sb.append(priorityQueue);
+        }
         sb.append(")");
         return sb.toString();
     }
@@ -0,0 +1,45 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work.api;
+
+import static javax.servlet.http.HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+/**
+ * An exception thrown when a work is not scheduled because its queue is saturated.
+ * <p>
+ * Helpful for producers that may want to slow down and retry later.
+ *
+ * @see WorkQueueDescriptor#getBackPressurePolicy()
+ * @since 11.1
+ */
+public class WorkRejectedException extends NuxeoException {
+
+    private static final long serialVersionUID = 1L;
+
+    public WorkRejectedException(String message) {
+        super(message, SC_SERVICE_UNAVAILABLE);
+    }
+
+    public WorkRejectedException(String message, Throwable cause) {
+        super(message, cause, SC_SERVICE_UNAVAILABLE);
+    }
+
+}
@@ -104,6 +104,17 @@ public class WorkSchedulePath implements Serializable {
         scheduleStackTrace = null;
     }
 
+    /**
+     * Constructs a path from its parts, when decoding a work.
+     *
+     * @since 11.1
+     */
+    public WorkSchedulePath(String parentPath, String name) {
+        this.parentPath = parentPath;
+        this.name = name;
+        scheduleStackTrace = null;
+    }
+
     public boolean isRoot() {
         return parentPath.isEmpty();
     }
@@ -122,6 +133,11 @@ public class WorkSchedulePath implements Serializable {
         return parentPath;
     }
 
+    /** @since 11.1 */
+    public String getName() {
+        return name;
+    }
+
     public Trace getStack() {
         return scheduleStackTrace;
     }
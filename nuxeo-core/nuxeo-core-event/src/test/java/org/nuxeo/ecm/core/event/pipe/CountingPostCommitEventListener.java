@@ -0,0 +1,48 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.pipe;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.PostCommitEventListener;
+
+/**
+ * Post commit listener counting the events it handles.
+ *
+ * @since 11.1
+ */
+public class CountingPostCommitEventListener implements PostCommitEventListener {
+
+    protected static final AtomicInteger eventCount = new AtomicInteger();
+
+    @Override
+    public void handleEvent(EventBundle events) {
+        eventCount.addAndGet(events.size());
+    }
+
+    public static int eventCount() {
+        return eventCount.get();
+    }
+
+    public static void eventCountReset() {
+        eventCount.set(0);
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.pipe;
+
+import static org.junit.Assert.assertEquals;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventService;
+import org.nuxeo.ecm.core.event.impl.EventContextImpl;
+import org.nuxeo.ecm.core.event.impl.EventImpl;
+import org.nuxeo.ecm.core.event.impl.EventServiceImpl;
+import org.nuxeo.ecm.core.event.pipe.dispatch.EventBundleDispatcher;
+import org.nuxeo.ecm.core.event.pipe.stream.StreamEventBundlePipe;
+import org.nuxeo.ecm.core.event.test.DummyPostCommitEventListener;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.stream.StreamService;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.runtime.jtajca")
+@Deploy("org.nuxeo.runtime.stream")
+@Deploy("org.nuxeo.ecm.core.event")
+@Deploy("org.nuxeo.ecm.core.event:test-PostCommitListeners3.xml")
+@Deploy("org.nuxeo.ecm.core.event.test:test-StreamPipes.xml")
+public class TestStreamEventBundlePipe {
+
+    @Inject
+    protected EventService eventService;
+
+    @Before
+    public void setUp() {
+        DummyPostCommitEventListener.handledCountReset();
+        DummyPostCommitEventListener.eventCountReset();
+        CountingPostCommitEventListener.eventCountReset();
+    }
+
+    protected void fireCommitEvent(String name, boolean sleep) {
+        EventContextImpl context = new EventContextImpl();
+        if (sleep) {
+            context.setProperty("sleep", Boolean.TRUE);
+        }
+        Event event = new EventImpl(name, context);
+        event.setIsCommitEvent(true);
+        eventService.fireEvent(event);
+    }
+
+    @Test
+    public void testPipe() {
+        EventBundleDispatcher dispatcher = ((EventServiceImpl) eventService).getEventBundleDispatcher();
+        assertEquals(StreamEventBundlePipe.class,
+                ((TestableSimpleEventBundlePipeDispatcher) dispatcher).getPipes().get(0).getClass());
+
+        fireCommitEvent("test1", false);
+        fireCommitEvent("test1", false);
+        fireCommitEvent("unknown", false);
+        eventService.waitForAsyncCompletion();
+
+        assertEquals(2, DummyPostCommitEventListener.handledCount());
+        assertEquals(2, DummyPostCommitEventListener.eventCount());
+        assertEquals(2, CountingPostCommitEventListener.eventCount());
+        // each listener consumes the stream with its own consumer group
+        LogManager logManager = Framework.getService(StreamService.class).getLogManager("events");
+        assertEquals(0, logManager.getLag("streamPipe", "streamPipe-testPostCommit").lag());
+        assertEquals(0, logManager.getLag("streamPipe", "streamPipe-testCounting").lag());
+    }
+
+    @Test
+    public void testSlowListenerDoesNotDelayOthers() throws InterruptedException {
+        // the dummy listener sleeps on this bundle
+        fireCommitEvent("test1", true);
+        long deadline = System.currentTimeMillis() + 1000;
+        while (CountingPostCommitEventListener.eventCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // handled while the dummy listener still sleeps
+        assertEquals(1, CountingPostCommitEventListener.eventCount());
+        eventService.waitForAsyncCompletion();
+        assertEquals(1, DummyPostCommitEventListener.handledCount());
+    }
+
+}
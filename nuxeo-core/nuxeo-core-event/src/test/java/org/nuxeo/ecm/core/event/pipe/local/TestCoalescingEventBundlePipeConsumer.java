@@ -0,0 +1,137 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.event.pipe.local;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.impl.DocumentModelImpl;
+import org.nuxeo.ecm.core.event.Event;
+import org.nuxeo.ecm.core.event.EventBundle;
+import org.nuxeo.ecm.core.event.impl.DocumentEventContext;
+import org.nuxeo.ecm.core.event.impl.EventBundleImpl;
+import org.nuxeo.ecm.core.event.impl.EventContextImpl;
+import org.nuxeo.ecm.core.event.impl.EventImpl;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.ecm.core.schema")
+@Deploy("org.nuxeo.ecm.core.event")
+public class TestCoalescingEventBundlePipeConsumer {
+
+    protected CoalescingEventBundlePipeConsumer newConsumer(String name, String events) {
+        Map<String, String> params = new HashMap<>();
+        if (events != null) {
+            params.put(CoalescingEventBundlePipeConsumer.EVENTS_PARAM, events);
+        }
+        CoalescingEventBundlePipeConsumer consumer = new CoalescingEventBundlePipeConsumer();
+        consumer.initConsumer(name, params);
+        return consumer;
+    }
+
+    protected static DocumentModel newDocument(String id) {
+        return new DocumentModelImpl(null, "File", id, null, new IdRef(id), null, new String[0], null, null, "test",
+                false);
+    }
+
+    protected static Event newEvent(String name, DocumentModel doc) {
+        return new EventImpl(name, new DocumentEventContext(null, null, doc));
+    }
+
+    protected static List<Event> toList(EventBundle bundle) {
+        List<Event> events = new ArrayList<>();
+        bundle.forEach(events::add);
+        return events;
+    }
+
+    @Test
+    public void testCoalesce() {
+        CoalescingEventBundlePipeConsumer consumer = newConsumer("testCoalesce", null);
+        DocumentModel doc1 = newDocument("doc1");
+        DocumentModel doc2 = newDocument("doc2");
+        Event created = newEvent("documentCreated", doc1);
+        Event modified1 = newEvent("documentModified", doc1);
+        Event modified2 = newEvent("documentModified", doc2);
+        Event other = new EventImpl("documentModified", new EventContextImpl());
+        Event modified3 = newEvent("documentModified", doc1);
+        EventBundle bundle = new EventBundleImpl();
+        bundle.push(created);
+        bundle.push(modified1);
+        bundle.push(modified2);
+        bundle.push(other);
+        bundle.push(modified3);
+
+        EventBundle coalesced = consumer.coalesce(bundle);
+        // the last documentModified of doc1 is kept, at its position
+        List<Event> events = toList(coalesced);
+        assertEquals(4, events.size());
+        assertSame(created, events.get(0));
+        assertSame(modified2, events.get(1));
+        assertSame(other, events.get(2));
+        assertSame(modified3, events.get(3));
+
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        assertEquals(1, registry.counter("nuxeo.events.pipe.testCoalesce.dropped").getCount());
+        assertEquals(1, registry.counter("nuxeo.events.pipe.testCoalesce.coalesced").getCount());
+    }
+
+    @Test
+    public void testCoalesceConfiguredEvents() {
+        CoalescingEventBundlePipeConsumer consumer = newConsumer("testCoalesceConfiguredEvents", "documentModified");
+        DocumentModel doc = newDocument("doc1");
+        EventBundle bundle = new EventBundleImpl();
+        bundle.push(newEvent("documentSecurityUpdated", doc));
+        bundle.push(newEvent("documentSecurityUpdated", doc));
+        // nothing to drop, the bundle is kept as is
+        assertSame(bundle, consumer.coalesce(bundle));
+
+        for (int i = 0; i < 20; i++) {
+            bundle.push(newEvent("documentModified", doc));
+        }
+        List<Event> events = toList(consumer.coalesce(bundle));
+        assertEquals(3, events.size());
+        assertEquals("documentSecurityUpdated", events.get(0).getName());
+        assertEquals("documentSecurityUpdated", events.get(1).getName());
+        assertEquals("documentModified", events.get(2).getName());
+
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        assertEquals(19, registry.counter("nuxeo.events.pipe.testCoalesceConfiguredEvents.dropped").getCount());
+    }
+
+}
@@ -51,6 +51,7 @@ import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkManager.Scheduling;
 import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
 import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
+import org.nuxeo.ecm.core.work.api.WorkRejectedException;
 import org.nuxeo.lib.stream.log.LogLag;
 import org.nuxeo.lib.stream.log.LogManager;
 import org.nuxeo.runtime.api.Framework;
@@ -592,6 +593,35 @@ public abstract class AbstractWorkManagerTest {
         tracker.assertDiff(0, 0, 2, 0);
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.core.event.test:test-workmanager-back-pressure.xml")
+    public void testBackPressureAndPriorityQueue() throws Exception {
+        String queue = "BackPressureSleepWork";
+        String priorityQueue = "PrioritySleepWork";
+        int duration = 3000;
+        // one running work and one scheduled work saturate the queue
+        service.schedule(new SleepWork(duration, queue, "bp1"));
+        service.schedule(new SleepWork(duration, queue, "bp2"));
+        // the state of the queue is refreshed once per second
+        Thread.sleep(WorkQueueBackPressure.CHECK_INTERVAL_MS + 100);
+        try {
+            service.schedule(new SleepWork(duration, queue, "bp3"));
+            fail("Work should be rejected by a saturated queue");
+        } catch (WorkRejectedException e) {
+            // expected
+        }
+
+        // a priority work bypasses the saturated queue
+        SleepWork priorityWork = new SleepWork(10, queue, "priority");
+        priorityWork.setPriority(true);
+        service.schedule(priorityWork);
+        assertTrue(service.awaitCompletion(priorityQueue, duration / 2, TimeUnit.MILLISECONDS));
+        assertEquals(1, service.getMetrics(priorityQueue).getCompleted().intValue());
+        assertTrue(service.getQueueSize(queue, null) > 0);
+
+        assertTrue(service.awaitCompletion(queue, duration * 3, TimeUnit.MILLISECONDS));
+    }
+
     @Test
     @Deploy("org.nuxeo.runtime.stream")
     @Deploy("org.nuxeo.ecm.core.event:test-work-dead-letter-queue.xml")
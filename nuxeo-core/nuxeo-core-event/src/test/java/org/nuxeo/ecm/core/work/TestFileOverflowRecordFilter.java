@@ -0,0 +1,205 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.lib.stream.computation.Record;
+
+public class TestFileOverflowRecordFilter {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected FileOverflowRecordFilter filter;
+
+    protected Map<String, String> options;
+
+    @Before
+    public void initFilter() throws IOException {
+        options = new HashMap<>();
+        options.put(FileOverflowRecordFilter.BASE_PATH_OPTION, folder.newFolder().getPath());
+        options.put(AbstractOverflowRecordFilter.THRESHOLD_SIZE_OPTION, "1000");
+        options.put(FileOverflowRecordFilter.SEGMENT_SIZE_OPTION, "10000");
+        filter = new FileOverflowRecordFilter();
+        filter.init(options);
+    }
+
+    protected static byte[] randomBytes(int size) {
+        byte[] ret = new byte[size];
+        new Random(size).nextBytes(ret);
+        return ret;
+    }
+
+    protected List<Path> listSegments() throws IOException {
+        try (Stream<Path> paths = Files.list(filter.getSegmentsPath())) {
+            return paths.collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testSmallRecordUnchanged() {
+        Record record = Record.of("small", randomBytes(10));
+        assertSame(record, filter.beforeAppend(record));
+        assertSame(record, filter.afterRead(record, null));
+    }
+
+    @Test
+    public void testOverflow() throws IOException {
+        Record record1 = Record.of("key1", randomBytes(4000));
+        Record record2 = Record.of("key2", randomBytes(5000));
+        Record record3 = Record.of("key3", randomBytes(3000));
+
+        Record appended1 = filter.beforeAppend(record1);
+        Record appended2 = filter.beforeAppend(record2);
+        Record appended3 = filter.beforeAppend(record3);
+        assertTrue(appended1.getFlags().contains(Record.Flag.EXTERNAL_VALUE));
+        assertEquals("key1", appended1.getKey());
+        assertEquals(record1.getWatermark(), appended1.getWatermark());
+        // only a reference is appended
+        assertTrue(appended1.getData().length < 100);
+        // the third value does not fit in the first segment
+        assertEquals(2, listSegments().size());
+
+        Record read1 = filter.afterRead(appended1, null);
+        Record read2 = filter.afterRead(appended2, null);
+        Record read3 = filter.afterRead(appended3, null);
+        assertFalse(read1.getFlags().contains(Record.Flag.EXTERNAL_VALUE));
+        assertEquals(record1.getFlags(), read1.getFlags());
+        assertEquals(record1, read1);
+        assertEquals(record2, read2);
+        assertEquals(record3, read3);
+
+        // another instance, like another node, can read the values
+        FileOverflowRecordFilter other = new FileOverflowRecordFilter();
+        other.init(options);
+        assertArrayEquals(record2.getData(), other.afterRead(appended2, null).getData());
+    }
+
+    @Test
+    public void testReadGrowingSegment() throws IOException {
+        Record record1 = Record.of("key1", randomBytes(2000));
+        Record record2 = Record.of("key2", randomBytes(3000));
+        Record appended1 = filter.beforeAppend(record1);
+        assertEquals(record1, filter.afterRead(appended1, null));
+        // appended to the segment after a read from it
+        Record appended2 = filter.beforeAppend(record2);
+        assertEquals(1, listSegments().size());
+        assertEquals(record2, filter.afterRead(appended2, null));
+        assertEquals(record1, filter.afterRead(appended1, null));
+        // the segment is still written, it is not mapped
+        assertTrue(filter.mappedSegments.isEmpty());
+    }
+
+    @Test
+    public void testReadCompleteSegment() throws IOException {
+        Record record1 = Record.of("key1", randomBytes(2000));
+        Record record2 = Record.of("key2", randomBytes(3000));
+        Record appended1 = filter.beforeAppend(record1);
+        Record appended2 = filter.beforeAppend(record2);
+
+        FileOverflowRecordFilter other = new FileOverflowRecordFilter();
+        other.init(options);
+        // as if the segment was older than twice its duration
+        other.segmentDuration = Duration.ZERO;
+        assertEquals(record1, other.afterRead(appended1, null));
+        assertEquals(record2, other.afterRead(appended2, null));
+        // the segment is mapped once
+        assertEquals(1, other.mappedSegments.size());
+    }
+
+    @Test
+    public void testReleaseMappingOfPurgedSegment() throws Exception {
+        Record appended = filter.beforeAppend(Record.of("key", randomBytes(4000)));
+        filter.close();
+
+        FileOverflowRecordFilter other = new FileOverflowRecordFilter();
+        other.init(options);
+        other.segmentDuration = Duration.ZERO;
+        assertNotNull(other.afterRead(appended, null));
+        assertEquals(1, other.mappedSegments.size());
+
+        // the segment is deleted by another node
+        Files.delete(listSegments().get(0));
+        // the mapping is kept while the segment is more recent than the TTL
+        other.purge();
+        assertEquals(1, other.mappedSegments.size());
+        Thread.sleep(10);
+        other.setStoreTTL(Duration.ZERO);
+        other.purge();
+        assertEquals(0, other.mappedSegments.size());
+        assertNull(other.afterRead(appended, null));
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        Record record1 = Record.of("key1", randomBytes(2000));
+        Record record2 = Record.of("key2", randomBytes(3000));
+        Record appended1 = filter.beforeAppend(record1);
+        filter.close();
+        assertNull(filter.segment);
+        assertEquals(record1, filter.afterRead(appended1, null));
+        // a closed filter appends to a new segment
+        Record appended2 = filter.beforeAppend(record2);
+        assertEquals(2, listSegments().size());
+        assertEquals(record2, filter.afterRead(appended2, null));
+        filter.close();
+    }
+
+    @Test
+    public void testRetention() throws IOException {
+        Record appended = filter.beforeAppend(Record.of("key", randomBytes(4000)));
+        List<Path> segments = listSegments();
+        assertEquals(1, segments.size());
+        assertNotNull(filter.afterRead(appended, null));
+
+        // segment older than the TTL is purged except the current one
+        assertTrue(segments.get(0).toFile().setLastModified(System.currentTimeMillis() - 2 * 3600_000));
+        filter.purge();
+        assertEquals(1, listSegments().size());
+
+        FileOverflowRecordFilter other = new FileOverflowRecordFilter();
+        other.init(options);
+        assertEquals(0, listSegments().size());
+        // the value is lost
+        assertNull(other.afterRead(appended, null));
+    }
+
+}
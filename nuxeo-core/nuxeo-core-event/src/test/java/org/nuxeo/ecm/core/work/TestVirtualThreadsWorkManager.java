@@ -0,0 +1,80 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.runtime.kv")
+@Deploy("org.nuxeo.ecm.core.event")
+@Deploy("org.nuxeo.ecm.core.event.test:OSGI-INF/test-default-workmanager-config.xml")
+@Deploy("org.nuxeo.ecm.core.event.test:test-workmanager-virtual-queue.xml")
+public class TestVirtualThreadsWorkManager {
+
+    protected static final String QUEUE = "VirtualSleepWork";
+
+    @Inject
+    public WorkManager service;
+
+    @Test
+    public void testConfig() {
+        WorkQueueDescriptor qd = service.getWorkQueueDescriptor(QUEUE);
+        assertTrue(qd.isVirtualThreads());
+        assertEquals(3, qd.getMaxConcurrency());
+        assertEquals(3, qd.getConcurrency());
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() throws Exception {
+        int count = 10;
+        for (int i = 0; i < count; i++) {
+            service.schedule(new SleepWork(200, QUEUE, "virtual-" + i));
+        }
+        long maxRunning = 0;
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+        while (service.getMetrics(QUEUE).completed.longValue() < count && System.currentTimeMillis() < deadline) {
+            maxRunning = Math.max(maxRunning, service.getMetrics(QUEUE).running.longValue());
+            Thread.sleep(10);
+        }
+        assertTrue(service.awaitCompletion(QUEUE, 10, TimeUnit.SECONDS));
+        assertTrue("running: " + maxRunning, maxRunning <= 3);
+        assertTrue("running: " + maxRunning, maxRunning > 0);
+        assertEquals(new WorkQueueMetrics(QUEUE, 0, 0, count, 0), service.getMetrics(QUEUE));
+    }
+
+}
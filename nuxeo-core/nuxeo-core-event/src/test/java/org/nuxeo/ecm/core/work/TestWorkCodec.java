@@ -0,0 +1,154 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.Work.State;
+import org.nuxeo.ecm.core.work.api.WorkSchedulePath;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+
+public class TestWorkCodec {
+
+    /** A subclass adding a field without declaring it in the field table. */
+    protected static class ExtendedSleepWork extends SleepWork {
+
+        private static final long serialVersionUID = 1L;
+
+        protected String extra;
+
+        public ExtendedSleepWork(long durationMillis, String extra) {
+            super(durationMillis);
+            this.extra = extra;
+        }
+    }
+
+    protected final WorkCodec codec = new WorkCodec();
+
+    protected final Codec<Work> legacyCodec = new SerializableCodec<>();
+
+    protected SleepWork newWork() {
+        SleepWork work = new SleepWork(123, "myCategory", "myId");
+        work.setDocuments("myRepo", Arrays.asList("doc1", "doc2"));
+        work.setOriginatingUsername("bob");
+        work.setIdempotent(false);
+        work.setCoalescing(true);
+        work.setPriority(true);
+        work.setWorkInstanceState(State.SCHEDULED);
+        work.setSchedulePath(new WorkSchedulePath("/parent", "myCategory:myId"));
+        return work;
+    }
+
+    protected static void assertSameWork(SleepWork expected, Work actual) {
+        assertEquals(SleepWork.class, actual.getClass());
+        SleepWork work = (SleepWork) actual;
+        assertEquals(expected.getId(), work.getId());
+        assertEquals(expected.getCategory(), work.getCategory());
+        assertEquals(expected.getRepositoryName(), work.getRepositoryName());
+        assertEquals(expected.getDocuments(), work.getDocuments());
+        assertEquals(expected.getOriginatingUsername(), work.getOriginatingUsername());
+        assertEquals(expected.getPartitionKey(), work.getPartitionKey());
+        assertEquals(expected.isIdempotent(), work.isIdempotent());
+        assertEquals(expected.isCoalescing(), work.isCoalescing());
+        assertEquals(expected.isPriority(), work.isPriority());
+        assertEquals(expected.getWorkInstanceState(), work.getWorkInstanceState());
+        assertEquals(expected.getSchedulingTime(), work.getSchedulingTime());
+        assertEquals(expected.getSchedulePath().getPath(), work.getSchedulePath().getPath());
+        assertEquals(expected.durationMillis, work.durationMillis);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        SleepWork work = newWork();
+        byte[] data = codec.encode(work);
+        assertTrue(WorkCodec.isCompact(data));
+        assertSameWork(work, codec.decode(data));
+
+        byte[] legacyData = legacyCodec.encode(work);
+        assertTrue("compact: " + data.length + ", legacy: " + legacyData.length, data.length < legacyData.length);
+    }
+
+    @Test
+    public void testWriteLegacyFormat() {
+        SleepWork work = newWork();
+        byte[] data = new WorkCodec(false).encode(work);
+        assertFalse(WorkCodec.isCompact(data));
+        assertSameWork(work, codec.decode(data));
+    }
+
+    @Test
+    public void testDecodeVersion1Record() {
+        SleepWork work = newWork();
+        work.setPriority(false);
+        byte[] data = codec.encode(work);
+        // version 1 didn't write the priority, the last field
+        byte[] version1Data = Arrays.copyOf(data, data.length - 1);
+        version1Data[1] = 1;
+        assertSameWork(work, codec.decode(version1Data));
+    }
+
+    @Test
+    public void testDecodeUnknownVersion() {
+        byte[] data = codec.encode(newWork());
+        data[1] = WorkCodec.VERSION + 1;
+        try {
+            codec.decode(data);
+            fail("should fail on unknown version");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unsupported work format version: " + (WorkCodec.VERSION + 1), e.getMessage());
+        }
+    }
+
+    @Test
+    public void testDecodeLegacyRecord() {
+        SleepWork work = newWork();
+        byte[] legacyData = legacyCodec.encode(work);
+        assertFalse(WorkCodec.isCompact(legacyData));
+        assertSameWork(work, codec.decode(legacyData));
+    }
+
+    @Test
+    public void testSubclassWithoutFieldTable() {
+        ExtendedSleepWork work = new ExtendedSleepWork(10, "foo");
+        byte[] data = codec.encode(work);
+        assertFalse(WorkCodec.isCompact(data));
+        Work decoded = codec.decode(data);
+        assertEquals(ExtendedSleepWork.class, decoded.getClass());
+        assertEquals("foo", ((ExtendedSleepWork) decoded).extra);
+    }
+
+    @Test
+    public void testDecodeInvalid() {
+        try {
+            codec.decode(new byte[] { 'W', 1, 0, 3, 'f', 'o', 'o' });
+            fail("should fail on unknown class");
+        } catch (IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+}
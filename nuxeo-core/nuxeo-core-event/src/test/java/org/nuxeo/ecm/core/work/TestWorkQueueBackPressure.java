@@ -0,0 +1,117 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
+import org.nuxeo.ecm.core.work.api.WorkRejectedException;
+
+public class TestWorkQueueBackPressure {
+
+    protected final AtomicLong scheduled = new AtomicLong();
+
+    protected final AtomicLong latency = new AtomicLong();
+
+    protected WorkQueueBackPressure newBackPressure(String policy, long maxScheduled, Duration maxLatency,
+            Duration timeout) {
+        WorkQueueDescriptor descriptor = new WorkQueueDescriptor();
+        descriptor.id = "test-" + policy;
+        descriptor.backPressurePolicy = policy;
+        descriptor.backPressureMaxScheduled = maxScheduled;
+        descriptor.backPressureMaxLatency = maxLatency;
+        descriptor.backPressureTimeout = timeout;
+        return new WorkQueueBackPressure(descriptor, scheduled::get, latency::get);
+    }
+
+    @Test
+    public void testDisabled() {
+        assertFalse(newBackPressure(null, 10, null, null).isEnabled());
+        assertFalse(newBackPressure(WorkQueueDescriptor.BACK_PRESSURE_SHED, 0, null, null).isEnabled());
+        assertFalse(newBackPressure("unknown", 10, null, null).isEnabled());
+        scheduled.set(100);
+        assertTrue(newBackPressure(WorkQueueDescriptor.BACK_PRESSURE_NONE, 10, null, null).acquire(new SleepWork(1)));
+    }
+
+    @Test
+    public void testShed() {
+        scheduled.set(9);
+        assertTrue(newBackPressure(WorkQueueDescriptor.BACK_PRESSURE_SHED, 10, null, null).acquire(new SleepWork(1)));
+        scheduled.set(10);
+        WorkQueueBackPressure backPressure = newBackPressure(WorkQueueDescriptor.BACK_PRESSURE_SHED, 10, null, null);
+        long shed = backPressure.shedCount.getCount();
+        assertFalse(backPressure.acquire(new SleepWork(1)));
+        assertEquals(shed + 1, backPressure.shedCount.getCount());
+    }
+
+    @Test
+    public void testRejectOnLatency() {
+        WorkQueueBackPressure backPressure = newBackPressure(WorkQueueDescriptor.BACK_PRESSURE_REJECT, 0,
+                Duration.ofSeconds(1), null);
+        latency.set(2000);
+        try {
+            backPressure.acquire(new SleepWork(1));
+            fail("Work should be rejected");
+        } catch (WorkRejectedException e) {
+            assertEquals(503, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        scheduled.set(10);
+        WorkQueueBackPressure backPressure = newBackPressure(WorkQueueDescriptor.BACK_PRESSURE_BLOCK, 10, null,
+                Duration.ofSeconds(10));
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduled.set(0);
+        });
+        thread.start();
+        long start = System.currentTimeMillis();
+        // blocks until the queue is drained
+        assertTrue(backPressure.acquire(new SleepWork(1)));
+        assertTrue(System.currentTimeMillis() - start >= 200);
+        thread.join();
+    }
+
+    @Test
+    public void testBlockTimeout() {
+        scheduled.set(10);
+        WorkQueueBackPressure backPressure = newBackPressure(WorkQueueDescriptor.BACK_PRESSURE_BLOCK, 10, null,
+                Duration.ofMillis(300));
+        try {
+            backPressure.acquire(new SleepWork(1));
+            fail("Work should be rejected after the timeout");
+        } catch (WorkRejectedException e) {
+            // expected
+        }
+    }
+
+}
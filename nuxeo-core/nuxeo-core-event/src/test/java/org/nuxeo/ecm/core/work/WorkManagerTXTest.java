@@ -22,6 +22,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.inject.Inject;
 import javax.naming.NamingException;
 import javax.transaction.RollbackException;
@@ -39,6 +41,7 @@ import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
+import org.nuxeo.ecm.core.work.api.WorkRejectedException;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
@@ -103,6 +106,27 @@ public class WorkManagerTXTest {
 
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.core.event.test:test-workmanager-back-pressure.xml")
+    public void testBackPressureBeforeCommit() throws Exception {
+        String queue = "BackPressureSleepWork";
+        int duration = 1000;
+        // one running work and one scheduled work saturate the queue
+        service.schedule(new SleepWork(duration, queue, "bp1"));
+        service.schedule(new SleepWork(duration, queue, "bp2"));
+        Thread.sleep(WorkQueueBackPressure.CHECK_INTERVAL_MS + 100);
+        try {
+            // the caller is told before the commit, not at commit time
+            service.schedule(new SleepWork(duration, queue, "bp3"), true);
+            fail("Work should be rejected by a saturated queue");
+        } catch (WorkRejectedException e) {
+            // expected
+        }
+        TransactionHelper.commitOrRollbackTransaction();
+        assertTrue(service.awaitCompletion(queue, duration * 5, TimeUnit.MILLISECONDS));
+        assertEquals(2, service.getMetrics(queue).getCompleted().intValue());
+    }
+
     @Test
     public void testWorkRetryAfterExceptionDuringWork() {
         doTestWorkRetryAfterException(false, "");
@@ -20,15 +20,22 @@
 package org.nuxeo.ecm.core.io.marshallers.json.document;
 
 import static org.nuxeo.ecm.automation.core.util.PaginableDocumentModelList.CODEC_PARAMETER_NAME;
+import static org.nuxeo.ecm.core.io.registry.MarshallingConstants.WILDCARD_VALUE;
 import static org.nuxeo.ecm.core.io.registry.reflect.Instantiations.SINGLETON;
 import static org.nuxeo.ecm.core.io.registry.reflect.Priorities.REFERENCE;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.nuxeo.ecm.automation.core.util.PaginableDocumentModelList;
+import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.io.marshallers.json.DefaultListJsonWriter;
 import org.nuxeo.ecm.core.io.registry.reflect.Setup;
 
@@ -50,6 +57,7 @@ public class DocumentModelListJsonWriter extends DefaultListJsonWriter<DocumentM
 
     @Override
     public void write(List<DocumentModel> docs, JsonGenerator jg) throws IOException {
+        prefetch(docs);
         if (docs instanceof PaginableDocumentModelList) {
             PaginableDocumentModelList paginable = (PaginableDocumentModelList) docs;
             String codecName = paginable.getDocumentLinkBuilder();
@@ -61,4 +69,36 @@ public class DocumentModelListJsonWriter extends DefaultListJsonWriter<DocumentM
         }
     }
 
+    /**
+     * Fetches in bulk the schemas that will be written for the documents, instead of loading them document by document.
+     *
+     * @since 11.1
+     */
+    protected void prefetch(List<DocumentModel> docs) {
+        if (docs.size() < 2) {
+            return;
+        }
+        CoreSession session = null;
+        List<DocumentRef> docRefs = new ArrayList<>(docs.size());
+        Set<String> schemas = new HashSet<>(ctx.getProperties());
+        boolean allSchemas = schemas.remove(WILDCARD_VALUE);
+        // always written when present
+        schemas.add("dublincore");
+        for (DocumentModel doc : docs) {
+            CoreSession docSession = doc.getCoreSession();
+            if (docSession == null || doc.getRef() == null || (session != null && docSession != session)) {
+                // only documents attached to the same session
+                continue;
+            }
+            session = docSession;
+            docRefs.add(doc.getRef());
+            if (allSchemas) {
+                schemas.addAll(Arrays.asList(doc.getSchemas()));
+            }
+        }
+        if (docRefs.size() > 1) {
+            session.prefetchDocuments(docRefs, schemas);
+        }
+    }
+
 }
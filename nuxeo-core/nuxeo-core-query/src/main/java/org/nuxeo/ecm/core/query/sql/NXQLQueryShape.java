@@ -0,0 +1,195 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The shape of an NXQL query: the query text with its string literals taken out.
+ * <p>
+ * Two queries differing only by the values of their string literals have the same {@link #getKey key}, which can be
+ * used to cache what is computed from a query independently of these values. The strings following the {@code DATE}
+ * and {@code TIMESTAMP} keywords are not taken out, as they are not used as plain strings. Whitespace outside literals
+ * is normalized.
+ * <p>
+ * This is a lexical analysis only, following the rules of the NXQL scanner for strings. The query is not validated.
+ *
+ * @since 11.1
+ */
+public class NXQLQueryShape {
+
+    protected final List<String> fragments;
+
+    protected final List<String> literals;
+
+    protected final String key;
+
+    protected NXQLQueryShape(List<String> fragments, List<String> literals) {
+        this.fragments = fragments;
+        this.literals = literals;
+        key = String.join("''", fragments);
+    }
+
+    /**
+     * Computes the shape of a query.
+     *
+     * @param query the NXQL query
+     * @return the shape, or {@code null} if the query cannot be analyzed (unterminated string, hints)
+     */
+    public static NXQLQueryShape of(String query) {
+        List<String> fragments = new ArrayList<>();
+        List<String> literals = new ArrayList<>();
+        StringBuilder fragment = new StringBuilder();
+        int len = query.length();
+        int i = 0;
+        while (i < len) {
+            char c = query.charAt(i);
+            if (c == '\'' || c == '"') {
+                StringBuilder value = new StringBuilder();
+                int end = readString(query, i, value);
+                if (end < 0) {
+                    return null;
+                }
+                if (followsDateKeyword(fragment)) {
+                    // not a plain string, keep it in the shape
+                    fragment.append(query, i, end);
+                } else {
+                    fragments.add(fragment.toString());
+                    fragment.setLength(0);
+                    literals.add(value.toString());
+                }
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                while (i < len && Character.isWhitespace(query.charAt(i))) {
+                    i++;
+                }
+                if (fragment.length() > 0 || !fragments.isEmpty()) {
+                    fragment.append(' ');
+                }
+            } else if (c == '/' && i + 1 < len && query.charAt(i + 1) == '*') {
+                // hints are not analyzed
+                return null;
+            } else {
+                fragment.append(c);
+                i++;
+            }
+        }
+        int last = fragment.length() - 1;
+        if (last >= 0 && fragment.charAt(last) == ' ') {
+            fragment.setLength(last);
+        }
+        fragments.add(fragment.toString());
+        return new NXQLQueryShape(fragments, literals);
+    }
+
+    /**
+     * Reads a string literal starting at the given quote, unescaping it like the NXQL scanner.
+     *
+     * @return the index after the closing quote, or {@code -1} if the string is not terminated
+     */
+    protected static int readString(String query, int start, StringBuilder value) {
+        char quote = query.charAt(start);
+        int len = query.length();
+        int i = start + 1;
+        while (i < len) {
+            char c = query.charAt(i);
+            if (c == quote) {
+                return i + 1;
+            } else if (c == '\n' || c == '\r') {
+                return -1;
+            } else if (c == '\\' && i + 1 < len) {
+                char next = query.charAt(i + 1);
+                if (next == 't') {
+                    value.append('\t');
+                } else if (next == 'n') {
+                    value.append('\n');
+                } else if (next == 'r') {
+                    value.append('\r');
+                } else if (next == quote || next == '\\') {
+                    value.append(next);
+                } else {
+                    // lone backslash
+                    value.append(c);
+                    i++;
+                    continue;
+                }
+                i += 2;
+            } else {
+                value.append(c);
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    protected static boolean followsDateKeyword(StringBuilder fragment) {
+        int end = fragment.length();
+        if (end > 0 && fragment.charAt(end - 1) == ' ') {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && Character.isLetter(fragment.charAt(start - 1))) {
+            start--;
+        }
+        String word = fragment.substring(start, end);
+        return word.equalsIgnoreCase("DATE") || word.equalsIgnoreCase("TIMESTAMP");
+    }
+
+    /**
+     * Gets the key of this shape, the normalized query where each string literal is empty.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets the values of the string literals of the query, in order.
+     */
+    public List<String> getLiterals() {
+        return Collections.unmodifiableList(literals);
+    }
+
+    /**
+     * Builds a query of this shape with other values for its string literals.
+     *
+     * @param values the values, as many as the literals of this shape
+     * @return the NXQL query
+     */
+    public String withLiterals(List<String> values) {
+        if (values.size() != literals.size()) {
+            throw new IllegalArgumentException("Expected " + literals.size() + " literals, got " + values.size());
+        }
+        StringBuilder sb = new StringBuilder(fragments.get(0));
+        for (int i = 0; i < values.size(); i++) {
+            sb.append('\'');
+            sb.append(NXQL.escapeStringInner(values.get(i)).replace("\r", "\\r"));
+            sb.append('\'');
+            sb.append(fragments.get(i + 1));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + key + ")";
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+
+public class TestNXQLQueryShape {
+
+    @Test
+    public void testKey() {
+        NXQLQueryShape shape = NXQLQueryShape.of(
+                "SELECT * FROM Document WHERE dc:title = 'foo' AND ecm:uuid = \"bar\"");
+        assertEquals("SELECT * FROM Document WHERE dc:title = '' AND ecm:uuid = ''", shape.getKey());
+        assertEquals(Arrays.asList("foo", "bar"), shape.getLiterals());
+
+        NXQLQueryShape other = NXQLQueryShape.of("  SELECT *  FROM Document\nWHERE dc:title = 'x' AND ecm:uuid = 'y' ");
+        assertEquals(shape.getKey(), other.getKey());
+
+        // numbers are part of the shape
+        assertNotEquals(NXQLQueryShape.of("SELECT * FROM Document WHERE ecm:isProxy = 0").getKey(),
+                NXQLQueryShape.of("SELECT * FROM Document WHERE ecm:isProxy = 1").getKey());
+        // so are dates
+        shape = NXQLQueryShape.of("SELECT * FROM Document WHERE dc:modified > DATE '2019-01-01' AND dc:title = 'a'");
+        assertEquals("SELECT * FROM Document WHERE dc:modified > DATE '2019-01-01' AND dc:title = ''", shape.getKey());
+        assertEquals(Collections.singletonList("a"), shape.getLiterals());
+        shape = NXQLQueryShape.of("SELECT * FROM Document WHERE dc:modified > timestamp'2019-01-01 00:00:00'");
+        assertEquals(Collections.emptyList(), shape.getLiterals());
+    }
+
+    @Test
+    public void testEscapes() {
+        NXQLQueryShape shape = NXQLQueryShape.of("SELECT * FROM Document WHERE dc:title IN "
+                + "('a\\'b', 'c\\\\d', 'e\\nf', 'g\\xh', \"i\\\"j\", \"k'l\")");
+        assertEquals(Arrays.asList("a'b", "c\\d", "e\nf", "g\\xh", "i\"j", "k'l"), shape.getLiterals());
+    }
+
+    @Test
+    public void testWithLiterals() {
+        NXQLQueryShape shape = NXQLQueryShape.of(
+                "SELECT * FROM Document WHERE dc:title = 'foo' AND dc:description = 'bar'");
+        String query = shape.withLiterals(Arrays.asList("it's", "a\\b\r\n"));
+        assertEquals(shape.getKey(), NXQLQueryShape.of(query).getKey());
+        assertEquals(Arrays.asList("it's", "a\\b\r\n"), NXQLQueryShape.of(query).getLiterals());
+        // the rebuilt query can be parsed
+        SQLQuery sqlQuery = SQLQueryParser.parse(query);
+        assertEquals(SQLQueryParser.parse(
+                "SELECT * FROM Document WHERE dc:title = 'it\\'s' AND dc:description = 'a\\\\b\\r\\n'"), sqlQuery);
+    }
+
+    @Test
+    public void testNotAnalyzed() {
+        assertNull(NXQLQueryShape.of("SELECT * FROM Document WHERE dc:title = 'foo"));
+        assertNull(NXQLQueryShape.of("SELECT * FROM Document WHERE dc:title = 'foo\nbar'"));
+        assertNull(NXQLQueryShape.of("SELECT * FROM Document WHERE /*+ES: INDEX(dc:title) */ dc:title = 'foo'"));
+    }
+
+}
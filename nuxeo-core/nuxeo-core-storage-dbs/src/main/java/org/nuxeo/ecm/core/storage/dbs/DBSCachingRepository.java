@@ -24,13 +24,13 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.apache.commons.logging.Log;
@@ -53,9 +53,6 @@ import org.nuxeo.runtime.metrics.MetricsService;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Ordering;
 
 /**
@@ -69,9 +66,9 @@ public class DBSCachingRepository implements DBSRepository {
 
     private final DBSRepository repository;
 
-    private final Cache<String, State> cache;
+    private final DBSStateCache cache;
 
-    private final Cache<String, String> childCache;
+    private final DBSChildCache childCache;
 
     private DBSClusterInvalidator clusterInvalidator;
 
@@ -82,11 +79,15 @@ public class DBSCachingRepository implements DBSRepository {
     public DBSCachingRepository(DBSRepository repository, DBSRepositoryDescriptor descriptor) {
         this.repository = repository;
         // Init caches
-        cache = newCache(descriptor);
-        registry.registerAll(GuavaCacheMetric.of(cache, "nuxeo", "repositories", repository.getName(), "cache"));
-        childCache = newCache(descriptor);
+        cache = new DBSStateCache(repository, descriptor, registry.histogram(
+                MetricRegistry.name("nuxeo", "repositories", repository.getName(), "cache", "load", "batch", "size")));
         registry.registerAll(
-                GuavaCacheMetric.of(childCache, "nuxeo", "repositories", repository.getName(), "childCache"));
+                GuavaCacheMetric.of(cache.getCache(), "nuxeo", "repositories", repository.getName(), "cache"));
+        childCache = new DBSChildCache(descriptor);
+        registry.registerAll(GuavaCacheMetric.of(childCache.getChildrenCache(), "nuxeo", "repositories",
+                repository.getName(), "childCache"));
+        registry.registerAll(GuavaCacheMetric.of(childCache.getAbsentCache(), "nuxeo", "repositories",
+                repository.getName(), "absentChildCache"));
         if (log.isInfoEnabled()) {
             log.info(String.format("DBS cache activated on '%s' repository", repository.getName()));
         }
@@ -94,18 +95,6 @@ public class DBSCachingRepository implements DBSRepository {
         initClusterInvalidator(descriptor);
     }
 
-    protected <T> Cache<String, T> newCache(DBSRepositoryDescriptor descriptor) {
-        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
-        builder = builder.expireAfterWrite(descriptor.cacheTTL.longValue(), TimeUnit.MINUTES).recordStats();
-        if (descriptor.cacheConcurrencyLevel != null) {
-            builder = builder.concurrencyLevel(descriptor.cacheConcurrencyLevel.intValue());
-        }
-        if (descriptor.cacheMaxSize != null) {
-            builder = builder.maximumSize(descriptor.cacheMaxSize.longValue());
-        }
-        return builder.build();
-    }
-
     protected void initClusterInvalidator(DBSRepositoryDescriptor descriptor) {
         ClusterService clusterService = Framework.getService(ClusterService.class);
         if (clusterService.isEnabled()) {
@@ -155,7 +144,10 @@ public class DBSCachingRepository implements DBSRepository {
         // Remove metrics
         String cacheName = MetricRegistry.name("nuxeo", "repositories", repository.getName(), "cache");
         String childCacheName = MetricRegistry.name("nuxeo", "repositories", repository.getName(), "childCache");
-        registry.removeMatching((name, metric) -> name.startsWith(cacheName) || name.startsWith(childCacheName));
+        String absentChildCacheName = MetricRegistry.name("nuxeo", "repositories", repository.getName(),
+                "absentChildCache");
+        registry.removeMatching((name, metric) -> name.startsWith(cacheName) || name.startsWith(childCacheName)
+                || name.startsWith(absentChildCacheName));
         if (log.isInfoEnabled()) {
             log.info(String.format("DBS cache deactivated on '%s' repository", repository.getName()));
         }
@@ -170,9 +162,10 @@ public class DBSCachingRepository implements DBSRepository {
     public State readState(String id) {
         State state = cache.getIfPresent(id);
         if (state == null) {
-            state = repository.readState(id);
+            long childVersion = childCache.getVersion();
+            state = cache.get(id);
             if (state != null) {
-                putInCache(state);
+                putInChildCache(state, childVersion);
             }
         }
         return state;
@@ -186,13 +179,14 @@ public class DBSCachingRepository implements DBSRepository {
 
     @Override
     public List<State> readStates(List<String> ids) {
-        ImmutableMap<String, State> statesMap = cache.getAllPresent(ids);
+        Map<String, State> statesMap = cache.getAllPresent(ids);
         List<String> idsToRetrieve = new ArrayList<>(ids);
         idsToRetrieve.removeAll(statesMap.keySet());
         // Read missing states from repository
+        long childVersion = childCache.getVersion();
         List<State> states = repository.readStates(idsToRetrieve);
         // Cache them
-        states.forEach(this::putInCache);
+        states.forEach(state -> putInCache(state, childVersion));
         // Add previous cached one
         states.addAll(statesMap.values());
         // Sort them
@@ -204,63 +198,111 @@ public class DBSCachingRepository implements DBSRepository {
     public void createState(State state) {
         repository.createState(state);
         // don't cache new state, it is inefficient on mass import
+        invalidateChildName(state);
     }
 
     @Override
     public void createStates(List<State> states) {
         repository.createStates(states);
         // don't cache new states, it is inefficient on mass import
+        states.forEach(this::invalidateChildName);
     }
 
     @Override
     public void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
+        boolean moved = diff.containsKey(KEY_PARENT_ID) || diff.containsKey(KEY_NAME);
+        String oldParentId = null;
+        String oldName = null;
+        if (moved) {
+            oldParentId = childCache.getParentId(id);
+            oldName = childCache.getName(id);
+            State oldState = cache.getIfPresent(id);
+            if (oldParentId == null && oldState != null) {
+                oldParentId = (String) oldState.get(KEY_PARENT_ID);
+                oldName = (String) oldState.get(KEY_NAME);
+            }
+        }
         repository.updateState(id, diff, changeTokenUpdater);
         invalidate(id);
+        if (moved) {
+            childCache.invalidateIds(Collections.singleton(id));
+            // the new child name is no longer absent
+            String parentId = diff.containsKey(KEY_PARENT_ID) ? (String) diff.get(KEY_PARENT_ID) : oldParentId;
+            String name = diff.containsKey(KEY_NAME) ? (String) diff.get(KEY_NAME) : oldName;
+            if (parentId == null || name == null) {
+                // unknown previous location, read the new one
+                State state = repository.readPartialState(id, Arrays.asList(KEY_PARENT_ID, KEY_NAME));
+                if (state != null) {
+                    parentId = (String) state.get(KEY_PARENT_ID);
+                    name = (String) state.get(KEY_NAME);
+                }
+            }
+            if (parentId != null && name != null) {
+                invalidateChildName(parentId, name);
+            }
+        }
     }
 
     @Override
     public void deleteStates(Set<String> ids) {
         repository.deleteStates(ids);
         invalidateAll(ids);
+        childCache.invalidateIds(ids);
     }
 
     @Override
     public State readChildState(String parentId, String name, Set<String> ignored) {
         processReceivedInvalidations();
 
-        String childCacheKey = computeChildCacheKey(parentId, name);
-        String stateId = childCache.getIfPresent(childCacheKey);
-        if (stateId != null) {
-            State state = cache.getIfPresent(stateId);
+        String childId = childCache.getChildId(parentId, name);
+        if (childId != null && !ignored.contains(childId)) {
+            // the child cache is kept up to date by invalidations, no need to check the state
+            State state = readState(childId);
             if (state != null) {
-                // As we don't have invalidation for childCache we need to check if retrieved state is the right one
-                // and not a previous document which was moved or renamed
-                if (parentId.equals(state.get(KEY_PARENT_ID)) && name.equals(state.get(KEY_NAME))) {
-                    return state;
-                } else {
-                    // We can invalidate the entry in cache as the document seemed to be moved or renamed
-                    childCache.invalidate(childCacheKey);
-                }
+                return state;
             }
+        } else if (childId == null && childCache.isAbsent(parentId, name)) {
+            return null;
         }
+        long childVersion = childCache.getVersion();
         State state = repository.readChildState(parentId, name, ignored);
-        putInCache(state);
+        if (state != null) {
+            putInCache(state, childVersion);
+        } else if (ignored.isEmpty()) {
+            childCache.putAbsent(parentId, name, childVersion);
+        }
         return state;
     }
 
-    private void putInCache(State state) {
+    private void putInCache(State state, long childVersion) {
         if (state != null) {
-            String stateId = state.get(KEY_ID).toString();
-            cache.put(stateId, state);
-            Object stateParentId = state.get(KEY_PARENT_ID);
-            if (stateParentId != null) {
-                childCache.put(computeChildCacheKey(stateParentId.toString(), state.get(KEY_NAME).toString()), stateId);
-            }
+            cache.put(state);
+            putInChildCache(state, childVersion);
         }
     }
 
-    private String computeChildCacheKey(String parentId, String name) {
-        return parentId + '_' + name;
+    private void putInChildCache(State state, long childVersion) {
+        Object stateParentId = state.get(KEY_PARENT_ID);
+        if (stateParentId != null) {
+            childCache.putChild(stateParentId.toString(), state.get(KEY_NAME).toString(),
+                    state.get(KEY_ID).toString(), childVersion);
+        }
+    }
+
+    private void invalidateChildName(State state) {
+        Object parentId = state.get(KEY_PARENT_ID);
+        if (parentId != null) {
+            invalidateChildName(parentId.toString(), state.get(KEY_NAME).toString());
+        }
+    }
+
+    private void invalidateChildName(String parentId, String name) {
+        childCache.invalidateChild(parentId, name);
+        if (clusterInvalidator != null) {
+            synchronized (invalidations) {
+                invalidations.addParent(parentId);
+            }
+        }
     }
 
     private void invalidate(String id) {
@@ -293,8 +335,15 @@ public class DBSCachingRepository implements DBSRepository {
             if (invalidations.all) {
                 cache.invalidateAll();
                 childCache.invalidateAll();
-            } else if (invalidations.ids != null) {
-                cache.invalidateAll(invalidations.ids);
+            } else {
+                if (invalidations.ids != null) {
+                    cache.invalidateAll(invalidations.ids);
+                    // received ids may have been moved, renamed or deleted
+                    childCache.invalidateIds(invalidations.ids);
+                }
+                if (invalidations.parentIds != null) {
+                    childCache.invalidateParents(invalidations.parentIds);
+                }
             }
         }
     }
@@ -336,7 +385,20 @@ public class DBSCachingRepository implements DBSRepository {
 
     @Override
     public boolean hasChild(String parentId, String name, Set<String> ignored) {
-        return repository.hasChild(parentId, name, ignored);
+        processReceivedInvalidations();
+
+        String childId = childCache.getChildId(parentId, name);
+        if (childId != null && !ignored.contains(childId)) {
+            return true;
+        } else if (childId == null && childCache.isAbsent(parentId, name)) {
+            return false;
+        }
+        long childVersion = childCache.getVersion();
+        boolean hasChild = repository.hasChild(parentId, name, ignored);
+        if (!hasChild && ignored.isEmpty()) {
+            childCache.putAbsent(parentId, name, childVersion);
+        }
+        return hasChild;
     }
 
     @Override
@@ -370,6 +432,12 @@ public class DBSCachingRepository implements DBSRepository {
         return repository.queryAndFetch(evaluator, orderByClause, distinctDocuments, limit, offset, countUpTo);
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments) {
+        return repository.queryAndFetchStream(evaluator, orderByClause, distinctDocuments);
+    }
+
     @Override
     public LockManager getLockManager() {
         return repository.getLockManager();
@@ -0,0 +1,237 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+
+/**
+ * Cache of the children of a document by name, used by the {@link DBSCachingRepository} for path resolution.
+ * <p>
+ * It keeps both the known children ids and the names known to be absent under a parent. It doesn't check what it
+ * returns against the states, so it must be kept up to date through the invalidation methods on each creation, move,
+ * rename and deletion, be it local or received from another cluster node.
+ * <p>
+ * A lookup result is only put in the cache if no invalidation happened since the lookup started, see
+ * {@link #getVersion}.
+ *
+ * @since 11.1
+ */
+public class DBSChildCache {
+
+    /** Maximum number of absent names kept for a single parent. */
+    protected static final int MAX_ABSENT_PER_PARENT = 1000;
+
+    /** The children ids by parent id and name. */
+    protected final Cache<ChildKey, String> children;
+
+    /** The parent id and name by child id, kept in sync with {@link #children} by its removal listener. */
+    protected final ConcurrentMap<String, ChildKey> keys = new ConcurrentHashMap<>();
+
+    /** The names known to be absent by parent id. */
+    protected final Cache<String, Set<String>> absent;
+
+    /** Guarded by {@code this}, incremented on each invalidation. */
+    protected long version;
+
+    public DBSChildCache(DBSRepositoryDescriptor descriptor) {
+        children = newCacheBuilder(descriptor).removalListener(this::onChildRemoval).build();
+        absent = newCacheBuilder(descriptor).build();
+    }
+
+    protected CacheBuilder<Object, Object> newCacheBuilder(DBSRepositoryDescriptor descriptor) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        builder = builder.expireAfterWrite(descriptor.cacheTTL.longValue(), TimeUnit.MINUTES).recordStats();
+        if (descriptor.cacheConcurrencyLevel != null) {
+            builder = builder.concurrencyLevel(descriptor.cacheConcurrencyLevel.intValue());
+        }
+        if (descriptor.cacheMaxSize != null) {
+            builder = builder.maximumSize(descriptor.cacheMaxSize.longValue());
+        }
+        return builder;
+    }
+
+    protected void onChildRemoval(RemovalNotification<ChildKey, String> notification) {
+        String id = notification.getValue();
+        if (id != null) {
+            keys.remove(id, notification.getKey());
+        }
+    }
+
+    /** The cache of children ids, used for metrics. */
+    public Cache<ChildKey, String> getChildrenCache() {
+        return children;
+    }
+
+    /** The cache of absent names, used for metrics. */
+    public Cache<String, Set<String>> getAbsentCache() {
+        return absent;
+    }
+
+    /**
+     * Gets the version to pass to {@link #putChild} or {@link #putAbsent} after a lookup in the repository.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the id of the child with the given name, or {@code null} if unknown.
+     */
+    public String getChildId(String parentId, String name) {
+        return children.getIfPresent(new ChildKey(parentId, name));
+    }
+
+    /**
+     * Checks if the child with the given name is known to be absent.
+     */
+    public boolean isAbsent(String parentId, String name) {
+        Set<String> names = absent.getIfPresent(parentId);
+        return names != null && names.contains(name);
+    }
+
+    /**
+     * Gets the parent id of a cached child, or {@code null} if unknown.
+     */
+    public String getParentId(String id) {
+        ChildKey key = keys.get(id);
+        return key == null ? null : key.parentId;
+    }
+
+    /**
+     * Gets the name of a cached child, or {@code null} if unknown.
+     */
+    public String getName(String id) {
+        ChildKey key = keys.get(id);
+        return key == null ? null : key.name;
+    }
+
+    public synchronized void putChild(String parentId, String name, String id, long lookupVersion) {
+        if (lookupVersion != version) {
+            return;
+        }
+        ChildKey key = new ChildKey(parentId, name);
+        ChildKey previous = keys.put(id, key);
+        if (previous != null && !previous.equals(key)) {
+            children.invalidate(previous);
+        }
+        children.put(key, id);
+    }
+
+    public synchronized void putAbsent(String parentId, String name, long lookupVersion) {
+        if (lookupVersion != version) {
+            return;
+        }
+        Set<String> names;
+        try {
+            names = absent.get(parentId, ConcurrentHashMap::newKeySet);
+        } catch (ExecutionException e) { // cannot happen
+            throw new IllegalStateException(e);
+        }
+        if (names.size() < MAX_ABSENT_PER_PARENT) {
+            names.add(name);
+        }
+    }
+
+    /**
+     * Invalidates what is known about a child name, called when a document gets this name.
+     */
+    public synchronized void invalidateChild(String parentId, String name) {
+        version++;
+        children.invalidate(new ChildKey(parentId, name));
+        Set<String> names = absent.getIfPresent(parentId);
+        if (names != null) {
+            names.remove(name);
+        }
+    }
+
+    /**
+     * Invalidates the absent names of a parent, called when another node added children to it.
+     */
+    public synchronized void invalidateParents(Collection<String> parentIds) {
+        version++;
+        absent.invalidateAll(parentIds);
+    }
+
+    /**
+     * Invalidates the cached child names of documents, called when they are moved, renamed or deleted.
+     */
+    public synchronized void invalidateIds(Collection<String> ids) {
+        version++;
+        for (String id : ids) {
+            ChildKey key = keys.remove(id);
+            if (key != null) {
+                children.invalidate(key);
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        version++;
+        children.invalidateAll();
+        absent.invalidateAll();
+        keys.clear();
+    }
+
+    /**
+     * The parent id and name of a child.
+     */
+    public static class ChildKey {
+
+        protected final String parentId;
+
+        protected final String name;
+
+        public ChildKey(String parentId, String name) {
+            this.parentId = parentId;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * parentId.hashCode() + name.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ChildKey)) {
+                return false;
+            }
+            ChildKey other = (ChildKey) obj;
+            return parentId.equals(other.parentId) && name.equals(other.name);
+        }
+
+        @Override
+        public String toString() {
+            return parentId + '/' + name;
+        }
+    }
+
+}
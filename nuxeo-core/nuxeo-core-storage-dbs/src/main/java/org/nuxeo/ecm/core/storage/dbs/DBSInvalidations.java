@@ -31,7 +31,8 @@ import org.nuxeo.runtime.pubsub.SerializableAccumulableInvalidations;
 /**
  * A set of invalidations for a given repository.
  * <p>
- * Records both modified and deleted fragments, as well as "parents modified" fragments.
+ * Records both modified and deleted documents, as well as the parents whose children names changed (creation, move,
+ * rename), which are used to invalidate the cached absent children.
  *
  * @since 8.10
  */
@@ -53,6 +54,13 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
     /** null when empty */
     public Set<String> ids;
 
+    /**
+     * The parents having new children names, null when empty.
+     *
+     * @since 11.1
+     */
+    public Set<String> parentIds;
+
     public DBSInvalidations() {
     }
 
@@ -62,21 +70,23 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
 
     @Override
     public boolean isEmpty() {
-        return ids == null && !all;
+        return ids == null && parentIds == null && !all;
     }
 
     public void clear() {
         all = false;
         ids = null;
+        parentIds = null;
     }
 
     protected void setAll() {
         all = true;
         ids = null;
+        parentIds = null;
     }
 
     protected void checkMaxSize() {
-        if (ids != null && ids.size() > MAX_SIZE) {
+        if ((ids != null && ids.size() > MAX_SIZE) || (parentIds != null && parentIds.size() > MAX_SIZE)) {
             setAll();
         }
     }
@@ -100,6 +110,12 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
             }
             ids.addAll(other.ids);
         }
+        if (other.parentIds != null) {
+            if (parentIds == null) {
+                parentIds = new HashSet<>();
+            }
+            parentIds.addAll(other.parentIds);
+        }
         checkMaxSize();
     }
 
@@ -126,20 +142,46 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         checkMaxSize();
     }
 
+    /**
+     * Adds a parent whose children names changed.
+     *
+     * @since 11.1
+     */
+    public void addParent(String parentId) {
+        if (all) {
+            return;
+        }
+        if (parentIds == null) {
+            parentIds = new HashSet<>();
+        }
+        parentIds.add(parentId);
+        checkMaxSize();
+    }
+
     private static final String UTF_8 = "UTF-8";
 
     private static final int ALL_IDS = (byte) 'A';
 
     private static final int ID_SEP = (byte) ',';
 
+    private static final int PARENT_ID_SEP = (byte) ';';
+
     @Override
     public void serialize(OutputStream out) throws IOException {
         if (all) {
             out.write(ALL_IDS);
-        } else if (ids != null) {
-            for (String id : ids) {
-                out.write(ID_SEP);
-                out.write(id.getBytes(UTF_8));
+        } else {
+            if (ids != null) {
+                for (String id : ids) {
+                    out.write(ID_SEP);
+                    out.write(id.getBytes(UTF_8));
+                }
+            }
+            if (parentIds != null) {
+                for (String parentId : parentIds) {
+                    out.write(PARENT_ID_SEP);
+                    out.write(parentId.getBytes(UTF_8));
+                }
             }
         }
     }
@@ -153,18 +195,24 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         DBSInvalidations invalidations = new DBSInvalidations();
         if (first == ALL_IDS) {
             invalidations.setAll();
-        } else if (first != ID_SEP) {
+        } else if (first != ID_SEP && first != PARENT_ID_SEP) {
             // invalid message
             return null;
         } else {
             ByteArrayOutputStream baout = new ByteArrayOutputStream(36); // typical uuid size
+            int sep = first;
             for (;;) {
                 int b = in.read(); // we read from a ByteArrayInputStream so one at a time is ok
-                if (b == ID_SEP || b == -1) {
-                    invalidations.add(baout.toString(UTF_8));
+                if (b == ID_SEP || b == PARENT_ID_SEP || b == -1) {
+                    if (sep == ID_SEP) {
+                        invalidations.add(baout.toString(UTF_8));
+                    } else {
+                        invalidations.addParent(baout.toString(UTF_8));
+                    }
                     if (b == -1) {
                         break;
                     }
+                    sep = b;
                     baout.reset();
                 } else {
                     baout.write(b);
@@ -184,6 +232,10 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
             sb.append("ids=");
             sb.append(ids);
         }
+        if (parentIds != null) {
+            sb.append("parentIds=");
+            sb.append(parentIds);
+        }
         sb.append(')');
         return sb.toString();
     }
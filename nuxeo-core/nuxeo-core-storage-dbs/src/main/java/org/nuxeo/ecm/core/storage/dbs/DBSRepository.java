@@ -251,6 +251,26 @@ public interface DBSRepository extends Repository, LockManager {
     PartialList<Map<String, Serializable>> queryAndFetch(DBSExpressionEvaluator evaluator, OrderByClause orderByClause,
             boolean distinctDocuments, int limit, int offset, int countUpTo);
 
+    /**
+     * Queries the repository for documents matching a NXQL query, and returns a stream of the projections of the
+     * documents.
+     * <p>
+     * Implementations read the documents lazily from a cursor, so that only a bounded number of them is held in memory.
+     * The returned stream must be closed to release the cursor.
+     * <p>
+     * The default implementation holds all the projections in memory, as {@link #queryAndFetch} does.
+     *
+     * @param evaluator the map-based evaluator for the query
+     * @param orderByClause an ORDER BY clause
+     * @param distinctDocuments {@code true} if the projection should return a maximum of one row per document
+     * @return a stream of maps containing the NXQL projections requested, which must be closed
+     * @since 11.1
+     */
+    default Stream<Map<String, Serializable>> queryAndFetchStream(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments) {
+        return queryAndFetch(evaluator, orderByClause, distinctDocuments, 0, 0, 0).stream();
+    }
+
     /**
      * Gets the lock manager for this repository.
      *
@@ -112,6 +112,15 @@ public class DBSRepositoryDescriptor implements Cloneable {
     @XNode("cache@maxSize")
     public Long cacheMaxSize;
 
+    /**
+     * Maximum estimated memory size of the cached states, for instance {@code 100MB}. When set, it takes precedence
+     * over {@link #cacheMaxSize}.
+     *
+     * @since 11.1
+     */
+    @XNode("cache@maxWeight")
+    public String cacheMaxWeight;
+
     /** @since 8.10 */
     @XNode("cache@concurrencyLevel")
     public Integer cacheConcurrencyLevel;
@@ -168,6 +177,9 @@ public class DBSRepositoryDescriptor implements Cloneable {
         if (other.cacheMaxSize != null) {
             cacheMaxSize = other.cacheMaxSize;
         }
+        if (other.cacheMaxWeight != null) {
+            cacheMaxWeight = other.cacheMaxWeight;
+        }
         if (other.cacheConcurrencyLevel != null) {
             cacheConcurrencyLevel = other.cacheConcurrencyLevel;
         }
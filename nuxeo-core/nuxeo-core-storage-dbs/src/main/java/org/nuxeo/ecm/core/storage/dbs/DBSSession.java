@@ -399,6 +399,14 @@ public class DBSSession implements Session<QueryFilter> {
         throw new DocumentNotFoundException(id);
     }
 
+    @Override
+    public List<Document> getDocumentsByUUIDs(List<String> uuids, Collection<String> schemas) {
+        // states hold all the schemas and are read in bulk
+        List<Document> docs = getDocuments(uuids);
+        docs.removeIf(Objects::isNull);
+        return docs;
+    }
+
     @Override
     public Document getRootDocument() {
         return getDocument(getRootId());
@@ -1529,17 +1537,31 @@ public class DBSSession implements Session<QueryFilter> {
         }
     }
 
-    protected PartialList<Map<String, Serializable>> doQueryAndFetch(String query, String queryType,
-            QueryFilter queryFilter, boolean distinctDocuments, int countUpTo, Mutable<String> idKeyHolder) {
-        if ("NXTAG".equals(queryType)) {
-            // for now don't try to implement tags
-            // and return an empty list
-            return new PartialList<>(Collections.<Map<String, Serializable>> emptyList(), 0);
-        }
-        if (!NXQL.NXQL.equals(queryType)) {
-            throw new NuxeoException("No QueryMaker accepts query type: " + queryType);
-        }
+    /**
+     * The parsed query and the information needed to post-process the projections of a query and fetch.
+     *
+     * @since 11.1
+     */
+    protected static class QueryAndFetchContext {
+
+        protected DBSExpressionEvaluator evaluator;
+
+        protected OrderByClause orderByClause;
+
+        protected boolean distinctDocuments;
+
+        protected String ecmTag;
 
+        protected String keyTag;
+    }
+
+    /**
+     * Parses and optimizes a NXQL query for a query and fetch.
+     *
+     * @since 11.1
+     */
+    protected QueryAndFetchContext prepareQueryAndFetch(String query, QueryFilter queryFilter,
+            boolean distinctDocuments, Mutable<String> idKeyHolder) {
         // transform the query according to the transformers defined by the
         // security policies
         SQLQuery sqlQuery = SQLQueryParser.parse(query);
@@ -1581,10 +1603,34 @@ public class DBSSession implements Session<QueryFilter> {
         selectClause.elements.putIfAbsent(NXQL.ECM_PARENTID, new Reference(NXQL.ECM_PARENTID));
         selectClause.elements.putIfAbsent(NXQL.ECM_NAME, new Reference(NXQL.ECM_NAME));
 
+        QueryAndFetchContext queryContext = new QueryAndFetchContext();
         QueryOptimizer optimizer = new DBSQueryOptimizer().withFacetFilter(queryFilter.getFacetFilter());
         sqlQuery = optimizer.optimize(sqlQuery);
-        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(this, sqlQuery, queryFilter.getPrincipals(),
+        queryContext.evaluator = new DBSExpressionEvaluator(this, sqlQuery, queryFilter.getPrincipals(),
                 fulltextSearchDisabled);
+        queryContext.orderByClause = sqlQuery.orderBy;
+        queryContext.distinctDocuments = distinctDocuments;
+        queryContext.ecmTag = ecmTag;
+        queryContext.keyTag = keyTag;
+        return queryContext;
+    }
+
+    protected PartialList<Map<String, Serializable>> doQueryAndFetch(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, int countUpTo, Mutable<String> idKeyHolder) {
+        if ("NXTAG".equals(queryType)) {
+            // for now don't try to implement tags
+            // and return an empty list
+            return new PartialList<>(Collections.<Map<String, Serializable>> emptyList(), 0);
+        }
+        if (!NXQL.NXQL.equals(queryType)) {
+            throw new NuxeoException("No QueryMaker accepts query type: " + queryType);
+        }
+
+        QueryAndFetchContext queryContext = prepareQueryAndFetch(query, queryFilter, distinctDocuments, idKeyHolder);
+        DBSExpressionEvaluator evaluator = queryContext.evaluator;
+        distinctDocuments = queryContext.distinctDocuments;
+        String ecmTag = queryContext.ecmTag;
+        String keyTag = queryContext.keyTag;
 
         int limit = (int) queryFilter.getLimit();
         int offset = (int) queryFilter.getOffset();
@@ -1598,7 +1644,7 @@ public class DBSSession implements Session<QueryFilter> {
         int repoLimit;
         int repoOffset;
         OrderByClause repoOrderByClause;
-        OrderByClause orderByClause = sqlQuery.orderBy;
+        OrderByClause orderByClause = queryContext.orderByClause;
         boolean postFilter = isOrderByPath(orderByClause);
         if (postFilter) {
             // we have to merge ordering and batching between memory and
@@ -1758,6 +1804,38 @@ public class DBSSession implements Session<QueryFilter> {
         }
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, Object[] params) {
+        if ("NXTAG".equals(queryType)) {
+            // for now don't try to implement tags
+            return Stream.empty();
+        }
+        if (!NXQL.NXQL.equals(queryType)) {
+            throw new NuxeoException("No QueryMaker accepts query type: " + queryType);
+        }
+        QueryAndFetchContext queryContext = prepareQueryAndFetch(query, queryFilter, distinctDocuments, null);
+        OrderByClause orderByClause = queryContext.orderByClause;
+        if (isOrderByPath(orderByClause)) {
+            // the path is not stored, all the projections have to be held and sorted in memory
+            List<Map<String, Serializable>> projections = doQueryAndFetch(query, queryType, queryFilter,
+                    distinctDocuments, 0, null);
+            return projections.stream();
+        }
+        String ecmTag = queryContext.ecmTag;
+        String keyTag = queryContext.keyTag;
+        Stream<Map<String, Serializable>> stream = repository.queryAndFetchStream(queryContext.evaluator,
+                orderByClause, queryContext.distinctDocuments);
+        if (ecmTag == null) {
+            return stream;
+        }
+        return stream.peek(proj -> {
+            if (proj.containsKey(keyTag)) {
+                proj.put(ecmTag, proj.remove(keyTag));
+            }
+        });
+    }
+
     @SuppressWarnings("resource") // Time.Context closed by stop()
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, String queryType,
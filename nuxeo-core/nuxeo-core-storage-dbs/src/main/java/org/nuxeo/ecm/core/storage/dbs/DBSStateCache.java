@@ -0,0 +1,297 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.nuxeo.common.utils.SizeUtils;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.State;
+
+import com.codahale.metrics.Histogram;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Cache of {@link State}s used by the {@link DBSCachingRepository}.
+ * <p>
+ * When {@code maxWeight} is configured the cache is bounded by the estimated memory size of the states instead of
+ * their number, so that a few documents with huge states don't evict thousands of small ones.
+ * <p>
+ * A missing state is loaded only once per node: concurrent reads of the same id wait for the same load, and the ids
+ * missed concurrently by different threads are loaded together with a single {@link DBSRepository#readStates} call,
+ * by whichever of these threads takes them first from the pending loads. A state invalidated during its load is
+ * returned to its readers but not cached.
+ *
+ * @since 11.1
+ */
+public class DBSStateCache {
+
+    /** Maximum number of ids loaded by a single batch. */
+    protected static final int MAX_LOAD_BATCH_SIZE = 100;
+
+    protected final DBSRepository repository;
+
+    protected final Cache<String, State> cache;
+
+    /**
+     * The loads in progress, an invalidation removes the entry so that the loaded state is not cached. The loaded
+     * state is cached while holding the entry, so that an invalidation can't happen between the check and the put.
+     */
+    protected final ConcurrentMap<String, CompletableFuture<State>> loading = new ConcurrentHashMap<>();
+
+    /** The loads waiting for the next batch. */
+    protected final Queue<PendingLoad> pending = new ConcurrentLinkedQueue<>();
+
+    protected final Histogram loadBatchSize;
+
+    public DBSStateCache(DBSRepository repository, DBSRepositoryDescriptor descriptor, Histogram loadBatchSize) {
+        this.repository = repository;
+        this.loadBatchSize = loadBatchSize;
+        cache = newCache(descriptor);
+    }
+
+    protected Cache<String, State> newCache(DBSRepositoryDescriptor descriptor) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        builder = builder.expireAfterWrite(descriptor.cacheTTL.longValue(), TimeUnit.MINUTES).recordStats();
+        if (descriptor.cacheConcurrencyLevel != null) {
+            builder = builder.concurrencyLevel(descriptor.cacheConcurrencyLevel.intValue());
+        }
+        if (StringUtils.isNotBlank(descriptor.cacheMaxWeight)) {
+            return builder.maximumWeight(SizeUtils.parseSizeInBytes(descriptor.cacheMaxWeight.trim()))
+                          .weigher((String id, State state) -> weigh(state))
+                          .build();
+        }
+        if (descriptor.cacheMaxSize != null) {
+            builder = builder.maximumSize(descriptor.cacheMaxSize.longValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the underlying cache, used for metrics.
+     */
+    public Cache<String, State> getCache() {
+        return cache;
+    }
+
+    public State getIfPresent(String id) {
+        return cache.getIfPresent(id);
+    }
+
+    public Map<String, State> getAllPresent(Iterable<String> ids) {
+        return cache.getAllPresent(ids);
+    }
+
+    public void put(State state) {
+        cache.put(state.get(KEY_ID).toString(), state);
+    }
+
+    public void invalidate(String id) {
+        loading.remove(id);
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<String> ids) {
+        ids.forEach(loading::remove);
+        cache.invalidateAll(ids);
+    }
+
+    public void invalidateAll() {
+        loading.clear();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Gets a state from the cache, or loads it from the repository if missing.
+     *
+     * @return the state, or {@code null} if it doesn't exist
+     */
+    public State get(String id) {
+        State state = cache.getIfPresent(id);
+        if (state != null) {
+            return state;
+        }
+        CompletableFuture<State> future = new CompletableFuture<>();
+        CompletableFuture<State> previous = loading.putIfAbsent(id, future);
+        if (previous != null) {
+            // another thread is already loading this state
+            return await(previous);
+        }
+        pending.add(new PendingLoad(id, future));
+        // while a batch is being loaded the missed ids accumulate, the next loader takes them all
+        // when there's nothing left to load, our id is being loaded by another thread
+        while (!future.isDone() && loadPendingBatch()) {
+            // loop
+        }
+        return await(future);
+    }
+
+    /**
+     * Loads a batch of pending loads.
+     *
+     * @return {@code false} if there was no pending load
+     */
+    protected boolean loadPendingBatch() {
+        List<PendingLoad> batch = new ArrayList<>();
+        PendingLoad load;
+        while (batch.size() < MAX_LOAD_BATCH_SIZE && (load = pending.poll()) != null) {
+            batch.add(load);
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+        loadBatchSize.update(batch.size());
+        Map<String, State> states;
+        try {
+            states = readStates(batch);
+        } catch (RuntimeException e) {
+            for (PendingLoad failed : batch) {
+                loading.remove(failed.id, failed.future);
+                failed.future.completeExceptionally(e);
+            }
+            return true;
+        }
+        for (PendingLoad loaded : batch) {
+            State state = states.get(loaded.id);
+            // don't cache the state if it has been invalidated during the load
+            loading.computeIfPresent(loaded.id, (key, future) -> {
+                if (future != loaded.future) {
+                    // invalidated, and loaded again by another thread
+                    return future;
+                }
+                if (state != null) {
+                    cache.put(key, state);
+                }
+                return null;
+            });
+            loaded.future.complete(state);
+        }
+        return true;
+    }
+
+    protected Map<String, State> readStates(List<PendingLoad> batch) {
+        if (batch.size() == 1) {
+            String id = batch.get(0).id;
+            State state = repository.readState(id);
+            return state == null ? Collections.emptyMap() : Collections.singletonMap(id, state);
+        }
+        List<String> ids = new ArrayList<>(batch.size());
+        batch.forEach(load -> ids.add(load.id));
+        Map<String, State> states = new HashMap<>();
+        for (State state : repository.readStates(ids)) {
+            states.put(state.get(KEY_ID).toString(), state);
+        }
+        return states;
+    }
+
+    protected static State await(CompletableFuture<State> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new NuxeoException(cause);
+        }
+    }
+
+    /**
+     * Gets the weight of a state for the cache, which is its estimated memory size.
+     */
+    protected static int weigh(State state) {
+        return (int) Math.min(estimateSize(state), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Estimates the memory size in bytes of a value of a {@link State}, this is not accurate but good enough to
+     * compare states with each other.
+     */
+    protected static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof State) {
+            long size = 48;
+            for (Entry<String, Serializable> en : ((State) value).entrySet()) {
+                size += 16 + estimateSize(en.getKey()) + estimateSize(en.getValue());
+            }
+            return size;
+        }
+        if (value instanceof String) {
+            return 40 + ((String) value).length();
+        }
+        if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            long size = 16 + 8L * array.length;
+            for (Object element : array) {
+                size += estimateSize(element);
+            }
+            return size;
+        }
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            long size = 40 + 8L * list.size();
+            for (Object element : list) {
+                size += estimateSize(element);
+            }
+            return size;
+        }
+        if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        if (value instanceof Calendar) {
+            return 200;
+        }
+        // Long, Double, Boolean...
+        return 16;
+    }
+
+    protected static class PendingLoad {
+
+        protected final String id;
+
+        protected final CompletableFuture<State> future;
+
+        protected PendingLoad(String id, CompletableFuture<State> future) {
+            this.id = id;
+            this.future = future;
+        }
+    }
+
+}
@@ -19,6 +19,9 @@
 package org.nuxeo.ecm.core.storage.dbs;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
@@ -34,8 +37,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.StringUtils;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -120,6 +130,112 @@ public class TestDBSCachingRepository {
         assertEquals(states, cachedStates);
     }
 
+    @Test
+    public void testReadStateConcurrentlyLoadsOnce() throws Exception {
+        String id = "SLOW-ID";
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadAllowed = new CountDownLatch(1);
+        when(subRepository.readState(eq(id))).then(invocation -> {
+            loadStarted.countDown();
+            loadAllowed.await(10, TimeUnit.SECONDS);
+            return newState(id);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<State> first = executor.submit(() -> repository.readState(id));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+            List<Future<State>> others = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                others.add(executor.submit(() -> repository.readState(id)));
+            }
+            loadAllowed.countDown();
+            State state = first.get(10, TimeUnit.SECONDS);
+            for (Future<State> other : others) {
+                assertEquals(state, other.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // only one load for all the concurrent readers
+        verify(subRepository, times(1)).readState(eq(id));
+    }
+
+    @Test
+    public void testReadStateDoesNotWaitForOtherIds() throws Exception {
+        String id = "SLOW-ID";
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadAllowed = new CountDownLatch(1);
+        when(subRepository.readState(eq(id))).then(invocation -> {
+            loadStarted.countDown();
+            loadAllowed.await(10, TimeUnit.SECONDS);
+            return newState(id);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<State> slow = executor.submit(() -> repository.readState(id));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+            // a miss on another id is loaded while the slow load is still running
+            Future<State> other = executor.submit(() -> repository.readState("OTHER-ID"));
+            assertEquals("OTHER-ID", other.get(5, TimeUnit.SECONDS).get(KEY_ID));
+            assertFalse(slow.isDone());
+            loadAllowed.countDown();
+            assertEquals(id, slow.get(10, TimeUnit.SECONDS).get(KEY_ID));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReadStateInvalidatedDuringLoad() throws Exception {
+        String id = "SLOW-ID";
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch loadAllowed = new CountDownLatch(1);
+        when(subRepository.readState(eq(id))).then(invocation -> {
+            loadStarted.countDown();
+            loadAllowed.await(10, TimeUnit.SECONDS);
+            return newState(id);
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<State> slow = executor.submit(() -> repository.readState(id));
+            assertTrue(loadStarted.await(10, TimeUnit.SECONDS));
+            // the state is updated while being loaded
+            repository.updateState(id, mock(StateDiff.class), null);
+            loadAllowed.countDown();
+            slow.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        // the state loaded before the update has not been cached
+        repository.readState(id);
+        verify(subRepository, times(2)).readState(eq(id));
+    }
+
+    @Test
+    public void testReadStateWeightBoundedCache() {
+        repository.shutdown();
+        DBSRepositoryDescriptor descriptor = newDBSRepositoryDescriptor();
+        descriptor.cacheConcurrencyLevel = 1;
+        descriptor.cacheMaxWeight = "4KB";
+        repository = new DBSCachingRepository(subRepository, descriptor);
+        String smallId = "SMALL-ID";
+        String bigId = "BIG-ID";
+        when(subRepository.readState(eq(bigId))).then(invocation -> {
+            State state = newState(bigId);
+            state.setSingle("dc:description", StringUtils.repeat('x', 10_000));
+            return state;
+        });
+
+        repository.readState(smallId);
+        repository.readState(bigId);
+        repository.readState(smallId);
+        repository.readState(bigId);
+
+        // small state is cached, big state exceeds the cache weight
+        verify(subRepository, times(1)).readState(eq(smallId));
+        verify(subRepository, times(2)).readState(eq(bigId));
+    }
+
     @Test
     public void testUpdateState() {
         String id = "ID";
@@ -177,6 +293,69 @@ public class TestDBSCachingRepository {
         assertEquals(dbState, cachedState);
     }
 
+    @Test
+    public void testReadChildStateAbsent() {
+        String parentId = "PARENT-ID";
+        String name = "ABSENT";
+        when(subRepository.readChildState(eq(parentId), eq(name), any())).thenReturn(null);
+
+        // First read - call sub repository
+        assertNull(repository.readChildState(parentId, name, Collections.emptySet()));
+        verify(subRepository, times(1)).readChildState(eq(parentId), eq(name), any());
+
+        // Second read and hasChild - absence is cached
+        assertNull(repository.readChildState(parentId, name, Collections.emptySet()));
+        assertFalse(repository.hasChild(parentId, name, Collections.emptySet()));
+        verify(subRepository, times(1)).readChildState(eq(parentId), eq(name), any());
+        verify(subRepository, times(0)).hasChild(any(), any(), any());
+
+        // Create the child - absence is invalidated
+        State state = newState("NEW-ID");
+        state.setSingle(KEY_PARENT_ID, parentId);
+        state.setSingle(KEY_NAME, name);
+        repository.createState(state);
+        when(subRepository.readChildState(eq(parentId), eq(name), any())).thenReturn(state);
+        assertEquals(state, repository.readChildState(parentId, name, Collections.emptySet()));
+        verify(subRepository, times(2)).readChildState(eq(parentId), eq(name), any());
+    }
+
+    @Test
+    public void testHasChildAbsent() {
+        String parentId = "PARENT-ID";
+        String name = "ABSENT";
+
+        assertFalse(repository.hasChild(parentId, name, Collections.emptySet()));
+        assertFalse(repository.hasChild(parentId, name, Collections.emptySet()));
+        verify(subRepository, times(1)).hasChild(eq(parentId), eq(name), any());
+    }
+
+    @Test
+    public void testReadChildStateAfterMove() {
+        String parentId = "PARENT-ID";
+        String name = "NAME";
+        String id = parentId + "_" + name;
+
+        // cache the child
+        repository.readChildState(parentId, name, Collections.emptySet());
+        repository.readChildState(parentId, name, Collections.emptySet());
+        verify(subRepository, times(1)).readChildState(eq(parentId), eq(name), any());
+        // cache the absence of the new name
+        when(subRepository.readChildState(eq(parentId), eq("NEW-NAME"), any())).thenReturn(null);
+        assertNull(repository.readChildState(parentId, "NEW-NAME", Collections.emptySet()));
+
+        // rename the child
+        StateDiff diff = new StateDiff();
+        diff.put(KEY_NAME, "NEW-NAME");
+        repository.updateState(id, diff, null);
+
+        // old name is looked up again, new name is no longer absent
+        when(subRepository.readChildState(eq(parentId), eq(name), any())).thenReturn(null);
+        assertNull(repository.readChildState(parentId, name, Collections.emptySet()));
+        verify(subRepository, times(2)).readChildState(eq(parentId), eq(name), any());
+        repository.readChildState(parentId, "NEW-NAME", Collections.emptySet());
+        verify(subRepository, times(2)).readChildState(eq(parentId), eq("NEW-NAME"), any());
+    }
+
     private State newState(String id) {
         State state = new State();
         state.setSingle(KEY_ID, id);
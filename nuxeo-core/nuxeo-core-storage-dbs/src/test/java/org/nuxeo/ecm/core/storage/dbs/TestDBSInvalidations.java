@@ -58,6 +58,14 @@ public class TestDBSInvalidations {
         ser = new String(baout.toByteArray());
         assertTrue(ser, Arrays.asList(",foo,bar", ",bar,foo").contains(ser)); // non-deterministic order
 
+        invals = new DBSInvalidations();
+        invals.add("foo");
+        invals.addParent("parent");
+        baout.reset();
+        invals.serialize(baout);
+        ser = new String(baout.toByteArray());
+        assertEquals(",foo;parent", ser);
+
         invals = new DBSInvalidations();
         invals.setAll();
         baout.reset();
@@ -90,6 +98,17 @@ public class TestDBSInvalidations {
         bain = new ByteArrayInputStream(",foo,bar".getBytes());
         invals = DBSInvalidations.deserialize(bain);
         assertEquals(new HashSet<>(Arrays.asList("foo", "bar")), invals.ids);
+        assertNull(invals.parentIds);
+
+        bain = new ByteArrayInputStream(",foo;parent1,bar;parent2".getBytes());
+        invals = DBSInvalidations.deserialize(bain);
+        assertEquals(new HashSet<>(Arrays.asList("foo", "bar")), invals.ids);
+        assertEquals(new HashSet<>(Arrays.asList("parent1", "parent2")), invals.parentIds);
+
+        bain = new ByteArrayInputStream(";parent".getBytes());
+        invals = DBSInvalidations.deserialize(bain);
+        assertNull(invals.ids);
+        assertEquals(Collections.singleton("parent"), invals.parentIds);
     }
 
 }
@@ -0,0 +1,222 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary index of the {@link MemRepository}, mapping the values of a top-level key of the documents to the ids of
+ * the documents having this value.
+ * <p>
+ * For arrays and lists, each element is indexed separately. A sorted index can also be used for range lookups.
+ * <p>
+ * Lookups return live views, which are weakly consistent with concurrent updates, like iterating over the repository
+ * itself.
+ *
+ * @since 11.1
+ */
+public class MemIndex {
+
+    /**
+     * Total order on the indexed values. Numbers are compared by value whatever their class, dates by time, other
+     * values of different classes by class name.
+     */
+    protected static final Comparator<Object> VALUE_COMPARATOR = MemIndex::compare;
+
+    protected final String key;
+
+    protected final boolean sorted;
+
+    protected final Map<Object, Set<String>> map;
+
+    public MemIndex(String key, boolean sorted) {
+        this.key = key;
+        this.sorted = sorted;
+        map = sorted ? new ConcurrentSkipListMap<>(VALUE_COMPARATOR) : new ConcurrentHashMap<>();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * Computes the index entries for a document value.
+     */
+    public Set<Object> getIndexValues(Object value) {
+        if (value == null) {
+            return Collections.emptySet();
+        }
+        Collection<?> values;
+        if (value instanceof Object[]) {
+            values = Arrays.asList((Object[]) value);
+        } else if (value instanceof List) {
+            values = (List<?>) value;
+        } else {
+            values = Collections.singleton(value);
+        }
+        Set<Object> set = new HashSet<>();
+        for (Object v : values) {
+            v = normalize(v);
+            if (v != null) {
+                set.add(v);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Normalizes a value so that values considered equal by the query evaluator have the same index entry. Values
+     * that cannot be indexed (complex properties) are returned as {@code null}.
+     */
+    protected static Object normalize(Object value) {
+        if (value instanceof String) {
+            return value;
+        } else if (value instanceof Boolean) {
+            return ((Boolean) value).booleanValue() ? Long.valueOf(1) : Long.valueOf(0);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            long l = (long) d;
+            if (l == d) {
+                // integral value, same entry as the long
+                return Long.valueOf(l);
+            }
+            return Double.valueOf(d);
+        } else if (value instanceof Number) {
+            return Long.valueOf(((Number) value).longValue());
+        } else if (value instanceof Calendar) {
+            // the index must not share the mutable calendar of the document
+            return ((Calendar) value).clone();
+        } else {
+            return null;
+        }
+    }
+
+    protected static int compare(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            int cmp = Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            if (cmp != 0) {
+                return cmp;
+            }
+            // keep a total order between a long and a close double
+            return a.getClass().getName().compareTo(b.getClass().getName());
+        } else if (a instanceof Calendar && b instanceof Calendar) {
+            return Long.compare(((Calendar) a).getTimeInMillis(), ((Calendar) b).getTimeInMillis());
+        } else if (a instanceof String && b instanceof String) {
+            return ((String) a).compareTo((String) b);
+        } else {
+            String ca = a instanceof Number ? Number.class.getName() : a.getClass().getName();
+            String cb = b instanceof Number ? Number.class.getName() : b.getClass().getName();
+            return ca.compareTo(cb);
+        }
+    }
+
+    /**
+     * Updates the index entries of a document, given the index values before and after the change.
+     */
+    public void update(String id, Set<Object> oldValues, Set<Object> newValues) {
+        for (Object value : oldValues) {
+            if (!newValues.contains(value)) {
+                remove(id, value);
+            }
+        }
+        for (Object value : newValues) {
+            if (!oldValues.contains(value)) {
+                add(id, value);
+            }
+        }
+    }
+
+    // synchronized so that a concurrent add cannot go to a set being removed
+    protected synchronized void add(String id, Object value) {
+        map.computeIfAbsent(value, k -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+
+    protected synchronized void remove(String id, Object value) {
+        Set<String> ids = map.get(value);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                map.remove(value);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    /**
+     * Gets the ids of the documents having the given value, or one of its elements for arrays and lists.
+     */
+    public Set<String> get(Object value) {
+        Object v = normalize(value);
+        Set<String> ids = v == null ? null : map.get(v);
+        return ids == null ? Collections.emptySet() : Collections.unmodifiableSet(ids);
+    }
+
+    /**
+     * Gets the sets of ids of the documents having a value in the given range. A {@code null} bound means no bound.
+     * <p>
+     * Only available for a sorted index.
+     */
+    public List<Set<String>> getRange(Object min, boolean minInclusive, Object max, boolean maxInclusive) {
+        if (!sorted) {
+            throw new UnsupportedOperationException("Not a sorted index: " + key);
+        }
+        NavigableMap<Object, Set<String>> sub = (NavigableMap<Object, Set<String>>) map;
+        if (min != null) {
+            sub = sub.tailMap(normalize(min), minInclusive);
+        }
+        if (max != null) {
+            sub = sub.headMap(normalize(max), maxInclusive);
+        }
+        List<Set<String>> list = new ArrayList<>();
+        for (Set<String> ids : sub.values()) {
+            list.add(Collections.unmodifiableSet(ids));
+        }
+        return list;
+    }
+
+    /** The number of distinct indexed values. */
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + key + (sorted ? ",sorted" : "") + ")";
+    }
+
+}
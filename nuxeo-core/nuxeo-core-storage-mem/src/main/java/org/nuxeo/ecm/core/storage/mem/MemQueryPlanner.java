@@ -0,0 +1,362 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_READ_ACL;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.core.query.sql.model.DateLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.LiteralList;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
+import org.nuxeo.ecm.core.storage.dbs.DBSSession;
+
+/**
+ * Chooses the documents on which a query must be evaluated, using the {@link MemIndex secondary indexes} of the
+ * {@link MemRepository}.
+ * <p>
+ * The planner works on the expression produced by the {@code DBSQueryOptimizer}, where the top-level clauses and the
+ * type constraints are already gathered in a single AND. Each clause on an indexed key gives a set of candidate
+ * documents, and the candidates of all the clauses are intersected. The candidates are always a superset of the
+ * matching documents, the query is still fully evaluated on each of them.
+ *
+ * @since 11.1
+ */
+public class MemQueryPlanner {
+
+    protected final Map<String, MemIndex> indexes;
+
+    public MemQueryPlanner(Map<String, MemIndex> indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * Gets the ids of the documents on which the query must be evaluated.
+     *
+     * @param evaluator the query evaluator
+     * @param total the total number of documents in the repository
+     * @return the candidate ids, or {@code null} if no index can be used and all the documents must be scanned
+     */
+    public Collection<String> getCandidates(DBSExpressionEvaluator evaluator, int total) {
+        Candidates candidates = plan(evaluator, evaluator.getExpression());
+        Candidates racl = planSecurity(evaluator);
+        if (candidates == null) {
+            candidates = racl;
+        } else if (racl != null) {
+            candidates = intersect(List.of(candidates, racl));
+        }
+        if (candidates == null || candidates.size() >= total) {
+            return null;
+        }
+        return candidates.ids();
+    }
+
+    /** Candidates for the security check done by the evaluator, which is an implicit AND with the expression. */
+    protected Candidates planSecurity(DBSExpressionEvaluator evaluator) {
+        MemIndex index = indexes.get(KEY_READ_ACL);
+        if (evaluator.principals == null || index == null) {
+            return null;
+        }
+        List<Set<String>> sets = new ArrayList<>(evaluator.principals.size());
+        for (String principal : evaluator.principals) {
+            sets.add(index.get(principal));
+        }
+        return new Candidates(sets);
+    }
+
+    /**
+     * Finds the candidates for an operand, or {@code null} if they cannot be computed from the indexes.
+     */
+    protected Candidates plan(DBSExpressionEvaluator evaluator, Operand operand) {
+        if (operand instanceof MultiExpression) {
+            MultiExpression multi = (MultiExpression) operand;
+            if (multi.operator == Operator.AND) {
+                return planAnd(evaluator, multi.predicates);
+            } else if (multi.operator == Operator.OR) {
+                return planOr(evaluator, multi.predicates);
+            }
+            return null;
+        } else if (operand instanceof Expression) {
+            Expression expr = (Expression) operand;
+            if (expr.operator == Operator.AND) {
+                return planAnd(evaluator, List.of(expr.lvalue, expr.rvalue));
+            } else if (expr.operator == Operator.OR) {
+                return planOr(evaluator, List.of(expr.lvalue, expr.rvalue));
+            }
+            return planPredicate(evaluator, expr);
+        }
+        return null;
+    }
+
+    protected Candidates planAnd(DBSExpressionEvaluator evaluator, List<? extends Operand> operands) {
+        List<Candidates> list = new ArrayList<>(operands.size());
+        for (Operand operand : operands) {
+            Candidates candidates = plan(evaluator, operand);
+            if (candidates != null) {
+                list.add(candidates);
+            }
+        }
+        return list.isEmpty() ? null : intersect(list);
+    }
+
+    protected Candidates planOr(DBSExpressionEvaluator evaluator, List<? extends Operand> operands) {
+        List<Set<String>> sets = new ArrayList<>();
+        for (Operand operand : operands) {
+            Candidates candidates = plan(evaluator, operand);
+            if (candidates == null) {
+                // one side needs a scan, so the whole OR does
+                return null;
+            }
+            sets.addAll(candidates.sets);
+        }
+        return new Candidates(sets);
+    }
+
+    /**
+     * Intersects candidates, iterating over the smallest ones.
+     */
+    protected Candidates intersect(List<Candidates> list) {
+        if (list.size() == 1) {
+            return list.get(0);
+        }
+        Candidates smallest = Collections.min(list, (a, b) -> Long.compare(a.size(), b.size()));
+        Set<String> ids = new HashSet<>();
+        next: for (String id : smallest.ids()) {
+            for (Candidates candidates : list) {
+                if (candidates != smallest && !candidates.contains(id)) {
+                    continue next;
+                }
+            }
+            ids.add(id);
+        }
+        return new Candidates(Collections.singletonList(ids));
+    }
+
+    protected Candidates planPredicate(DBSExpressionEvaluator evaluator, Expression expr) {
+        if (!(expr.lvalue instanceof Reference)) {
+            return null;
+        }
+        Reference ref = (Reference) expr.lvalue;
+        if (ref.cast != null || ref.name.contains("/")) {
+            return null;
+        }
+        Operator op = expr.operator;
+        Operand rvalue = expr.rvalue;
+        if (op == Operator.STARTSWITH) {
+            if (!NXQL.ECM_PATH.equals(ref.name) || !(rvalue instanceof StringLiteral)) {
+                return null;
+            }
+            MemIndex index = indexes.get(KEY_ANCESTOR_IDS);
+            if (index == null) {
+                return null;
+            }
+            String path = ((StringLiteral) rvalue).value;
+            if (path.length() > 1 && path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String ancestorId = evaluator.pathResolver.getIdForPath(path);
+            if (ancestorId == null) {
+                return new Candidates(Collections.emptyList());
+            }
+            return new Candidates(Collections.singletonList(index.get(ancestorId)));
+        }
+        String key = getKey(ref.name);
+        if (key == null) {
+            return null;
+        }
+        // system properties have booleans where null means false, so only use strings
+        boolean stringsOnly = ref.name.startsWith(NXQL.ECM_PREFIX);
+        List<Object> values;
+        if (op == Operator.EQ) {
+            Object value = getLiteralValue(evaluator, rvalue, stringsOnly);
+            if (value == null) {
+                return null;
+            }
+            values = Collections.singletonList(value);
+        } else if (op == Operator.IN) {
+            if (!(rvalue instanceof LiteralList)) {
+                return null;
+            }
+            values = new ArrayList<>();
+            for (Literal literal : (LiteralList) rvalue) {
+                Object value = getLiteralValue(evaluator, literal, stringsOnly);
+                if (value == null) {
+                    return null;
+                }
+                values.add(value);
+            }
+        } else {
+            return planRange(evaluator, key, op, rvalue, stringsOnly);
+        }
+        if (KEY_ID.equals(key)) {
+            // no index needed
+            Set<String> ids = new HashSet<>();
+            values.forEach(v -> ids.add(v.toString()));
+            return new Candidates(Collections.singletonList(ids));
+        }
+        MemIndex index = indexes.get(key);
+        if (index == null) {
+            return null;
+        }
+        List<Set<String>> sets = new ArrayList<>(values.size());
+        for (Object value : values) {
+            sets.add(index.get(value));
+        }
+        return new Candidates(sets);
+    }
+
+    protected Candidates planRange(DBSExpressionEvaluator evaluator, String key, Operator op, Operand rvalue,
+            boolean stringsOnly) {
+        MemIndex index = indexes.get(key);
+        if (stringsOnly || index == null || !index.isSorted()) {
+            return null;
+        }
+        Object min = null;
+        Object max = null;
+        boolean minInclusive = false;
+        boolean maxInclusive = false;
+        if (op == Operator.BETWEEN) {
+            if (!(rvalue instanceof LiteralList) || ((LiteralList) rvalue).size() != 2) {
+                return null;
+            }
+            min = getRangeValue(evaluator, ((LiteralList) rvalue).get(0));
+            max = getRangeValue(evaluator, ((LiteralList) rvalue).get(1));
+            if (min == null || max == null) {
+                return null;
+            }
+            minInclusive = maxInclusive = true;
+        } else if (op == Operator.LT || op == Operator.LTEQ) {
+            max = getRangeValue(evaluator, rvalue);
+            if (max == null) {
+                return null;
+            }
+            maxInclusive = op == Operator.LTEQ;
+        } else if (op == Operator.GT || op == Operator.GTEQ) {
+            min = getRangeValue(evaluator, rvalue);
+            if (min == null) {
+                return null;
+            }
+            minInclusive = op == Operator.GTEQ;
+        } else {
+            return null;
+        }
+        return new Candidates(index.getRange(min, minInclusive, max, maxInclusive));
+    }
+
+    /**
+     * Gets the value of a literal for an equality lookup. Dates are not used as their equality depends on the calendar
+     * representation.
+     */
+    protected Object getLiteralValue(DBSExpressionEvaluator evaluator, Operand operand, boolean stringsOnly) {
+        if (operand instanceof StringLiteral) {
+            return ((StringLiteral) operand).value;
+        }
+        if (stringsOnly || !(operand instanceof Literal) || operand instanceof DateLiteral) {
+            return null;
+        }
+        return evaluator.walkLiteral((Literal) operand);
+    }
+
+    protected Object getRangeValue(DBSExpressionEvaluator evaluator, Operand operand) {
+        if (!(operand instanceof Literal)) {
+            return null;
+        }
+        Object value = evaluator.walkLiteral((Literal) operand);
+        return MemIndex.normalize(value);
+    }
+
+    /**
+     * Gets the document key for a reference, or {@code null} if it's not a simple key comparison in the evaluator.
+     */
+    protected String getKey(String name) {
+        if (!name.startsWith(NXQL.ECM_PREFIX)) {
+            return name;
+        }
+        switch (name) {
+        case NXQL.ECM_MIXINTYPE: // also matches the facets of the type
+        case NXQL.ECM_ISTRASHED: // also checks the lifecycle state
+            return null;
+        default:
+            try {
+                // ecm:ancestorId is a lookup of an element of the ancestors
+                return DBSSession.convToInternal(name);
+            } catch (QueryParseException | UnsupportedOperationException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Candidate documents, as a union of sets of ids.
+     */
+    protected static class Candidates {
+
+        protected final List<Set<String>> sets;
+
+        protected Candidates(List<Set<String>> sets) {
+            this.sets = sets;
+        }
+
+        /** The number of candidates, counting several times those present in several sets. */
+        protected long size() {
+            long size = 0;
+            for (Set<String> set : sets) {
+                size += set.size();
+            }
+            return size;
+        }
+
+        protected boolean contains(String id) {
+            for (Set<String> set : sets) {
+                if (set.contains(id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        protected Collection<String> ids() {
+            if (sets.size() == 1) {
+                return sets.get(0);
+            }
+            Set<String> ids = new LinkedHashSet<>();
+            sets.forEach(ids::addAll);
+            return ids;
+        }
+    }
+
+}
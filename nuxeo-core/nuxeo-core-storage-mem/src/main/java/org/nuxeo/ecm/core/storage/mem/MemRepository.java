@@ -27,6 +27,8 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_CREATED;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_OWNER;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PRIMARY_TYPE;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_READ_ACL;
 
 import java.io.Serializable;
 import java.lang.reflect.Array;
@@ -35,6 +37,8 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -45,6 +49,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.resource.spi.ConnectionManager;
 
@@ -71,6 +76,7 @@ import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSSession.OrderByComparator;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+import org.nuxeo.ecm.core.storage.mem.MemRepositoryDescriptor.MemIndexDescriptor;
 import org.nuxeo.runtime.api.Framework;
 
 /**
@@ -80,6 +86,9 @@ import org.nuxeo.runtime.api.Framework;
  * <p>
  * A document object is a JSON-like document stored as a Map recursively containing the data, see {@link DBSDocument}
  * for the description of the document.
+ * <p>
+ * Secondary indexes on some keys ({@link MemIndex}) are used to avoid scanning all the documents for child lookups
+ * and queries, see {@link MemQueryPlanner}.
  *
  * @since 5.9.4
  */
@@ -97,11 +106,36 @@ public class MemRepository extends DBSRepositoryBase {
      */
     protected Map<String, State> states;
 
+    /**
+     * The secondary indexes, a map of key -> index.
+     *
+     * @since 11.1
+     */
+    protected Map<String, MemIndex> indexes;
+
+    /** @since 11.1 */
+    protected MemQueryPlanner planner;
+
     public MemRepository(ConnectionManager cm, MemRepositoryDescriptor descriptor) {
         super(cm, descriptor.name, descriptor);
+        initIndexes(descriptor);
         initRepository();
     }
 
+    /** @since 11.1 */
+    protected void initIndexes(MemRepositoryDescriptor descriptor) {
+        indexes = new LinkedHashMap<>();
+        if (descriptor.isIndexesEnabled()) {
+            for (String key : Arrays.asList(KEY_PARENT_ID, KEY_ANCESTOR_IDS, KEY_PRIMARY_TYPE, KEY_READ_ACL)) {
+                indexes.put(key, new MemIndex(key, false));
+            }
+            for (MemIndexDescriptor index : descriptor.indexes) {
+                indexes.put(index.property, new MemIndex(index.property, index.sorted));
+            }
+        }
+        planner = new MemQueryPlanner(indexes);
+    }
+
     @Override
     public List<IdType> getAllowedIdTypes() {
         return Collections.singletonList(IdType.varchar);
@@ -115,6 +149,7 @@ public class MemRepository extends DBSRepositoryBase {
 
     protected void initRepository() {
         states = new ConcurrentHashMap<>();
+        indexes.values().forEach(MemIndex::clear);
         initRoot();
     }
 
@@ -176,7 +211,36 @@ public class MemRepository extends DBSRepositoryBase {
         }
         state = StateHelper.deepCopy(state, true); // thread-safe
         StateHelper.resetDeltas(state);
+        Map<MemIndex, Set<Object>> oldIndexValues = getIndexValues(new State());
         states.put(id, state);
+        updateIndexes(id, oldIndexValues, state);
+    }
+
+    /**
+     * Gets the index values of a document for each index, to be passed to {@link #updateIndexes} after a change.
+     *
+     * @since 11.1
+     */
+    protected Map<MemIndex, Set<Object>> getIndexValues(State state) {
+        if (indexes.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<MemIndex, Set<Object>> values = new HashMap<>();
+        for (MemIndex index : indexes.values()) {
+            values.put(index, index.getIndexValues(state.get(index.getKey())));
+        }
+        return values;
+    }
+
+    /**
+     * Updates the indexes for a document given its index values before the change and its new state.
+     *
+     * @since 11.1
+     */
+    protected void updateIndexes(String id, Map<MemIndex, Set<Object>> oldIndexValues, State state) {
+        for (MemIndex index : indexes.values()) {
+            index.update(id, oldIndexValues.get(index), index.getIndexValues(state.get(index.getKey())));
+        }
     }
 
     @Override
@@ -189,6 +253,7 @@ public class MemRepository extends DBSRepositoryBase {
             throw new ConcurrentUpdateException("Missing: " + id);
         }
         synchronized (state) {
+            Map<MemIndex, Set<Object>> oldIndexValues = getIndexValues(state);
             // synchronization needed for atomic change token
             if (changeTokenUpdater != null) {
                 for (Entry<String, Serializable> en : changeTokenUpdater.getConditions().entrySet()) {
@@ -201,6 +266,7 @@ public class MemRepository extends DBSRepositoryBase {
                 }
             }
             applyDiff(state, diff);
+            updateIndexes(id, oldIndexValues, state);
         }
     }
 
@@ -210,16 +276,20 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: REMOVE " + ids);
         }
         for (String id : ids) {
-            if (states.remove(id) == null) {
+            State state = states.remove(id);
+            if (state == null) {
                 log.debug("Missing on remove: " + id);
+                continue;
+            }
+            synchronized (state) {
+                updateIndexes(id, getIndexValues(state), new State());
             }
         }
     }
 
     @Override
     public State readChildState(String parentId, String name, Set<String> ignored) {
-        // TODO optimize by maintaining a parent/child index
-        for (State state : states.values()) {
+        for (State state : getStatesWithKeyValue(KEY_PARENT_ID, parentId)) {
             if (ignored.contains(state.get(KEY_ID))) {
                 continue;
             }
@@ -245,7 +315,7 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getStatesWithKeyValue(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -267,7 +337,9 @@ public class MemRepository extends DBSRepositoryBase {
             log.trace("Mem: QUERY " + key1 + " = " + value1 + " AND " + key2 + " = " + value2);
         }
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        Iterable<State> candidates = indexes.containsKey(key1) ? getStatesWithKeyValue(key1, value1)
+                : getStatesWithKeyValue(key2, value2);
+        for (State state : candidates) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -293,15 +365,60 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + KEY_ANCESTOR_IDS + " = " + rootId);
         }
-        Stream<State> stream = states.values() //
-                                     .stream()
-                                     .filter(state -> hasAncestor(state, rootId));
+        Stream<State> stream;
+        MemIndex index = indexes.get(KEY_ANCESTOR_IDS);
+        if (index == null) {
+            stream = states.values().stream();
+        } else {
+            stream = index.get(rootId).stream().map(states::get).filter(Objects::nonNull);
+        }
+        // recheck, the index is weakly consistent with concurrent updates
+        stream = stream.filter(state -> hasAncestor(state, rootId));
         if (limit != 0) {
             stream = stream.limit(limit);
         }
         return stream;
     }
 
+    /**
+     * Gets the documents that may have the given value for a key, using an index if there is one. The caller must
+     * check the value.
+     *
+     * @since 11.1
+     */
+    protected Iterable<State> getStatesWithKeyValue(String key, Object value) {
+        MemIndex index = indexes.get(key);
+        if (index == null) {
+            return states.values();
+        }
+        return getStates(index.get(value));
+    }
+
+    /**
+     * Gets the documents for the given ids, skipping the ones that don't exist anymore.
+     *
+     * @since 11.1
+     */
+    protected Iterable<State> getStates(Collection<String> ids) {
+        return () -> ids.stream().map(states::get).filter(Objects::nonNull).iterator();
+    }
+
+    /**
+     * Gets the documents on which a query must be evaluated, using the indexes when possible.
+     *
+     * @since 11.1
+     */
+    protected Iterable<State> getQueryCandidates(DBSExpressionEvaluator evaluator) {
+        Collection<String> ids = planner.getCandidates(evaluator, states.size());
+        if (ids == null) {
+            return states.values();
+        }
+        if (log.isTraceEnabled()) {
+            log.trace("Mem:    using indexes, " + ids.size() + " candidates");
+        }
+        return getStates(ids);
+    }
+
     protected static boolean hasAncestor(State state, String id) {
         Object[] array = (Object[]) state.get(KEY_ANCESTOR_IDS);
         return array == null ? false : Arrays.asList(array).contains(id);
@@ -312,7 +429,7 @@ public class MemRepository extends DBSRepositoryBase {
         if (log.isTraceEnabled()) {
             log.trace("Mem: QUERY " + key + " = " + value);
         }
-        for (State state : states.values()) {
+        for (State state : getStatesWithKeyValue(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -338,7 +455,7 @@ public class MemRepository extends DBSRepositoryBase {
         }
         evaluator.parse();
         List<Map<String, Serializable>> projections = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getQueryCandidates(evaluator)) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 if (distinctDocuments) {
@@ -382,6 +499,31 @@ public class MemRepository extends DBSRepositoryBase {
         return new PartialList<>(projections, totalSize);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The documents are evaluated lazily, but there is no index to read them in order: with an ORDER BY clause, all the
+     * matching projections are held in memory to be sorted.
+     */
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments) {
+        if (log.isTraceEnabled()) {
+            log.trace("Mem: QUERY STREAM " + evaluator);
+        }
+        evaluator.parse();
+        Stream<State> states = StreamSupport.stream(getQueryCandidates(evaluator).spliterator(), false);
+        Stream<Map<String, Serializable>> stream = states.map(evaluator::matches)
+                                                         .filter(matches -> !matches.isEmpty())
+                                                         .flatMap(matches -> distinctDocuments
+                                                                 ? Stream.of(matches.get(0))
+                                                                 : matches.stream());
+        if (orderByClause != null) {
+            stream = stream.sorted(new OrderByComparator(orderByClause));
+        }
+        return stream;
+    }
+
     @Override
     public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds) {
         if (log.isTraceEnabled()) {
@@ -389,7 +531,7 @@ public class MemRepository extends DBSRepositoryBase {
         }
         evaluator.parse();
         List<String> ids = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getQueryCandidates(evaluator)) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 String id = matches.get(0).get(ECM_UUID).toString();
@@ -539,8 +681,10 @@ public class MemRepository extends DBSRepositoryBase {
             Calendar created = (Calendar) state.get(KEY_LOCK_CREATED);
             return new Lock(owner, created);
         }
+        Map<MemIndex, Set<Object>> oldIndexValues = getIndexValues(state);
         state.put(KEY_LOCK_OWNER, lock.getOwner());
         state.put(KEY_LOCK_CREATED, lock.getCreated());
+        updateIndexes(id, oldIndexValues, state);
         return null;
     }
 
@@ -563,8 +707,10 @@ public class MemRepository extends DBSRepositoryBase {
             return new Lock(oldOwner, oldCreated, true);
         }
         // remove lock
+        Map<MemIndex, Set<Object>> oldIndexValues = getIndexValues(state);
         state.put(KEY_LOCK_OWNER, null);
         state.put(KEY_LOCK_CREATED, null);
+        updateIndexes(id, oldIndexValues, state);
         // return old lock
         return new Lock(oldOwner, oldCreated);
     }
@@ -18,6 +18,11 @@
  */
 package org.nuxeo.ecm.core.storage.mem;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.common.xmap.annotation.XObject;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryDescriptor;
 
@@ -29,16 +34,73 @@ import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryDescriptor;
 @XObject(value = "repository")
 public class MemRepositoryDescriptor extends DBSRepositoryDescriptor {
 
+    /**
+     * Secondary index on a top-level document key.
+     *
+     * @since 11.1
+     */
+    @XObject(value = "index")
+    public static class MemIndexDescriptor {
+
+        @XNode("@property")
+        public String property;
+
+        /** A sorted index can also be used for range queries. */
+        @XNode("@sorted")
+        public boolean sorted;
+
+        public MemIndexDescriptor() {
+        }
+
+        public MemIndexDescriptor(String property, boolean sorted) {
+            this.property = property;
+            this.sorted = sorted;
+        }
+    }
+
     public MemRepositoryDescriptor() {
     }
 
+    /** @since 11.1 */
+    @XNode("indexes@enabled")
+    private Boolean indexesEnabled;
+
+    /**
+     * Whether secondary indexes are maintained, including the built-in ones on the parent, ancestors, primary type and
+     * read ACL. Enabled by default.
+     *
+     * @since 11.1
+     */
+    public boolean isIndexesEnabled() {
+        return !Boolean.FALSE.equals(indexesEnabled);
+    }
+
+    /** @since 11.1 */
+    public void setIndexesEnabled(boolean enabled) {
+        indexesEnabled = Boolean.valueOf(enabled);
+    }
+
+    /**
+     * Additional secondary indexes.
+     *
+     * @since 11.1
+     */
+    @XNodeList(value = "indexes/index", type = ArrayList.class, componentType = MemIndexDescriptor.class)
+    public List<MemIndexDescriptor> indexes = new ArrayList<>();
+
     @Override
     public MemRepositoryDescriptor clone() {
-        return (MemRepositoryDescriptor) super.clone();
+        MemRepositoryDescriptor clone = (MemRepositoryDescriptor) super.clone();
+        clone.indexes = new ArrayList<>(indexes);
+        return clone;
     }
 
     public void merge(MemRepositoryDescriptor other) {
         super.merge(other);
+        if (other.indexesEnabled != null) {
+            indexesEnabled = other.indexesEnabled;
+        }
+        indexes.addAll(other.indexes);
     }
 
 }
@@ -0,0 +1,109 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class TestMemIndex {
+
+    protected static void index(MemIndex index, String id, Object oldValue, Object newValue) {
+        index.update(id, index.getIndexValues(oldValue), index.getIndexValues(newValue));
+    }
+
+    protected static Set<String> set(String... ids) {
+        Set<String> set = new HashSet<>();
+        Collections.addAll(set, ids);
+        return set;
+    }
+
+    protected static Set<String> union(List<Set<String>> sets) {
+        Set<String> set = new HashSet<>();
+        sets.forEach(set::addAll);
+        return set;
+    }
+
+    @Test
+    public void testHashIndex() {
+        MemIndex index = new MemIndex("ecm:parentId", false);
+        index(index, "1", null, "root");
+        index(index, "2", null, "root");
+        index(index, "3", null, "1");
+        assertEquals(set("1", "2"), index.get("root"));
+        assertEquals(set("3"), index.get("1"));
+        assertEquals(set(), index.get("2"));
+
+        // move
+        index(index, "2", "root", "1");
+        assertEquals(set("1"), index.get("root"));
+        assertEquals(set("2", "3"), index.get("1"));
+
+        // delete
+        index(index, "1", "root", null);
+        assertEquals(set(), index.get("root"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testArrayIndex() {
+        MemIndex index = new MemIndex("ecm:ancestorIds", false);
+        index(index, "2", null, new Object[] { "0", "1" });
+        index(index, "3", null, new Object[] { "0", "1", "2" });
+        assertEquals(set("2", "3"), index.get("1"));
+        assertEquals(set("3"), index.get("2"));
+
+        index(index, "3", new Object[] { "0", "1", "2" }, new Object[] { "0", "2" });
+        assertEquals(set("2"), index.get("1"));
+        assertEquals(set("2", "3"), index.get("0"));
+    }
+
+    @Test
+    public void testNormalizedValues() {
+        MemIndex index = new MemIndex("my:value", false);
+        index(index, "1", null, Boolean.TRUE);
+        index(index, "2", null, Double.valueOf(2));
+        index(index, "3", null, Long.valueOf(2));
+        assertEquals(set("1"), index.get(Long.valueOf(1)));
+        assertEquals(set("2", "3"), index.get(Long.valueOf(2)));
+        assertEquals(set("2", "3"), index.get(Double.valueOf(2)));
+    }
+
+    @Test
+    public void testSortedIndex() {
+        MemIndex index = new MemIndex("my:value", true);
+        for (int i = 0; i < 10; i++) {
+            index(index, "id" + i, null, Long.valueOf(i));
+        }
+        index(index, "half", null, Double.valueOf(2.5));
+        assertTrue(index.isSorted());
+        assertEquals(set("id2", "half", "id3", "id4"), union(index.getRange(2L, true, 4L, true)));
+        assertEquals(set("half", "id3"), union(index.getRange(2L, false, 4L, false)));
+        assertEquals(set("id8", "id9"), union(index.getRange(7.5, true, null, false)));
+        assertEquals(set("id0"), union(index.getRange(null, false, 1L, false)));
+        assertEquals(set("id2"), index.get(2L));
+    }
+
+}
@@ -607,6 +607,51 @@ public class MongoDBRepository extends DBSRepositoryBase {
         return new PartialList<>(projections, totalSize);
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments) {
+        MongoDBRepositoryQueryBuilder builder = new MongoDBRepositoryQueryBuilder(this, evaluator.getExpression(),
+                evaluator.getSelectClause(), orderByClause, evaluator.pathResolver, evaluator.fulltextSearchDisabled);
+        builder.walk();
+        if (builder.hasFulltext && isFulltextSearchDisabled()) {
+            throw new QueryParseException("Fulltext search disabled by configuration");
+        }
+        Document filter = builder.getQuery();
+        addPrincipals(filter, evaluator.principals);
+        Bson orderBy = builder.getOrderBy();
+        Bson keys = builder.getProjection();
+        boolean manualProjection = !distinctDocuments && builder.hasProjectionWildcard();
+        if (manualProjection) {
+            // the query is re-evaluated on the full state to get proper wildcard projections
+            keys = null;
+            evaluator.parse();
+        }
+
+        logQuery(filter, keys, orderBy, 0, 0);
+
+        boolean completedAbruptly = true;
+        MongoCursor<Document> cursor = coll.find(filter).projection(keys).sort(orderBy).iterator();
+        try {
+            DBSStateFlattener flattener = new DBSStateFlattener(builder.propertyKeys);
+            Stream<State> states = StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, 0), false) //
+                                                .onClose(cursor::close)
+                                                .map(converter::bsonToState);
+            Stream<Map<String, Serializable>> stream;
+            if (manualProjection) {
+                stream = states.flatMap(state -> evaluator.matches(state).stream());
+            } else {
+                stream = states.map(flattener::flatten);
+            }
+            // the stream takes responsibility for closing the cursor
+            completedAbruptly = false;
+            return stream;
+        } finally {
+            if (completedAbruptly) {
+                cursor.close();
+            }
+        }
+    }
+
     @SuppressWarnings("resource") // cursor is being registered, must not be closed
     @Override
     public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds) {
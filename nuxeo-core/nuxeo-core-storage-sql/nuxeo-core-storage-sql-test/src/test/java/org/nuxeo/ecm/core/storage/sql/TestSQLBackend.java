@@ -2720,6 +2720,38 @@ public class TestSQLBackend extends SQLBackendTestCase {
         assertEquals("Read", acls[0].permission);
     }
 
+    @Test
+    public void testBulkFetchSchemas() throws Exception {
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        // TestDoc3 only prefetches tst:subjects
+        Node node1 = session.addChildNode(root, "n1", null, "TestDoc3", false);
+        node1.setSimpleProperty("tst:title", "one");
+        node1.setCollectionProperty("tst:tags", new String[] { "foo" });
+        Node node2 = session.addChildNode(root, "n2", null, "TestDoc3", false);
+        node2.setSimpleProperty("tst:title", "two");
+        node2.setCollectionProperty("tst:tags", new String[] { "bar", "baz" });
+        session.save();
+        session.close();
+        session = repository.getConnection();
+
+        List<Node> nodes = session.getNodesByIds(Arrays.asList(node1.getId(), node2.getId()),
+                Collections.singleton("testschema"));
+        assertEquals(2, nodes.size());
+
+        // the schema fragments were fetched with the nodes
+        JDBCConnection jdbc = (JDBCConnection) JDBCMapperConnector.unwrap(
+                ((SoftRefCachingMapper) ((SessionImpl) session).getMapper()).mapper);
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        assertEquals("one", nodes.get(0).getSimpleProperty("tst:title").getString());
+        assertEquals(Arrays.asList("foo"), Arrays.asList(nodes.get(0).getCollectionProperty("tst:tags").getStrings()));
+        assertEquals("two", nodes.get(1).getSimpleProperty("tst:title").getString());
+        assertEquals(Arrays.asList("bar", "baz"),
+                Arrays.asList(nodes.get(1).getCollectionProperty("tst:tags").getStrings()));
+        assertEquals(0, jdbc.executeCount);
+    }
+
     @Test
     public void testBulkFetchProxies() throws Exception {
         assumeTrue(isProxiesEnabled());
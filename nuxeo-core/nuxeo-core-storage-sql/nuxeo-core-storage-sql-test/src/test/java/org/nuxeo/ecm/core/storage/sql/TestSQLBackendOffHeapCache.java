@@ -0,0 +1,195 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCConnection;
+import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCMapperConnector;
+import org.nuxeo.runtime.test.runner.Deploy;
+
+/**
+ * Runs repository tests with the shared off-heap row cache instead of the default per-session cache.
+ *
+ * @since 11.1
+ */
+@Deploy("org.nuxeo.ecm.core.storage.sql.test.tests:OSGI-INF/test-backend-core-types-contrib.xml")
+public class TestSQLBackendOffHeapCache extends SQLBackendTestCase {
+
+    protected static final String TABLE_NAME = "testschema";
+
+    @Override
+    protected RepositoryDescriptor newDescriptor(String name, long clusteringDelay) {
+        RepositoryDescriptor descriptor = super.newDescriptor(name, clusteringDelay);
+        descriptor.cachingMapperClass = OffHeapCachingMapper.class;
+        // small enough for eviction to happen in testEviction
+        descriptor.cachingMapperProperties.put(OffHeapCachingRowMapper.MAX_SIZE_PROP, "64KB");
+        descriptor.cachingMapperProperties.put(OffHeapCachingRowMapper.SEGMENTS_PROP, "4");
+        return descriptor;
+    }
+
+    protected OffHeapRowStore getStore() {
+        return OffHeapCachingRowMapper.getStore(repository.getName());
+    }
+
+    protected static JDBCConnection countExecutes(Session session) {
+        JDBCConnection jdbc = (JDBCConnection) JDBCMapperConnector.unwrap(
+                ((OffHeapCachingMapper) ((SessionImpl) session).getMapper()).mapper);
+        jdbc.countExecutes = true;
+        jdbc.executeCount = 0;
+        return jdbc;
+    }
+
+    protected Serializable createDoc(String name, String title) {
+        Session session = repository.getConnection();
+        Node node = session.addChildNode(session.getRootNode(), name, null, "TestDoc", false);
+        node.setSimpleProperty("tst:title", title);
+        session.save();
+        session.close();
+        return node.getId();
+    }
+
+    @Test
+    public void testCacheSharedBetweenSessions() throws Exception {
+        Serializable id = createDoc("foo", "the title");
+
+        // first read goes to the database and fills the cache
+        Session session1 = repository.getConnection();
+        assertEquals("the title", session1.getNodeById(id).getSimpleProperty("tst:title").getString());
+        session1.close();
+        assertNotNull(getStore().get(new RowId(TABLE_NAME, id)));
+
+        // another session reads from the cache
+        Session session2 = repository.getConnection();
+        JDBCConnection jdbc = countExecutes(session2);
+        assertEquals("the title", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+        assertEquals(0, jdbc.executeCount);
+
+        // same after the session context is cleared
+        ((SessionImpl) session2).context.pristine.clear();
+        assertEquals("the title", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+        assertEquals(0, jdbc.executeCount);
+        session2.close();
+    }
+
+    @Test
+    public void testReadAfterUpdate() throws Exception {
+        Serializable id = createDoc("foo", "old");
+        RowId rowId = new RowId(TABLE_NAME, id);
+
+        // two sessions see the initial value, now cached
+        Session session1 = repository.getConnection();
+        Session session2 = repository.getConnection();
+        Node node1 = session1.getNodeById(id);
+        assertEquals("old", node1.getSimpleProperty("tst:title").getString());
+        assertEquals("old", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+        assertNotNull(getStore().get(rowId));
+
+        // update not saved yet, only visible to the writing session
+        node1.setSimpleProperty("tst:title", "new");
+        assertEquals("new", session1.getNodeById(id).getSimpleProperty("tst:title").getString());
+        assertEquals("old", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+
+        // save invalidates the shared cache
+        session1.save();
+        assertNull(getStore().get(rowId));
+
+        // the other session sees the new value once it processes invalidations
+        session2.save();
+        assertEquals("new", session2.getNodeById(id).getSimpleProperty("tst:title").getString());
+        session1.close();
+        session2.close();
+
+        // a new session reads the new value, then caches it
+        Session session3 = repository.getConnection();
+        assertEquals("new", session3.getNodeById(id).getSimpleProperty("tst:title").getString());
+        assertNotNull(getStore().get(rowId));
+        ((SessionImpl) session3).context.pristine.clear();
+        JDBCConnection jdbc = countExecutes(session3);
+        assertEquals("new", session3.getNodeById(id).getSimpleProperty("tst:title").getString());
+        assertEquals(0, jdbc.executeCount);
+        session3.close();
+    }
+
+    @Test
+    public void testInvalidationAfterRemove() throws Exception {
+        Serializable id = createDoc("foo", "the title");
+
+        Session session1 = repository.getConnection();
+        Session session2 = repository.getConnection();
+        Node node1 = session1.getNodeById(id);
+        assertNotNull(session2.getNodeById(id));
+        assertNotNull(getStore().get(new RowId(Model.HIER_TABLE_NAME, id)));
+
+        session1.removeNode(node1);
+        session1.save();
+        assertNull(getStore().get(new RowId(Model.HIER_TABLE_NAME, id)));
+
+        session2.save();
+        assertNull(session2.getNodeById(id));
+        session1.close();
+        session2.close();
+
+        Session session3 = repository.getConnection();
+        assertNull(session3.getNodeById(id));
+        session3.close();
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        int n = 300;
+        Session session = repository.getConnection();
+        Node root = session.getRootNode();
+        List<Serializable> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Node node = session.addChildNode(root, "doc" + i, null, "TestDoc", false);
+            node.setSimpleProperty("tst:title", "title" + i);
+            ids.add(node.getId());
+        }
+        session.save();
+        session.close();
+
+        // reading all the documents overflows the cache
+        session = repository.getConnection();
+        for (int i = 0; i < n; i++) {
+            assertEquals("title" + i, session.getNodeById(ids.get(i)).getSimpleProperty("tst:title").getString());
+        }
+        session.close();
+        OffHeapRowStore store = getStore();
+        assertTrue(store.getEvictionCount() > 0);
+        assertTrue(store.size() < 2 * n);
+        assertTrue(store.getUsedBytes() <= store.getMaxBytes());
+
+        // evicted rows are read again from the database
+        session = repository.getConnection();
+        for (int i = 0; i < n; i++) {
+            assertEquals("title" + i, session.getNodeById(ids.get(i)).getSimpleProperty("tst:title").getString());
+        }
+        session.close();
+    }
+
+}
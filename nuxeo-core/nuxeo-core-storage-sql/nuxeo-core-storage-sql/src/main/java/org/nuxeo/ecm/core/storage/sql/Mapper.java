@@ -23,6 +23,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.transaction.xa.XAResource;
 
@@ -180,6 +181,23 @@ public interface Mapper extends RowMapper, XAResource {
     IterableQueryResult queryAndFetch(String query, String queryType, QueryFilter queryFilter,
             boolean distinctDocuments, Object... params);
 
+    /**
+     * Makes a query to the database and returns a stream of the results, read from a forward-only cursor so that only a
+     * bounded number of rows is held in memory.
+     *
+     * @param query the query
+     * @param queryType the query type
+     * @param queryFilter the query filter
+     * @param distinctDocuments if {@code true} then a maximum of one row per document will be returned
+     * @param params optional query-type-dependent parameters
+     * @return a stream, which <b>must</b> be closed when done
+     * @since 11.1
+     */
+    default Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, Object... params) {
+        return queryAndFetch(query, queryType, queryFilter, distinctDocuments, params).stream();
+    }
+
     /**
      * Makes a query to the database.
      *
@@ -1023,6 +1023,15 @@ public class Model {
         return docTypePrefetchedFragments.get(typeName);
     }
 
+    /**
+     * Gets the fragments (simple and collection) holding the properties of a schema, or {@code null} if unknown.
+     *
+     * @since 11.1
+     */
+    public Set<String> getSchemaFragments(String schemaName) {
+        return schemaFragments.get(schemaName);
+    }
+
     /**
      * Checks if we have a type (doctype or complex type).
      */
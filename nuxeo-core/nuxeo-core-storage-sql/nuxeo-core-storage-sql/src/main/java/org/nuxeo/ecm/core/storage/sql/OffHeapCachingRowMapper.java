@@ -0,0 +1,646 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.Xid;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.common.utils.SizeUtils;
+import org.nuxeo.ecm.core.storage.sql.ACLRow.ACLRowPositionComparator;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+
+/**
+ * A {@link RowMapper} that uses a cache shared by all the sessions of the repository, whose serialized rows are stored
+ * off-heap in an {@link OffHeapRowStore}.
+ * <p>
+ * The cache only holds {@link Row}s that are known to be identical to what's committed in the underlying
+ * {@link RowMapper}: rows written by a session are kept in the session until commit, and are then invalidated in the
+ * shared cache so that the next read fetches them again.
+ * <p>
+ * The following caching mapper properties are available:
+ * <ul>
+ * <li>{@value #MAX_SIZE_PROP}: the maximum off-heap size of the cache, {@value #DEFAULT_MAX_SIZE} by default,</li>
+ * <li>{@value #BLOCK_SIZE_PROP}: the allocation unit of the cache, in bytes,</li>
+ * <li>{@value #SEGMENTS_PROP}: the number of independently locked segments of the cache.</li>
+ * </ul>
+ *
+ * @since 11.1
+ */
+public class OffHeapCachingRowMapper implements RowMapper {
+
+    private static final Log log = LogFactory.getLog(OffHeapCachingRowMapper.class);
+
+    private static final String ABSENT = "__ABSENT__\0\0\0";
+
+    /** Serialized form of an absent row. */
+    private static final byte[] ABSENT_BYTES = new byte[0];
+
+    public static final String MAX_SIZE_PROP = "maxSize";
+
+    public static final String DEFAULT_MAX_SIZE = "256MB";
+
+    public static final String BLOCK_SIZE_PROP = "blockSize";
+
+    public static final String SEGMENTS_PROP = "segments";
+
+    /**
+     * The stores shared by the mappers of each repository, released when their last mapper is closed.
+     */
+    // used synchronized
+    protected static final Map<String, SharedStore> STORES = new HashMap<>();
+
+    protected static class SharedStore {
+
+        protected final OffHeapRowStore store;
+
+        protected int refCount;
+
+        protected SharedStore(OffHeapRowStore store) {
+            this.store = store;
+        }
+    }
+
+    private String repositoryName;
+
+    protected OffHeapRowStore store;
+
+    private Model model;
+
+    /**
+     * The {@link RowMapper} to which operations that cannot be processed from the cache are delegated.
+     */
+    private RowMapper rowMapper;
+
+    /**
+     * The local invalidations due to writes through this mapper that should be propagated to other sessions at
+     * post-commit time.
+     */
+    private final Invalidations localInvalidations;
+
+    /**
+     * The rows written through this mapper in the current transaction. They are not visible to other sessions so
+     * cannot go to the shared cache. The values are either a {@link Row} or a row with tableName {@link #ABSENT}.
+     */
+    protected final Map<RowId, Row> transactionRows = new HashMap<>();
+
+    /**
+     * The rows changed in the current transaction by operations whose result is unknown (copy), which must be read
+     * from the database and not cached until commit.
+     */
+    protected final Set<RowId> transactionDirty = new HashSet<>();
+
+    /**
+     * The queue of invalidations received from other session or from the cluster invalidator, to process at
+     * pre-transaction time.
+     */
+    // public for unit tests
+    public final InvalidationsQueue cacheQueue;
+
+    /**
+     * The propagator of invalidations to other mappers.
+     */
+    private InvalidationsPropagator cachePropagator;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected Counter cacheHitCount;
+
+    protected Counter cacheMissCount;
+
+    protected Timer cacheGetTimer;
+
+    // sor means system of record (database access)
+    protected Counter sorRows;
+
+    protected Timer sorGetTimer;
+
+    public OffHeapCachingRowMapper() {
+        localInvalidations = new Invalidations();
+        cacheQueue = new InvalidationsQueue("mapper-" + this);
+    }
+
+    public void initialize(String repositoryName, Model model, RowMapper rowMapper,
+            InvalidationsPropagator cachePropagator, Map<String, String> properties) {
+        this.repositoryName = repositoryName;
+        this.model = model;
+        this.rowMapper = rowMapper;
+        this.cachePropagator = cachePropagator;
+        cachePropagator.addQueue(cacheQueue);
+        store = acquireStore(repositoryName, properties);
+        setMetrics(repositoryName);
+    }
+
+    protected static OffHeapRowStore acquireStore(String repositoryName, Map<String, String> properties) {
+        synchronized (STORES) {
+            SharedStore shared = STORES.get(repositoryName);
+            if (shared == null) {
+                long maxSize = SizeUtils.parseSizeInBytes(properties.getOrDefault(MAX_SIZE_PROP, DEFAULT_MAX_SIZE));
+                int blockSize = getIntProperty(properties, BLOCK_SIZE_PROP, OffHeapRowStore.DEFAULT_BLOCK_SIZE);
+                int segments = getIntProperty(properties, SEGMENTS_PROP, OffHeapRowStore.DEFAULT_SEGMENTS);
+                log.info("Creating off-heap VCS cache for repository: " + repositoryName + ", maxSize: " + maxSize);
+                shared = new SharedStore(new OffHeapRowStore(maxSize, blockSize, segments));
+                STORES.put(repositoryName, shared);
+            }
+            shared.refCount++;
+            return shared.store;
+        }
+    }
+
+    protected static void releaseStore(String repositoryName) {
+        synchronized (STORES) {
+            SharedStore shared = STORES.get(repositoryName);
+            if (shared != null && --shared.refCount == 0) {
+                // the direct buffers are freed when the store is garbage collected
+                STORES.remove(repositoryName);
+            }
+        }
+    }
+
+    protected static OffHeapRowStore getStore(String repositoryName) {
+        synchronized (STORES) {
+            SharedStore shared = STORES.get(repositoryName);
+            return shared == null ? null : shared.store;
+        }
+    }
+
+    protected static int getIntProperty(Map<String, String> properties, String name, int defaultValue) {
+        String value = properties.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Invalid value for caching mapper property " + name + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    protected void setMetrics(String repositoryName) {
+        cacheHitCount = registry.counter(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
+                "off-heap", "hits"));
+        cacheMissCount = registry.counter(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
+                "off-heap", "misses"));
+        cacheGetTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches",
+                "off-heap", "get"));
+        sorRows = registry.counter(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "off-heap",
+                "sor", "rows"));
+        sorGetTimer = registry.timer(MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "off-heap",
+                "sor", "get"));
+        registerStoreGauge(repositoryName, "cache-size", OffHeapRowStore::size);
+        registerStoreGauge(repositoryName, "evictions", OffHeapRowStore::getEvictionCount);
+        registerStoreGauge(repositoryName, "used-bytes", OffHeapRowStore::getUsedBytes);
+        registerStoreGauge(repositoryName, "allocated-bytes", OffHeapRowStore::getAllocatedBytes);
+    }
+
+    protected void registerStoreGauge(String repositoryName, String name, ToLongFunction<OffHeapRowStore> function) {
+        String gaugeName = MetricRegistry.name("nuxeo", "repositories", repositoryName, "caches", "off-heap", name);
+        synchronized (STORES) {
+            if (!registry.getGauges().containsKey(gaugeName)) {
+                // the store is looked up each time as it's recreated after all the mappers have been closed
+                registry.register(gaugeName, (Gauge<Long>) () -> {
+                    OffHeapRowStore s = getStore(repositoryName);
+                    return s == null ? 0 : function.applyAsLong(s);
+                });
+            }
+        }
+    }
+
+    public void close() {
+        clearTransactionState();
+        cachePropagator.removeQueue(cacheQueue);
+        releaseStore(repositoryName);
+    }
+
+    @Override
+    public Serializable generateNewId() {
+        return rowMapper.generateNewId();
+    }
+
+    /*
+     * ----- Cache -----
+     */
+
+    protected static boolean isAbsent(Row row) {
+        return row.tableName == ABSENT; // == is ok
+    }
+
+    protected static Row newAbsent() {
+        return new Row(ABSENT, (Serializable) null);
+    }
+
+    protected boolean isTransactionRow(RowId rowId) {
+        return transactionRows.containsKey(rowId) || transactionDirty.contains(rowId);
+    }
+
+    /**
+     * Puts a row read from the database in the shared cache.
+     *
+     * @param versions the store versions taken before the database read
+     */
+    protected void cachePut(Row row, long[] versions) {
+        if (isTransactionRow(row)) {
+            // may be a non-committed value
+            return;
+        }
+        // for ACL collections, make sure the order is correct
+        // (without the cache, the query to get a list of collection does an
+        // ORDER BY pos, so users of the cache must get the same behavior)
+        if (row.isCollection() && row.values.length > 0 && row.values[0] instanceof ACLRow) {
+            row = row.clone();
+            row.values = sortACLRows((ACLRow[]) row.values);
+        }
+        store.put(row, SerializationUtils.serialize(row), versions);
+    }
+
+    protected ACLRow[] sortACLRows(ACLRow[] acls) {
+        List<ACLRow> list = new ArrayList<>(Arrays.asList(acls));
+        Collections.sort(list, ACLRowPositionComparator.INSTANCE);
+        ACLRow[] res = new ACLRow[acls.length];
+        return list.toArray(res);
+    }
+
+    protected void cachePutAbsent(RowId rowId, long[] versions) {
+        if (isTransactionRow(rowId)) {
+            return;
+        }
+        store.put(rowId, ABSENT_BYTES, versions);
+    }
+
+    protected void cachePutAbsentIfNull(RowId rowId, Row row, long[] versions) {
+        if (row != null) {
+            cachePut(row, versions);
+        } else {
+            cachePutAbsent(rowId, versions);
+        }
+    }
+
+    protected void cachePutAbsentIfRowId(RowId rowId, long[] versions) {
+        if (rowId instanceof Row) {
+            cachePut((Row) rowId, versions);
+        } else {
+            cachePutAbsent(rowId, versions);
+        }
+    }
+
+    /**
+     * Keeps a row written in the current transaction.
+     */
+    protected void transactionPut(Row row) {
+        transactionRows.put(new RowId(row), row.clone());
+    }
+
+    protected void transactionPutAbsent(RowId rowId) {
+        transactionRows.put(new RowId(rowId), newAbsent());
+    }
+
+    @SuppressWarnings("resource") // Time.Context closed by stop()
+    protected Row cacheGet(RowId rowId) {
+        Row row = transactionRows.get(rowId);
+        if (row != null) {
+            return isAbsent(row) ? row : row.clone();
+        }
+        if (transactionDirty.contains(rowId)) {
+            return null;
+        }
+        final Timer.Context context = cacheGetTimer.time();
+        try {
+            byte[] bytes = store.get(rowId);
+            if (bytes == null) {
+                cacheMissCount.inc();
+                return null;
+            }
+            cacheHitCount.inc();
+            if (bytes.length == 0) {
+                return newAbsent();
+            }
+            return SerializationUtils.deserialize(bytes);
+        } finally {
+            context.stop();
+        }
+    }
+
+    protected void clearTransactionState() {
+        transactionRows.clear();
+        transactionDirty.clear();
+        localInvalidations.clear();
+    }
+
+    protected void invalidateStore(Invalidations invalidations) {
+        if (invalidations.all) {
+            store.clear();
+            return;
+        }
+        if (invalidations.modified != null) {
+            for (RowId rowId : invalidations.modified) {
+                store.invalidate(rowId);
+            }
+        }
+        if (invalidations.deleted != null) {
+            for (RowId rowId : invalidations.deleted) {
+                store.invalidate(rowId);
+            }
+        }
+    }
+
+    /*
+     * ----- Invalidations / Cache Management -----
+     */
+
+    @Override
+    public Invalidations receiveInvalidations() {
+        // invalidations from the underlying mapper (cluster)
+        // already propagated to our invalidations queue
+        Invalidations remoteInvals = rowMapper.receiveInvalidations();
+
+        Invalidations invalidations = cacheQueue.getInvalidations();
+
+        // the cache is shared, only remote invalidations have to be applied to it,
+        // local ones were applied by the sending mapper
+        if (remoteInvals != null) {
+            invalidateStore(remoteInvals);
+        }
+        if (invalidations.all) {
+            clearCache();
+        }
+
+        return invalidations.isEmpty() ? null : invalidations;
+    }
+
+    // propagate invalidations
+    @Override
+    public void sendInvalidations(Invalidations invalidations) {
+        // add local invalidations
+        if (!localInvalidations.isEmpty()) {
+            if (invalidations == null) {
+                invalidations = new Invalidations();
+            }
+            invalidations.add(localInvalidations);
+            localInvalidations.clear();
+        }
+        // the transaction is committed, its rows must now be read from the database
+        transactionRows.clear();
+        transactionDirty.clear();
+
+        if (invalidations != null && !invalidations.isEmpty()) {
+            // invalidate the shared cache, including values cached by others since our writes
+            invalidateStore(invalidations);
+
+            // send to underlying mapper
+            rowMapper.sendInvalidations(invalidations);
+
+            // queue to other local mappers
+            cachePropagator.propagateInvalidations(invalidations, cacheQueue);
+        }
+    }
+
+    @Override
+    public void clearCache() {
+        store.clear();
+        clearTransactionState();
+        rowMapper.clearCache();
+    }
+
+    @Override
+    public long getCacheSize() {
+        // the shared cache is reported by the cache-size gauge
+        return 0;
+    }
+
+    @Override
+    public void rollback(Xid xid) throws XAException {
+        try {
+            rowMapper.rollback(xid);
+        } finally {
+            // the shared cache only holds committed rows
+            clearTransactionState();
+        }
+    }
+
+    /*
+     * ----- Batch -----
+     */
+
+    /*
+     * Use those from the cache if available, read from the mapper for the rest.
+     */
+    @Override
+    public List<? extends RowId> read(Collection<RowId> rowIds, boolean cacheOnly) {
+        List<RowId> res = new ArrayList<>(rowIds.size());
+        // find which are in cache, and which not
+        List<RowId> todo = new LinkedList<>();
+        for (RowId rowId : rowIds) {
+            Row row = cacheGet(rowId);
+            if (row == null) {
+                if (cacheOnly) {
+                    res.add(new RowId(rowId));
+                } else {
+                    todo.add(rowId);
+                }
+            } else if (isAbsent(row)) {
+                res.add(new RowId(rowId));
+            } else {
+                res.add(row);
+            }
+        }
+        if (!todo.isEmpty()) {
+            @SuppressWarnings("resource")
+            final Timer.Context context = sorGetTimer.time();
+            try {
+                long[] versions = store.getVersions();
+                // ask missing ones to underlying row mapper
+                List<? extends RowId> fetched = rowMapper.read(todo, cacheOnly);
+                // add them to the cache
+                for (RowId rowId : fetched) {
+                    cachePutAbsentIfRowId(rowId, versions);
+                }
+                // merge results
+                res.addAll(fetched);
+                sorRows.inc(fetched.size());
+            } finally {
+                context.stop();
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Keep in the transaction then pass all the writes to the mapper.
+     */
+    @Override
+    public void write(RowBatch batch) {
+        // we avoid gathering invalidations for a write-only table: fulltext
+        for (Row row : batch.creates) {
+            transactionPut(row);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(row.tableName)) {
+                // we need to send modified invalidations for created
+                // fragments because ABSENT fragments have to be invalidated
+                localInvalidations.addModified(new RowId(row));
+            }
+        }
+        for (RowUpdate rowu : batch.updates) {
+            transactionPut(rowu.row);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowu.row.tableName)) {
+                localInvalidations.addModified(new RowId(rowu.row));
+            }
+        }
+        for (RowId rowId : batch.deletes) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            transactionPutAbsent(rowId);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        for (RowId rowId : batch.deletesDependent) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            transactionPutAbsent(rowId);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+
+        // propagate to underlying mapper
+        rowMapper.write(batch);
+    }
+
+    /*
+     * ----- Read -----
+     */
+
+    @Override
+    public Row readSimpleRow(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long[] versions = store.getVersions();
+            row = rowMapper.readSimpleRow(rowId);
+            cachePutAbsentIfNull(rowId, row, versions);
+            return row;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row;
+        }
+    }
+
+    @Override
+    public Map<String, String> getBinaryFulltext(RowId rowId) {
+        return rowMapper.getBinaryFulltext(rowId);
+    }
+
+    @Override
+    public Serializable[] readCollectionRowArray(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long[] versions = store.getVersions();
+            Serializable[] array = rowMapper.readCollectionRowArray(rowId);
+            assert array != null;
+            row = new Row(rowId.tableName, rowId.id, array);
+            cachePut(row, versions);
+            return row.values;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row.values;
+        }
+    }
+
+    @Override
+    public List<Row> readSelectionRows(SelectionType selType, Serializable selId, Serializable filter,
+            Serializable criterion, boolean limitToOne) {
+        long[] versions = store.getVersions();
+        List<Row> rows = rowMapper.readSelectionRows(selType, selId, filter, criterion, limitToOne);
+        for (Row row : rows) {
+            cachePut(row, versions);
+        }
+        return rows;
+    }
+
+    @Override
+    public Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values) {
+        return rowMapper.readSelectionsIds(selType, values);
+    }
+
+    /*
+     * ----- Copy -----
+     */
+
+    @Override
+    public CopyResult copy(IdWithTypes source, Serializable destParentId, String destName, Row overwriteRow) {
+        CopyResult result = rowMapper.copy(source, destParentId, destName, overwriteRow);
+        Invalidations invalidations = result.invalidations;
+        if (invalidations.modified != null) {
+            for (RowId rowId : invalidations.modified) {
+                transactionRows.remove(rowId);
+                transactionDirty.add(new RowId(rowId));
+                localInvalidations.addModified(new RowId(rowId));
+            }
+        }
+        if (invalidations.deleted != null) {
+            for (RowId rowId : invalidations.deleted) {
+                transactionPutAbsent(rowId);
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<NodeInfo> getDescendantsInfo(Serializable rootId) {
+        return rowMapper.getDescendantsInfo(rootId);
+    }
+
+    @Override
+    public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
+        rowMapper.remove(rootId, nodeInfos);
+        for (NodeInfo info : nodeInfos) {
+            for (String fragmentName : model.getTypeFragments(new IdWithTypes(info.id, info.primaryType, null))) {
+                RowId rowId = new RowId(fragmentName, info.id);
+                transactionPutAbsent(rowId);
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded store of serialized values keyed by {@link RowId}, whose data is kept outside of the Java heap.
+ * <p>
+ * The memory is split into fixed-size blocks allocated lazily from direct {@link ByteBuffer} pages, a value occupying
+ * as many blocks as needed. Only the index (keys and block numbers) lives on the heap. When there are not enough free
+ * blocks to store a new value, the least recently used values are evicted.
+ * <p>
+ * The store is split into independently locked segments. Each segment has a version that is incremented by
+ * {@link #invalidate} and {@link #clear}, so that a value read from the database before an invalidation can be refused
+ * by {@link #put(RowId, byte[], long[])} instead of overwriting the invalidation with stale data.
+ *
+ * @since 11.1
+ */
+public class OffHeapRowStore {
+
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    /** Size of the direct buffers from which blocks are allocated. */
+    protected static final int PAGE_SIZE = 16 * 1024 * 1024;
+
+    protected final Segment[] segments;
+
+    protected final long maxBytes;
+
+    public OffHeapRowStore(long maxBytes) {
+        this(maxBytes, DEFAULT_BLOCK_SIZE, DEFAULT_SEGMENTS);
+    }
+
+    public OffHeapRowStore(long maxBytes, int blockSize, int segmentCount) {
+        if (blockSize <= 0 || segmentCount <= 0) {
+            throw new IllegalArgumentException("Invalid blockSize: " + blockSize + " or segments: " + segmentCount);
+        }
+        long blocksPerSegment = maxBytes / blockSize / segmentCount;
+        if (blocksPerSegment <= 0) {
+            throw new IllegalArgumentException("Size too small: " + maxBytes);
+        }
+        if (blocksPerSegment > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Size too large for " + segmentCount + " segments: " + maxBytes);
+        }
+        this.maxBytes = blocksPerSegment * blockSize * segmentCount;
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(blockSize, (int) blocksPerSegment);
+        }
+    }
+
+    protected int segmentIndex(RowId rowId) {
+        int h = rowId.hashCode();
+        h ^= h >>> 16;
+        return (h & Integer.MAX_VALUE) % segments.length;
+    }
+
+    protected Segment segment(RowId rowId) {
+        return segments[segmentIndex(rowId)];
+    }
+
+    /**
+     * Gets the value for the given key, or {@code null} if it is not in the store.
+     */
+    public byte[] get(RowId rowId) {
+        return segment(rowId).get(rowId);
+    }
+
+    /**
+     * Gets the current versions of all the segments, to be passed to {@link #put(RowId, byte[], long[])} once a value
+     * has been read from the database.
+     */
+    public long[] getVersions() {
+        long[] versions = new long[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            versions[i] = segments[i].getVersion();
+        }
+        return versions;
+    }
+
+    /**
+     * Puts a value in the store, unless its segment was invalidated since the given versions were taken.
+     *
+     * @param versions the versions returned by {@link #getVersions} before the value was read
+     * @return {@code true} if the value was stored
+     */
+    public boolean put(RowId rowId, byte[] bytes, long[] versions) {
+        int index = segmentIndex(rowId);
+        return segments[index].put(rowId, bytes, versions[index]);
+    }
+
+    /**
+     * Removes a value from the store, and prevents concurrent readers from putting back a value read before this
+     * invalidation.
+     */
+    public void invalidate(RowId rowId) {
+        segment(rowId).invalidate(rowId);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /** The number of values in the store. */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /** The number of off-heap bytes used by the values of the store. */
+    public long getUsedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.getUsedBytes();
+        }
+        return used;
+    }
+
+    /** The number of off-heap bytes currently allocated, which grows up to {@link #getMaxBytes}. */
+    public long getAllocatedBytes() {
+        long allocated = 0;
+        for (Segment segment : segments) {
+            allocated += segment.getAllocatedBytes();
+        }
+        return allocated;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** The number of values evicted to make room for new ones. */
+    public long getEvictionCount() {
+        long evictions = 0;
+        for (Segment segment : segments) {
+            evictions += segment.getEvictionCount();
+        }
+        return evictions;
+    }
+
+    protected static final class Entry {
+
+        protected final int length;
+
+        protected final int[] blocks;
+
+        protected Entry(int length, int[] blocks) {
+            this.length = length;
+            this.blocks = blocks;
+        }
+    }
+
+    /**
+     * A part of the store, with its own memory, index and lock.
+     */
+    protected static final class Segment {
+
+        protected final int blockSize;
+
+        protected final int blockCount;
+
+        protected final int blocksPerPage;
+
+        protected final ByteBuffer[] pages;
+
+        /** Stack of the free blocks that were already used once. */
+        protected final int[] freeBlocks;
+
+        protected int freeCount;
+
+        /** Blocks from this one onwards have never been used. */
+        protected int nextUnused;
+
+        /** Index in access order, the eldest entry is the least recently used. */
+        protected final LinkedHashMap<RowId, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+
+        protected long usedBytes;
+
+        protected long evictions;
+
+        protected volatile long version;
+
+        protected Segment(int blockSize, int blockCount) {
+            this.blockSize = blockSize;
+            this.blockCount = blockCount;
+            blocksPerPage = Math.max(1, PAGE_SIZE / blockSize);
+            pages = new ByteBuffer[(blockCount + blocksPerPage - 1) / blocksPerPage];
+            freeBlocks = new int[blockCount];
+        }
+
+        protected long getVersion() {
+            return version;
+        }
+
+        protected synchronized byte[] get(RowId rowId) {
+            Entry entry = index.get(rowId);
+            if (entry == null) {
+                return null;
+            }
+            byte[] bytes = new byte[entry.length];
+            int offset = 0;
+            for (int block : entry.blocks) {
+                int n = Math.min(blockSize, entry.length - offset);
+                ByteBuffer page = position(block);
+                page.get(bytes, offset, n);
+                offset += n;
+            }
+            return bytes;
+        }
+
+        protected synchronized boolean put(RowId rowId, byte[] bytes, long expectedVersion) {
+            if (version != expectedVersion) {
+                return false;
+            }
+            remove(rowId);
+            int needed = (bytes.length + blockSize - 1) / blockSize;
+            if (needed > blockCount) {
+                return false;
+            }
+            while (freeCount + blockCount - nextUnused < needed) {
+                Iterator<Map.Entry<RowId, Entry>> it = index.entrySet().iterator();
+                Entry eldest = it.next().getValue();
+                it.remove();
+                release(eldest);
+                evictions++;
+            }
+            int[] blocks = new int[needed];
+            int offset = 0;
+            for (int i = 0; i < needed; i++) {
+                int block = freeCount > 0 ? freeBlocks[--freeCount] : nextUnused++;
+                blocks[i] = block;
+                int n = Math.min(blockSize, bytes.length - offset);
+                ByteBuffer page = position(block);
+                page.put(bytes, offset, n);
+                offset += n;
+            }
+            index.put(new RowId(rowId), new Entry(bytes.length, blocks));
+            usedBytes += bytes.length;
+            return true;
+        }
+
+        protected synchronized void invalidate(RowId rowId) {
+            version++;
+            remove(rowId);
+        }
+
+        protected synchronized void clear() {
+            version++;
+            index.clear();
+            // keep the allocated pages, all blocks are free again
+            freeCount = 0;
+            nextUnused = 0;
+            usedBytes = 0;
+        }
+
+        protected synchronized int size() {
+            return index.size();
+        }
+
+        protected synchronized long getUsedBytes() {
+            return usedBytes;
+        }
+
+        protected synchronized long getAllocatedBytes() {
+            long allocated = 0;
+            for (ByteBuffer page : pages) {
+                if (page != null) {
+                    allocated += page.capacity();
+                }
+            }
+            return allocated;
+        }
+
+        protected synchronized long getEvictionCount() {
+            return evictions;
+        }
+
+        protected void remove(RowId rowId) {
+            Entry entry = index.remove(rowId);
+            if (entry != null) {
+                release(entry);
+            }
+        }
+
+        protected void release(Entry entry) {
+            for (int block : entry.blocks) {
+                freeBlocks[freeCount++] = block;
+            }
+            usedBytes -= entry.length;
+        }
+
+        /** Gets the page holding the block, positioned at the start of the block. */
+        protected ByteBuffer position(int block) {
+            int p = block / blocksPerPage;
+            ByteBuffer page = pages[p];
+            if (page == null) {
+                int blocks = Math.min(blocksPerPage, blockCount - p * blocksPerPage);
+                page = ByteBuffer.allocateDirect(blocks * blockSize);
+                pages[p] = page;
+            }
+            page.position((block % blocksPerPage) * blockSize);
+            return page;
+        }
+    }
+
+}
@@ -39,6 +39,7 @@ import javax.transaction.xa.Xid;
  * These are the operations that can benefit from a cache.
  *
  * @see SoftRefCachingRowMapper
+ * @see OffHeapCachingRowMapper
  */
 public interface RowMapper {
 
@@ -22,6 +22,8 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.resource.cci.Connection;
 
@@ -96,6 +98,18 @@ public interface Session extends Connection {
      */
     List<Node> getNodesByIds(Collection<Serializable> ids);
 
+    /**
+     * Gets several nodes given their ids, also fetching in bulk the fragments of the given schemas.
+     * <p>
+     * The fragments are read with one query per table for all the nodes, instead of on first access on each node.
+     *
+     * @param ids the ids
+     * @param schemas the schemas whose fragments will be read, in addition to the prefetched ones
+     * @return the nodes, in the same order as the ids, with elements being {@code null} if not found
+     * @since 11.1
+     */
+    List<Node> getNodesByIds(Collection<Serializable> ids, Set<String> schemas);
+
     /**
      * Gets a node given its absolute path, or given an existing node and a relative path.
      *
@@ -459,6 +473,20 @@ public interface Session extends Connection {
     IterableQueryResult queryAndFetch(String query, String queryType, QueryFilter queryFilter,
             boolean distinctDocuments, Object... params);
 
+    /**
+     * Makes a query to the database and returns a stream of the results, holding a bounded number of rows in memory.
+     *
+     * @param query the query
+     * @param queryType the query type
+     * @param queryFilter the query filter
+     * @param distinctDocuments if {@code true} then a maximum of one row per document will be returned
+     * @param params optional query-type-dependent parameters
+     * @return a stream, which <b>must</b> be closed when done
+     * @since 11.1
+     */
+    Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType, QueryFilter queryFilter,
+            boolean distinctDocuments, Object... params);
+
     /**
      * Makes a query to the database.
      *
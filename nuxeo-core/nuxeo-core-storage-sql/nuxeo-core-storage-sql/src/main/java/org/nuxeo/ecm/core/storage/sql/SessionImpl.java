@@ -33,6 +33,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.resource.ResourceException;
 import javax.resource.cci.ConnectionMetaData;
@@ -62,6 +63,7 @@ import org.nuxeo.ecm.core.schema.DocumentType;
 import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.storage.FulltextExtractorWork;
 import org.nuxeo.ecm.core.storage.sql.PersistenceContext.PathAndId;
+import org.nuxeo.ecm.core.storage.sql.RowMapper.IdWithTypes;
 import org.nuxeo.ecm.core.storage.sql.RowMapper.NodeInfo;
 import org.nuxeo.ecm.core.storage.sql.RowMapper.RowBatch;
 import org.nuxeo.ecm.core.work.api.Work;
@@ -469,6 +471,16 @@ public class SessionImpl implements Session, XAResource {
     }
 
     public List<Node> getNodesByIds(Collection<Serializable> ids, boolean prefetch) {
+        return getNodesByIds(ids, prefetch, null);
+    }
+
+    /**
+     * Gets nodes, prefetching in bulk the prefetched fragments of their types and the given additional fragments.
+     *
+     * @param fragmentNames additional fragments to fetch for the nodes having them, or {@code null}
+     * @since 11.1
+     */
+    protected List<Node> getNodesByIds(Collection<Serializable> ids, boolean prefetch, Set<String> fragmentNames) {
         // get hier fragments
         List<RowId> hierRowIds = new ArrayList<>(ids.size());
         for (Serializable id : ids) {
@@ -518,7 +530,7 @@ public class SessionImpl implements Session, XAResource {
 
             // get rows to prefetch for hier fragments
             for (Fragment fragment : hierFragments) {
-                findPrefetchedFragments((SimpleFragment) fragment, bulkRowIds, proxyIds);
+                findPrefetchedFragments((SimpleFragment) fragment, bulkRowIds, proxyIds, fragmentNames);
             }
 
             // proxies
@@ -543,7 +555,7 @@ public class SessionImpl implements Session, XAResource {
             }
             hierFragments = context.getMulti(hierRowIds, true);
             for (Fragment fragment : hierFragments) {
-                findPrefetchedFragments((SimpleFragment) fragment, bulkRowIds, null);
+                findPrefetchedFragments((SimpleFragment) fragment, bulkRowIds, null, fragmentNames);
             }
 
             // we have everything to be prefetched
@@ -577,6 +589,17 @@ public class SessionImpl implements Session, XAResource {
      */
     protected void findPrefetchedFragments(SimpleFragment hierFragment, List<RowId> bulkRowIds,
             Set<Serializable> proxyIds) {
+        findPrefetchedFragments(hierFragment, bulkRowIds, proxyIds, null);
+    }
+
+    /**
+     * Finds prefetched fragments for a hierarchy fragment, and the additional fragments it has among the given ones.
+     * Takes note of the ones that are proxies.
+     *
+     * @since 11.1
+     */
+    protected void findPrefetchedFragments(SimpleFragment hierFragment, List<RowId> bulkRowIds,
+            Set<Serializable> proxyIds, Set<String> fragmentNames) {
         Serializable id = hierFragment.row.id;
 
         // find type
@@ -593,6 +616,16 @@ public class SessionImpl implements Session, XAResource {
         if (tableNames == null) {
             return; // unknown (obsolete) type
         }
+        if (fragmentNames != null && !fragmentNames.isEmpty()) {
+            // only the additional fragments that this document has, including through its mixins
+            Set<String> typeFragments = model.getTypeFragments(new IdWithTypes(hierFragment));
+            tableNames = new HashSet<>(tableNames);
+            for (String fragmentName : fragmentNames) {
+                if (typeFragments.contains(fragmentName)) {
+                    tableNames.add(fragmentName);
+                }
+            }
+        }
 
         // add row id for each table name
         Serializable parentId = hierFragment.get(Model.HIER_PARENT_KEY);
@@ -614,6 +647,19 @@ public class SessionImpl implements Session, XAResource {
         return getNodesByIds(ids, true);
     }
 
+    @Override
+    public List<Node> getNodesByIds(Collection<Serializable> ids, Set<String> schemas) {
+        checkLive();
+        Set<String> fragmentNames = new HashSet<>();
+        for (String schema : schemas) {
+            Set<String> schemaFragments = model.getSchemaFragments(schema);
+            if (schemaFragments != null) {
+                fragmentNames.addAll(schemaFragments);
+            }
+        }
+        return getNodesByIds(ids, true, fragmentNames);
+    }
+
     @Override
     public Node getParentNode(Node node) {
         checkLive();
@@ -1200,6 +1246,27 @@ public class SessionImpl implements Session, XAResource {
         }
     }
 
+    @SuppressWarnings("resource") // Time.Context closed by stop()
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, Object... params) {
+        final Timer.Context timerContext = queryTimer.time();
+        try {
+            return mapper.queryAndFetchStream(query, queryType, queryFilter, distinctDocuments, params);
+        } finally {
+            long duration = timerContext.stop();
+            if ((LOG_MIN_DURATION_NS >= 0) && (duration > LOG_MIN_DURATION_NS)) {
+                String msg = String.format("duration_ms:\t%.2f\t%s\tqueryAndFetchStream\t%s",
+                        duration / 1000000.0, queryFilter, query);
+                if (log.isTraceEnabled()) {
+                    log.info(msg, new Throwable("Slow query stack trace"));
+                } else {
+                    log.info(msg);
+                }
+            }
+        }
+    }
+
     @SuppressWarnings("resource") // Time.Context closed by stop()
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, String queryType,
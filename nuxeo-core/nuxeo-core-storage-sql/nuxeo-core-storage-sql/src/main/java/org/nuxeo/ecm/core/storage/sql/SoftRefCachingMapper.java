@@ -23,6 +23,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
@@ -115,6 +116,12 @@ public class SoftRefCachingMapper extends SoftRefCachingRowMapper implements Cac
         return mapper.queryAndFetch(query, queryType, queryFilter, distinctDocuments, params);
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, Object... params) {
+        return mapper.queryAndFetchStream(query, queryType, queryFilter, distinctDocuments, params);
+    }
+
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, String queryType,
             QueryFilter queryFilter, boolean distinctDocuments, long countUpTo, Object... params) {
@@ -35,6 +35,7 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.resource.ResourceException;
 
@@ -190,6 +191,15 @@ public class SQLSession implements Session<QueryFilter> {
         return doc;
     }
 
+    @Override
+    public List<Document> getDocumentsByUUIDs(List<String> uuids, Collection<String> schemas) {
+        List<Serializable> ids = new ArrayList<>(uuids.size());
+        for (String uuid : uuids) {
+            ids.add(idFromString(uuid));
+        }
+        return getDocumentsById(ids, schemas == null ? null : new HashSet<>(schemas));
+    }
+
     @Override
     public Document resolvePath(String path) throws DocumentNotFoundException {
         if (path.endsWith("/") && path.length() > 1) {
@@ -441,6 +451,12 @@ public class SQLSession implements Session<QueryFilter> {
         return session.queryAndFetch(query, queryType, queryFilter, distinctDocuments, params);
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, Object[] params) {
+        return session.queryAndFetchStream(query, queryType, queryFilter, distinctDocuments, params);
+    }
+
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, String queryType,
             QueryFilter queryFilter, boolean distinctDocuments, long countUpTo, Object[] params) {
@@ -498,8 +514,18 @@ public class SQLSession implements Session<QueryFilter> {
 
     // called by SQLQueryResult iterator
     protected List<Document> getDocumentsById(List<Serializable> ids) {
+        return getDocumentsById(ids, null);
+    }
+
+    /**
+     * Gets documents, fetching in bulk the fragments of the given schemas.
+     *
+     * @param schemas the schemas whose fragments are fetched in addition to the prefetched ones, or {@code null}
+     * @since 11.1
+     */
+    protected List<Document> getDocumentsById(List<Serializable> ids, Set<String> schemas) {
         List<Document> docs = new ArrayList<>(ids.size());
-        List<Node> nodes = session.getNodesByIds(ids);
+        List<Node> nodes = schemas == null ? session.getNodesByIds(ids) : session.getNodesByIds(ids, schemas);
         for (int index = 0; index < ids.size(); ++index) {
             Node eachNode = nodes.get(index);
             if (eachNode == null) {
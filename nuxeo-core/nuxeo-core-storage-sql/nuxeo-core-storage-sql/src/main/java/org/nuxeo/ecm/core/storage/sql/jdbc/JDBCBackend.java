@@ -39,6 +39,7 @@ import org.nuxeo.ecm.core.storage.sql.RepositoryDescriptor;
 import org.nuxeo.ecm.core.storage.sql.RepositoryImpl;
 import org.nuxeo.ecm.core.storage.sql.Session.PathResolver;
 import org.nuxeo.ecm.core.storage.sql.jdbc.dialect.Dialect;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.datasource.ConnectionHelper;
 import org.nuxeo.runtime.datasource.DataSourceHelper;
 import org.nuxeo.runtime.datasource.PooledDataSourceRegistry.PooledDataSource;
@@ -103,7 +104,9 @@ public class JDBCBackend implements RepositoryBackend {
 
         // Model and SQLInfo
         model = new Model(modelSetup);
-        sqlInfo = new SQLInfo(model, dialect, repository.requiresClusterSQL);
+        int queryPlanCacheSize = Integer.parseInt(Framework.getProperty(QueryPlanCache.QUERY_PLAN_CACHE_SIZE_PROP,
+                String.valueOf(QueryPlanCache.DEFAULT_QUERY_PLAN_CACHE_SIZE)));
+        sqlInfo = new SQLInfo(model, dialect, repository.requiresClusterSQL, queryPlanCacheSize);
 
         // DDL mode
         String ddlMode = repositoryDescriptor.getDDLMode();
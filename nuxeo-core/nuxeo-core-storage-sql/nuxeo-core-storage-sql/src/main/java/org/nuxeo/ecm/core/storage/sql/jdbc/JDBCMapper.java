@@ -51,6 +51,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.XAResource;
@@ -115,6 +116,13 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
 
     public static final String TEST_UPGRADE_SYS_CHANGE_TOKEN = "testUpgradeSysChangeToken";
 
+    /**
+     * Number of rows fetched at a time by the forward-only cursors of {@link #queryAndFetchStream}.
+     *
+     * @since 11.1
+     */
+    public static final int QUERY_STREAM_FETCH_SIZE = 500;
+
     protected TableUpgrader tableUpgrader;
 
     private final QueryMakerService queryMakerService;
@@ -736,6 +744,31 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
         }
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, Object... params) {
+        if (dialect.needsPrepareUserReadAcls()) {
+            prepareUserReadAcls(queryFilter);
+        }
+        QueryMaker queryMaker = findQueryMaker(queryType);
+        if (queryMaker == null) {
+            throw new NuxeoException("No QueryMaker accepts query: " + queryType + ": " + query);
+        }
+        query = computeDistinctDocuments(query, distinctDocuments);
+        ResultSetQueryResult result;
+        try {
+            result = new ResultSetQueryResult(queryMaker, query, queryFilter, pathResolver, this,
+                    QUERY_STREAM_FETCH_SIZE, params);
+        } catch (SQLException e) {
+            throw new NuxeoException("Invalid query: " + queryType + ": " + query, e);
+        }
+        if (!result.mustBeClosed()) {
+            // no result
+            return Stream.empty();
+        }
+        return result.stream();
+    }
+
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, String queryType,
             QueryFilter queryFilter, boolean distinctDocuments, long countUpTo, Object... params) {
@@ -770,7 +803,9 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
         if (queryMaker == null) {
             throw new NuxeoException("No QueryMaker accepts query: " + queryType + ": " + query);
         }
-        QueryMaker.Query q = queryMaker.buildQuery(sqlInfo, model, pathResolver, query, queryFilter, params);
+        QueryPlanCache queryPlanCache = sqlInfo.getQueryPlanCache();
+        QueryMaker.Query q = queryPlanCache.buildQuery(queryMaker, sqlInfo, model, pathResolver, query, queryFilter,
+                params);
 
         if (q == null) {
             logger.log("Query cannot return anything due to conflicting clauses");
@@ -933,7 +968,8 @@ public class JDBCMapper extends JDBCRowMapper implements Mapper {
     @SuppressWarnings("resource") // PreparedStatement + ResultSet for cursor, must not be closed
     protected ScrollResult<String> scrollSearch(String query, QueryFilter queryFilter, int batchSize, int keepAliveSeconds) {
         QueryMaker queryMaker = findQueryMaker("NXQL");
-        QueryMaker.Query q = queryMaker.buildQuery(sqlInfo, model, pathResolver, query, queryFilter);
+        QueryPlanCache queryPlanCache = sqlInfo.getQueryPlanCache();
+        QueryMaker.Query q = queryPlanCache.buildQuery(queryMaker, sqlInfo, model, pathResolver, query, queryFilter);
         if (q == null) {
             logger.log("Query cannot return anything due to conflicting clauses");
             throw new NuxeoException("Query cannot return anything due to conflicting clauses");
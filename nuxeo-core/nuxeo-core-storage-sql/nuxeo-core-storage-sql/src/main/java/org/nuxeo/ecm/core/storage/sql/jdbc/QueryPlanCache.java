@@ -0,0 +1,350 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql.jdbc;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.nuxeo.ecm.core.api.NuxeoPrincipal;
+import org.nuxeo.ecm.core.api.impl.FacetFilter;
+import org.nuxeo.ecm.core.query.QueryFilter;
+import org.nuxeo.ecm.core.query.sql.NXQLQueryShape;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.storage.sql.ColumnType.WrappedId;
+import org.nuxeo.ecm.core.storage.sql.Model;
+import org.nuxeo.ecm.core.storage.sql.Session.PathResolver;
+import org.nuxeo.ecm.core.storage.sql.jdbc.SQLInfo.SQLInfoSelect;
+
+/**
+ * Cache of the SQL built for NXQL queries, keyed by the {@link NXQLQueryShape shape} of the query and the parts of the
+ * {@link QueryFilter} used to build it.
+ * <p>
+ * A plan holds the SQL, the select columns and the layout of the parameters, where each parameter is either a constant
+ * or the value of one of the string literals of the query. On a hit, the query is neither parsed nor analyzed, the
+ * parameters are just filled with the literals of the new query.
+ * <p>
+ * A query is only cached if its string literals are used as plain parameters: on a miss, the query is built a second
+ * time with unique values for its literals, and it must give the same SQL and the same parameters at the places of
+ * these values, each literal being a parameter. The properties whose literals change the structure of the SQL (paths,
+ * types, fulltext, ancestors) are never cached.
+ * <p>
+ * The cache is bounded and evicts the least recently used plans. It lives as long as the {@link SQLInfo}, so a new
+ * {@link Model} gets a new cache.
+ *
+ * @since 11.1
+ */
+public class QueryPlanCache {
+
+    /** The maximum number of plans, {@code 0} to disable the cache. */
+    public static final String QUERY_PLAN_CACHE_SIZE_PROP = "org.nuxeo.vcs.query.plan.cache.size";
+
+    public static final int DEFAULT_QUERY_PLAN_CACHE_SIZE = 1000;
+
+    /** Queries whose literals are used to build the SQL itself. */
+    protected static final Pattern NOT_CACHEABLE = Pattern.compile(
+            "ecm:path|ecm:primarytype|ecm:mixintype|ecm:fulltext|ecm:tag|ecm:ancestorid|\\bnow\\s*\\(",
+            Pattern.CASE_INSENSITIVE);
+
+    /** Marker of a plan that cannot be used, to avoid checking the same shape again. */
+    protected static final QueryPlan NOT_CACHEABLE_PLAN = new QueryPlan(null, null);
+
+    protected final int maxSize;
+
+    protected final Map<PlanKey, QueryPlan> plans;
+
+    // unique, so that a real literal cannot be taken for a placeholder
+    protected final String placeholderPrefix = "nxql-plan-" + UUID.randomUUID() + "-";
+
+    protected final AtomicLong hits = new AtomicLong();
+
+    protected final AtomicLong misses = new AtomicLong();
+
+    public QueryPlanCache(int maxSize) {
+        this.maxSize = maxSize;
+        plans = Collections.synchronizedMap(new LinkedHashMap<PlanKey, QueryPlan>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<PlanKey, QueryPlan> eldest) {
+                return size() > QueryPlanCache.this.maxSize;
+            }
+        });
+    }
+
+    /**
+     * Builds a query using the query maker, or from a cached plan.
+     *
+     * @see QueryMaker#buildQuery
+     */
+    public QueryMaker.Query buildQuery(QueryMaker queryMaker, SQLInfo sqlInfo, Model model,
+            PathResolver pathResolver, String query, QueryFilter queryFilter, Object... params) {
+        NXQLQueryShape shape = null;
+        if (maxSize > 0 && queryMaker.getClass() == NXQLQueryMaker.class && (params == null || params.length == 0)) {
+            shape = NXQLQueryShape.of(query);
+        }
+        if (shape == null || NOT_CACHEABLE.matcher(shape.getKey()).find()) {
+            return queryMaker.buildQuery(sqlInfo, model, pathResolver, query, queryFilter, params);
+        }
+        PlanKey key = new PlanKey(queryMaker.getClass(), shape.getKey(), queryFilter);
+        QueryPlan plan = plans.get(key);
+        if (plan != null) {
+            if (plan == NOT_CACHEABLE_PLAN) {
+                return queryMaker.buildQuery(sqlInfo, model, pathResolver, query, queryFilter, params);
+            }
+            hits.incrementAndGet();
+            return plan.newQuery(shape.getLiterals());
+        }
+        misses.incrementAndGet();
+        QueryMaker.Query q = queryMaker.buildQuery(sqlInfo, model, pathResolver, query, queryFilter, params);
+        plans.put(key, makePlan(shape, q, sqlInfo, model, pathResolver, queryFilter));
+        return q;
+    }
+
+    /**
+     * Makes the plan of a query by building it again with placeholders for its literals. The query is only built again
+     * if each of its literals is one of its parameters.
+     */
+    protected QueryPlan makePlan(NXQLQueryShape shape, QueryMaker.Query q, SQLInfo sqlInfo, Model model,
+            PathResolver pathResolver, QueryFilter queryFilter) {
+        if (q == null) {
+            return NOT_CACHEABLE_PLAN;
+        }
+        List<String> literals = shape.getLiterals();
+        if (literals.isEmpty()) {
+            return new QueryPlan(q.selectInfo, new ArrayList<>(q.selectParams));
+        }
+        for (String literal : literals) {
+            if (q.selectParams.stream().noneMatch(param -> isLiteralParam(param, literal))) {
+                // the literal is not bound, it was used to build the SQL itself
+                return NOT_CACHEABLE_PLAN;
+            }
+        }
+        int n = literals.size();
+        List<String> placeholders = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            placeholders.add(placeholderPrefix + i);
+        }
+        QueryMaker.Query pq;
+        try {
+            // query makers are not reusable
+            QueryMaker queryMaker = new NXQLQueryMaker();
+            pq = queryMaker.buildQuery(sqlInfo, model, pathResolver, shape.withLiterals(placeholders), queryFilter);
+        } catch (RuntimeException e) {
+            // the literals are not plain values
+            return NOT_CACHEABLE_PLAN;
+        }
+        if (pq == null || !pq.selectInfo.sql.equals(q.selectInfo.sql)
+                || pq.selectParams.size() != q.selectParams.size()) {
+            return NOT_CACHEABLE_PLAN;
+        }
+        List<Serializable> params = new ArrayList<>(pq.selectParams);
+        List<Serializable> actualParams = new ArrayList<>(q.selectParams);
+        List<Object> template = new ArrayList<>(params.size());
+        boolean[] bound = new boolean[n];
+        for (int i = 0; i < params.size(); i++) {
+            Serializable param = params.get(i);
+            Serializable actual = actualParams.get(i);
+            Object slot = param;
+            if (param instanceof String && ((String) param).startsWith(placeholderPrefix)) {
+                slot = new LiteralSlot(placeholders.indexOf(param), false);
+            } else if (param instanceof WrappedId && ((WrappedId) param).string.startsWith(placeholderPrefix)) {
+                slot = new LiteralSlot(placeholders.indexOf(((WrappedId) param).string), true);
+            }
+            if (slot instanceof LiteralSlot) {
+                LiteralSlot literalSlot = (LiteralSlot) slot;
+                if (literalSlot.index < 0 || !paramEquals(literalSlot.getParam(literals), actual)) {
+                    return NOT_CACHEABLE_PLAN;
+                }
+                bound[literalSlot.index] = true;
+            } else if (!paramEquals(param, actual)) {
+                return NOT_CACHEABLE_PLAN;
+            }
+            template.add(slot);
+        }
+        for (boolean b : bound) {
+            if (!b) {
+                // a literal with no slot would be ignored by the plan
+                return NOT_CACHEABLE_PLAN;
+            }
+        }
+        return new QueryPlan(q.selectInfo, template);
+    }
+
+    protected static boolean isLiteralParam(Serializable param, String literal) {
+        if (param instanceof WrappedId) {
+            return literal.equals(((WrappedId) param).string);
+        }
+        return literal.equals(param);
+    }
+
+    protected static boolean paramEquals(Serializable a, Serializable b) {
+        if (a instanceof WrappedId && b instanceof WrappedId) {
+            return ((WrappedId) a).string.equals(((WrappedId) b).string);
+        }
+        return Objects.deepEquals(a, b);
+    }
+
+    /**
+     * Clears the cache.
+     */
+    public void clear() {
+        plans.clear();
+    }
+
+    public int size() {
+        return plans.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The place of a literal of the query in the parameters.
+     */
+    protected static class LiteralSlot {
+
+        protected final int index;
+
+        protected final boolean wrappedId;
+
+        protected LiteralSlot(int index, boolean wrappedId) {
+            this.index = index;
+            this.wrappedId = wrappedId;
+        }
+
+        protected Serializable getParam(List<String> literals) {
+            String literal = literals.get(index);
+            return wrappedId ? new WrappedId(literal) : literal;
+        }
+    }
+
+    /**
+     * The SQL and parameters layout of a query.
+     */
+    protected static class QueryPlan {
+
+        protected final SQLInfoSelect selectInfo;
+
+        /** Constant parameters, or {@link LiteralSlot}s. */
+        protected final List<Object> paramTemplate;
+
+        protected QueryPlan(SQLInfoSelect selectInfo, List<Object> paramTemplate) {
+            this.selectInfo = selectInfo;
+            this.paramTemplate = paramTemplate;
+        }
+
+        protected QueryMaker.Query newQuery(List<String> literals) {
+            QueryMaker.Query q = new QueryMaker.Query();
+            q.selectInfo = selectInfo;
+            for (Object param : paramTemplate) {
+                if (param instanceof LiteralSlot) {
+                    q.selectParams.add(((LiteralSlot) param).getParam(literals));
+                } else {
+                    q.selectParams.add((Serializable) param);
+                }
+            }
+            return q;
+        }
+    }
+
+    /**
+     * The key of a plan: the query shape and what the query maker uses from the query filter. The limit and offset
+     * are applied after the query is built.
+     */
+    protected static class PlanKey {
+
+        protected final Class<?> queryMakerClass;
+
+        protected final String shape;
+
+        protected final String principalName;
+
+        protected final boolean administrator;
+
+        protected final List<String> principals;
+
+        protected final List<String> permissions;
+
+        protected final Set<String> requiredFacets;
+
+        protected final Set<String> excludedFacets;
+
+        protected final List<Class<?>> transformers;
+
+        protected final int hashCode;
+
+        protected PlanKey(Class<?> queryMakerClass, String shape, QueryFilter queryFilter) {
+            this.queryMakerClass = queryMakerClass;
+            this.shape = shape;
+            NuxeoPrincipal principal = queryFilter.getPrincipal();
+            principalName = principal == null ? null : principal.getName();
+            administrator = principal != null && principal.isAdministrator();
+            principals = queryFilter.getPrincipals() == null ? null : Arrays.asList(queryFilter.getPrincipals());
+            permissions = queryFilter.getPermissions() == null ? null : Arrays.asList(queryFilter.getPermissions());
+            FacetFilter facetFilter = queryFilter.getFacetFilter();
+            requiredFacets = facetFilter == null ? null : facetFilter.required;
+            excludedFacets = facetFilter == null ? null : facetFilter.excluded;
+            transformers = new ArrayList<>();
+            for (SQLQuery.Transformer transformer : queryFilter.getQueryTransformers()) {
+                transformers.add(transformer.getClass());
+            }
+            hashCode = Objects.hash(queryMakerClass, shape, principalName, Boolean.valueOf(administrator), principals,
+                    permissions, requiredFacets, excludedFacets, transformers);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof PlanKey)) {
+                return false;
+            }
+            PlanKey other = (PlanKey) obj;
+            return queryMakerClass == other.queryMakerClass && shape.equals(other.shape)
+                    && Objects.equals(principalName, other.principalName) && administrator == other.administrator
+                    && Objects.equals(principals, other.principals) && Objects.equals(permissions, other.permissions)
+                    && Objects.equals(requiredFacets, other.requiredFacets)
+                    && Objects.equals(excludedFacets, other.excludedFacets)
+                    && transformers.equals(other.transformers);
+        }
+    }
+
+}
@@ -32,6 +32,9 @@ import org.nuxeo.ecm.core.storage.sql.Session.PathResolver;
 
 /**
  * Iterable query result implemented as a cursor on a SQL {@link ResultSet}.
+ * <p>
+ * When constructed with a fetch size, the cursor is forward-only and only holds this number of rows in memory, but
+ * {@link #size} is unknown and {@link #skipTo} cannot be used.
  */
 public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<String, Serializable>> {
 
@@ -51,10 +54,24 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
 
     private final JDBCLogger logger;
 
+    private final boolean forwardOnly;
+
     public ResultSetQueryResult(QueryMaker queryMaker, String query, QueryFilter queryFilter, PathResolver pathResolver,
             JDBCMapper mapper, Object... params) throws SQLException {
+        this(queryMaker, query, queryFilter, pathResolver, mapper, 0, params);
+    }
+
+    /**
+     * @param fetchSize if greater than {@code 0}, the number of rows fetched at a time by a forward-only cursor
+     * @since 11.1
+     */
+    public ResultSetQueryResult(QueryMaker queryMaker, String query, QueryFilter queryFilter, PathResolver pathResolver,
+            JDBCMapper mapper, int fetchSize, Object... params) throws SQLException {
         logger = mapper.logger;
-        q = queryMaker.buildQuery(mapper.sqlInfo, mapper.model, pathResolver, query, queryFilter, params);
+        forwardOnly = fetchSize > 0;
+        QueryPlanCache queryPlanCache = mapper.sqlInfo.getQueryPlanCache();
+        q = queryPlanCache.buildQuery(queryMaker, mapper.sqlInfo, mapper.model, pathResolver, query, queryFilter,
+                params);
         if (q == null) {
             // no result
             size = 0;
@@ -68,8 +85,14 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
         if (logger.isLogEnabled()) {
             logger.logSQL(q.selectInfo.sql, q.selectParams);
         }
-        ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
-                ResultSet.CONCUR_READ_ONLY);
+        if (forwardOnly) {
+            ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+        } else {
+            ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
+                    ResultSet.CONCUR_READ_ONLY);
+        }
         int i = 1;
         for (Serializable object : q.selectParams) {
             mapper.setToPreparedStatement(ps, i++, object);
@@ -136,7 +159,7 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
 
     @Override
     public long size() {
-        if (size != -1) {
+        if (size != -1 || forwardOnly) {
             return size;
         }
         checkNotClosed();
@@ -169,6 +192,9 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
     @Override
     public void skipTo(long pos) {
         checkNotClosed();
+        if (forwardOnly) {
+            throw new UnsupportedOperationException("Cannot skip in a forward-only query result");
+        }
         try {
             boolean available = rs.absolute((int) pos + 1);
             if (available) {
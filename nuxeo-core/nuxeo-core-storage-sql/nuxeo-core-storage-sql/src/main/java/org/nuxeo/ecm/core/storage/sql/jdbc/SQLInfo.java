@@ -132,6 +132,9 @@ public class SQLInfo {
 
     protected List<Column> getBinariesColumns;
 
+    /** @since 11.1 */
+    protected final QueryPlanCache queryPlanCache;
+
     /**
      * Generates and holds the needed SQL statements given a {@link Model} and a {@link Dialect}.
      *
@@ -139,6 +142,18 @@ public class SQLInfo {
      * @param dialect the SQL dialect
      */
     public SQLInfo(Model model, Dialect dialect, boolean requiresClusterSQL) {
+        this(model, dialect, requiresClusterSQL, QueryPlanCache.DEFAULT_QUERY_PLAN_CACHE_SIZE);
+    }
+
+    /**
+     * Generates and holds the needed SQL statements given a {@link Model} and a {@link Dialect}.
+     *
+     * @param model the model
+     * @param dialect the SQL dialect
+     * @param queryPlanCacheSize the maximum number of cached NXQL query plans
+     * @since 11.1
+     */
+    public SQLInfo(Model model, Dialect dialect, boolean requiresClusterSQL, int queryPlanCacheSize) {
         this.model = model;
         this.dialect = dialect;
         RepositoryDescriptor repositoryDescriptor = model.getRepositoryDescriptor();
@@ -169,6 +184,8 @@ public class SQLInfo {
         getBinariesSql = new ArrayList<>(1);
         getBinariesColumns = new ArrayList<>(1);
 
+        queryPlanCache = new QueryPlanCache(queryPlanCacheSize);
+
         initSQL(requiresClusterSQL);
         initSelections();
 
@@ -183,6 +200,11 @@ public class SQLInfo {
         return database;
     }
 
+    /** @since 11.1 */
+    public QueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
     // ----- select -----
 
     public String getSelectRootIdSql() {
@@ -24,6 +24,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.resource.ResourceException;
 import javax.resource.cci.ConnectionFactory;
@@ -189,6 +190,11 @@ public class ConnectionImpl implements Session {
         return getSession().getNodesByIds(ids);
     }
 
+    @Override
+    public List<Node> getNodesByIds(Collection<Serializable> ids, Set<String> schemas) {
+        return getSession().getNodesByIds(ids, schemas);
+    }
+
     @Override
     public Node getNodeByPath(String path, Node node) {
         return getSession().getNodeByPath(path, node);
@@ -362,6 +368,12 @@ public class ConnectionImpl implements Session {
         return result;
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, Object... params) {
+        return getSession().queryAndFetchStream(query, queryType, queryFilter, distinctDocuments, params);
+    }
+
     @Override
     public PartialList<Map<String,Serializable>> queryProjection(String query, String queryType, QueryFilter queryFilter,
             boolean distinctDocuments, long countUpTo, Object... params) {
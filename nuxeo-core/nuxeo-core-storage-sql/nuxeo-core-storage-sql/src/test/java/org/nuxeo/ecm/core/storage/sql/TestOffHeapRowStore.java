@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestOffHeapRowStore {
+
+    protected static byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i + seed);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testPutGet() {
+        OffHeapRowStore store = new OffHeapRowStore(64 * 1024, 64, 1);
+        RowId small = new RowId("hierarchy", "1");
+        RowId large = new RowId("dublincore", "1");
+        RowId empty = new RowId("misc", "1");
+        assertTrue(store.put(small, bytes(10, 1), store.getVersions()));
+        // spans several blocks
+        assertTrue(store.put(large, bytes(1000, 2), store.getVersions()));
+        assertTrue(store.put(empty, new byte[0], store.getVersions()));
+        assertArrayEquals(bytes(10, 1), store.get(small));
+        assertArrayEquals(bytes(1000, 2), store.get(large));
+        assertArrayEquals(new byte[0], store.get(empty));
+        assertNull(store.get(new RowId("hierarchy", "2")));
+        assertEquals(3, store.size());
+        assertEquals(1010, store.getUsedBytes());
+
+        // replace
+        assertTrue(store.put(large, bytes(100, 3), store.getVersions()));
+        assertArrayEquals(bytes(100, 3), store.get(large));
+        assertEquals(110, store.getUsedBytes());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        // 16 blocks of 64 bytes
+        OffHeapRowStore store = new OffHeapRowStore(1024, 64, 1);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(store.put(new RowId("t", String.valueOf(i)), bytes(256, i), store.getVersions()));
+        }
+        assertEquals(0, store.getEvictionCount());
+        // access 0, so that 1 is the least recently used
+        assertNotNull(store.get(new RowId("t", "0")));
+        assertTrue(store.put(new RowId("t", "4"), bytes(100, 4), store.getVersions()));
+        assertEquals(1, store.getEvictionCount());
+        assertNull(store.get(new RowId("t", "1")));
+        assertArrayEquals(bytes(256, 0), store.get(new RowId("t", "0")));
+        assertArrayEquals(bytes(256, 2), store.get(new RowId("t", "2")));
+        assertArrayEquals(bytes(100, 4), store.get(new RowId("t", "4")));
+
+        // larger than the whole store
+        assertFalse(store.put(new RowId("t", "5"), bytes(2000, 5), store.getVersions()));
+        assertNull(store.get(new RowId("t", "5")));
+    }
+
+    @Test
+    public void testInvalidate() {
+        OffHeapRowStore store = new OffHeapRowStore(1024, 64, 2);
+        RowId rowId = new RowId("t", "1");
+        assertTrue(store.put(rowId, bytes(10, 1), store.getVersions()));
+        store.invalidate(rowId);
+        assertNull(store.get(rowId));
+
+        // a value read before an invalidation is refused
+        long[] versions = store.getVersions();
+        store.invalidate(rowId);
+        assertFalse(store.put(rowId, bytes(10, 2), versions));
+        assertNull(store.get(rowId));
+
+        versions = store.getVersions();
+        store.clear();
+        assertFalse(store.put(rowId, bytes(10, 3), versions));
+        assertTrue(store.put(rowId, bytes(10, 4), store.getVersions()));
+        assertArrayEquals(bytes(10, 4), store.get(rowId));
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.getUsedBytes());
+    }
+
+}
@@ -19,6 +19,8 @@
  */
 package org.nuxeo.ecm.core.storage;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -48,6 +50,8 @@ import org.nuxeo.ecm.core.repository.RepositoryService;
 import org.nuxeo.ecm.core.utils.BlobsExtractor;
 import org.nuxeo.ecm.core.utils.StringsExtractor;
 import org.nuxeo.ecm.core.work.AbstractWork;
+import org.nuxeo.ecm.core.work.CompactWork;
+import org.nuxeo.ecm.core.work.WorkCodec;
 import org.nuxeo.runtime.api.Framework;
 
 import net.htmlparser.jericho.Source;
@@ -59,7 +63,7 @@ import net.htmlparser.jericho.Source;
  * @since 5.7 for the original implementation
  * @since 10.3 the extraction and update are done in the same Work
  */
-public class FulltextExtractorWork extends AbstractWork {
+public class FulltextExtractorWork extends AbstractWork implements CompactWork {
 
     private static final long serialVersionUID = 1L;
 
@@ -90,12 +94,20 @@ public class FulltextExtractorWork extends AbstractWork {
     protected transient List<DocumentRef> docsToUpdate;
 
     /** If true, update the simple text from the document. */
-    protected final boolean updateSimpleText;
+    protected boolean updateSimpleText;
 
     /** If true, update the binary text from the document. */
-    protected final boolean updateBinaryText;
+    protected boolean updateBinaryText;
 
-    protected final boolean useJobId;
+    protected boolean useJobId;
+
+    /**
+     * Constructor used by the {@link WorkCodec}.
+     *
+     * @since 11.1
+     */
+    protected FulltextExtractorWork() {
+    }
 
     public FulltextExtractorWork(String repositoryName, String docId, boolean updateSimpleText,
             boolean updateBinaryText, boolean useJobId) {
@@ -106,6 +118,22 @@ public class FulltextExtractorWork extends AbstractWork {
         this.useJobId = useJobId;
     }
 
+    @Override
+    public void writeFields(DataOutput out) throws IOException {
+        super.writeFields(out);
+        out.writeBoolean(updateSimpleText);
+        out.writeBoolean(updateBinaryText);
+        out.writeBoolean(useJobId);
+    }
+
+    @Override
+    public void readFields(DataInput in, int version) throws IOException {
+        super.readFields(in, version);
+        updateSimpleText = in.readBoolean();
+        updateBinaryText = in.readBoolean();
+        useJobId = in.readBoolean();
+    }
+
     @Override
     public String getCategory() {
         return CATEGORY;
@@ -0,0 +1,190 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CloseableCoreSession;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.PathRef;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.api.security.impl.ACLImpl;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * Checks that the queries planned using the indexes of a Mem repository return the same documents as a full scan.
+ *
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@Deploy("org.nuxeo.ecm.core.test.tests:OSGI-INF/testquery-core-types-contrib.xml")
+@Deploy("org.nuxeo.ecm.core.test.tests:OSGI-INF/test-mem-query-planner-contrib.xml")
+public class TestMemRepositoryQueryPlanner {
+
+    /** Repository with indexes on dc:title and my:integer (sorted). */
+    protected static final String INDEXED = "memIndexed";
+
+    /** Repository without any index. */
+    protected static final String SCAN = "memScan";
+
+    protected static final int DOCS = 40;
+
+    protected static final List<String> QUERIES = List.of( //
+            // equality
+            "SELECT * FROM MyDocType WHERE dc:title = 'title1'",
+            "SELECT * FROM Document WHERE my:integer = 7",
+            // IN
+            "SELECT * FROM MyDocType WHERE dc:title IN ('title1', 'title3')",
+            "SELECT * FROM Document WHERE my:integer IN (2, 12, 22, 1000)",
+            // range
+            "SELECT * FROM MyDocType WHERE my:integer BETWEEN 5 AND 15",
+            "SELECT * FROM MyDocType WHERE my:integer > 30",
+            "SELECT * FROM MyDocType WHERE my:integer <= 3",
+            "SELECT * FROM MyDocType WHERE my:integer >= 10 AND my:integer < 20 AND dc:title <> 'title2'",
+            // ORDER BY on an indexed field
+            "SELECT * FROM MyDocType WHERE my:integer >= 10 ORDER BY my:integer DESC",
+            "SELECT * FROM MyDocType WHERE dc:title = 'title4' ORDER BY my:integer",
+            "SELECT * FROM MyDocType ORDER BY my:integer",
+            // unindexed fallback
+            "SELECT * FROM MyDocType WHERE my:long = 3",
+            "SELECT * FROM MyDocType WHERE dc:title = 'title0' OR my:long = 1",
+            "SELECT * FROM MyDocType WHERE dc:title = 'title0' AND my:long = 0",
+            // built-in indexes combined with the configured ones
+            "SELECT * FROM Document WHERE ecm:path STARTSWITH '/f1' AND dc:title = 'title2'",
+            "SELECT * FROM Document WHERE ecm:primaryType = 'MyDocType' AND my:integer < 25",
+            "SELECT * FROM Document WHERE ecm:isProxy = 0");
+
+    @After
+    public void tearDown() {
+        for (String repositoryName : List.of(INDEXED, SCAN)) {
+            try (CloseableCoreSession session = CoreInstance.openCoreSessionSystem(repositoryName)) {
+                session.removeChildren(session.getRootDocument().getRef());
+                session.save();
+            }
+        }
+    }
+
+    protected void createDocuments(CoreSession session) {
+        DocumentModel root = session.getRootDocument();
+        ACP acp = new ACPImpl();
+        ACL acl = new ACLImpl();
+        acl.add(new ACE("Administrator", "Everything", true));
+        acl.add(new ACE("bob", "Browse", true));
+        acp.addACL(acl);
+        root.setACP(acp, true);
+        for (String name : List.of("f0", "f1")) {
+            session.createDocument(session.createDocumentModel("/", name, "Folder"));
+        }
+        // bob cannot see the content of f1
+        DocumentModel f1 = session.getDocument(new PathRef("/f1"));
+        acp = new ACPImpl();
+        acl = new ACLImpl();
+        acl.add(new ACE("Administrator", "Everything", true));
+        acl.add(ACE.BLOCK);
+        acp.addACL(acl);
+        f1.setACP(acp, true);
+        for (int i = 0; i < DOCS; i++) {
+            DocumentModel doc = session.createDocumentModel("/f" + (i % 2), "doc" + i, "MyDocType");
+            doc.setPropertyValue("dc:title", "title" + (i % 5));
+            doc.setPropertyValue("my:integer", Long.valueOf(i));
+            doc.setPropertyValue("my:long", Long.valueOf(i % 7));
+            session.createDocument(doc);
+        }
+        session.save();
+    }
+
+    protected void updateDocuments(CoreSession session) {
+        for (int i = 0; i < DOCS; i += 3) {
+            DocumentModel doc = session.getDocument(new PathRef("/f" + (i % 2) + "/doc" + i));
+            doc.setPropertyValue("dc:title", "title" + (i % 3));
+            // keep the values unique so that the ORDER BY results are deterministic
+            doc.setPropertyValue("my:integer", Long.valueOf(DOCS + i));
+            session.saveDocument(doc);
+        }
+        for (int i = 1; i < DOCS; i += 4) {
+            session.move(new PathRef("/f1/doc" + i), new PathRef("/f0"), null);
+        }
+        for (int i = 2; i < DOCS; i += 10) {
+            session.removeDocument(new PathRef("/f0/doc" + i));
+        }
+        session.save();
+    }
+
+    protected void forEachRepository(Consumer<CoreSession> consumer) {
+        for (String repositoryName : List.of(INDEXED, SCAN)) {
+            try (CloseableCoreSession session = CoreInstance.openCoreSessionSystem(repositoryName)) {
+                consumer.accept(session);
+            }
+        }
+    }
+
+    protected List<String> query(String repositoryName, String username, String nxql) {
+        try (CloseableCoreSession session = username == null ? CoreInstance.openCoreSessionSystem(repositoryName)
+                : CoreInstance.openCoreSession(repositoryName, username)) {
+            List<String> names = new ArrayList<>();
+            session.query(nxql).forEach(doc -> names.add(doc.getName()));
+            if (!nxql.contains("ORDER BY")) {
+                Collections.sort(names);
+            }
+            return names;
+        }
+    }
+
+    protected void checkQueries(String username) {
+        for (String nxql : QUERIES) {
+            assertEquals(nxql, query(SCAN, username, nxql), query(INDEXED, username, nxql));
+        }
+    }
+
+    @Test
+    public void testSameResultsAsScan() {
+        forEachRepository(this::createDocuments);
+        // sanity check on the data, so that the comparisons are not done on empty results
+        assertEquals(DOCS / 5, query(INDEXED, null, QUERIES.get(0)).size());
+        assertEquals(DOCS / 2 / 5, query(INDEXED, "bob", QUERIES.get(0)).size());
+        checkQueries(null);
+        checkQueries("bob");
+    }
+
+    @Test
+    public void testSameResultsAsScanAfterChanges() {
+        forEachRepository(this::createDocuments);
+        forEachRepository(this::updateDocuments);
+        checkQueries(null);
+        checkQueries("bob");
+    }
+
+}
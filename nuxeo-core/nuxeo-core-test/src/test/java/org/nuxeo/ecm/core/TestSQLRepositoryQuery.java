@@ -54,6 +54,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -1075,6 +1076,18 @@ public class TestSQLRepositoryQuery {
         assertEquals(4, dml.size());
     }
 
+    @Test
+    public void testAncestorIdInvalidThenValid() {
+        createDocs();
+
+        // an invalid id doesn't give a parameter, its SQL must not be reused for a valid id
+        String query = "SELECT * FROM Document WHERE ecm:ancestorId = '%s' AND ecm:isVersion = 0";
+        assertEquals(0, session.query(String.format(query, "nosuchid")).size());
+        String id = session.getDocument(new PathRef("/testfolder1")).getId();
+        assertEquals(3, session.query(String.format(query, id)).size());
+        assertEquals(0, session.query(String.format(query, "nosuchid")).size());
+    }
+
     @Test
     public void testStartsWithNonPath() {
         String sql;
@@ -2456,6 +2469,66 @@ public class TestSQLRepositoryQuery {
         res.close();
     }
 
+    @Test
+    public void testQueryAndFetchStream() {
+        createDocs();
+
+        String query = "SELECT dc:title FROM File ORDER BY dc:title";
+        try (Stream<Map<String, Serializable>> stream = session.queryAndFetchStream(query, NXQL.NXQL, false)) {
+            List<Serializable> titles = stream.map(map -> map.get("dc:title")).collect(Collectors.toList());
+            assertEquals(Arrays.asList("testfile1_Title", "testfile2_Title", "testfile4Title"), titles);
+        }
+
+        // ordered by path
+        query = "SELECT ecm:name FROM Folder ORDER BY ecm:path DESC";
+        try (Stream<Map<String, Serializable>> stream = session.queryAndFetchStream(query, NXQL.NXQL, false)) {
+            List<Serializable> names = stream.map(map -> map.get(NXQL.ECM_NAME)).collect(Collectors.toList());
+            assertEquals(Arrays.asList("testfolder3", "testfolder2", "testfolder1"), names);
+        }
+
+        // one row per array element
+        query = "SELECT dc:subjects/* FROM File WHERE ecm:name = 'testfile1'";
+        try (Stream<Map<String, Serializable>> stream = session.queryAndFetchStream(query, NXQL.NXQL, false)) {
+            Set<Serializable> subjects = stream.map(map -> map.get("dc:subjects/*")).collect(Collectors.toSet());
+            assertEquals(new HashSet<>(Arrays.asList("foo", "gee/moo")), subjects);
+        }
+
+        // no match
+        query = "SELECT ecm:uuid FROM File WHERE ecm:name = 'nosuchdoc'";
+        try (Stream<Map<String, Serializable>> stream = session.queryAndFetchStream(query, NXQL.NXQL, false)) {
+            assertEquals(0, stream.count());
+        }
+    }
+
+    @Test
+    public void testQuerySameShapeDifferentLiterals() {
+        createDocs();
+
+        // same query shape, the cached SQL must use the new literals
+        String query = "SELECT * FROM File WHERE ecm:name = '%s' AND ecm:isProxy = 0";
+        for (String name : Arrays.asList("testfile1", "testfile2", "testfile4", "nosuchdoc", "testfile1")) {
+            DocumentModelList dml = session.query(String.format(query, name));
+            if (name.equals("nosuchdoc")) {
+                assertEquals(0, dml.size());
+            } else {
+                assertEquals(1, dml.size());
+                assertEquals(name, dml.get(0).getName());
+            }
+        }
+
+        query = "SELECT * FROM Document WHERE ecm:name IN ('%s', '%s')";
+        assertEquals(2, session.query(String.format(query, "testfile1", "testfile2")).size());
+        assertEquals(1, session.query(String.format(query, "testfile1", "nosuchdoc")).size());
+
+        String id = session.getDocument(new PathRef("/testfolder1/testfile1")).getId();
+        query = "SELECT * FROM Document WHERE ecm:uuid = '%s'";
+        assertEquals(1, session.query(String.format(query, id)).size());
+        String otherId = session.getDocument(new PathRef("/testfolder1/testfile2")).getId();
+        DocumentModelList dml = session.query(String.format(query, otherId));
+        assertEquals(1, dml.size());
+        assertEquals(otherId, dml.get(0).getId());
+    }
+
     @Test
     public void testQueryProjectionDistinctId() {
         makeComplexDoc();
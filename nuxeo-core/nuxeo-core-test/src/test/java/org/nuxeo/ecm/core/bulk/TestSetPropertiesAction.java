@@ -31,8 +31,12 @@ import static org.nuxeo.ecm.core.test.DocumentSetRepositoryInit.USERNAME;
 
 import java.io.Serializable;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -44,6 +48,7 @@ import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.bulk.computation.BulkScrollerComputation;
+import org.nuxeo.ecm.core.bulk.message.BulkBucket;
 import org.nuxeo.ecm.core.bulk.message.BulkCommand;
 import org.nuxeo.ecm.core.bulk.message.BulkStatus;
 import org.nuxeo.ecm.core.test.CoreFeature;
@@ -51,6 +56,7 @@ import org.nuxeo.ecm.core.test.DocumentSetRepositoryInit;
 import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogRecord;
 import org.nuxeo.lib.stream.log.LogTailer;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.stream.StreamService;
@@ -177,6 +183,40 @@ public class TestSetPropertiesAction {
         assertEquals("test foo", doc.getPropertyValue("cpx:complex/foo"));
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.core.test.tests:OSGI-INF/bulk-scroll-partitions-contrib.xml")
+    public void testSetPropertiesWithScrollPartitions() throws Exception {
+        StreamService streamService = Framework.getService(StreamService.class);
+        @SuppressWarnings("resource")
+        LogManager logManager = streamService.getLogManager(BULK_LOG_MANAGER_NAME);
+        try (LogTailer<Record> tailer = logManager.createTailer("testPartitions", ACTION_NAME)) {
+            tailer.toLastCommitted();
+
+            String nxql = "SELECT * FROM Document WHERE ecm:isProxy = 0";
+            Set<String> expected = session.query(nxql).stream().map(DocumentModel::getId).collect(Collectors.toSet());
+            String commandId = service.submit(
+                    new BulkCommand.Builder(ACTION_NAME, nxql, session.getPrincipal().getName()).repository(
+                            session.getRepositoryName()).param("dc:description", "partitions").build());
+            assertTrue("Bulk action didn't finish", service.await(Duration.ofSeconds(60)));
+
+            BulkStatus status = service.getStatus(commandId);
+            assertEquals(COMPLETED, status.getState());
+            assertEquals(expected.size(), status.getTotal());
+
+            // each document is scrolled exactly once
+            List<String> scrolled = new ArrayList<>();
+            LogRecord<Record> record;
+            while ((record = tailer.read(Duration.ofSeconds(1))) != null) {
+                BulkBucket bucket = BulkCodecs.getBucketCodec().decode(record.message().getData());
+                if (commandId.equals(bucket.getCommandId())) {
+                    scrolled.addAll(bucket.getIds());
+                }
+            }
+            assertEquals(expected.size(), scrolled.size());
+            assertEquals(expected, new HashSet<>(scrolled));
+        }
+    }
+
     @Test
     @Deploy("org.nuxeo.ecm.core.test.tests:OSGI-INF/bulk-low-scroll-size-contrib.xml")
     public void testAbort() throws Exception {
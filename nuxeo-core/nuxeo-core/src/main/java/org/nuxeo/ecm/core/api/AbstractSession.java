@@ -56,6 +56,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -921,11 +922,15 @@ public abstract class AbstractSession implements CoreSession, Serializable {
 
     @Override
     public DocumentModelList getDocuments(DocumentRef[] docRefs) {
+        Map<String, Document> docsById = getDocumentsById(Arrays.asList(docRefs), null);
         List<DocumentModel> docs = new ArrayList<>(docRefs.length);
         for (DocumentRef docRef : docRefs) {
             Document doc;
             try {
-                doc = resolveReference(docRef);
+                doc = docRef.type() == DocumentRef.ID ? docsById.get(docRef.reference()) : null;
+                if (doc == null) {
+                    doc = resolveReference(docRef);
+                }
                 checkPermission(doc, READ);
             } catch (DocumentSecurityException e) {
                 // no permission
@@ -936,6 +941,36 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         return new DocumentModelListImpl(docs);
     }
 
+    @Override
+    public void prefetchDocuments(Collection<DocumentRef> docRefs, Collection<String> schemas) {
+        getDocumentsById(docRefs, schemas);
+    }
+
+    /**
+     * Gets in bulk the documents referenced by id, loading the given schemas.
+     *
+     * @param schemas the schemas to load in addition to the prefetched ones, or {@code null}
+     * @return the documents found, by id
+     * @since 11.1
+     */
+    protected Map<String, Document> getDocumentsById(Collection<DocumentRef> docRefs, Collection<String> schemas) {
+        List<String> ids = new ArrayList<>(docRefs.size());
+        for (DocumentRef docRef : docRefs) {
+            if (docRef != null && docRef.type() == DocumentRef.ID && docRef.reference() != null) {
+                ids.add((String) docRef.reference());
+            }
+        }
+        if (ids.size() < 2) {
+            // nothing to gain
+            return Collections.emptyMap();
+        }
+        Map<String, Document> docsById = new HashMap<>();
+        for (Document doc : getSession().getDocumentsByUUIDs(ids, schemas)) {
+            docsById.put(doc.getUUID(), doc);
+        }
+        return docsById;
+    }
+
     @Override
     public DocumentModelList getFiles(DocumentRef parent) {
         Document doc = resolveReference(parent);
@@ -1231,6 +1266,23 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         }
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(String query, String queryType,
+            boolean distinctDocuments, Object... params) {
+        try {
+            NuxeoPrincipal principal = getPrincipal();
+            String[] principals = getPrincipalsToCheck();
+            String[] permissions = getPermissionsToCheck(BROWSE);
+            Collection<Transformer> transformers = getPoliciesQueryTransformers(queryType);
+
+            QueryFilter queryFilter = new QueryFilter(principal, principals, permissions, null, transformers, 0, 0);
+            return getSession().queryAndFetchStream(query, queryType, queryFilter, distinctDocuments, params);
+        } catch (QueryParseException e) {
+            e.addInfo("Failed to execute query: " + queryType + ": " + query);
+            throw e;
+        }
+    }
+
     @Override
     public PartialList<Map<String, Serializable>> queryProjection(String query, long limit, long offset) {
         return queryProjection(query, limit, offset, false);
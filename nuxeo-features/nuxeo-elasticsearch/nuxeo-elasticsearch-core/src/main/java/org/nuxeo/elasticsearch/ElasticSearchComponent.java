@@ -78,6 +78,7 @@ import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -521,6 +522,11 @@ public class ElasticSearchComponent extends DefaultComponent
         return esi.source(doc);
     }
 
+    @Override
+    public void writeSource(JsonGenerator jsonGen, DocumentModel doc) throws IOException {
+        esi.writeSource(jsonGen, doc);
+    }
+
     // ES Search ===============================================================
     @Override
     public DocumentModelList query(NxQueryBuilder queryBuilder) {
@@ -532,6 +538,11 @@ public class ElasticSearchComponent extends DefaultComponent
         return ess.queryAndAggregate(queryBuilder);
     }
 
+    @Override
+    public List<EsResult> queryAndAggregate(List<NxQueryBuilder> queryBuilders) {
+        return ess.queryAndAggregate(queryBuilders);
+    }
+
     @Override
     public EsScrollResult scroll(NxQueryBuilder queryBuilder, long keepAlive) {
         return ess.scroll(queryBuilder, keepAlive);
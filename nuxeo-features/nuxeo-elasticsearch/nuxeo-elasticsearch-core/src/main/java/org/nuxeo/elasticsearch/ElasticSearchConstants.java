@@ -121,6 +121,14 @@ public final class ElasticSearchConstants {
 
     public static final String INDEX_BULK_MAX_SIZE_PROPERTY = "elasticsearch.index.bulkMaxSize";
 
+    /**
+     * When true, a document modification only sends the system properties and the modified schemas, as an
+     * Elasticsearch partial update. The update API does not support external versions.
+     *
+     * @since 11.1
+     */
+    public static final String INDEX_PARTIAL_UPDATE_PROPERTY = "elasticsearch.index.partialUpdate";
+
     public static final String DISABLE_AUTO_INDEXING = "disableAutoIndexing";
 
     public static final String ES_SYNC_INDEXING_FLAG = "ESSyncIndexing";
@@ -18,6 +18,8 @@
  */
 package org.nuxeo.elasticsearch.api;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
@@ -29,6 +31,8 @@ import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
@@ -86,6 +90,30 @@ public interface ESClient extends AutoCloseable {
 
     SearchResponse search(SearchRequest request);
 
+    /**
+     * Performs the search request without blocking the calling thread.
+     *
+     * @return a future completed with the response, or exceptionally with the failure
+     * @since 11.1
+     */
+    CompletableFuture<SearchResponse> searchAsync(SearchRequest request);
+
+    /**
+     * Performs the bulk request without blocking the calling thread.
+     *
+     * @return a future completed with the response, or exceptionally with the failure
+     * @since 11.1
+     */
+    CompletableFuture<BulkResponse> bulkAsync(BulkRequest request);
+
+    /**
+     * Performs several search requests in a single round trip, they are executed in parallel by the cluster. The
+     * failure of a search request is reported by its item of the response.
+     *
+     * @since 11.1
+     */
+    MultiSearchResponse multiSearch(MultiSearchRequest request);
+
     SearchResponse searchScroll(SearchScrollRequest request);
 
     GetResponse get(GetRequest request);
@@ -27,6 +27,8 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.elasticsearch.commands.IndexingCommand;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 /**
  * Interface to process indexing of documents
  *
@@ -102,4 +104,12 @@ public interface ElasticSearchIndexing {
      * @since 10.3
      */
     BytesReference source(DocumentModel doc) throws IOException;
+
+    /**
+     * Writes the JSON Elasticsearch source representation of a document into a generator, which is flushed but not
+     * closed, so that the sources of many documents can be written with the same generator.
+     *
+     * @since 11.1
+     */
+    void writeSource(JsonGenerator jsonGen, DocumentModel doc) throws IOException;
 }
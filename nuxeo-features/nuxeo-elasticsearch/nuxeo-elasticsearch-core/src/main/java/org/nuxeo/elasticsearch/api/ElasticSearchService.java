@@ -20,6 +20,8 @@
 
 package org.nuxeo.elasticsearch.api;
 
+import java.util.List;
+
 import org.elasticsearch.index.query.QueryBuilder;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModelList;
@@ -47,6 +49,16 @@ public interface ElasticSearchService {
      */
     EsResult queryAndAggregate(NxQueryBuilder queryBuilder);
 
+    /**
+     * Returns documents and aggregates of independent queries, in the order of the query builders. The queries are
+     * sent in a single multi search request and executed in parallel by Elasticsearch.
+     * <p>
+     * A failing query does not fail the others: its result only holds the failure, see {@link EsResult#getFailure()}.
+     *
+     * @since 11.1
+     */
+    List<EsResult> queryAndAggregate(List<NxQueryBuilder> queryBuilders);
+
     /**
      * Performs the initial search of a scrollable search request using an {@link NxQueryBuilder}.
      *
@@ -38,11 +38,14 @@ public class EsResult {
 
     private final SearchResponse response;
 
+    private final RuntimeException failure;
+
     public EsResult(DocumentModelList documents, List<Aggregate<Bucket>> aggregates, SearchResponse response) {
         this.documents = documents;
         this.rows = null;
         this.aggregates = aggregates;
         this.response = response;
+        this.failure = null;
     }
 
     public EsResult(IterableQueryResult rows, List<Aggregate<Bucket>> aggregates, SearchResponse response) {
@@ -50,6 +53,7 @@ public class EsResult {
         this.rows = rows;
         this.aggregates = aggregates;
         this.response = response;
+        this.failure = null;
     }
 
     public EsResult(SearchResponse response) {
@@ -57,6 +61,20 @@ public class EsResult {
         this.rows = null;
         this.aggregates = null;
         this.response = response;
+        this.failure = null;
+    }
+
+    /**
+     * Result of a query that has failed.
+     *
+     * @since 11.1
+     */
+    public EsResult(RuntimeException failure) {
+        this.documents = null;
+        this.rows = null;
+        this.aggregates = null;
+        this.response = null;
+        this.failure = failure;
     }
 
     /**
@@ -93,4 +111,15 @@ public class EsResult {
     public SearchResponse getElasticsearchResponse() {
         return response;
     }
+
+    /**
+     * Returns the failure of the query, only set for the queries sent together with
+     * {@link ElasticSearchService#queryAndAggregate(List)}.
+     *
+     * @since 11.1
+     * @return null if the query has succeeded
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
 }
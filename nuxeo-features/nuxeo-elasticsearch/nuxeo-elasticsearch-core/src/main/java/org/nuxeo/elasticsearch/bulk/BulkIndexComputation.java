@@ -93,10 +93,11 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
         long backoffDelayMs = context.getPolicy().getRetryPolicy().getDelay().toMillis();
         int retries = context.getPolicy().getRetryPolicy().getMaxRetries();
 
+        // a number of actions <= 0 flushes by size only
         bulkProcessor = getESClient().bulkProcessorBuilder(this)
                                      .setConcurrentRequests(0)
                                      .setBulkSize(new ByteSizeValue(esBulkSize, ByteSizeUnit.BYTES))
-                                     .setBulkActions(esBulkActions)
+                                     .setBulkActions(esBulkActions > 0 ? esBulkActions : -1)
                                      .setBackoffPolicy(BackoffPolicy.exponentialBackoff(
                                              TimeValue.timeValueMillis(backoffDelayMs), retries))
                                      .build();
@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.bulk;
+
+import java.io.IOException;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the Elasticsearch sources of many documents into a single reusable buffer, with a single JSON generator.
+ * <p>
+ * The returned sources are slices of the buffer, they are valid until the next {@link #reset()}. This avoids the
+ * allocation of a buffer and of a generator per document when building large bulk requests. This class is not thread
+ * safe.
+ *
+ * @since 11.1
+ */
+public class BulkSourceWriter implements AutoCloseable {
+
+    // the buffer must not be closed with the generator
+    protected static final JsonFactory JSON_FACTORY = new JsonFactory().disable(
+            JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    protected static final int INITIAL_CAPACITY = 64 * 1024;
+
+    /** Above this size the buffer is shrunk on reset to not hold too much memory between buckets. */
+    protected static final long TRIM_SIZE = 16 * 1024 * 1024;
+
+    protected final ElasticSearchIndexing esi;
+
+    protected final BytesStreamOutput buffer = new BytesStreamOutput(INITIAL_CAPACITY);
+
+    protected JsonGenerator jsonGen;
+
+    public BulkSourceWriter(ElasticSearchIndexing esi) {
+        this.esi = esi;
+    }
+
+    /**
+     * Writes the source of a document.
+     *
+     * @return the source, a slice of the buffer
+     */
+    public BytesReference write(DocumentModel doc) throws IOException {
+        if (jsonGen == null) {
+            jsonGen = JSON_FACTORY.createGenerator(buffer);
+            // no separator between the sources
+            jsonGen.setRootValueSeparator(null);
+        }
+        int start = (int) buffer.position();
+        try {
+            esi.writeSource(jsonGen, doc);
+            // the generator buffers its output, the source must be in the buffer before slicing it
+            jsonGen.flush();
+        } catch (IOException | RuntimeException e) {
+            // the generator state is unknown, drop it with the partial source
+            jsonGen = null;
+            buffer.seek(start);
+            throw e;
+        }
+        return buffer.bytes().slice(start, (int) buffer.position() - start);
+    }
+
+    /**
+     * Gets the size of the sources written since the last reset.
+     */
+    public long size() {
+        return buffer.position();
+    }
+
+    /**
+     * Reuses the buffer for new sources, the sources previously returned must not be used anymore.
+     */
+    public void reset() throws IOException {
+        closeGenerator();
+        if (buffer.position() > TRIM_SIZE) {
+            buffer.reset();
+        } else {
+            buffer.seek(0);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeGenerator();
+        buffer.close();
+    }
+
+    protected void closeGenerator() throws IOException {
+        if (jsonGen != null) {
+            jsonGen.close();
+            jsonGen = null;
+        }
+    }
+
+}
@@ -45,7 +45,8 @@ public class IndexAction implements StreamProcessorTopology {
 
     public static final String ES_BULK_ACTION_OPTION = "esBulkActions";
 
-    public static final int ES_BULK_ACTION_DEFAULT = 1_000;
+    /** The requests are flushed by size only, since 11.1. */
+    public static final int ES_BULK_ACTION_DEFAULT = -1;
 
     public static final String BULK_FLUSH_INTERVAL_OPTION = "flushIntervalSeconds";
 
@@ -53,6 +53,9 @@ import org.nuxeo.runtime.api.Framework;
 
 /**
  * Build elasticsearch requests to index documents.
+ * <p>
+ * The sources of the documents of a bucket are written into a single reusable buffer, and the elasticsearch requests
+ * are split by size.
  *
  * @since 10.3
  */
@@ -70,6 +73,12 @@ public class IndexRequestComputation extends AbstractBulkComputation {
 
     protected String bucketKey;
 
+    // @since 11.1
+    protected BulkSourceWriter sourceWriter;
+
+    // @since 11.1
+    protected final BytesStreamOutput requestBuffer = new BytesStreamOutput();
+
     public IndexRequestComputation() {
         super(ACTION_NAME, 1);
     }
@@ -79,6 +88,12 @@ public class IndexRequestComputation extends AbstractBulkComputation {
         this.bucketKey = bucketKey;
         bulkRequests.clear();
         bulkRequest = new BulkRequest();
+        try {
+            // the sources of the previous bucket have been serialized
+            getSourceWriter().reset();
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot reset the source buffer", e);
+        }
     }
 
     @Override
@@ -86,10 +101,10 @@ public class IndexRequestComputation extends AbstractBulkComputation {
         long now = Timestamp.currentTimeMicros();
         String indexName = getIndexName(session, properties);
         DocumentModelList docs = loadDocuments(session, documentIds);
-        ElasticSearchIndexing esi = Framework.getService(ElasticSearchIndexing.class);
+        BulkSourceWriter writer = getSourceWriter();
         for (DocumentModel doc : docs) {
             try {
-                append(new IndexRequest(indexName, DOC_TYPE, doc.getId()).source(esi.source(doc), XContentType.JSON)
+                append(new IndexRequest(indexName, DOC_TYPE, doc.getId()).source(writer.write(doc), XContentType.JSON)
                                                                          .versionType(VersionType.EXTERNAL)
                                                                          .version(now));
             } catch (IOException e) {
@@ -147,12 +162,34 @@ public class IndexRequestComputation extends AbstractBulkComputation {
     }
 
     protected byte[] toBytes(BulkRequest request) {
-        try (BytesStreamOutput out = new BytesStreamOutput()) {
-            request.writeTo(out);
-            return BytesReference.toBytes(out.bytes());
+        try {
+            requestBuffer.seek(0);
+            request.writeTo(requestBuffer);
+            return BytesReference.toBytes(requestBuffer.bytes());
         } catch (IOException e) {
             throw new NuxeoException("Cannot write elasticsearch bulk request " + request, e);
         }
     }
 
+    // @since 11.1
+    protected BulkSourceWriter getSourceWriter() {
+        if (sourceWriter == null) {
+            sourceWriter = new BulkSourceWriter(Framework.getService(ElasticSearchIndexing.class));
+        }
+        return sourceWriter;
+    }
+
+    @Override
+    public void destroy() {
+        if (sourceWriter != null) {
+            try {
+                sourceWriter.close();
+            } catch (IOException e) {
+                log.warn("Cannot close the source buffer", e);
+            }
+            sourceWriter = null;
+        }
+        requestBuffer.close();
+    }
+
 }
@@ -21,10 +21,12 @@ package org.nuxeo.elasticsearch.client;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
@@ -40,6 +42,8 @@ import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.ClearScrollRequest;
 import org.elasticsearch.action.search.ClearScrollResponse;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
@@ -208,6 +212,25 @@ public class ESTransportClient implements ESClient {
         return client.search(request).actionGet();
     }
 
+    @Override
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        client.search(request, ActionListener.wrap(future::complete, future::completeExceptionally));
+        return future;
+    }
+
+    @Override
+    public CompletableFuture<BulkResponse> bulkAsync(BulkRequest request) {
+        CompletableFuture<BulkResponse> future = new CompletableFuture<>();
+        client.bulk(request, ActionListener.wrap(future::complete, future::completeExceptionally));
+        return future;
+    }
+
+    @Override
+    public MultiSearchResponse multiSearch(MultiSearchRequest request) {
+        return client.multiSearch(request).actionGet();
+    }
+
     @Override
     public SearchResponse searchScroll(SearchScrollRequest request) {
         return client.searchScroll(request).actionGet();
@@ -24,9 +24,12 @@ import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
@@ -76,6 +79,9 @@ public class IndexingCommand implements Serializable {
 
     protected List<String> schemas;
 
+    // @since 11.1, the schemas modified by an update, null when the whole document must be indexed
+    protected Set<String> updatedSchemas;
+
     protected long order;
 
     protected transient String sessionId;
@@ -177,6 +183,7 @@ public class IndexingCommand implements Serializable {
     public boolean merge(IndexingCommand other) {
         if (canBeMerged(other)) {
             merge(other.sync, other.recurse);
+            mergeUpdatedSchemas(other.updatedSchemas);
             return true;
         }
         return false;
@@ -187,6 +194,19 @@ public class IndexingCommand implements Serializable {
         this.recurse = this.recurse || recurse;
     }
 
+    // @since 11.1
+    protected void mergeUpdatedSchemas(Set<String> otherUpdatedSchemas) {
+        if (updatedSchemas == null) {
+            return;
+        }
+        if (otherUpdatedSchemas == null) {
+            // the whole document must be indexed
+            updatedSchemas = null;
+        } else {
+            updatedSchemas.addAll(otherUpdatedSchemas);
+        }
+    }
+
     protected boolean canBeMerged(IndexingCommand other) {
         if (type != other.type) {
             return false;
@@ -231,6 +251,13 @@ public class IndexingCommand implements Serializable {
         jsonGen.writeBooleanField("recurse", recurse);
         jsonGen.writeBooleanField("sync", sync);
         jsonGen.writeNumberField("order", getOrder());
+        if (updatedSchemas != null) {
+            jsonGen.writeArrayFieldStart("updatedSchemas");
+            for (String schema : updatedSchemas) {
+                jsonGen.writeString(schema);
+            }
+            jsonGen.writeEndArray();
+        }
         jsonGen.writeEndObject();
     }
 
@@ -273,6 +300,9 @@ public class IndexingCommand implements Serializable {
                 cmd.recurse = value.booleanValue();
             } else if ("sync".equals(key)) {
                 cmd.sync = value.booleanValue();
+            } else if ("updatedSchemas".equals(key)) {
+                cmd.updatedSchemas = new LinkedHashSet<>();
+                value.forEach(schema -> cmd.updatedSchemas.add(schema.textValue()));
             }
         }
         if (cmd.targetDocumentId == null) {
@@ -313,6 +343,33 @@ public class IndexingCommand implements Serializable {
         }
     }
 
+    /**
+     * Checks if the command is an update of some schemas of the document, rather than of the whole document.
+     *
+     * @since 11.1
+     */
+    public boolean isPartialUpdate() {
+        return type == Type.UPDATE && updatedSchemas != null;
+    }
+
+    /**
+     * Returns the schemas modified by an update, or {@code null} if the whole document must be indexed.
+     *
+     * @since 11.1
+     */
+    public Set<String> getUpdatedSchemas() {
+        return updatedSchemas;
+    }
+
+    /**
+     * Sets the schemas modified by an update, {@code null} to index the whole document.
+     *
+     * @since 11.1
+     */
+    public void setUpdatedSchemas(Collection<String> updatedSchemas) {
+        this.updatedSchemas = updatedSchemas == null ? null : new LinkedHashSet<>(updatedSchemas);
+    }
+
     @Override
     public String toString() {
         try {
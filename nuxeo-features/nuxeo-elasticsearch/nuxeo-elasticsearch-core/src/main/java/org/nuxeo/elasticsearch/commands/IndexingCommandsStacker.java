@@ -36,16 +36,20 @@ import static org.nuxeo.ecm.core.api.event.DocumentEventTypes.DOCUMENT_TAG_UPDAT
 import static org.nuxeo.ecm.core.api.trash.TrashService.DOCUMENT_TRASHED;
 import static org.nuxeo.ecm.core.api.trash.TrashService.DOCUMENT_UNTRASHED;
 
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.AbstractSession;
 import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DataModel;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.IdRef;
 import org.nuxeo.ecm.core.api.LifeCycleConstants;
+import org.nuxeo.ecm.core.api.impl.DocumentModelImpl;
 import org.nuxeo.ecm.core.event.impl.DocumentEventContext;
 import org.nuxeo.elasticsearch.ElasticSearchConstants;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
@@ -120,6 +124,7 @@ public abstract class IndexingCommandsStacker {
         IndexingCommands cmds = getOrCreateCommands(doc);
         Type type;
         boolean recurse = false;
+        Set<String> updatedSchemas = null;
         switch (eventId) {
         case DOCUMENT_CREATED:
         case DOCUMENT_IMPORTED:
@@ -141,6 +146,9 @@ public abstract class IndexingCommandsStacker {
             if (doc.isProxy() && !doc.isImmutable()) {
                 stackCommand(doc.getCoreSession().getDocument(new IdRef(doc.getSourceId())), BEFORE_DOC_UPDATE, false);
             }
+            if (BEFORE_DOC_UPDATE.equals(eventId)) {
+                updatedSchemas = getUpdatedSchemas(doc);
+            }
             type = Type.UPDATE;
             break;
         case DOCUMENT_CHECKEDIN:
@@ -180,8 +188,41 @@ public abstract class IndexingCommandsStacker {
             cmds.add(type, true, false);
             cmds.add(type, false, true);
         } else {
-            cmds.add(type, sync, recurse);
+            cmds.add(type, sync, recurse, updatedSchemas);
+        }
+    }
+
+    // @since 11.1
+    protected boolean isPartialUpdateEnabled() {
+        return Framework.isBooleanPropertyTrue(ElasticSearchConstants.INDEX_PARTIAL_UPDATE_PROPERTY);
+    }
+
+    /**
+     * Returns the schemas modified on the document being saved, or {@code null} if the whole document must be indexed
+     * or partial updates are disabled.
+     *
+     * @since 11.1
+     */
+    protected Set<String> getUpdatedSchemas(DocumentModel doc) {
+        if (doc.isProxy() || !(doc instanceof DocumentModelImpl)) {
+            return null;
+        }
+        DocumentModelImpl docImpl = (DocumentModelImpl) doc;
+        if (docImpl.instanceFacets == null || !docImpl.instanceFacets.equals(docImpl.instanceFacetsOrig)) {
+            // the schemas of the document have changed
+            return null;
+        }
+        Set<String> schemas = new LinkedHashSet<>();
+        for (DataModel dm : doc.getDataModelsCollection()) { // only loaded
+            if (dm.isDirty()) {
+                schemas.add(dm.getSchema());
+            }
+        }
+        if (schemas.isEmpty() || !isPartialUpdateEnabled()) {
+            // a document without modified schemas is not the one being saved, it was fetched again
+            return null;
         }
+        return schemas;
     }
 
     private boolean indexIsLatestVersion() {
@@ -31,12 +31,17 @@ import java.io.InputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.Environment;
 import org.nuxeo.common.xmap.annotation.XNode;
 import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.common.xmap.annotation.XObject;
 import org.nuxeo.elasticsearch.core.IncrementalIndexNameGenerator;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * XMap descriptor for configuring an index
  *
@@ -44,6 +49,8 @@ import org.nuxeo.elasticsearch.core.IncrementalIndexNameGenerator;
  */
 @XObject(value = "elasticSearchIndex")
 public class ElasticSearchIndexConfig {
+    private static final Log log = LogFactory.getLog(ElasticSearchIndexConfig.class);
+
     public static final String DEFAULT_SETTING_FILE = "default-doc-settings.json";
 
     public static final String DEFAULT_MAPPING_FILE = "default-doc-mapping.json";
@@ -93,6 +100,9 @@ public class ElasticSearchIndexConfig {
     @XNodeList(value = "fetchFromSource/include", type = String[].class, componentType = String.class)
     protected String[] includes;
 
+    // @since 11.1
+    protected Boolean partialUpdate;
+
     @Override
     public String toString() {
         if (isEnabled()) {
@@ -221,6 +231,40 @@ public class ElasticSearchIndexConfig {
         if (settingsFile == null && other.settingsFile != null) {
             settingsFile = other.settingsFile;
         }
+        partialUpdate = null;
+    }
+
+    /**
+     * Checks if the documents of the index can be partially updated. The update API rebuilds the document from its
+     * stored source, so this is not possible if the mapping disables the source or filters its fields.
+     *
+     * @since 11.1
+     */
+    public boolean supportsPartialUpdate() {
+        if (partialUpdate == null) {
+            partialUpdate = Boolean.valueOf(isSourceComplete(getMapping()));
+        }
+        return partialUpdate.booleanValue();
+    }
+
+    protected boolean isSourceComplete(String mapping) {
+        JsonNode root;
+        try {
+            root = new ObjectMapper().readTree(mapping);
+        } catch (IOException e) {
+            log.warn("Cannot parse the mapping of index: " + name + ", partial updates are disabled", e);
+            return false;
+        }
+        JsonNode source = root.path("_source");
+        if (source.isMissingNode()) {
+            // mapping wrapped in its type
+            source = root.path(getType()).path("_source");
+        }
+        if (source.isMissingNode()) {
+            return true;
+        }
+        return source.path("enabled").asBoolean(true) && source.path("includes").size() == 0
+                && source.path("excludes").size() == 0;
     }
 
     // @since 9.3
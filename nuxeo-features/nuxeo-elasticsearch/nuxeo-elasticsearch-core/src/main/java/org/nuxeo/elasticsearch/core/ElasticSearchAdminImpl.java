@@ -220,6 +220,18 @@ public class ElasticSearchAdminImpl implements ElasticSearchAdmin {
         return ret;
     }
 
+    /**
+     * Checks if the documents of the repository index can be partially updated.
+     *
+     * @since 11.1
+     */
+    public boolean supportsPartialUpdate(String repositoryName) {
+        return indexConfig.values()
+                          .stream()
+                          .filter(conf -> conf.isDocumentIndex() && repositoryName.equals(conf.getRepositoryName()))
+                          .anyMatch(ElasticSearchIndexConfig::supportsPartialUpdate);
+    }
+
     @Override
     public String getRepositoryForIndex(String indexName) {
         return repoNames.get(indexName);
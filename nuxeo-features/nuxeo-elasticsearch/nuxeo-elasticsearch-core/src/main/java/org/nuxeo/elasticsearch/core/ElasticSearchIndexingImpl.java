@@ -25,13 +25,18 @@ import static org.nuxeo.elasticsearch.ElasticSearchConstants.DOC_TYPE;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEX_BULK_MAX_SIZE_PROPERTY;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.PATH_FIELD;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
@@ -42,6 +47,7 @@ import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
+import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
@@ -164,6 +170,8 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
     void processBulkIndexCommands(List<IndexingCommand> cmds) {
         BulkRequest bulkRequest = new BulkRequest();
         Set<String> docIds = new HashSet<>(cmds.size());
+        // partial updates by doc id, to index the whole document if the update fails
+        Map<String, IndexingCommand> updates = new HashMap<>();
         int bulkSize = 0;
         final int maxBulkSize = getMaxBulkSize();
         for (IndexingCommand cmd : cmds) {
@@ -175,10 +183,19 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
                 continue;
             }
             try {
-                IndexRequest idxRequest = buildEsIndexingRequest(cmd);
-                if (idxRequest != null) {
-                    bulkSize += idxRequest.source().length();
-                    bulkRequest.add(idxRequest);
+                if (usePartialUpdate(cmd)) {
+                    UpdateRequest updateRequest = buildEsUpdateRequest(cmd);
+                    if (updateRequest != null) {
+                        bulkSize += updateRequest.doc().source().length();
+                        bulkRequest.add(updateRequest);
+                        updates.put(cmd.getTargetDocumentId(), cmd);
+                    }
+                } else {
+                    IndexRequest idxRequest = buildEsIndexingRequest(cmd);
+                    if (idxRequest != null) {
+                        bulkSize += idxRequest.source().length();
+                        bulkRequest.add(idxRequest);
+                    }
                 }
             } catch (BlobNotFoundException be) {
                 log.info("Ignore indexing command in bulk, blob does not exists anymore: " + cmd);
@@ -191,12 +208,37 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
             }
             if (bulkSize > maxBulkSize) {
                 log.warn("Max bulk size reached " + bulkSize + ", sending bulk command");
-                sendBulkCommand(bulkRequest, bulkSize);
+                indexFailedUpdates(sendBulkCommand(bulkRequest, bulkSize), updates);
                 bulkRequest = new BulkRequest();
                 bulkSize = 0;
+                updates.clear();
             }
         }
-        sendBulkCommand(bulkRequest, bulkSize);
+        indexFailedUpdates(sendBulkCommand(bulkRequest, bulkSize), updates);
+    }
+
+    /**
+     * Indexes the whole documents whose partial update has failed, usually because they are not yet indexed.
+     *
+     * @since 11.1
+     */
+    void indexFailedUpdates(BulkResponse response, Map<String, IndexingCommand> updates) {
+        if (response == null || !response.hasFailures() || updates.isEmpty()) {
+            return;
+        }
+        List<IndexingCommand> failed = new ArrayList<>();
+        for (BulkItemResponse item : response.getItems()) {
+            if (item.isFailed() && item.getOpType() == DocWriteRequest.OpType.UPDATE
+                    && updates.containsKey(item.getId())) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Partial update failed, indexing the whole document: " + item.getFailureMessage());
+                }
+                failed.add(updates.get(item.getId()));
+            }
+        }
+        for (IndexingCommand cmd : failed) {
+            processIndexCommand(cmd, false);
+        }
     }
 
     int getMaxBulkSize() {
@@ -204,7 +246,7 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
         return Integer.parseInt(value);
     }
 
-    void sendBulkCommand(BulkRequest bulkRequest, int bulkSize) {
+    BulkResponse sendBulkCommand(BulkRequest bulkRequest, int bulkSize) {
         if (bulkRequest.numberOfActions() > 0) {
             if (log.isDebugEnabled()) {
                 logDebugMessageTruncated(String.format(
@@ -215,7 +257,9 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
             if (response.hasFailures()) {
                 logBulkFailure(response);
             }
+            return response;
         }
+        return null;
     }
 
     void logBulkFailure(BulkResponse response) {
@@ -223,6 +267,10 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
         StringBuilder sb = new StringBuilder();
         sb.append("Ignore indexing of some docs more recent versions has already been indexed");
         for (BulkItemResponse item : response.getItems()) {
+            if (item.isFailed() && item.getOpType() == DocWriteRequest.OpType.UPDATE) {
+                // partial updates in failure are retried as whole document indexing
+                continue;
+            }
             if (item.isFailed()) {
                 if (item.getFailure().getStatus() == RestStatus.CONFLICT) {
                     sb.append("\n  ").append(item.getFailureMessage());
@@ -274,6 +322,17 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
     }
 
     void processIndexCommand(IndexingCommand cmd) {
+        processIndexCommand(cmd, true);
+    }
+
+    /**
+     * @param allowPartialUpdate {@code false} to index the whole document even for a partial update command
+     * @since 11.1
+     */
+    void processIndexCommand(IndexingCommand cmd, boolean allowPartialUpdate) {
+        if (allowPartialUpdate && usePartialUpdate(cmd) && processUpdateCommand(cmd)) {
+            return;
+        }
         IndexRequest request;
         try {
             request = buildEsIndexingRequest(cmd);
@@ -303,6 +362,54 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
         }
     }
 
+    /**
+     * Sends a partial update of the document.
+     *
+     * @return {@code false} if the update has failed and the whole document must be indexed
+     * @since 11.1
+     */
+    boolean processUpdateCommand(IndexingCommand cmd) {
+        UpdateRequest request;
+        try {
+            request = buildEsUpdateRequest(cmd);
+        } catch (DocumentNotFoundException e) {
+            request = null;
+        } catch (IllegalStateException e) {
+            log.error("Fail to create request for indexing command: " + cmd, e);
+            return true;
+        }
+        if (request == null) {
+            log.info("Cancel indexing command because target document does not exists anymore: " + cmd);
+            return true;
+        }
+        if (log.isDebugEnabled()) {
+            logDebugMessageTruncated(String.format(
+                    "Update request: curl -XPOST 'http://localhost:9200/%s/%s/%s/_update' -d '%s'",
+                    getWriteIndexForRepository(cmd.getRepositoryName()), DOC_TYPE, cmd.getTargetDocumentId(),
+                    request.toString()), MAX_CURL_LINE);
+        }
+        // the client has no update API, a bulk request reports the failures without exception
+        BulkItemResponse item = esa.getClient().bulk(new BulkRequest().add(request)).getItems()[0];
+        if (item.isFailed()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Partial update failed, indexing the whole document: " + item.getFailureMessage());
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the command can be processed as a partial update: the document writer must not be customized and the
+     * index mapping must keep the whole source.
+     *
+     * @since 11.1
+     */
+    protected boolean usePartialUpdate(IndexingCommand cmd) {
+        return cmd.isPartialUpdate() && jsonESDocumentWriter.getClass() == JsonESDocumentWriter.class
+                && esa.supportsPartialUpdate(cmd.getRepositoryName());
+    }
+
     void logDebugMessageTruncated(String msg, int maxSize) {
         if (log.isTraceEnabled() || msg.length() < maxSize) {
             // in trace mode we output the full message
@@ -422,6 +529,28 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
         }
     }
 
+    /**
+     * Return a partial update request or null if the doc does not exists anymore.
+     *
+     * @throws java.lang.IllegalStateException if the command is not attached to a session
+     * @since 11.1
+     */
+    UpdateRequest buildEsUpdateRequest(IndexingCommand cmd) {
+        DocumentModel doc = cmd.getTargetDocument();
+        if (doc == null) {
+            return null;
+        }
+        String[] schemas = cmd.getUpdatedSchemas().toArray(new String[0]);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator jsonGen = JSON_FACTORY.createGenerator(out)) {
+            jsonESDocumentWriter.writeESDocumentUpdate(jsonGen, doc, schemas);
+        } catch (IOException e) {
+            throw new NuxeoException("Unable to create update request for Document " + cmd.getTargetDocumentId(), e);
+        }
+        return new UpdateRequest(getWriteIndexForRepository(cmd.getRepositoryName()), DOC_TYPE,
+                cmd.getTargetDocumentId()).doc(out.toByteArray(), XContentType.JSON);
+    }
+
     protected String getWriteIndexForRepository(String repository) {
         return esa.getWriteIndexName(esa.getIndexNameForRepository(repository));
     }
@@ -430,8 +559,13 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
     public BytesReference source(DocumentModel doc) throws IOException {
         BytesStreamOutput out = new BytesStreamOutput();
         try (JsonGenerator jsonGen = JSON_FACTORY.createGenerator(out)) {
-            jsonESDocumentWriter.writeESDocument(jsonGen, doc, null, null);
+            writeSource(jsonGen, doc);
             return out.bytes();
         }
     }
+
+    @Override
+    public void writeSource(JsonGenerator jsonGen, DocumentModel doc) throws IOException {
+        jsonESDocumentWriter.writeESDocument(jsonGen, doc, null, null);
+    }
 }
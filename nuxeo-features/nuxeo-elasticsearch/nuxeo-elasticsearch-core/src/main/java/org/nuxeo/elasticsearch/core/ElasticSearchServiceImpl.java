@@ -22,12 +22,16 @@ package org.nuxeo.elasticsearch.core;
 
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.DOC_TYPE;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.elasticsearch.action.search.ClearScrollRequest;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
@@ -40,6 +44,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModelList;
 import org.nuxeo.ecm.core.api.IterableQueryResult;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.SortInfo;
 import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
 import org.nuxeo.ecm.platform.query.api.Aggregate;
@@ -110,10 +115,39 @@ public class ElasticSearchServiceImpl implements ElasticSearchService {
         return queryAndAggregate(queryBuilder).getDocuments();
     }
 
-    @SuppressWarnings("resource") // IterableQueryResult closed by EsResult.getRows().close()
     @Override
     public EsResult queryAndAggregate(NxQueryBuilder queryBuilder) {
-        SearchResponse response = search(queryBuilder);
+        return getResult(queryBuilder, search(queryBuilder));
+    }
+
+    @Override
+    public List<EsResult> queryAndAggregate(List<NxQueryBuilder> queryBuilders) {
+        List<MultiSearchResponse.Item> items = search(queryBuilders);
+        List<EsResult> ret = new ArrayList<>(queryBuilders.size());
+        for (int i = 0; i < queryBuilders.size(); i++) {
+            MultiSearchResponse.Item item = items.get(i);
+            if (item.isFailure()) {
+                ret.add(new EsResult(toRuntimeException(item.getFailure())));
+                continue;
+            }
+            try {
+                ret.add(getResult(queryBuilders.get(i), item.getResponse()));
+            } catch (RuntimeException e) {
+                ret.add(new EsResult(e));
+            }
+        }
+        return ret;
+    }
+
+    protected RuntimeException toRuntimeException(Exception e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        return new NuxeoException(e);
+    }
+
+    @SuppressWarnings("resource") // IterableQueryResult closed by EsResult.getRows().close()
+    protected EsResult getResult(NxQueryBuilder queryBuilder, SearchResponse response) {
         List<Aggregate<Bucket>> aggs = getAggregates(queryBuilder, response);
         if (queryBuilder.returnsDocuments()) {
             DocumentModelListImpl docs = getDocumentModels(queryBuilder, response);
@@ -232,6 +266,43 @@ public class ElasticSearchServiceImpl implements ElasticSearchService {
         }
     }
 
+    /**
+     * Sends the searches in a single multi search request, returning one item per query. A query that cannot be
+     * built, for instance an invalid NXQL, fails its own item only.
+     *
+     * @since 11.1
+     */
+    protected List<MultiSearchResponse.Item> search(List<NxQueryBuilder> queries) {
+        MultiSearchResponse.Item[] ret = new MultiSearchResponse.Item[queries.size()];
+        try (Context ignored = searchTimer.time()) {
+            SearchType searchType = SearchType.DFS_QUERY_THEN_FETCH;
+            MultiSearchRequest request = new MultiSearchRequest();
+            // position of each search request in the queries
+            List<Integer> positions = new ArrayList<>(queries.size());
+            for (int i = 0; i < queries.size(); i++) {
+                NxQueryBuilder query = queries.get(i);
+                try {
+                    SearchRequest searchRequest = buildEsSearchRequest(query, searchType);
+                    logSearchRequest(searchRequest, query, searchType);
+                    request.add(searchRequest);
+                    positions.add(Integer.valueOf(i));
+                } catch (RuntimeException e) {
+                    ret[i] = new MultiSearchResponse.Item(null, e);
+                }
+            }
+            if (!positions.isEmpty()) {
+                MultiSearchResponse.Item[] items = esa.getClient().multiSearch(request).getResponses();
+                for (int i = 0; i < items.length; i++) {
+                    if (!items[i].isFailure()) {
+                        logSearchResponse(items[i].getResponse());
+                    }
+                    ret[positions.get(i).intValue()] = items[i];
+                }
+            }
+        }
+        return Arrays.asList(ret);
+    }
+
     protected SearchResponse searchScroll(NxQueryBuilder query, SearchType searchType, long keepAlive) {
         try (Context ignored = searchTimer.time()) {
             SearchRequest request = buildEsSearchScrollRequest(query, searchType, keepAlive);
@@ -260,7 +331,9 @@ public class ElasticSearchServiceImpl implements ElasticSearchService {
         request.source(search);
         if (query.isFetchFromElasticsearch()) {
             // fetch the _source without the binaryfulltext field
-            search.fetchSource(esa.getIncludeSourceFields(), esa.getExcludeSourceFields());
+            String[] includes = query.getFetchSchemas() == null ? esa.getIncludeSourceFields()
+                    : query.getFetchSchemasSourceFields();
+            search.fetchSource(includes, esa.getExcludeSourceFields());
         }
         return request;
     }
@@ -0,0 +1,253 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.fetcher;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.nuxeo.common.utils.Path;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.impl.DocumentModelImpl;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
+import org.nuxeo.ecm.core.api.model.DataModel;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+import org.nuxeo.ecm.platform.query.api.PageProvider;
+import org.nuxeo.elasticsearch.fetcher.EsFetcher.HitDocConsumer;
+import org.nuxeo.elasticsearch.io.JsonDocumentModelReader;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Fetcher building the documents from the Elasticsearch _source for the requested schemas, without loading them from
+ * the repository and keeping the order of the hits.
+ * <p>
+ * Unlike the {@link EsFetcher}, the documents are attached to the session: the other schemas, the ACP or the state of
+ * the document are lazily loaded from the repository when accessed, with the security checks of the session, so they
+ * can be used by enrichers. Hits from another repository than the session one are loaded from their repository.
+ * <p>
+ * The index can be late on the repository, for instance after an ACL change: a single query per page, returning only
+ * the ids, checks that the documents built from the _source are still visible by the session, as the {@link VcsFetcher}
+ * does.
+ * <p>
+ * The {@code nuxeo.elasticsearch.fetcher.hybrid.source} counter is the number of documents built from the _source,
+ * the {@code nuxeo.elasticsearch.fetcher.hybrid.repository} one is the number of those documents that have accessed the
+ * repository afterwards.
+ *
+ * @since 11.1
+ */
+public class HybridFetcher extends VcsFetcher {
+
+    protected static final MetricRegistry registry = SharedMetricRegistries.getOrCreate(
+            MetricsService.class.getName());
+
+    protected static final Counter sourceCount = registry.counter(
+            MetricRegistry.name("nuxeo", "elasticsearch", "fetcher", "hybrid", "source"));
+
+    protected static final Counter repositoryCount = registry.counter(
+            MetricRegistry.name("nuxeo", "elasticsearch", "fetcher", "hybrid", "repository"));
+
+    protected final Collection<String> schemas;
+
+    protected final HitDocConsumer consumer;
+
+    public HybridFetcher(CoreSession session, SearchResponse response, Map<String, String> repoNames,
+            Collection<String> schemas, HitDocConsumer consumer) {
+        super(session, response, repoNames);
+        this.schemas = schemas;
+        this.consumer = consumer;
+    }
+
+    @Override
+    public DocumentModelListImpl fetchDocuments() {
+        SearchHit[] hits = getResponse().getHits().getHits();
+        String sessionRepository = getSession().getRepositoryName();
+        String sid = getSession().getSessionId();
+        DocumentModel[] docs = new DocumentModel[hits.length];
+        Map<String, List<String>> repoHits = new HashMap<>();
+        Map<String, Integer> positions = new HashMap<>();
+        List<String> sourceIds = new ArrayList<>(hits.length);
+        for (int i = 0; i < hits.length; i++) {
+            SearchHit hit = hits[i];
+            String repository = getRepoForIndex(hit.getIndex());
+            if (repository == null || repository.equals(sessionRepository)) {
+                JsonDocumentModelReader reader = new HybridDocumentModelReader(hit.getSourceAsMap());
+                docs[i] = reader.schemas(schemas).sid(sid).getDocumentModel();
+                sourceIds.add(hit.getId());
+            } else {
+                repoHits.computeIfAbsent(repository, k -> new ArrayList<>()).add(hit.getId());
+                positions.put(repository + hit.getId(), Integer.valueOf(i));
+            }
+        }
+        Set<String> grantedIds = getGrantedIds(sourceIds);
+        for (int i = 0; i < docs.length; i++) {
+            if (docs[i] instanceof HybridDocumentModel) {
+                if (grantedIds.contains(docs[i].getId())) {
+                    sourceCount.inc();
+                } else {
+                    // not visible anymore or removed from the repository
+                    docs[i] = null;
+                }
+            }
+        }
+        if (!repoHits.isEmpty()) {
+            for (DocumentModel doc : fetchFromVcs(repoHits)) {
+                Integer position = positions.get(doc.getRepositoryName() + doc.getId());
+                if (position != null) {
+                    docs[position.intValue()] = doc;
+                }
+            }
+        }
+        DocumentModelListImpl ret = new DocumentModelListImpl(docs.length);
+        for (int i = 0; i < docs.length; i++) {
+            DocumentModel doc = docs[i];
+            if (doc == null) {
+                // removed from the repository
+                continue;
+            }
+            if (consumer != null) {
+                consumer.accept(hits[i], doc);
+            }
+            addHighlights(hits[i], doc);
+            ret.add(doc);
+        }
+        return ret;
+    }
+
+    /**
+     * Returns the ids visible by the session among the given ones, with a single query checking the security.
+     */
+    protected Set<String> getGrantedIds(List<String> ids) {
+        Set<String> granted = new HashSet<>();
+        if (ids.isEmpty()) {
+            return granted;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ecm:uuid FROM Document, Relation WHERE ecm:uuid IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(NXQL.escapeString(ids.get(i)));
+        }
+        sb.append(")");
+        for (Map<String, Serializable> map : getSession().queryProjection(sb.toString(), 0, 0)) {
+            granted.add((String) map.get(NXQL.ECM_UUID));
+        }
+        return granted;
+    }
+
+    protected void addHighlights(SearchHit hit, DocumentModel doc) {
+        Map<String, HighlightField> esHighlights = hit.getHighlightFields();
+        if (esHighlights.isEmpty()) {
+            return;
+        }
+        Map<String, List<String>> fields = new HashMap<>();
+        for (Map.Entry<String, HighlightField> entry : esHighlights.entrySet()) {
+            List<String> list = new ArrayList<>();
+            for (Text fragment : entry.getValue().getFragments()) {
+                list.add(fragment.toString());
+            }
+            fields.put(entry.getKey(), list);
+        }
+        doc.putContextData(PageProvider.HIGHLIGHT_CTX_DATA, (Serializable) fields);
+    }
+
+    /**
+     * Reader creating {@link HybridDocumentModel}s.
+     */
+    protected static class HybridDocumentModelReader extends JsonDocumentModelReader {
+
+        public HybridDocumentModelReader(Map<String, Object> source) {
+            super(source);
+        }
+
+        @Override
+        protected DocumentModelImpl newDocumentModel(String sid, String type, String id, Path path,
+                DocumentRef docRef, DocumentRef parentRef, Set<String> facets, String sourceId, String repositoryName,
+                boolean isProxy) {
+            return new HybridDocumentModel(sid, type, id, path, docRef, parentRef, facets, sourceId, repositoryName,
+                    isProxy);
+        }
+    }
+
+    /**
+     * Document built from the Elasticsearch _source, counting its first access to the repository.
+     */
+    public static class HybridDocumentModel extends DocumentModelImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        protected transient boolean repositoryAccessed;
+
+        public HybridDocumentModel(String sid, String type, String id, Path path, DocumentRef docRef,
+                DocumentRef parentRef, Set<String> facets, String sourceId, String repositoryName, boolean isProxy) {
+            super(sid, type, id, path, docRef, parentRef, null, facets, sourceId, repositoryName, isProxy);
+        }
+
+        /**
+         * Returns {@code true} if the document has been loaded from the repository since it was built from the
+         * _source.
+         */
+        public boolean isRepositoryAccessed() {
+            return repositoryAccessed;
+        }
+
+        protected void accessRepository() {
+            if (!repositoryAccessed && sid != null) {
+                repositoryAccessed = true;
+                repositoryCount.inc();
+            }
+        }
+
+        @Override
+        protected DataModel loadDataModel(String schema) {
+            accessRepository();
+            return super.loadDataModel(schema);
+        }
+
+        @Override
+        public void refresh(int refreshFlags, String[] schemas) {
+            accessRepository();
+            super.refresh(refreshFlags, schemas);
+        }
+
+        @Override
+        public ACP getACP() {
+            accessRepository();
+            return super.getACP();
+        }
+    }
+
+}
@@ -20,6 +20,7 @@
 package org.nuxeo.elasticsearch.io;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -56,6 +57,8 @@ public class JsonDocumentModelReader {
 
     private String sid;
 
+    private Set<String> schemas;
+
     public JsonDocumentModelReader(String json) {
         byte[] bytes = json.getBytes();
         source = SourceLookup.sourceAsMap(new BytesArray(bytes, 0, bytes.length));
@@ -75,6 +78,17 @@ public class JsonDocumentModelReader {
         return this;
     }
 
+    /**
+     * Only loads the given schemas from the source, the other schemas of the document are lazily loaded from the
+     * repository when accessed.
+     *
+     * @since 11.1
+     */
+    public JsonDocumentModelReader schemas(Collection<String> schemas) {
+        this.schemas = schemas == null ? null : new HashSet<>(schemas);
+        return this;
+    }
+
     public DocumentModel getDocumentModel() {
         assert (source != null);
         String type = (String) getProperty("ecm:primaryType");
@@ -98,17 +112,28 @@ public class JsonDocumentModelReader {
         Path pathObj = path == null ? null : new Path(path);
         DocumentRef docRef = new IdRef(id);
         DocumentRef parentRef = parentId == null ? null : new IdRef(parentId);
-        DocumentModelImpl doc = new DocumentModelImpl(sid, type, id, pathObj, docRef, parentRef, null, facets, sourceId,
+        DocumentModelImpl doc = newDocumentModel(sid, type, id, pathObj, docRef, parentRef, facets, sourceId,
                 repositoryName, isProxy);
 
         // preload DataModel to prevent DB access
+        Set<String> prefixes = new HashSet<>();
         for (String schemaName : doc.getSchemas()) { // all schemas including from facets
+            if (schemas != null && !schemas.contains(schemaName)) {
+                // lazily loaded
+                continue;
+            }
             Schema schema = schemaManager.getSchema(schemaName);
             doc.addDataModel(DocumentModelFactory.createDataModel(null, schema));
+            String prefix = schema.getNamespace().prefix;
+            prefixes.add(prefix == null || prefix.isEmpty() ? schemaName : prefix);
         }
 
         for (String prop : source.keySet()) {
             String schema = prop.split(":")[0];
+            if (schemas != null && !"ecm".equals(schema) && !prefixes.contains(schema)) {
+                // setting the property would load its schema from the repository
+                continue;
+            }
             Serializable value = getProperty(prop);
             if (value == null) {
                 continue;
@@ -136,6 +161,15 @@ public class JsonDocumentModelReader {
         return doc;
     }
 
+    /**
+     * @since 11.1
+     */
+    protected DocumentModelImpl newDocumentModel(String sid, String type, String id, Path path, DocumentRef docRef,
+            DocumentRef parentRef, Set<String> facets, String sourceId, String repositoryName, boolean isProxy) {
+        return new DocumentModelImpl(sid, type, id, path, docRef, parentRef, null, facets, sourceId, repositoryName,
+                isProxy);
+    }
+
     protected Serializable getProperty(String name) {
         return (Serializable) source.get(name);
     }
@@ -62,6 +62,15 @@ public class JsonESDocumentWriter {
      * @since 7.2
      */
     protected void writeSystemProperties(JsonGenerator jg, DocumentModel doc) throws IOException {
+        writeSystemProperties(jg, doc, true);
+    }
+
+    /**
+     * @param withBinaryFulltext {@code false} to skip the binary fulltext, which can be large
+     * @since 11.1
+     */
+    protected void writeSystemProperties(JsonGenerator jg, DocumentModel doc, boolean withBinaryFulltext)
+            throws IOException {
         String docId = doc.getId();
         CoreSession session = doc.getCoreSession();
         jg.writeStringField("ecm:repository", doc.getRepositoryName());
@@ -138,6 +147,9 @@ public class JsonESDocumentWriter {
         }
 
         jg.writeEndArray();
+        if (!withBinaryFulltext) {
+            return;
+        }
         Map<String, String> bmap = doc.getBinaryFulltext();
         if (bmap != null && !bmap.isEmpty()) {
             for (Map.Entry<String, String> item : bmap.entrySet()) {
@@ -183,6 +195,20 @@ public class JsonESDocumentWriter {
         jg.flush();
     }
 
+    /**
+     * Writes the partial document used to update the given schemas of an indexed document: the system properties but
+     * the binary fulltext, and the properties of the schemas.
+     *
+     * @since 11.1
+     */
+    public void writeESDocumentUpdate(JsonGenerator jg, DocumentModel doc, String[] schemas) throws IOException {
+        jg.writeStartObject();
+        writeSystemProperties(jg, doc, false);
+        writeSchemas(jg, doc, schemas);
+        jg.writeEndObject();
+        jg.flush();
+    }
+
     protected static void writeProperties(JsonGenerator jg, DocumentModel doc, String schema, ServletRequest request)
             throws IOException {
         Collection<Property> properties = doc.getPropertyObjects(schema);
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.index.query.QueryBuilder;
@@ -58,6 +59,14 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
 
     public static final String SEARCH_ON_ALL_REPOSITORIES_PROPERTY = "searchAllRepositories";
 
+    /**
+     * Comma separated list of schemas to build the documents from the Elasticsearch _source, the other schemas are
+     * lazily loaded from the repository.
+     *
+     * @since 11.1
+     */
+    public static final String FETCH_SCHEMAS_FROM_ES_PROPERTY = "fetchSchemasFromElasticsearch";
+
     // @since 9.2
     public static final String ES_MAX_RESULT_WINDOW_PROPERTY = "org.nuxeo.elasticsearch.provider.maxResultWindow";
 
@@ -81,6 +90,64 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
         if (currentPageDocuments != null) {
             return currentPageDocuments;
         }
+        NxQueryBuilder nxQuery = buildNxQuery();
+        // Execute the ES query
+        ElasticSearchService ess = Framework.getService(ElasticSearchService.class);
+        try {
+            setCurrentPage(ess.queryAndAggregate(nxQuery));
+        } catch (QueryParseException e) {
+            setQueryError(e);
+        }
+
+        // send event for statistics !
+        fireSearchEvent(getCoreSession().getPrincipal(), query, currentPageDocuments, System.currentTimeMillis() - t0);
+
+        return currentPageDocuments;
+    }
+
+    /**
+     * Computes the current page of the providers not having it yet. Their queries are sent in a single multi search
+     * request, so the page providers of a view are executed in parallel by Elasticsearch.
+     * <p>
+     * A failing query only sets the error of its own provider, which gets an empty page.
+     *
+     * @since 11.1
+     */
+    public static void fetchCurrentPages(List<ElasticSearchNxqlPageProvider> providers) {
+        long t0 = System.currentTimeMillis();
+        List<ElasticSearchNxqlPageProvider> pending = new ArrayList<>(providers.size());
+        List<NxQueryBuilder> nxQueries = new ArrayList<>(providers.size());
+        for (ElasticSearchNxqlPageProvider provider : providers) {
+            if (provider.currentPageDocuments != null) {
+                continue;
+            }
+            pending.add(provider);
+            nxQueries.add(provider.buildNxQuery());
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<EsResult> results = Framework.getService(ElasticSearchService.class).queryAndAggregate(nxQueries);
+        long duration = System.currentTimeMillis() - t0;
+        for (int i = 0; i < pending.size(); i++) {
+            ElasticSearchNxqlPageProvider provider = pending.get(i);
+            EsResult result = results.get(i);
+            if (result.getFailure() == null) {
+                provider.setCurrentPage(result);
+            } else {
+                provider.setQueryError(result.getFailure());
+            }
+            provider.fireSearchEvent(provider.getCoreSession().getPrincipal(), provider.query,
+                    provider.currentPageDocuments, duration);
+        }
+    }
+
+    /**
+     * Builds the query of the current page, resetting the current page.
+     *
+     * @since 11.1
+     */
+    protected NxQueryBuilder buildNxQuery() {
         error = null;
         errorMessage = null;
         log.debug("Perform query for provider '{}': with pageSize={}, offset={}", this::getName,
@@ -93,41 +160,46 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
         if (query == null) {
             throw new NuxeoException(String.format("Cannot perform null query: check provider '%s'", getName()));
         }
-        // Build and execute the ES query
-        ElasticSearchService ess = Framework.getService(ElasticSearchService.class);
-        try {
-            NxQueryBuilder nxQuery = new NxQueryBuilder(getCoreSession()).nxql(query)
-                                                                         .offset((int) getCurrentPageOffset())
-                                                                         .limit(getLimit())
-                                                                         .addAggregates(buildAggregates());
-            if (searchOnAllRepositories()) {
-                nxQuery.searchOnAllRepositories();
-            }
-            nxQuery.useUnrestrictedSession(useUnrestrictedSession());
-
-            List<String> highlightFields = getHighlights();
-            if (highlightFields != null && !highlightFields.isEmpty()) {
-                nxQuery.highlight(highlightFields);
-            }
+        NxQueryBuilder nxQuery = new NxQueryBuilder(getCoreSession()).nxql(query)
+                                                                     .offset((int) getCurrentPageOffset())
+                                                                     .limit(getLimit())
+                                                                     .addAggregates(buildAggregates());
+        if (searchOnAllRepositories()) {
+            nxQuery.searchOnAllRepositories();
+        }
+        nxQuery.useUnrestrictedSession(useUnrestrictedSession());
+        String[] fetchSchemas = getFetchSchemasFromElasticsearch();
+        if (fetchSchemas != null) {
+            nxQuery.fetchSchemasFromElasticsearch(fetchSchemas);
+        }
 
-            EsResult ret = ess.queryAndAggregate(nxQuery);
-            DocumentModelList dmList = ret.getDocuments();
-            currentAggregates = new HashMap<>(ret.getAggregates().size());
-            for (Aggregate<Bucket> agg : ret.getAggregates()) {
-                currentAggregates.put(agg.getId(), agg);
-            }
-            setResultsCount(dmList.totalSize());
-            currentPageDocuments = dmList;
-        } catch (QueryParseException e) {
-            error = e;
-            errorMessage = e.getMessage();
-            log.warn(e.getMessage(), e);
+        List<String> highlightFields = getHighlights();
+        if (highlightFields != null && !highlightFields.isEmpty()) {
+            nxQuery.highlight(highlightFields);
         }
+        return nxQuery;
+    }
 
-        // send event for statistics !
-        fireSearchEvent(getCoreSession().getPrincipal(), query, currentPageDocuments, System.currentTimeMillis() - t0);
+    /**
+     * @since 11.1
+     */
+    protected void setCurrentPage(EsResult ret) {
+        DocumentModelList dmList = ret.getDocuments();
+        currentAggregates = new HashMap<>(ret.getAggregates().size());
+        for (Aggregate<Bucket> agg : ret.getAggregates()) {
+            currentAggregates.put(agg.getId(), agg);
+        }
+        setResultsCount(dmList.totalSize());
+        currentPageDocuments = dmList;
+    }
 
-        return currentPageDocuments;
+    /**
+     * @since 11.1
+     */
+    protected void setQueryError(RuntimeException e) {
+        error = e;
+        errorMessage = e.getMessage();
+        log.warn(e.getMessage(), e);
     }
 
     protected int getLimit() {
@@ -190,6 +262,17 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
         return Boolean.parseBoolean(value);
     }
 
+    /**
+     * @since 11.1
+     */
+    protected String[] getFetchSchemasFromElasticsearch() {
+        String value = (String) getProperties().get(FETCH_SCHEMAS_FROM_ES_PROPERTY);
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        return StringUtils.split(value.replace(" ", ""), ',');
+    }
+
     @Override
     public boolean hasAggregateSupport() {
         return true;
@@ -24,6 +24,7 @@ import static org.nuxeo.elasticsearch.ElasticSearchConstants.ES_SCORE_FIELD;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.FETCH_DOC_FROM_ES_PROPERTY;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,7 @@ import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.SortInfo;
 import org.nuxeo.ecm.core.schema.SchemaManager;
+import org.nuxeo.ecm.core.schema.types.Schema;
 import org.nuxeo.ecm.core.schema.types.Type;
 import org.nuxeo.ecm.core.security.SecurityService;
 import org.nuxeo.ecm.platform.query.api.Aggregate;
@@ -55,6 +57,7 @@ import org.nuxeo.elasticsearch.aggregate.AggregateEsBase;
 import org.nuxeo.elasticsearch.api.EsResult;
 import org.nuxeo.elasticsearch.fetcher.EsFetcher;
 import org.nuxeo.elasticsearch.fetcher.Fetcher;
+import org.nuxeo.elasticsearch.fetcher.HybridFetcher;
 import org.nuxeo.elasticsearch.fetcher.VcsFetcher;
 import org.nuxeo.runtime.api.Framework;
 
@@ -87,6 +90,8 @@ public class NxQueryBuilder {
 
     private boolean fetchFromElasticsearch = false;
 
+    private List<String> fetchSchemas;
+
     private boolean searchOnAllRepo = false;
 
     private String[] selectFields = { ElasticSearchConstants.ID_FIELD };
@@ -172,6 +177,20 @@ public class NxQueryBuilder {
      */
     public NxQueryBuilder fetchFromElasticsearch() {
         fetchFromElasticsearch = true;
+        fetchSchemas = null;
+        return this;
+    }
+
+    /**
+     * Ask for the given schemas of the Elasticsearch _source and use them to build documents attached to the session:
+     * the other schemas are lazily loaded from the repository when accessed. A single query per page checks that the
+     * documents are still visible by the session in the repository.
+     *
+     * @since 11.1
+     */
+    public NxQueryBuilder fetchSchemasFromElasticsearch(String... schemas) {
+        fetchFromElasticsearch = true;
+        fetchSchemas = Arrays.asList(schemas);
         return this;
     }
 
@@ -198,6 +217,7 @@ public class NxQueryBuilder {
      */
     public NxQueryBuilder fetchFromDatabase() {
         fetchFromElasticsearch = false;
+        fetchSchemas = null;
         return this;
     }
 
@@ -253,6 +273,35 @@ public class NxQueryBuilder {
         return fetchFromElasticsearch;
     }
 
+    /**
+     * Returns the schemas to build from the Elasticsearch _source, or {@code null} to build the whole documents.
+     *
+     * @since 11.1
+     */
+    public List<String> getFetchSchemas() {
+        return fetchSchemas;
+    }
+
+    /**
+     * Returns the _source fields needed to build the documents with the schemas to fetch from Elasticsearch.
+     *
+     * @since 11.1
+     */
+    public String[] getFetchSchemasSourceFields() {
+        SchemaManager schemaManager = Framework.getService(SchemaManager.class);
+        List<String> fields = new ArrayList<>(fetchSchemas.size() + 1);
+        fields.add("ecm:*");
+        for (String name : fetchSchemas) {
+            Schema schema = schemaManager.getSchema(name);
+            if (schema == null) {
+                continue;
+            }
+            String prefix = schema.getNamespace().prefix;
+            fields.add((prefix == null || prefix.isEmpty() ? name : prefix) + ":*");
+        }
+        return fields.toArray(new String[0]);
+    }
+
     public CoreSession getSession() {
         return session;
     }
@@ -467,6 +516,9 @@ public class NxQueryBuilder {
 
     protected Fetcher getFetcher(CoreSession session, SearchResponse response, Map<String, String> repoNames) {
         if (isFetchFromElasticsearch()) {
+            if (fetchSchemas != null) {
+                return new HybridFetcher(session, response, repoNames, fetchSchemas, hitDocConsumer);
+            }
             return new EsFetcher(session, response, repoNames, hitDocConsumer);
         }
         return new VcsFetcher(session, response, repoNames);
@@ -19,14 +19,23 @@
 package org.nuxeo.elasticsearch.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.VersionType;
 import org.junit.After;
@@ -123,5 +132,44 @@ public abstract class TestESClient {
         assertEquals(request2.version(), ret.getVersion());
     }
 
+    /**
+     * @since 11.1
+     */
+    @Test
+    public void testAsyncBulkAndSearch() throws Exception {
+        client.createIndex("async-index", "{\"index\" : {\"number_of_shards\" : 1, \"number_of_replicas\" : 0}}");
+        BulkRequest bulkRequest = new BulkRequest().setRefreshPolicy(RefreshPolicy.IMMEDIATE);
+        bulkRequest.add(new IndexRequest("async-index", "_doc", "1").source("{\"foo\": \"v1\"}", XContentType.JSON));
+        bulkRequest.add(new IndexRequest("async-index", "_doc", "2").source("{\"foo\": \"v2\"}", XContentType.JSON));
+        BulkResponse bulkResponse = client.bulkAsync(bulkRequest).get(20, TimeUnit.SECONDS);
+        assertFalse(bulkResponse.hasFailures());
+        assertEquals(2, bulkResponse.getItems().length);
+
+        SearchResponse searchResponse = client.searchAsync(new SearchRequest("async-index")).get(20, TimeUnit.SECONDS);
+        assertEquals(2, searchResponse.getHits().getTotalHits());
+    }
+
+    /**
+     * @since 11.1
+     */
+    @Test
+    public void testAsyncFailures() throws Exception {
+        try {
+            client.searchAsync(new SearchRequest("unknown-index")).get(20, TimeUnit.SECONDS);
+            fail("search on an unknown index should fail");
+        } catch (ExecutionException e) {
+            // expected, the future is completed exceptionally
+            assertNotNull(e.getCause());
+        }
+        try {
+            // a bulk request without any action is invalid
+            client.bulkAsync(new BulkRequest()).get(20, TimeUnit.SECONDS);
+            fail("empty bulk request should fail");
+        } catch (ExecutionException e) {
+            // expected
+            assertNotNull(e.getCause());
+        }
+    }
+
     // TODO: do check all API of ESClient
 }
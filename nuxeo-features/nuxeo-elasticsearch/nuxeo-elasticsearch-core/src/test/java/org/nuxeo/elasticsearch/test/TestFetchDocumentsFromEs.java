@@ -32,13 +32,22 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CloseableCoreSession;
+import org.nuxeo.ecm.core.api.CoreInstance;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.PathRef;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.api.security.SecurityConstants;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
 import org.nuxeo.elasticsearch.api.ElasticSearchService;
 import org.nuxeo.elasticsearch.api.EsResult;
+import org.nuxeo.elasticsearch.fetcher.HybridFetcher.HybridDocumentModel;
 import org.nuxeo.elasticsearch.query.NxQueryBuilder;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Deploy;
@@ -129,6 +138,71 @@ public class TestFetchDocumentsFromEs {
 
     }
 
+    /**
+     * @since 11.1
+     */
+    @Test
+    public void shouldLoadDocumentFromEsWithHybridFetcher() throws Exception {
+        buildAndIndexTree();
+        DocumentModelList docs = ess.query(new NxQueryBuilder(session).nxql(
+                "select * from Document order by dc:title desc").limit(20).fetchSchemasFromElasticsearch("dublincore"));
+        Assert.assertEquals(10, docs.totalSize());
+        Assert.assertEquals(10, docs.size());
+        for (int i = 0; i < 10; i++) {
+            HybridDocumentModel doc = (HybridDocumentModel) docs.get(i);
+            // the order of the hits is kept
+            Assert.assertEquals("Folder" + (9 - i), doc.getTitle());
+            Assert.assertFalse(doc.isRepositoryAccessed());
+        }
+        // a schema outside of the _source is loaded from the repository
+        HybridDocumentModel doc = (HybridDocumentModel) docs.get(0);
+        doc.getPropertyValue("common:icon");
+        Assert.assertTrue(doc.isRepositoryAccessed());
+    }
+
+    /**
+     * @since 11.1
+     */
+    @Test
+    public void shouldFilterRevokedDocumentsWithHybridFetcher() throws Exception {
+        buildAndIndexTree();
+        setACE("/folder0", new ACE("toto", SecurityConstants.READ, true));
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForAsyncIndexing();
+        esa.refresh();
+        TransactionHelper.startTransaction();
+
+        try (CloseableCoreSession restrictedSession = CoreInstance.openCoreSession(null, "toto")) {
+            NxQueryBuilder query = new NxQueryBuilder(restrictedSession).nxql(
+                    "select * from Document order by dc:title").limit(20).fetchSchemasFromElasticsearch("dublincore");
+            Assert.assertEquals(10, ess.query(query).size());
+
+            // revoke the access without indexing it yet
+            setACE("/folder0/folder1/folder2/folder3/folder4/folder5",
+                    new ACE(SecurityConstants.EVERYONE, SecurityConstants.EVERYTHING, false));
+            session.save();
+
+            DocumentModelList docs = ess.query(query);
+            // the stale index still returns the revoked documents
+            Assert.assertEquals(10, docs.totalSize());
+            Assert.assertEquals(5, docs.size());
+            for (int i = 0; i < 5; i++) {
+                Assert.assertEquals("Folder" + i, docs.get(i).getTitle());
+            }
+        }
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForAsyncIndexing();
+        TransactionHelper.startTransaction();
+    }
+
+    protected void setACE(String path, ACE ace) {
+        ACP acp = new ACPImpl();
+        ACL acl = ACPImpl.newACL(ACL.LOCAL_ACL);
+        acl.add(ace);
+        acp.addACL(acl);
+        session.setACP(new PathRef(path), acp, true);
+    }
+
     @Test
     public void checkNotFetch() throws Exception {
         buildAndIndexTree();
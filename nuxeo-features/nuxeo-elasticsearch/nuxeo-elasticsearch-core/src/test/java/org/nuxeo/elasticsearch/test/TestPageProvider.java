@@ -42,6 +42,7 @@ import org.nuxeo.ecm.core.api.CloseableCoreSession;
 import org.nuxeo.ecm.core.api.CoreInstance;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.platform.query.api.PageProvider;
 import org.nuxeo.ecm.platform.query.api.PageProviderDefinition;
@@ -49,8 +50,10 @@ import org.nuxeo.ecm.platform.query.api.PageProviderService;
 import org.nuxeo.ecm.platform.query.api.WhereClauseDefinition;
 import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
 import org.nuxeo.elasticsearch.api.ElasticSearchService;
+import org.nuxeo.elasticsearch.api.EsResult;
 import org.nuxeo.elasticsearch.provider.ElasticSearchNativePageProvider;
 import org.nuxeo.elasticsearch.provider.ElasticSearchNxqlPageProvider;
+import org.nuxeo.elasticsearch.query.NxQueryBuilder;
 import org.nuxeo.elasticsearch.query.PageProviderQueryBuilder;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.ConsoleLogLevelThreshold;
@@ -209,6 +212,106 @@ public class TestPageProvider {
 
     }
 
+    /**
+     * @since 11.1
+     */
+    @Test
+    public void ICanFetchThePagesOfNxqlPageProvidersTogether() throws Exception {
+        PageProviderService pps = Framework.getService(PageProviderService.class);
+        HashMap<String, Serializable> props = new HashMap<>();
+        props.put(ElasticSearchNativePageProvider.CORE_SESSION_PROPERTY, (Serializable) session);
+        ElasticSearchNxqlPageProvider pp = (ElasticSearchNxqlPageProvider) pps.getPageProvider("NXQL_PP_PATTERN",
+                pps.getPageProviderDefinition("NXQL_PP_PATTERN"), null, null, 5L, 0L, props);
+        ElasticSearchNxqlPageProvider pp2 = (ElasticSearchNxqlPageProvider) pps.getPageProvider("NXQL_PP_PATTERN2",
+                pps.getPageProviderDefinition("NXQL_PP_PATTERN2"), null, null, 10000L, 0L, props);
+
+        // create 10 docs
+        startTransaction();
+        for (int i = 0; i < 10; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "testDoc" + i, "File");
+            doc.setPropertyValue("dc:title", "TestMe" + i);
+            doc = session.createDocument(doc);
+        }
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForCompletion();
+        assertNumberOfCommandProcessed(10);
+
+        startTransaction();
+        // both queries are sent in a single multi search request
+        ElasticSearchNxqlPageProvider.fetchCurrentPages(Arrays.asList(pp, pp2));
+        List<DocumentModel> p = pp.getCurrentPage();
+        Assert.assertEquals(10, pp.getResultsCount());
+        Assert.assertEquals(5, p.size());
+        Assert.assertEquals("TestMe9", p.get(0).getTitle());
+        p = pp2.getCurrentPage();
+        Assert.assertEquals(10, pp2.getResultsCount());
+        Assert.assertEquals(10, p.size());
+        Assert.assertEquals("TestMe9", p.get(0).getTitle());
+    }
+
+    /**
+     * @since 11.1
+     */
+    @Test
+    @ConsoleLogLevelThreshold("ERROR")
+    public void ICanFetchThePagesOfNxqlPageProvidersWithAnInvalidOne() throws Exception {
+        PageProviderService pps = Framework.getService(PageProviderService.class);
+        HashMap<String, Serializable> props = new HashMap<>();
+        props.put(ElasticSearchNativePageProvider.CORE_SESSION_PROPERTY, (Serializable) session);
+        ElasticSearchNxqlPageProvider pp = (ElasticSearchNxqlPageProvider) pps.getPageProvider("NXQL_PP_PATTERN",
+                pps.getPageProviderDefinition("NXQL_PP_PATTERN"), null, null, 5L, 0L, props);
+        ElasticSearchNxqlPageProvider invalid = (ElasticSearchNxqlPageProvider) pps.getPageProvider("INVALID_PP",
+                pps.getPageProviderDefinition("INVALID_PP"), null, null, 0L, 0L, props);
+
+        startTransaction();
+        for (int i = 0; i < 10; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "testDoc" + i, "File");
+            doc.setPropertyValue("dc:title", "TestMe" + i);
+            doc = session.createDocument(doc);
+        }
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForCompletion();
+        startTransaction();
+
+        // the invalid query only fails its own provider
+        ElasticSearchNxqlPageProvider.fetchCurrentPages(Arrays.asList(invalid, pp));
+        Assert.assertNull(pp.getErrorMessage());
+        Assert.assertEquals(10, pp.getResultsCount());
+        Assert.assertEquals(5, pp.getCurrentPage().size());
+        assertNotNull(invalid.getErrorMessage());
+        assertEquals(0, invalid.getCurrentPage().size());
+    }
+
+    /**
+     * @since 11.1
+     */
+    @Test
+    public void ICanSendQueriesTogetherWithFailingOnes() throws Exception {
+        startTransaction();
+        for (int i = 0; i < 10; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "testDoc" + i, "File");
+            doc.setPropertyValue("dc:title", "TestMe" + i);
+            doc = session.createDocument(doc);
+        }
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForCompletion();
+        startTransaction();
+
+        String nxql = "SELECT * FROM File";
+        List<EsResult> results = ess.queryAndAggregate(Arrays.asList( //
+                new NxQueryBuilder(session).nxql("SELECT * FROM File WHERE"), // invalid NXQL
+                new NxQueryBuilder(session).nxql(nxql).limit(3),
+                new NxQueryBuilder(session).nxql(nxql).offset(20000).limit(10))); // beyond the result window
+        assertEquals(3, results.size());
+        Assert.assertTrue(results.get(0).getFailure() instanceof QueryParseException);
+        Assert.assertNull(results.get(1).getFailure());
+        assertEquals(10, results.get(1).getDocuments().totalSize());
+        assertEquals(3, results.get(1).getDocuments().size());
+        // rejected by Elasticsearch, not by the parsing
+        assertNotNull(results.get(2).getFailure());
+        Assert.assertNull(results.get(2).getDocuments());
+    }
+
     @Test
     public void ICanUseANxqlPageProviderWithParameters() throws Exception {
         PageProviderService pps = Framework.getService(PageProviderService.class);
@@ -0,0 +1,250 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+
+package org.nuxeo.elasticsearch.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.BINARYTEXT_FIELD;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.DOC_TYPE;
+import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEX_PARTIAL_UPDATE_PROPERTY;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.api.impl.blob.StringBlob;
+import org.nuxeo.ecm.core.work.api.WorkManager;
+import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
+import org.nuxeo.elasticsearch.listener.ElasticSearchInlineListener;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Test the partial update of the modified schemas. A marker field is written directly in the indexed source: it is
+ * kept by a partial update and dropped when the whole document is indexed again.
+ *
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ RepositoryElasticSearchFeature.class })
+@Deploy("org.nuxeo.elasticsearch.core:elasticsearch-test-contrib.xml")
+public class TestPartialUpdateIndexing {
+
+    protected static final String MARKER = "test:marker";
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected WorkManager workManager;
+
+    @Inject
+    protected ElasticSearchAdmin esa;
+
+    public void waitForCompletion() throws Exception {
+        workManager.awaitCompletion(20, TimeUnit.SECONDS);
+        esa.prepareWaitForIndexing().get(20, TimeUnit.SECONDS);
+        esa.refresh();
+    }
+
+    protected void startTransaction() {
+        if (!TransactionHelper.isTransactionActive()) {
+            TransactionHelper.startTransaction();
+        }
+        assertEquals(0, esa.getPendingWorkerCount());
+    }
+
+    protected void commitAndWait() throws Exception {
+        TransactionHelper.commitOrRollbackTransaction();
+        waitForCompletion();
+        startTransaction();
+    }
+
+    @Before
+    public void setupIndex() throws Exception {
+        Framework.getProperties().put(INDEX_PARTIAL_UPDATE_PROPERTY, "true");
+        esa.initIndexes(true);
+    }
+
+    @After
+    public void resetProperty() {
+        Framework.getProperties().remove(INDEX_PARTIAL_UPDATE_PROPERTY);
+    }
+
+    protected String getIndexName() {
+        return esa.getWriteIndexName(esa.getIndexNameForRepository(session.getRepositoryName()));
+    }
+
+    protected Map<String, Object> getSource(DocumentModel doc) {
+        GetResponse response = esa.getClient().get(new GetRequest(getIndexName(), DOC_TYPE, doc.getId()));
+        assertTrue("Document not indexed: " + doc.getId(), response.isExists());
+        return response.getSourceAsMap();
+    }
+
+    protected void mark(DocumentModel doc) throws Exception {
+        UpdateRequest request = new UpdateRequest(getIndexName(), DOC_TYPE, doc.getId()).doc(MARKER, "marked");
+        assertFalse(esa.getClient().bulk(new BulkRequest().add(request)).hasFailures());
+        esa.refresh();
+        assertEquals("marked", getSource(doc).get(MARKER));
+    }
+
+    protected DocumentModel createFileWithBlob(String name) throws Exception {
+        startTransaction();
+        ElasticSearchInlineListener.useSyncIndexing.set(true);
+        DocumentModel doc = session.createDocumentModel("/", name, "File");
+        doc.setPropertyValue("dc:title", "title");
+        doc.setPropertyValue("dc:description", "description");
+        doc.getAdapter(BlobHolder.class).setBlob(new StringBlob("You know for search"));
+        doc = session.createDocument(doc);
+        session.save();
+        // wait for the async fulltext indexing
+        commitAndWait();
+        return doc;
+    }
+
+    protected DocumentModel updateTitle(DocumentModel doc, String title) throws Exception {
+        ElasticSearchInlineListener.useSyncIndexing.set(true);
+        doc.setPropertyValue("dc:title", title);
+        doc = session.saveDocument(doc);
+        session.save();
+        commitAndWait();
+        return doc;
+    }
+
+    @Test
+    public void testPartialUpdateKeepsOtherFields() throws Exception {
+        assertTrue(esa.supportsPartialUpdate(session.getRepositoryName()));
+        DocumentModel doc = createFileWithBlob("file");
+        Map<String, Object> source = getSource(doc);
+        Object binaryText = source.get(BINARYTEXT_FIELD);
+        assertNotNull(binaryText);
+        Object content = source.get("file:content");
+        assertNotNull(content);
+        mark(doc);
+
+        updateTitle(doc, "new title");
+
+        source = getSource(doc);
+        assertEquals("marked", source.get(MARKER));
+        assertEquals("new title", source.get("dc:title"));
+        assertEquals("description", source.get("dc:description"));
+        assertEquals(content, source.get("file:content"));
+        assertEquals(binaryText, source.get(BINARYTEXT_FIELD));
+    }
+
+    @Test
+    public void testUpdateOfNotIndexedDocumentIndexesWholeDocument() throws Exception {
+        DocumentModel doc1 = createFileWithBlob("file1");
+        DocumentModel doc2 = createFileWithBlob("file2");
+        // the documents are no longer indexed
+        esa.initIndexes(true);
+
+        // a single command
+        updateTitle(doc1, "new title 1");
+        Map<String, Object> source = getSource(doc1);
+        assertEquals("new title 1", source.get("dc:title"));
+        assertEquals("description", source.get("dc:description"));
+        assertNotNull(source.get("file:content"));
+
+        // a bulk of commands processed asynchronously
+        doc2.setPropertyValue("dc:title", "new title 2");
+        session.saveDocument(doc2);
+        doc1.setPropertyValue("dc:title", "new title 1.1");
+        session.saveDocument(doc1);
+        esa.initIndexes(true);
+        session.save();
+        commitAndWait();
+        source = getSource(doc2);
+        assertEquals("new title 2", source.get("dc:title"));
+        assertEquals("description", source.get("dc:description"));
+        assertNotNull(source.get("file:content"));
+        assertEquals("new title 1.1", getSource(doc1).get("dc:title"));
+    }
+
+    @Test
+    public void testFacetChangeIndexesWholeDocument() throws Exception {
+        DocumentModel doc = createFileWithBlob("file");
+        mark(doc);
+
+        ElasticSearchInlineListener.useSyncIndexing.set(true);
+        assertTrue(doc.addFacet("HiddenInNavigation"));
+        doc.setPropertyValue("dc:title", "new title");
+        session.saveDocument(doc);
+        session.save();
+        commitAndWait();
+
+        Map<String, Object> source = getSource(doc);
+        assertNull(source.get(MARKER));
+        assertEquals("new title", source.get("dc:title"));
+    }
+
+    @Test
+    public void testProxyUpdateIndexesWholeDocument() throws Exception {
+        DocumentModel doc = createFileWithBlob("file");
+        DocumentModel folder = session.createDocument(session.createDocumentModel("/", "folder", "Folder"));
+        DocumentModel proxy = session.createProxy(doc.getRef(), folder.getRef());
+        session.save();
+        commitAndWait();
+        mark(doc);
+        mark(proxy);
+
+        updateTitle(proxy, "new title");
+
+        Map<String, Object> source = getSource(proxy);
+        assertNull(source.get(MARKER));
+        assertEquals("new title", source.get("dc:title"));
+        source = getSource(doc);
+        assertNull(source.get(MARKER));
+        assertEquals("new title", source.get("dc:title"));
+    }
+
+    @Test
+    @Deploy("org.nuxeo.elasticsearch.core:elasticsearch-test-source-excludes-contrib.xml")
+    public void testFilteredSourceIndexesWholeDocument() throws Exception {
+        assertFalse(esa.supportsPartialUpdate(session.getRepositoryName()));
+        DocumentModel doc = createFileWithBlob("file");
+        mark(doc);
+
+        updateTitle(doc, "new title");
+
+        Map<String, Object> source = getSource(doc);
+        assertNull(source.get(MARKER));
+        assertEquals("new title", source.get("dc:title"));
+    }
+
+}
@@ -0,0 +1,187 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.test.bulk;
+
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
+import org.nuxeo.elasticsearch.bulk.BulkSourceWriter;
+import org.nuxeo.elasticsearch.commands.IndexingCommand;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writing the Elasticsearch sources of a bucket of documents with a {@link BulkSourceWriter}, compared to a buffer
+ * and a generator per document as done by {@link ElasticSearchIndexing#source}.
+ * <p>
+ * The documents are stubs and their sources are written by a stub indexing service, so no repository nor
+ * Elasticsearch is needed. An operation is one document: the score is in docs/s, and the allocated bytes per document
+ * are reported by the {@code gc.alloc.rate.norm} result of the GC profiler:
+ *
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *   -Dexec.args="-classpath %classpath org.openjdk.jmh.Main -prof gc BulkSourceWriterBenchmark"
+ * </pre>
+ *
+ * @since 11.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkSourceWriterBenchmark {
+
+    protected static final int BUCKET_SIZE = 100;
+
+    protected StubIndexing esi;
+
+    protected List<DocumentModel> docs;
+
+    protected BulkSourceWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        esi = new StubIndexing();
+        docs = new ArrayList<>(BUCKET_SIZE);
+        for (int i = 0; i < BUCKET_SIZE; i++) {
+            DocumentModel doc = mock(DocumentModel.class);
+            esi.fields.put(doc, new String[] { //
+                    "ecm:uuid", "0b3c5e9a-6c1d-4e2f-9a1b-" + String.format("%012d", i), //
+                    "ecm:name", "file" + i, //
+                    "ecm:primaryType", "File", //
+                    "ecm:path", "/default-domain/workspaces/ws/file" + i, //
+                    "ecm:currentLifeCycleState", "project", //
+                    "dc:title", "File " + i, //
+                    "dc:description", "Some description of the file number " + i, //
+                    "dc:creator", "Administrator", //
+                    "dc:created", "2019-06-12T14:32:05.123Z", //
+                    "dc:modified", "2019-06-12T14:32:05.123Z", //
+                    "file:content/name", "file" + i + ".txt", //
+                    "file:content/mime-type", "text/plain", //
+                    "ecm:binarytext", "Some extracted text of the file number " + i });
+            docs.add(doc);
+        }
+        writer = new BulkSourceWriter(esi);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        writer.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BUCKET_SIZE)
+    public void perDocument(Blackhole bh) throws IOException {
+        for (DocumentModel doc : docs) {
+            bh.consume(esi.source(doc));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BUCKET_SIZE)
+    public void sharedBuffer(Blackhole bh) throws IOException {
+        writer.reset();
+        for (DocumentModel doc : docs) {
+            bh.consume(writer.write(doc));
+        }
+    }
+
+    /**
+     * Writes the fields of the stub documents, {@link #source} is the per document path of the real service.
+     */
+    protected static class StubIndexing implements ElasticSearchIndexing {
+
+        protected static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+        protected final Map<DocumentModel, String[]> fields = new IdentityHashMap<>();
+
+        @Override
+        public BytesReference source(DocumentModel doc) throws IOException {
+            BytesStreamOutput out = new BytesStreamOutput();
+            try (JsonGenerator jsonGen = JSON_FACTORY.createGenerator(out)) {
+                writeSource(jsonGen, doc);
+                return out.bytes();
+            }
+        }
+
+        @Override
+        public void writeSource(JsonGenerator jsonGen, DocumentModel doc) throws IOException {
+            String[] keyValues = fields.get(doc);
+            jsonGen.writeStartObject();
+            for (int i = 0; i < keyValues.length; i += 2) {
+                jsonGen.writeStringField(keyValues[i], keyValues[i + 1]);
+            }
+            jsonGen.writeEndObject();
+            jsonGen.flush();
+        }
+
+        @Override
+        public void runIndexingWorker(List<IndexingCommand> cmds) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void runReindexingWorker(String repositoryName, String nxql, boolean syncAlias) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void reindexRepository(String repositoryName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void indexNonRecursive(IndexingCommand cmd) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void indexNonRecursive(List<IndexingCommand> cmds) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.elasticsearch.test.bulk;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
+import org.nuxeo.elasticsearch.bulk.BulkSourceWriter;
+import org.nuxeo.elasticsearch.test.RepositoryElasticSearchFeature;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RepositoryElasticSearchFeature.class)
+public class TestBulkSourceWriter {
+
+    protected static final int NB_DOCS = 50;
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected ElasticSearchIndexing esi;
+
+    protected List<DocumentModel> docs = new ArrayList<>();
+
+    @Before
+    public void createDocuments() {
+        for (int i = 0; i < NB_DOCS; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "file" + i, "File");
+            doc.setPropertyValue("dc:title", "File" + i);
+            doc.setPropertyValue("dc:description", "Some description of the file number " + i);
+            docs.add(session.createDocument(doc));
+        }
+    }
+
+    @Test
+    public void testSameSources() throws IOException {
+        try (BulkSourceWriter writer = new BulkSourceWriter(esi)) {
+            // the buffer is reused across buckets
+            for (int bucket = 0; bucket < 3; bucket++) {
+                writer.reset();
+                List<BytesReference> sources = new ArrayList<>();
+                for (DocumentModel doc : docs) {
+                    sources.add(writer.write(doc));
+                }
+                long size = 0;
+                for (int i = 0; i < NB_DOCS; i++) {
+                    assertEquals(esi.source(docs.get(i)).utf8ToString(), sources.get(i).utf8ToString());
+                    size += sources.get(i).length();
+                }
+                assertEquals(size, writer.size());
+            }
+        }
+    }
+
+}
@@ -18,6 +18,9 @@
  */
 package org.nuxeo.elasticsearch.test.commands;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -103,6 +106,40 @@ public class TestIndexingCommand {
         Assert.assertTrue(cmd2.isRecurse());
     }
 
+    @Test
+    public void testPartialUpdate() throws Exception {
+        DocumentModel doc = new MockDocumentModel("foo");
+        IndexingCommand cmd = new IndexingCommand(doc, Type.UPDATE, false, false);
+        Assert.assertFalse(cmd.isPartialUpdate());
+        cmd.setUpdatedSchemas(Collections.singleton("dublincore"));
+        Assert.assertTrue(cmd.isPartialUpdate());
+        // schemas of partial updates are merged
+        IndexingCommand other = new IndexingCommand(doc, Type.UPDATE, false, false);
+        other.setUpdatedSchemas(Arrays.asList("file", "dublincore"));
+        Assert.assertTrue(cmd.merge(other));
+        Assert.assertEquals(Arrays.asList("dublincore", "file"), Arrays.asList(cmd.getUpdatedSchemas().toArray()));
+        // a full update wins
+        Assert.assertTrue(cmd.merge(new IndexingCommand(doc, Type.UPDATE, false, false)));
+        Assert.assertFalse(cmd.isPartialUpdate());
+        Assert.assertNull(cmd.getUpdatedSchemas());
+        // an insert is never partial
+        cmd = new IndexingCommand(doc, Type.INSERT, false, false);
+        cmd.setUpdatedSchemas(Collections.singleton("dublincore"));
+        Assert.assertFalse(cmd.isPartialUpdate());
+    }
+
+    @Test
+    public void testJsonPartialUpdate() throws Exception {
+        DocumentModel doc = new MockDocumentModel("foo");
+        IndexingCommand cmd = new IndexingCommand(doc, Type.UPDATE, false, false);
+        cmd.setUpdatedSchemas(Arrays.asList("dublincore", "file"));
+        String json = cmd.toJSON();
+        IndexingCommand cmd2 = IndexingCommand.fromJSON(json);
+        Assert.assertEquals(json, cmd2.toJSON());
+        Assert.assertTrue(cmd2.isPartialUpdate());
+        Assert.assertEquals(cmd.getUpdatedSchemas(), cmd2.getUpdatedSchemas());
+    }
+
     @Test
     public void testInvalidJson() throws Exception {
         DocumentModel doc = new MockDocumentModel("foo");
@@ -0,0 +1,341 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.audit.service.segment;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.query.sql.model.DoubleLiteral;
+import org.nuxeo.ecm.core.query.sql.model.IntegerLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.LiteralList;
+import org.nuxeo.ecm.core.query.sql.model.Literals;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Predicates;
+import org.nuxeo.ecm.core.query.sql.model.QueryBuilder;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+import org.nuxeo.ecm.platform.audit.api.AuditQueryBuilder;
+
+/**
+ * Parser of the native audit queries, as written for the JPA audit backend, into a {@link QueryBuilder}.
+ * <p>
+ * The handled subset is the one of the {@link org.nuxeo.ecm.platform.audit.api.AuditPageProvider} queries:
+ *
+ * <pre>
+ * [SELECT log | SELECT COUNT(log.id)] FROM LogEntry log [WHERE condition] [ORDER BY log.field [ASC|DESC], ...]
+ * </pre>
+ *
+ * where conditions combine with {@code AND}, {@code OR}, {@code NOT} and parentheses comparisons of a field to
+ * {@code :named} parameters or literals, using {@code = <> != < <= > >= [NOT] IN [NOT] BETWEEN [NOT] LIKE} and
+ * {@code IS [NOT] NULL}.
+ *
+ * @since 11.1
+ */
+public class AuditNativeQueryParser {
+
+    protected final String query;
+
+    protected final Map<String, Object> params;
+
+    protected final List<String> tokens = new ArrayList<>();
+
+    protected int position;
+
+    protected String alias;
+
+    protected boolean count;
+
+    public AuditNativeQueryParser(String query, Map<String, Object> params) {
+        this.query = query;
+        this.params = params;
+    }
+
+    /**
+     * Returns {@code true} if the parsed query is a count query.
+     */
+    public boolean isCount() {
+        return count;
+    }
+
+    public QueryBuilder parse() {
+        tokenize();
+        QueryBuilder builder = new AuditQueryBuilder();
+        if (accept("SELECT")) {
+            if (accept("COUNT")) {
+                expect("(");
+                next();
+                expect(")");
+                count = true;
+            } else {
+                next();
+            }
+        }
+        expect("FROM");
+        if (!"LogEntry".equals(next())) {
+            throw error("only LogEntry can be queried");
+        }
+        if (position < tokens.size() && !isKeyword(peek())) {
+            alias = next();
+        }
+        if (accept("WHERE")) {
+            builder.predicate(parseOr());
+        }
+        if (accept("ORDER")) {
+            expect("BY");
+            List<OrderByExpr> orders = new ArrayList<>();
+            do {
+                Reference reference = parseReference();
+                boolean descending = accept("DESC");
+                if (!descending) {
+                    accept("ASC");
+                }
+                orders.add(new OrderByExpr(reference, descending));
+            } while (accept(","));
+            builder.orders(orders);
+        }
+        if (position < tokens.size()) {
+            throw error("unexpected '" + peek() + "'");
+        }
+        return builder;
+    }
+
+    protected Predicate parseOr() {
+        Predicate predicate = parseAnd();
+        while (accept("OR")) {
+            predicate = Predicates.or(predicate, parseAnd());
+        }
+        return predicate;
+    }
+
+    protected Predicate parseAnd() {
+        Predicate predicate = parseNot();
+        while (accept("AND")) {
+            predicate = Predicates.and(predicate, parseNot());
+        }
+        return predicate;
+    }
+
+    protected Predicate parseNot() {
+        if (accept("NOT")) {
+            return Predicates.not(parseNot());
+        } else if (accept("(")) {
+            Predicate predicate = parseOr();
+            expect(")");
+            return predicate;
+        }
+        return parseComparison();
+    }
+
+    protected Predicate parseComparison() {
+        Reference reference = parseReference();
+        if (accept("IS")) {
+            Operator operator = accept("NOT") ? Operator.ISNOTNULL : Operator.ISNULL;
+            expect("NULL");
+            return new Predicate(reference, operator, null);
+        }
+        boolean not = accept("NOT");
+        if (accept("IN")) {
+            expect("(");
+            LiteralList values = new LiteralList();
+            do {
+                values.addAll(parseValues());
+            } while (accept(","));
+            expect(")");
+            return new Predicate(reference, not ? Operator.NOTIN : Operator.IN, values);
+        } else if (accept("BETWEEN")) {
+            LiteralList values = new LiteralList();
+            values.add(parseValue());
+            expect("AND");
+            values.add(parseValue());
+            return new Predicate(reference, not ? Operator.NOTBETWEEN : Operator.BETWEEN, values);
+        } else if (accept("LIKE")) {
+            return new Predicate(reference, not ? Operator.NOTLIKE : Operator.LIKE, parseValue());
+        } else if (not) {
+            throw error("expected IN, BETWEEN or LIKE after NOT");
+        }
+        String token = next();
+        Operator operator;
+        switch (token) {
+        case "=":
+            operator = Operator.EQ;
+            break;
+        case "<>":
+        case "!=":
+            operator = Operator.NOTEQ;
+            break;
+        case "<":
+            operator = Operator.LT;
+            break;
+        case "<=":
+            operator = Operator.LTEQ;
+            break;
+        case ">":
+            operator = Operator.GT;
+            break;
+        case ">=":
+            operator = Operator.GTEQ;
+            break;
+        default:
+            throw error("unexpected operator '" + token + "'");
+        }
+        return new Predicate(reference, operator, parseValue());
+    }
+
+    protected Reference parseReference() {
+        String name = next();
+        if (alias != null && name.startsWith(alias + ".")) {
+            name = name.substring(alias.length() + 1);
+        }
+        return new Reference(name);
+    }
+
+    protected Literal parseValue() {
+        List<Literal> values = parseValues();
+        if (values.size() != 1) {
+            throw error("expected a single value");
+        }
+        return values.get(0);
+    }
+
+    /**
+     * Parses a value, a collection parameter giving several values.
+     */
+    protected List<Literal> parseValues() {
+        String token = next();
+        List<Literal> values = new ArrayList<>();
+        if (token.startsWith(":")) {
+            String name = token.substring(1);
+            if (!params.containsKey(name)) {
+                throw error("no value for parameter '" + name + "'");
+            }
+            Object value = params.get(name);
+            if (value instanceof Collection) {
+                ((Collection<?>) value).forEach(v -> values.add(toLiteral(name, v)));
+            } else if (value instanceof Object[]) {
+                for (Object v : (Object[]) value) {
+                    values.add(toLiteral(name, v));
+                }
+            } else {
+                values.add(toLiteral(name, value));
+            }
+        } else if (token.startsWith("'")) {
+            values.add(new StringLiteral(token.substring(1, token.length() - 1).replace("''", "'")));
+        } else if (token.matches("-?\\d+")) {
+            values.add(new IntegerLiteral(Long.parseLong(token)));
+        } else if (token.matches("-?\\d*\\.\\d+")) {
+            values.add(new DoubleLiteral(Double.parseDouble(token)));
+        } else if ("TRUE".equalsIgnoreCase(token) || "FALSE".equalsIgnoreCase(token)) {
+            values.add(Literals.toLiteral(Boolean.valueOf(token)));
+        } else {
+            throw error("unexpected value '" + token + "'");
+        }
+        return values;
+    }
+
+    protected Literal toLiteral(String name, Object value) {
+        if (value == null) {
+            throw error("null value for parameter '" + name + "'");
+        }
+        return Literals.toLiteral(value);
+    }
+
+    protected void tokenize() {
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (c == '\'') {
+                // quoted string, '' being an escaped quote
+                i++;
+                while (i < length && (query.charAt(i) != '\'' || i + 1 < length && query.charAt(i + 1) == '\'')) {
+                    i += query.charAt(i) == '\'' ? 2 : 1;
+                }
+                if (i == length) {
+                    throw error("unterminated string");
+                }
+                i++;
+            } else if (c == '<' || c == '>' || c == '!') {
+                i++;
+                if (i < length && (query.charAt(i) == '=' || c == '<' && query.charAt(i) == '>')) {
+                    i++;
+                }
+            } else if (c == '(' || c == ')' || c == ',' || c == '=' || c == '*') {
+                i++;
+            } else {
+                while (i < length && isWordPart(query.charAt(i))) {
+                    i++;
+                }
+                if (i == start) {
+                    throw error("unexpected character '" + c + "'");
+                }
+            }
+            tokens.add(query.substring(start, i));
+        }
+    }
+
+    protected boolean isWordPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == ':' || c == '-';
+    }
+
+    protected boolean isKeyword(String token) {
+        String upper = token.toUpperCase(Locale.ENGLISH);
+        return "WHERE".equals(upper) || "ORDER".equals(upper);
+    }
+
+    protected String peek() {
+        return tokens.get(position);
+    }
+
+    protected String next() {
+        if (position >= tokens.size()) {
+            throw error("unexpected end of query");
+        }
+        return tokens.get(position++);
+    }
+
+    protected boolean accept(String keyword) {
+        if (position < tokens.size() && keyword.equalsIgnoreCase(tokens.get(position))) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    protected void expect(String keyword) {
+        if (!accept(keyword)) {
+            throw error("expected " + keyword);
+        }
+    }
+
+    protected NuxeoException error(String message) {
+        return new NuxeoException("Unable to parse audit query, " + message + ": " + query);
+    }
+
+}
@@ -0,0 +1,850 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.audit.service.segment;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_CATEGORY;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_LIFE_CYCLE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_UUID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_TYPE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_ID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_PRINCIPAL_NAME;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_REPOSITORY_ID;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.nuxeo.ecm.platform.audit.api.ExtendedInfo;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.ExtendedInfoImpl;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+
+/**
+ * An immutable file holding a batch of log entries of a single time partition, stored column by column.
+ * <p>
+ * The file starts with a header kept in memory by the {@link AuditSegmentStore}: the row count, the id and event date
+ * bounds, the dictionaries of the low cardinality columns and a bloom filter of the document UUIDs. The header lets
+ * queries skip the segments that can't match without reading them. It is followed by three deflated blocks read on
+ * demand:
+ * <ul>
+ * <li>the columns: delta encoded ids and dates, dictionary codes and plain strings,</li>
+ * <li>the document index: the sorted document UUIDs and the rows they appear in,</li>
+ * <li>the extended infos, only decoded for the rows returned by a query.</li>
+ * </ul>
+ *
+ * @since 11.1
+ */
+public class AuditSegment {
+
+    public static final String FILE_EXTENSION = ".seg";
+
+    protected static final int MAGIC = 0x4e584153; // NXAS
+
+    protected static final int VERSION = 1;
+
+    /**
+     * The columns stored as codes of a dictionary, the dictionaries being part of the header.
+     */
+    protected static final String[] DICTIONARY_COLUMNS = { LOG_EVENT_ID, LOG_CATEGORY, LOG_PRINCIPAL_NAME,
+            LOG_DOC_TYPE, LOG_REPOSITORY_ID, LOG_DOC_LIFE_CYCLE };
+
+    protected static final byte LONG_INFO = 1;
+
+    protected static final byte DOUBLE_INFO = 2;
+
+    protected static final byte DATE_INFO = 3;
+
+    protected static final byte STRING_INFO = 4;
+
+    protected static final byte BOOLEAN_INFO = 5;
+
+    protected static final byte BLOB_INFO = 6;
+
+    protected final Path file;
+
+    protected final long number;
+
+    protected final int count;
+
+    protected final long minId;
+
+    protected final long maxId;
+
+    /** {@code null} when no entry of the segment has an event date. */
+    protected final Date minDate;
+
+    protected final Date maxDate;
+
+    /** The numbers of the segments merged into this one, still to delete if the merge was interrupted. */
+    protected final long[] replaces;
+
+    protected final String[][] dictionaries;
+
+    protected final List<Set<String>> dictionaryValues;
+
+    protected final BloomFilter documents;
+
+    protected long columnsOffset;
+
+    protected long indexOffset;
+
+    protected long extendedOffset;
+
+    protected AuditSegment(Path file, DataInput in) throws IOException {
+        this.file = file;
+        number = in.readLong();
+        count = readVarInt(in);
+        minId = in.readLong();
+        maxId = in.readLong();
+        minDate = in.readBoolean() ? new Date(in.readLong()) : null;
+        maxDate = minDate == null ? null : new Date(in.readLong());
+        replaces = new long[readVarInt(in)];
+        for (int i = 0; i < replaces.length; i++) {
+            replaces[i] = in.readLong();
+        }
+        dictionaries = new String[DICTIONARY_COLUMNS.length][];
+        dictionaryValues = new ArrayList<>(DICTIONARY_COLUMNS.length);
+        for (int column = 0; column < DICTIONARY_COLUMNS.length; column++) {
+            String[] dictionary = new String[readVarInt(in)];
+            for (int code = 0; code < dictionary.length; code++) {
+                dictionary[code] = readString(in);
+            }
+            dictionaries[column] = dictionary;
+            dictionaryValues.add(new HashSet<>(Arrays.asList(dictionary)));
+        }
+        documents = new BloomFilter(in);
+    }
+
+    /**
+     * Opens the segment stored in the given file, reading only its header.
+     */
+    public static AuditSegment open(Path file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            if (raf.readInt() != MAGIC) {
+                throw new IOException("Not an audit segment: " + file);
+            }
+            int version = raf.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported audit segment version: " + version + " for: " + file);
+            }
+            long headerOffset = raf.getFilePointer();
+            AuditSegment segment;
+            try (DataInputStream in = inflate(readBlock(raf, headerOffset))) {
+                segment = new AuditSegment(file, in);
+            }
+            segment.columnsOffset = nextBlock(raf, headerOffset);
+            segment.indexOffset = nextBlock(raf, segment.columnsOffset);
+            segment.extendedOffset = nextBlock(raf, segment.indexOffset);
+            return segment;
+        }
+    }
+
+    /**
+     * Writes the given entries, in this order, into a new segment file and opens it.
+     *
+     * @param replaces the numbers of the segments merged into the new one
+     */
+    public static AuditSegment write(Path file, long number, List<LogEntry> entries, long... replaces)
+            throws IOException {
+        // first pass to collect the dictionaries, the document index and the bounds
+        List<Map<String, Integer>> codes = new ArrayList<>(DICTIONARY_COLUMNS.length);
+        for (int column = 0; column < DICTIONARY_COLUMNS.length; column++) {
+            codes.add(new LinkedHashMap<>());
+        }
+        SortedMap<String, List<Integer>> index = new TreeMap<>();
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        Date minDate = null;
+        Date maxDate = null;
+        for (int row = 0; row < entries.size(); row++) {
+            LogEntry entry = entries.get(row);
+            for (int column = 0; column < DICTIONARY_COLUMNS.length; column++) {
+                String value = getDictionaryValue(entry, column);
+                if (value != null) {
+                    Map<String, Integer> dictionary = codes.get(column);
+                    dictionary.putIfAbsent(value, Integer.valueOf(dictionary.size() + 1));
+                }
+            }
+            if (entry.getDocUUID() != null) {
+                index.computeIfAbsent(entry.getDocUUID(), k -> new ArrayList<>()).add(Integer.valueOf(row));
+            }
+            minId = Math.min(minId, entry.getId());
+            maxId = Math.max(maxId, entry.getId());
+            Date eventDate = entry.getEventDate();
+            if (eventDate != null) {
+                minDate = minDate == null || eventDate.before(minDate) ? eventDate : minDate;
+                maxDate = maxDate == null || eventDate.after(maxDate) ? eventDate : maxDate;
+            }
+        }
+        BloomFilter documents = new BloomFilter(index.size());
+        index.keySet().forEach(documents::add);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        try (DataOutputStream out = deflate(header)) {
+            out.writeLong(number);
+            writeVarInt(out, entries.size());
+            out.writeLong(minId);
+            out.writeLong(maxId);
+            out.writeBoolean(minDate != null);
+            if (minDate != null) {
+                out.writeLong(minDate.getTime());
+                out.writeLong(maxDate.getTime());
+            }
+            writeVarInt(out, replaces.length);
+            for (long replaced : replaces) {
+                out.writeLong(replaced);
+            }
+            for (Map<String, Integer> dictionary : codes) {
+                writeVarInt(out, dictionary.size());
+                for (String value : dictionary.keySet()) {
+                    writeString(out, value);
+                }
+            }
+            documents.write(out);
+        }
+        ByteArrayOutputStream columns = new ByteArrayOutputStream();
+        try (DataOutputStream out = deflate(columns)) {
+            writeColumns(out, entries, codes);
+        }
+        ByteArrayOutputStream documentIndex = new ByteArrayOutputStream();
+        try (DataOutputStream out = deflate(documentIndex)) {
+            writeVarInt(out, index.size());
+            for (Entry<String, List<Integer>> document : index.entrySet()) {
+                writeString(out, document.getKey());
+                List<Integer> rows = document.getValue();
+                writeVarInt(out, rows.size());
+                int previous = 0;
+                for (Integer row : rows) {
+                    writeVarInt(out, row.intValue() - previous);
+                    previous = row.intValue();
+                }
+            }
+        }
+        ByteArrayOutputStream extended = new ByteArrayOutputStream();
+        try (DataOutputStream out = deflate(extended)) {
+            writeExtendedInfos(out, entries);
+        }
+
+        // write to a temporary file first so that a segment file is always complete
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeBlock(out, header);
+            writeBlock(out, columns);
+            writeBlock(out, documentIndex);
+            writeBlock(out, extended);
+            out.flush();
+            // the content must be durable before the rename makes the segment visible
+            fos.getChannel().force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    protected static void writeColumns(DataOutput out, List<LogEntry> entries, List<Map<String, Integer>> codes)
+            throws IOException {
+        long previous = 0;
+        for (LogEntry entry : entries) {
+            writeVarLong(out, zigZag(entry.getId() - previous));
+            previous = entry.getId();
+        }
+        writeDates(out, entries, LogEntry::getEventDate);
+        writeDates(out, entries, LogEntry::getLogDate);
+        for (int column = 0; column < DICTIONARY_COLUMNS.length; column++) {
+            Map<String, Integer> dictionary = codes.get(column);
+            for (LogEntry entry : entries) {
+                String value = getDictionaryValue(entry, column);
+                writeVarInt(out, value == null ? 0 : dictionary.get(value).intValue());
+            }
+        }
+        for (LogEntry entry : entries) {
+            writeString(out, entry.getDocPath());
+        }
+        for (LogEntry entry : entries) {
+            writeString(out, entry.getComment());
+        }
+    }
+
+    protected static void writeDates(DataOutput out, List<LogEntry> entries, Function<LogEntry, Date> getter)
+            throws IOException {
+        BitSet present = new BitSet(entries.size());
+        for (int row = 0; row < entries.size(); row++) {
+            present.set(row, getter.apply(entries.get(row)) != null);
+        }
+        byte[] bits = present.toByteArray();
+        writeVarInt(out, bits.length);
+        out.write(bits);
+        long previous = 0;
+        for (LogEntry entry : entries) {
+            Date date = getter.apply(entry);
+            if (date != null) {
+                writeVarLong(out, zigZag(date.getTime() - previous));
+                previous = date.getTime();
+            }
+        }
+    }
+
+    protected static void writeExtendedInfos(DataOutput out, List<LogEntry> entries) throws IOException {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        for (LogEntry entry : entries) {
+            Map<String, ExtendedInfo> infos = entry.getExtendedInfos();
+            if (infos != null) {
+                infos.keySet().forEach(key -> keys.putIfAbsent(key, Integer.valueOf(keys.size())));
+            }
+        }
+        writeVarInt(out, keys.size());
+        for (String key : keys.keySet()) {
+            writeString(out, key);
+        }
+        for (LogEntry entry : entries) {
+            Map<String, Serializable> values = new LinkedHashMap<>();
+            if (entry.getExtendedInfos() != null) {
+                entry.getExtendedInfos().forEach((key, info) -> {
+                    Serializable value = info == null ? null : info.getSerializableValue();
+                    if (value != null) {
+                        values.put(key, value);
+                    }
+                });
+            }
+            writeVarInt(out, values.size());
+            for (Entry<String, Serializable> value : values.entrySet()) {
+                writeVarInt(out, keys.get(value.getKey()).intValue());
+                writeValue(out, value.getValue());
+            }
+        }
+    }
+
+    protected static void writeValue(DataOutput out, Serializable value) throws IOException {
+        if (value instanceof Long) {
+            out.writeByte(LONG_INFO);
+            writeVarLong(out, zigZag(((Long) value).longValue()));
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE_INFO);
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE_INFO);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof String) {
+            out.writeByte(STRING_INFO);
+            writeString(out, (String) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_INFO);
+            out.writeBoolean(((Boolean) value).booleanValue());
+        } else {
+            out.writeByte(BLOB_INFO);
+            byte[] bytes = SerializationUtils.serialize(value);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    protected static Serializable readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+        case LONG_INFO:
+            return Long.valueOf(unZigZag(readVarLong(in)));
+        case DOUBLE_INFO:
+            return Double.valueOf(in.readDouble());
+        case DATE_INFO:
+            return new Date(in.readLong());
+        case STRING_INFO:
+            return readString(in);
+        case BOOLEAN_INFO:
+            return Boolean.valueOf(in.readBoolean());
+        case BLOB_INFO:
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            return SerializationUtils.deserialize(bytes);
+        default:
+            throw new IOException("Unknown extended info type: " + type);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public Date getMinDate() {
+        return minDate;
+    }
+
+    public Date getMaxDate() {
+        return maxDate;
+    }
+
+    public long[] getReplaces() {
+        return replaces;
+    }
+
+    /**
+     * Returns {@code false} if no entry of this segment has one of the given values in the given column, {@code true}
+     * if some may have. Only the document UUID and the dictionary columns are known, other columns always return
+     * {@code true}.
+     */
+    public boolean mayContain(String column, Collection<String> values) {
+        if (LOG_DOC_UUID.equals(column)) {
+            return values.stream().anyMatch(documents::mightContain);
+        }
+        for (int i = 0; i < DICTIONARY_COLUMNS.length; i++) {
+            if (DICTIONARY_COLUMNS[i].equals(column)) {
+                Set<String> dictionary = dictionaryValues.get(i);
+                return values.stream().anyMatch(dictionary::contains);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the columns of all the entries of this segment.
+     */
+    public Columns readColumns() throws IOException {
+        return readColumns(null);
+    }
+
+    /**
+     * Decodes the columns of this segment, keeping only the entries of the given documents as candidates.
+     *
+     * @param docUUIDs the documents to look for, or {@code null} for all the entries
+     */
+    public Columns readColumns(Collection<String> docUUIDs) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            String[] rowDocuments = new String[count];
+            BitSet candidates = new BitSet(count);
+            if (docUUIDs == null) {
+                candidates.set(0, count);
+            }
+            try (DataInputStream in = inflate(readBlock(raf, indexOffset))) {
+                int size = readVarInt(in);
+                for (int i = 0; i < size; i++) {
+                    String docUUID = readString(in);
+                    boolean candidate = docUUIDs != null && docUUIDs.contains(docUUID);
+                    int rows = readVarInt(in);
+                    int row = 0;
+                    for (int j = 0; j < rows; j++) {
+                        row += readVarInt(in);
+                        rowDocuments[row] = docUUID;
+                        if (candidate) {
+                            candidates.set(row);
+                        }
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                // bloom filter false positive
+                return new Columns(candidates);
+            }
+            Columns columns = new Columns(candidates);
+            columns.docUUIDs = rowDocuments;
+            try (DataInputStream in = inflate(readBlock(raf, columnsOffset))) {
+                columns.read(in);
+            }
+            return columns;
+        }
+    }
+
+    /**
+     * Decodes the extended infos of the given entries of this segment, keyed by row.
+     */
+    public void readExtendedInfos(Map<Integer, LogEntry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        int lastRow = new TreeSet<>(entries.keySet()).last().intValue();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r");
+                DataInputStream in = inflate(readBlock(raf, extendedOffset))) {
+            String[] keys = new String[readVarInt(in)];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = readString(in);
+            }
+            for (int row = 0; row <= lastRow; row++) {
+                LogEntry entry = entries.get(Integer.valueOf(row));
+                int size = readVarInt(in);
+                Map<String, ExtendedInfo> infos = entry == null ? null : new HashMap<>(size);
+                for (int i = 0; i < size; i++) {
+                    String key = keys[readVarInt(in)];
+                    Serializable value = readValue(in);
+                    if (infos != null) {
+                        infos.put(key, ExtendedInfoImpl.createExtendedInfo(value));
+                    }
+                }
+                if (entry != null) {
+                    entry.setExtendedInfos(infos);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes all the entries of this segment with their extended infos.
+     */
+    public List<LogEntry> readEntries() throws IOException {
+        Columns columns = readColumns();
+        Map<Integer, LogEntry> entries = new LinkedHashMap<>(count);
+        for (int row = 0; row < count; row++) {
+            entries.put(Integer.valueOf(row), columns.newLogEntry(row));
+        }
+        readExtendedInfos(entries);
+        return new ArrayList<>(entries.values());
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    protected static String getDictionaryValue(LogEntry entry, int column) {
+        switch (column) {
+        case 0:
+            return entry.getEventId();
+        case 1:
+            return entry.getCategory();
+        case 2:
+            return entry.getPrincipalName();
+        case 3:
+            return entry.getDocType();
+        case 4:
+            return entry.getRepositoryId();
+        default:
+            return entry.getDocLifeCycle();
+        }
+    }
+
+    protected static void setDictionaryValue(LogEntry entry, int column, String value) {
+        switch (column) {
+        case 0:
+            entry.setEventId(value);
+            break;
+        case 1:
+            entry.setCategory(value);
+            break;
+        case 2:
+            entry.setPrincipalName(value);
+            break;
+        case 3:
+            entry.setDocType(value);
+            break;
+        case 4:
+            entry.setRepositoryId(value);
+            break;
+        default:
+            entry.setDocLifeCycle(value);
+        }
+    }
+
+    /**
+     * The decoded columns of a segment, entries being materialized on demand.
+     */
+    public class Columns {
+
+        protected final BitSet candidates;
+
+        protected long[] ids;
+
+        protected long[] eventDates;
+
+        protected BitSet hasEventDate;
+
+        protected long[] logDates;
+
+        protected BitSet hasLogDate;
+
+        protected int[][] codes;
+
+        protected String[] docUUIDs;
+
+        protected String[] docPaths;
+
+        protected String[] comments;
+
+        protected Columns(BitSet candidates) {
+            this.candidates = candidates;
+        }
+
+        protected void read(DataInput in) throws IOException {
+            ids = new long[count];
+            long previous = 0;
+            for (int row = 0; row < count; row++) {
+                previous += unZigZag(readVarLong(in));
+                ids[row] = previous;
+            }
+            hasEventDate = readPresence(in);
+            eventDates = readDates(in, hasEventDate);
+            hasLogDate = readPresence(in);
+            logDates = readDates(in, hasLogDate);
+            codes = new int[DICTIONARY_COLUMNS.length][count];
+            for (int column = 0; column < DICTIONARY_COLUMNS.length; column++) {
+                for (int row = 0; row < count; row++) {
+                    codes[column][row] = readVarInt(in);
+                }
+            }
+            docPaths = new String[count];
+            for (int row = 0; row < count; row++) {
+                docPaths[row] = readString(in);
+            }
+            comments = new String[count];
+            for (int row = 0; row < count; row++) {
+                comments[row] = readString(in);
+            }
+        }
+
+        protected BitSet readPresence(DataInput in) throws IOException {
+            byte[] bits = new byte[readVarInt(in)];
+            in.readFully(bits);
+            return BitSet.valueOf(bits);
+        }
+
+        protected long[] readDates(DataInput in, BitSet present) throws IOException {
+            long[] dates = new long[count];
+            long previous = 0;
+            for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                previous += unZigZag(readVarLong(in));
+                dates[row] = previous;
+            }
+            return dates;
+        }
+
+        public AuditSegment getSegment() {
+            return AuditSegment.this;
+        }
+
+        /**
+         * Returns the rows worth a look, in id order.
+         */
+        public BitSet getCandidates() {
+            return candidates;
+        }
+
+        /**
+         * Materializes the entry of the given row, without its extended infos.
+         */
+        public LogEntry newLogEntry(int row) {
+            LogEntry entry = new LogEntryImpl();
+            entry.setId(ids[row]);
+            entry.setEventDate(hasEventDate.get(row) ? new Date(eventDates[row]) : null);
+            entry.setLogDate(hasLogDate.get(row) ? new Date(logDates[row]) : null);
+            for (int column = 0; column < DICTIONARY_COLUMNS.length; column++) {
+                int code = codes[column][row];
+                setDictionaryValue(entry, column, code == 0 ? null : dictionaries[column][code - 1]);
+            }
+            entry.setDocUUID(docUUIDs[row]);
+            entry.setDocPath(docPaths[row]);
+            entry.setComment(comments[row]);
+            return entry;
+        }
+
+    }
+
+    /**
+     * A bloom filter of the document UUIDs of a segment, about 1% false positives.
+     */
+    protected static class BloomFilter {
+
+        protected static final int BITS_PER_VALUE = 10;
+
+        protected static final int HASHES = 7;
+
+        protected final long[] words;
+
+        protected BloomFilter(int expectedValues) {
+            words = new long[Math.max(1, (expectedValues * BITS_PER_VALUE + Long.SIZE - 1) / Long.SIZE)];
+        }
+
+        protected BloomFilter(DataInput in) throws IOException {
+            words = new long[readVarInt(in)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+        }
+
+        protected void write(DataOutput out) throws IOException {
+            writeVarInt(out, words.length);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+
+        protected void add(String value) {
+            int h1 = value.hashCode();
+            int h2 = hash(value);
+            long size = (long) words.length * Long.SIZE;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, size);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        protected boolean mightContain(String value) {
+            int h1 = value.hashCode();
+            int h2 = hash(value);
+            long size = (long) words.length * Long.SIZE;
+            for (int i = 0; i < HASHES; i++) {
+                long bit = Math.floorMod(h1 + (long) i * h2, size);
+                if ((words[(int) (bit >>> 6)] & 1L << bit) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a hash, independent from {@link String#hashCode()}.
+         */
+        protected static int hash(String value) {
+            int hash = 0x811c9dc5;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x01000193;
+            }
+            return hash | 1;
+        }
+
+    }
+
+    protected static DataOutputStream deflate(ByteArrayOutputStream out) {
+        return new DataOutputStream(new DeflaterOutputStream(out));
+    }
+
+    protected static DataInputStream inflate(byte[] bytes) {
+        return new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    protected static void writeBlock(DataOutput out, ByteArrayOutputStream block) throws IOException {
+        out.writeInt(block.size());
+        out.write(block.toByteArray());
+    }
+
+    protected static byte[] readBlock(RandomAccessFile raf, long offset) throws IOException {
+        raf.seek(offset);
+        byte[] bytes = new byte[raf.readInt()];
+        raf.readFully(bytes);
+        return bytes;
+    }
+
+    protected static long nextBlock(RandomAccessFile raf, long offset) throws IOException {
+        raf.seek(offset);
+        return offset + Integer.BYTES + raf.readInt();
+    }
+
+    protected static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+        } else {
+            byte[] bytes = value.getBytes(UTF_8);
+            writeVarInt(out, bytes.length + 1);
+            out.write(bytes);
+        }
+    }
+
+    protected static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    protected static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xffffffffL);
+    }
+
+    protected static int readVarInt(DataInput in) throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    protected static void writeVarLong(DataOutput out, long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7fL) != 0) {
+            out.writeByte((int) (remaining & 0x7f | 0x80));
+            remaining >>>= 7;
+        }
+        out.writeByte((int) remaining);
+    }
+
+    protected static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            value |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    protected static long zigZag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    protected static long unZigZag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,484 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.audit.service.segment;
+
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_CATEGORY;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_COMMENT;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_LIFE_CYCLE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_PATH;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_TYPE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_UUID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_DATE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_ID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_ID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_LOG_DATE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_PRINCIPAL_NAME;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_REPOSITORY_ID;
+
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.Literals;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
+import org.nuxeo.ecm.core.query.sql.model.QueryBuilder;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+
+/**
+ * A query on the {@link AuditSegmentStore}, compiled from a {@link QueryBuilder}.
+ * <p>
+ * Besides the filter evaluated on each candidate entry, the query computes the bounds of its predicates on the ids, the
+ * event dates, the document UUIDs and the dictionary columns, used to skip the partitions and the segments that can't
+ * match.
+ *
+ * @since 11.1
+ */
+public class AuditSegmentQuery {
+
+    protected static final String ALIAS_PREFIX = "log.";
+
+    protected static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    protected final Predicate<LogEntry> filter;
+
+    protected final Comparator<LogEntry> comparator;
+
+    protected final Bounds bounds;
+
+    protected final long offset;
+
+    protected final long limit;
+
+    /** When {@code false}, LIKE patterns are matched as a whole, as in a native query. */
+    protected final boolean containsLike;
+
+    protected AuditSegmentQuery(QueryBuilder builder, boolean containsLike) {
+        this.containsLike = containsLike;
+        MultiExpression predicate = builder.predicate();
+        filter = compile(predicate);
+        bounds = bounds(predicate);
+        comparator = compileOrders(builder.orders());
+        offset = builder.offset();
+        limit = builder.limit();
+    }
+
+    /**
+     * Returns the query for the given builder, with the {@link org.nuxeo.ecm.platform.audit.api.AuditReader} semantics.
+     */
+    public static AuditSegmentQuery of(QueryBuilder builder) {
+        return new AuditSegmentQuery(builder, true);
+    }
+
+    /**
+     * Returns the query for a builder parsed from a native query, see {@link AuditNativeQueryParser}.
+     */
+    public static AuditSegmentQuery ofNative(QueryBuilder builder) {
+        return new AuditSegmentQuery(builder, false);
+    }
+
+    public boolean matches(LogEntry entry) {
+        return filter.test(entry);
+    }
+
+    /**
+     * Returns the comparator of the query orders, or {@code null} if the query is not ordered.
+     */
+    public Comparator<LogEntry> getComparator() {
+        return comparator;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the documents the matching entries belong to, or {@code null} if the query doesn't restrict them.
+     */
+    public Set<String> getDocUUIDs() {
+        return bounds.values.get(LOG_DOC_UUID);
+    }
+
+    /**
+     * Returns {@code false} if no entry of the partition of the given day can match this query.
+     */
+    public boolean mayMatch(long epochDay) {
+        return !bounds.empty && Math.floorDiv(bounds.minDate, DAY_MILLIS) <= epochDay
+                && epochDay <= Math.floorDiv(bounds.maxDate, DAY_MILLIS);
+    }
+
+    /**
+     * Returns {@code false} if no entry of the given segment can match this query, looking only at its header.
+     */
+    public boolean mayMatch(AuditSegment segment) {
+        if (bounds.empty || segment.getCount() == 0) {
+            return false;
+        }
+        if (segment.getMaxId() < bounds.minId || bounds.maxId < segment.getMinId()) {
+            return false;
+        }
+        if (bounds.minDate != Long.MIN_VALUE || bounds.maxDate != Long.MAX_VALUE) {
+            if (segment.getMinDate() == null || segment.getMaxDate().getTime() < bounds.minDate
+                    || bounds.maxDate < segment.getMinDate().getTime()) {
+                return false;
+            }
+        }
+        return bounds.values.entrySet().stream().allMatch(e -> segment.mayContain(e.getKey(), e.getValue()));
+    }
+
+    protected Predicate<LogEntry> compile(Operand operand) {
+        if (operand instanceof MultiExpression) {
+            MultiExpression multi = (MultiExpression) operand;
+            List<Predicate<LogEntry>> predicates = multi.predicates.stream()
+                                                                   .map(this::compile)
+                                                                   .collect(Collectors.toList());
+            if (predicates.isEmpty()) {
+                return entry -> true;
+            } else if (Operator.OR.equals(multi.operator)) {
+                return entry -> predicates.stream().anyMatch(p -> p.test(entry));
+            }
+            return entry -> predicates.stream().allMatch(p -> p.test(entry));
+        }
+        Expression expression = (Expression) operand;
+        Operator operator = expression.operator;
+        if (Operator.AND.equals(operator)) {
+            return compile(expression.lvalue).and(compile(expression.rvalue));
+        } else if (Operator.OR.equals(operator)) {
+            return compile(expression.lvalue).or(compile(expression.rvalue));
+        } else if (Operator.NOT.equals(operator)) {
+            return compile(expression.lvalue).negate();
+        }
+        Function<LogEntry, Object> field = getField(expression.lvalue);
+        if (Operator.ISNULL.equals(operator)) {
+            return entry -> field.apply(entry) == null;
+        } else if (Operator.ISNOTNULL.equals(operator)) {
+            return entry -> field.apply(entry) != null;
+        }
+        Object value = normalize(Literals.valueOf(expression.rvalue));
+        Predicate<Object> test = compile(operator, value);
+        // as in SQL, a null value never matches
+        return entry -> {
+            Object fieldValue = field.apply(entry);
+            return fieldValue != null && test.test(fieldValue);
+        };
+    }
+
+    protected Predicate<Object> compile(Operator operator, Object value) {
+        if (Operator.EQ.equals(operator)) {
+            return v -> compare(v, value) == 0;
+        } else if (Operator.NOTEQ.equals(operator)) {
+            return v -> compare(v, value) != 0;
+        } else if (Operator.LT.equals(operator)) {
+            return v -> compare(v, value) < 0;
+        } else if (Operator.LTEQ.equals(operator)) {
+            return v -> compare(v, value) <= 0;
+        } else if (Operator.GT.equals(operator)) {
+            return v -> compare(v, value) > 0;
+        } else if (Operator.GTEQ.equals(operator)) {
+            return v -> compare(v, value) >= 0;
+        } else if (Operator.IN.equals(operator)) {
+            List<?> values = (List<?>) value;
+            return v -> values.stream().anyMatch(o -> compare(v, o) == 0);
+        } else if (Operator.NOTIN.equals(operator)) {
+            List<?> values = (List<?>) value;
+            return v -> values.stream().noneMatch(o -> compare(v, o) == 0);
+        } else if (Operator.BETWEEN.equals(operator)) {
+            List<?> values = (List<?>) value;
+            return v -> compare(v, values.get(0)) >= 0 && compare(v, values.get(1)) <= 0;
+        } else if (Operator.NOTBETWEEN.equals(operator)) {
+            List<?> values = (List<?>) value;
+            return v -> compare(v, values.get(0)) < 0 || compare(v, values.get(1)) > 0;
+        } else if (Operator.STARTSWITH.equals(operator)) {
+            String prefix = String.valueOf(value);
+            return v -> v.toString().startsWith(prefix);
+        } else if (Operator.LIKE.equals(operator) || Operator.NOTLIKE.equals(operator)
+                || Operator.ILIKE.equals(operator) || Operator.NOTILIKE.equals(operator)) {
+            String like = containsLike ? "%" + value + "%" : String.valueOf(value);
+            boolean caseInsensitive = Operator.ILIKE.equals(operator) || Operator.NOTILIKE.equals(operator);
+            Pattern pattern = Pattern.compile(toRegex(like), caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+            boolean negate = Operator.NOTLIKE.equals(operator) || Operator.NOTILIKE.equals(operator);
+            return v -> pattern.matcher(v.toString()).matches() != negate;
+        }
+        throw new NuxeoException(String.format("Audit backend search doesn't handle '%s' operator", operator));
+    }
+
+    protected Comparator<LogEntry> compileOrders(List<OrderByExpr> orders) {
+        if (orders.isEmpty()) {
+            return null;
+        }
+        Comparator<LogEntry> comparator = null;
+        for (OrderByExpr order : orders) {
+            Comparator<LogEntry> next = Comparator.comparing(getField(order.reference),
+                    Comparator.nullsFirst(AuditSegmentQuery::compare));
+            if (order.isDescending) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // keep the order of equal entries stable across pages
+        return comparator.thenComparingLong(LogEntry::getId);
+    }
+
+    protected static String toRegex(String like) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : like.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+
+    protected static String getFieldName(Operand operand) {
+        if (!(operand instanceof Reference)) {
+            throw new NuxeoException("Audit backend search only handles fields, not: " + operand);
+        }
+        String name = ((Reference) operand).name;
+        return name.startsWith(ALIAS_PREFIX) ? name.substring(ALIAS_PREFIX.length()) : name;
+    }
+
+    protected static Function<LogEntry, Object> getField(Operand operand) {
+        String name = getFieldName(operand);
+        switch (name) {
+        case LOG_ID:
+            return LogEntry::getId;
+        case LOG_EVENT_ID:
+            return LogEntry::getEventId;
+        case LOG_EVENT_DATE:
+            return LogEntry::getEventDate;
+        case LOG_LOG_DATE:
+            return LogEntry::getLogDate;
+        case LOG_DOC_UUID:
+            return LogEntry::getDocUUID;
+        case LOG_DOC_PATH:
+            return LogEntry::getDocPath;
+        case LOG_DOC_TYPE:
+            return LogEntry::getDocType;
+        case LOG_CATEGORY:
+            return LogEntry::getCategory;
+        case LOG_COMMENT:
+            return LogEntry::getComment;
+        case LOG_PRINCIPAL_NAME:
+            return LogEntry::getPrincipalName;
+        case LOG_DOC_LIFE_CYCLE:
+            return LogEntry::getDocLifeCycle;
+        case LOG_REPOSITORY_ID:
+            return LogEntry::getRepositoryId;
+        default:
+            throw new NuxeoException(String.format("Audit backend search doesn't handle '%s' field", name));
+        }
+    }
+
+    /**
+     * Converts the literal values to the types of the {@link LogEntry} fields.
+     */
+    protected static Object normalize(Object value) {
+        if (value instanceof List) {
+            return ((List<?>) value).stream().map(AuditSegmentQuery::normalize).collect(Collectors.toList());
+        } else if (value instanceof ZonedDateTime) {
+            return Date.from(((ZonedDateTime) value).toInstant());
+        } else if (value instanceof Calendar) {
+            return ((Calendar) value).getTime();
+        } else if (value instanceof Integer) {
+            return Long.valueOf(((Integer) value).longValue());
+        }
+        return value;
+    }
+
+    protected static int compare(Object left, Object right) {
+        if (left instanceof Date && right instanceof Date) {
+            return Long.compare(((Date) left).getTime(), ((Date) right).getTime());
+        } else if (left instanceof Long && right instanceof Long) {
+            return ((Long) left).compareTo((Long) right);
+        } else if (left instanceof Number && right instanceof Number) {
+            return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        }
+        return left.toString().compareTo(right.toString());
+    }
+
+    protected Bounds bounds(Operand operand) {
+        if (operand instanceof MultiExpression) {
+            MultiExpression multi = (MultiExpression) operand;
+            boolean or = Operator.OR.equals(multi.operator);
+            return multi.predicates.stream()
+                                   .map(this::bounds)
+                                   .reduce(or ? Bounds::or : Bounds::and)
+                                   .orElseGet(Bounds::new);
+        }
+        Expression expression = (Expression) operand;
+        Operator operator = expression.operator;
+        if (Operator.AND.equals(operator)) {
+            return bounds(expression.lvalue).and(bounds(expression.rvalue));
+        } else if (Operator.OR.equals(operator)) {
+            return bounds(expression.lvalue).or(bounds(expression.rvalue));
+        } else if (!(expression.lvalue instanceof Reference) || expression.rvalue == null) {
+            return new Bounds();
+        }
+        String name = getFieldName(expression.lvalue);
+        Object value = normalize(Literals.valueOf(expression.rvalue));
+        Bounds bounds = new Bounds();
+        if ((LOG_ID.equals(name) || LOG_EVENT_DATE.equals(name)) && isRangeValue(value)) {
+            long min = Long.MIN_VALUE;
+            long max = Long.MAX_VALUE;
+            if (Operator.EQ.equals(operator)) {
+                min = max = toLong(value);
+            } else if (Operator.LT.equals(operator)) {
+                max = toLong(value) - 1;
+            } else if (Operator.LTEQ.equals(operator)) {
+                max = toLong(value);
+            } else if (Operator.GT.equals(operator)) {
+                min = toLong(value) + 1;
+            } else if (Operator.GTEQ.equals(operator)) {
+                min = toLong(value);
+            } else if (Operator.BETWEEN.equals(operator)) {
+                min = toLong(((List<?>) value).get(0));
+                max = toLong(((List<?>) value).get(1));
+            }
+            if (LOG_ID.equals(name)) {
+                bounds.minId = min;
+                bounds.maxId = max;
+            } else {
+                bounds.minDate = min;
+                bounds.maxDate = max;
+            }
+        } else if (LOG_DOC_UUID.equals(name) || isDictionaryColumn(name)) {
+            if (Operator.EQ.equals(operator)) {
+                bounds.values.put(name, Collections.singleton(String.valueOf(value)));
+            } else if (Operator.IN.equals(operator)) {
+                Set<String> values = ((List<?>) value).stream().map(String::valueOf).collect(Collectors.toSet());
+                bounds.values.put(name, values);
+            }
+        }
+        bounds.empty = bounds.minId > bounds.maxId || bounds.minDate > bounds.maxDate;
+        return bounds;
+    }
+
+    protected static boolean isDictionaryColumn(String name) {
+        for (String column : AuditSegment.DICTIONARY_COLUMNS) {
+            if (column.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected static boolean isRangeValue(Object value) {
+        if (value instanceof List) {
+            return ((List<?>) value).stream().allMatch(AuditSegmentQuery::isRangeValue);
+        }
+        return value instanceof Date || value instanceof Long;
+    }
+
+    protected static long toLong(Object value) {
+        return value instanceof Date ? ((Date) value).getTime() : ((Long) value).longValue();
+    }
+
+    /**
+     * The ranges and values a matching entry can have, everything being allowed by default.
+     */
+    protected static class Bounds {
+
+        protected long minId = Long.MIN_VALUE;
+
+        protected long maxId = Long.MAX_VALUE;
+
+        protected long minDate = Long.MIN_VALUE;
+
+        protected long maxDate = Long.MAX_VALUE;
+
+        /** The values allowed by column, for the document UUID and the dictionary columns. */
+        protected Map<String, Set<String>> values = new HashMap<>();
+
+        /** {@code true} when nothing can match. */
+        protected boolean empty;
+
+        protected Bounds and(Bounds other) {
+            Bounds bounds = new Bounds();
+            bounds.minId = Math.max(minId, other.minId);
+            bounds.maxId = Math.min(maxId, other.maxId);
+            bounds.minDate = Math.max(minDate, other.minDate);
+            bounds.maxDate = Math.min(maxDate, other.maxDate);
+            bounds.values.putAll(values);
+            other.values.forEach((column, allowed) -> bounds.values.merge(column, allowed, (a, b) -> {
+                Set<String> intersection = new HashSet<>(a);
+                intersection.retainAll(b);
+                return intersection;
+            }));
+            bounds.empty = empty || other.empty || bounds.minId > bounds.maxId || bounds.minDate > bounds.maxDate
+                    || bounds.values.values().stream().anyMatch(Collection::isEmpty);
+            return bounds;
+        }
+
+        protected Bounds or(Bounds other) {
+            if (empty) {
+                return other;
+            } else if (other.empty) {
+                return this;
+            }
+            Bounds bounds = new Bounds();
+            bounds.minId = Math.min(minId, other.minId);
+            bounds.maxId = Math.max(maxId, other.maxId);
+            bounds.minDate = Math.min(minDate, other.minDate);
+            bounds.maxDate = Math.max(maxDate, other.maxDate);
+            values.forEach((column, allowed) -> {
+                Set<String> otherAllowed = other.values.get(column);
+                if (otherAllowed != null) {
+                    Set<String> union = new HashSet<>(allowed);
+                    union.addAll(otherAllowed);
+                    bounds.values.put(column, union);
+                }
+            });
+            return bounds;
+        }
+
+    }
+
+}
@@ -0,0 +1,529 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.audit.service.segment;
+
+import static org.nuxeo.ecm.platform.audit.service.segment.AuditSegment.FILE_EXTENSION;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.service.segment.AuditSegment.Columns;
+
+/**
+ * Append-only store of log entries in {@link AuditSegment} files.
+ * <p>
+ * Entries are partitioned by the UTC day of their event date, each partition being a directory of immutable segments.
+ * Every append writes a new segment per partition, the small segments of a partition being merged in the background
+ * once there are {@code mergeFactor} of them of the same size level, up to {@code maxSegmentSize} entries. A merge only
+ * holds the lock of the store to swap the merged segments with the new one. Queries skip the partitions
+ * and the segments that can't match from their in memory headers, decode the columns of the others and only read the
+ * extended infos of the returned entries.
+ *
+ * @since 11.1
+ */
+public class AuditSegmentStore {
+
+    private static final Logger log = LogManager.getLogger(AuditSegmentStore.class);
+
+    protected static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    protected static final String TMP_EXTENSION = ".tmp";
+
+    protected final Path directory;
+
+    protected final int maxSegmentSize;
+
+    protected final int mergeFactor;
+
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Held by the merges and the removals, which both replace existing segments. */
+    protected final Lock mergeLock = new ReentrantLock();
+
+    /** The partitions waiting for a merge. */
+    protected final Set<Long> mergeDays = ConcurrentHashMap.newKeySet();
+
+    protected ExecutorService mergeExecutor;
+
+    /** The segments of each partition keyed by epoch day, oldest first. */
+    protected final NavigableMap<Long, List<AuditSegment>> partitions = new TreeMap<>();
+
+    protected final AtomicLong lastId = new AtomicLong();
+
+    protected final AtomicLong lastNumber = new AtomicLong();
+
+    public AuditSegmentStore(Path directory, int maxSegmentSize, int mergeFactor) {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+        this.mergeFactor = Math.max(2, mergeFactor);
+    }
+
+    /**
+     * Opens the store, reading the headers of all its segments.
+     */
+    public void open() {
+        lock.writeLock().lock();
+        try {
+            partitions.clear();
+            mergeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Nuxeo-Audit-Segment-Merge");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> dirs = Files.newDirectoryStream(directory, Files::isDirectory)) {
+                for (Path dir : dirs) {
+                    long day;
+                    try {
+                        day = LocalDate.parse(dir.getFileName().toString()).toEpochDay();
+                    } catch (DateTimeParseException e) {
+                        log.warn("Ignoring unexpected directory: {}", dir);
+                        continue;
+                    }
+                    List<AuditSegment> segments = openPartition(dir);
+                    if (!segments.isEmpty()) {
+                        partitions.put(Long.valueOf(day), segments);
+                    }
+                }
+            }
+            log.debug("Opened {} audit partitions in: {}", partitions::size, () -> directory);
+        } catch (IOException e) {
+            throw new NuxeoException("Unable to open the audit segments of: " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected List<AuditSegment> openPartition(Path dir) throws IOException {
+        List<AuditSegment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TMP_EXTENSION)) {
+                    // interrupted write
+                    Files.delete(file);
+                } else if (name.endsWith(FILE_EXTENSION)) {
+                    try {
+                        segments.add(AuditSegment.open(file));
+                    } catch (IOException | RuntimeException e) {
+                        log.error("Skipping unreadable audit segment: {}", file, e);
+                        // keep the file, don't reuse its number
+                        String number = name.substring(0, name.length() - FILE_EXTENSION.length());
+                        if (number.matches("\\d{1,18}")) {
+                            lastNumber.accumulateAndGet(Long.parseLong(number), Math::max);
+                        }
+                    }
+                }
+            }
+        }
+        // delete the segments merged into another one when the merge was interrupted before their deletion
+        Set<Long> replaced = segments.stream()
+                                     .flatMap(segment -> LongStream.of(segment.getReplaces()).boxed())
+                                     .collect(Collectors.toSet());
+        for (Iterator<AuditSegment> it = segments.iterator(); it.hasNext();) {
+            AuditSegment segment = it.next();
+            if (replaced.contains(Long.valueOf(segment.getNumber()))) {
+                Files.delete(segment.getFile());
+                it.remove();
+            }
+        }
+        // a background merge writes its segment after the appends it ran concurrently with, keep the order of the ids
+        segments.sort(Comparator.comparingLong(AuditSegment::getMinId));
+        for (AuditSegment segment : segments) {
+            lastNumber.accumulateAndGet(segment.getNumber(), Math::max);
+            lastId.accumulateAndGet(segment.getMaxId(), Math::max);
+        }
+        return segments;
+    }
+
+    /**
+     * Closes the store, waiting for the merges in progress.
+     */
+    public void close() {
+        if (mergeExecutor != null) {
+            mergeExecutor.shutdown();
+            try {
+                if (!mergeExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.warn("Timeout waiting for the audit segment merges of: {}", directory);
+                    mergeExecutor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                mergeExecutor.shutdownNow();
+            }
+            mergeExecutor = null;
+        }
+        mergeDays.clear();
+        lock.writeLock().lock();
+        try {
+            partitions.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reserves a block of ids for new entries.
+     *
+     * @return the first id of the block
+     */
+    public long reserveIds(int count) {
+        return lastId.getAndAdd(count) + 1;
+    }
+
+    /**
+     * Appends the given entries, which must already have an id.
+     */
+    public void append(List<LogEntry> entries) {
+        Map<Long, List<LogEntry>> byPartition = entries.stream()
+                                                       .collect(Collectors.groupingBy(AuditSegmentStore::getPartition,
+                                                               TreeMap::new, Collectors.toList()));
+        lock.writeLock().lock();
+        try {
+            for (Entry<Long, List<LogEntry>> partition : byPartition.entrySet()) {
+                Long day = partition.getKey();
+                List<LogEntry> sorted = new ArrayList<>(partition.getValue());
+                sorted.sort(Comparator.comparingLong(LogEntry::getId));
+                AuditSegment segment = writeSegment(day.longValue(), sorted);
+                lastId.accumulateAndGet(segment.getMaxId(), Math::max);
+                partitions.computeIfAbsent(day, k -> new ArrayList<>()).add(segment);
+                scheduleMerge(day);
+            }
+        } catch (IOException e) {
+            throw new NuxeoException("Unable to append audit entries to: " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected static Long getPartition(LogEntry entry) {
+        Date date = entry.getEventDate() != null ? entry.getEventDate() : entry.getLogDate();
+        return Long.valueOf(date == null ? 0 : Math.floorDiv(date.getTime(), DAY_MILLIS));
+    }
+
+    protected AuditSegment writeSegment(long day, List<LogEntry> entries, long... replaces) throws IOException {
+        Path dir = directory.resolve(LocalDate.ofEpochDay(day).toString());
+        Files.createDirectories(dir);
+        long number = lastNumber.incrementAndGet();
+        Path file = dir.resolve(String.format("%019d%s", Long.valueOf(number), FILE_EXTENSION));
+        return AuditSegment.write(file, number, entries, replaces);
+    }
+
+    /**
+     * Schedules a merge of the segments of a partition, unless one is already waiting.
+     */
+    protected void scheduleMerge(Long day) {
+        if (mergeExecutor != null && mergeDays.add(day)) {
+            mergeExecutor.execute(() -> {
+                mergeDays.remove(day);
+                try {
+                    merge(day.longValue());
+                } catch (IOException | RuntimeException e) {
+                    log.error("Unable to merge the audit segments of: {} in: {}", LocalDate.ofEpochDay(day.longValue()),
+                            directory, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Merges the most recent segments of a partition while there are at least {@link #mergeFactor} of them of a same
+     * level, a segment of level {@code n} having at least {@code mergeFactor^n} entries. As a merge raises the level
+     * of its entries, an entry is rewritten a logarithmic number of times.
+     * <p>
+     * The merged segments are read and the new one written without holding the lock of the store, so that the queries
+     * and the appends go on during the merge.
+     */
+    protected void merge(long day) throws IOException {
+        mergeLock.lock();
+        try {
+            List<AuditSegment> merged;
+            while ((merged = getMergeCandidates(day)) != null) {
+                merge(day, merged);
+            }
+        } finally {
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the segments to merge in a partition, or {@code null} if there are none.
+     */
+    protected List<AuditSegment> getMergeCandidates(long day) {
+        lock.readLock().lock();
+        try {
+            List<AuditSegment> segments = partitions.get(Long.valueOf(day));
+            if (segments == null) {
+                return null;
+            }
+            int maxLevel = getLevel(maxSegmentSize);
+            for (int level = 0; level < maxLevel; level++) {
+                int first = segments.size();
+                int sameLevel = 0;
+                long size = 0;
+                while (first > 0 && getLevel(segments.get(first - 1).getCount()) <= level) {
+                    first--;
+                    size += segments.get(first).getCount();
+                    if (getLevel(segments.get(first).getCount()) == level) {
+                        sameLevel++;
+                    }
+                }
+                if (sameLevel >= mergeFactor && size <= maxSegmentSize) {
+                    return new ArrayList<>(segments.subList(first, segments.size()));
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merges consecutive segments of a partition, the caller holding the {@link #mergeLock} so that they are not
+     * replaced meanwhile, only appends can happen after them.
+     */
+    protected void merge(long day, List<AuditSegment> merged) throws IOException {
+        List<LogEntry> entries = new ArrayList<>();
+        for (AuditSegment segment : merged) {
+            entries.addAll(segment.readEntries());
+        }
+        entries.sort(Comparator.comparingLong(LogEntry::getId));
+        long[] replaces = merged.stream().mapToLong(AuditSegment::getNumber).toArray();
+        AuditSegment segment = writeSegment(day, entries, replaces);
+        lock.writeLock().lock();
+        try {
+            List<AuditSegment> segments = partitions.get(Long.valueOf(day));
+            int first = segments.indexOf(merged.get(0));
+            segments.subList(first, first + merged.size()).clear();
+            segments.add(first, segment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (AuditSegment replaced : merged) {
+            Files.delete(replaced.getFile());
+        }
+        log.debug("Merged {} segments into: {}", merged::size, () -> segment);
+    }
+
+    protected int getLevel(long count) {
+        int level = 0;
+        for (long remaining = count; remaining >= mergeFactor; remaining /= mergeFactor) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Returns the entries matching the query, with their extended infos.
+     */
+    public List<LogEntry> query(AuditSegmentQuery query) {
+        long offset = Math.max(0, query.getOffset());
+        long wanted = query.getLimit() > 0 ? offset + query.getLimit() : Long.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            List<Hit> hits;
+            if (query.getComparator() == null) {
+                // scan order, stop as soon as we have enough entries
+                List<Hit> scanned = new ArrayList<>();
+                scan(query, hit -> scanned.add(hit) && scanned.size() < wanted);
+                hits = scanned;
+            } else {
+                Comparator<Hit> comparator = Comparator.comparing(hit -> hit.entry, query.getComparator());
+                if (wanted < Long.MAX_VALUE) {
+                    // only keep the first entries
+                    PriorityQueue<Hit> heap = new PriorityQueue<>(comparator.reversed());
+                    scan(query, hit -> {
+                        heap.add(hit);
+                        if (heap.size() > wanted) {
+                            heap.poll();
+                        }
+                        return true;
+                    });
+                    hits = new ArrayList<>(heap);
+                } else {
+                    List<Hit> scanned = new ArrayList<>();
+                    scan(query, scanned::add);
+                    hits = scanned;
+                }
+                hits.sort(comparator);
+            }
+            return fetch(hits.subList((int) Math.min(offset, hits.size()), hits.size()));
+        } catch (IOException e) {
+            throw new NuxeoException("Unable to query the audit segments of: " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the entries matching the query, ignoring its offset and limit.
+     */
+    public long count(AuditSegmentQuery query) {
+        lock.readLock().lock();
+        try {
+            long[] count = { 0 };
+            scan(query, hit -> {
+                count[0]++;
+                return true;
+            });
+            return count[0];
+        } catch (IOException e) {
+            throw new NuxeoException("Unable to query the audit segments of: " + directory, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the entries matching the query, rewriting the segments holding them.
+     *
+     * @return the number of removed entries
+     */
+    public int remove(AuditSegmentQuery query) {
+        // no merge must be reading the segments we rewrite
+        mergeLock.lock();
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (Entry<Long, List<AuditSegment>> partition : partitions.entrySet()) {
+                List<AuditSegment> segments = partition.getValue();
+                for (int i = 0; i < segments.size(); i++) {
+                    AuditSegment segment = segments.get(i);
+                    if (!query.mayMatch(segment)) {
+                        continue;
+                    }
+                    List<LogEntry> entries = segment.readEntries();
+                    List<LogEntry> kept = entries.stream()
+                                                 .filter(entry -> !query.matches(entry))
+                                                 .collect(Collectors.toList());
+                    if (kept.size() == entries.size()) {
+                        continue;
+                    }
+                    removed += entries.size() - kept.size();
+                    if (kept.isEmpty()) {
+                        segments.remove(i--);
+                    } else {
+                        segments.set(i, writeSegment(partition.getKey().longValue(), kept, segment.getNumber()));
+                    }
+                    Files.delete(segment.getFile());
+                }
+            }
+            partitions.values().removeIf(List::isEmpty);
+            return removed;
+        } catch (IOException e) {
+            throw new NuxeoException("Unable to remove audit entries from: " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+            mergeLock.unlock();
+        }
+    }
+
+    /**
+     * Feeds the consumer with the entries matching the query in scan order, until it returns {@code false}.
+     */
+    protected void scan(AuditSegmentQuery query, Predicate<Hit> consumer) throws IOException {
+        Set<String> docUUIDs = query.getDocUUIDs();
+        for (Entry<Long, List<AuditSegment>> partition : partitions.entrySet()) {
+            if (!query.mayMatch(partition.getKey().longValue())) {
+                continue;
+            }
+            for (AuditSegment segment : partition.getValue()) {
+                if (!query.mayMatch(segment)) {
+                    continue;
+                }
+                Columns columns = segment.readColumns(docUUIDs);
+                BitSet candidates = columns.getCandidates();
+                for (int row = candidates.nextSetBit(0); row >= 0; row = candidates.nextSetBit(row + 1)) {
+                    LogEntry entry = columns.newLogEntry(row);
+                    if (query.matches(entry) && !consumer.test(new Hit(segment, row, entry))) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the extended infos of the hits, segment by segment.
+     */
+    protected List<LogEntry> fetch(List<Hit> hits) throws IOException {
+        Map<AuditSegment, Map<Integer, LogEntry>> bySegment = new LinkedHashMap<>();
+        for (Hit hit : hits) {
+            bySegment.computeIfAbsent(hit.segment, k -> new HashMap<>()).put(Integer.valueOf(hit.row), hit.entry);
+        }
+        for (Entry<AuditSegment, Map<Integer, LogEntry>> entries : bySegment.entrySet()) {
+            entries.getKey().readExtendedInfos(entries.getValue());
+        }
+        return hits.stream().map(hit -> hit.entry).collect(Collectors.toList());
+    }
+
+    /**
+     * An entry matching a query, without its extended infos yet.
+     */
+    protected static class Hit {
+
+        protected final AuditSegment segment;
+
+        protected final int row;
+
+        protected final LogEntry entry;
+
+        protected Hit(AuditSegment segment, int row, LogEntry entry) {
+            this.segment = segment;
+            this.row = row;
+            this.entry = entry;
+        }
+
+    }
+
+}
@@ -0,0 +1,308 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.audit.service.segment;
+
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_PATH;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_ID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_ID;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.nuxeo.common.Environment;
+import org.nuxeo.ecm.core.api.CursorResult;
+import org.nuxeo.ecm.core.api.CursorService;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.ScrollResult;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExprs;
+import org.nuxeo.ecm.core.query.sql.model.Predicates;
+import org.nuxeo.ecm.core.query.sql.model.QueryBuilder;
+import org.nuxeo.ecm.platform.audit.api.AuditQueryBuilder;
+import org.nuxeo.ecm.platform.audit.api.ExtendedInfo;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.ExtendedInfoImpl;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.ecm.platform.audit.service.AbstractAuditBackend;
+import org.nuxeo.ecm.platform.audit.service.AuditBackend;
+import org.nuxeo.ecm.platform.audit.service.BaseLogEntryProvider;
+import org.nuxeo.ecm.platform.audit.service.NXAuditEventsService;
+import org.nuxeo.ecm.platform.audit.service.extension.AuditBackendDescriptor;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.cluster.ClusterService;
+import org.nuxeo.runtime.services.config.ConfigurationService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Implementation of the {@link AuditBackend} interface storing the log entries in append-only, time partitioned and
+ * compressed columnar files, see {@link AuditSegmentStore}.
+ * <p>
+ * Native queries are the JPA ones of the {@link org.nuxeo.ecm.platform.audit.service.DefaultAuditBackend}, parsed by
+ * {@link AuditNativeQueryParser}, so that the {@link org.nuxeo.ecm.platform.audit.api.AuditPageProvider} page
+ * providers work unchanged.
+ * <p>
+ * The segments and the entry ids are local to the node, so this backend refuses to start when clustering is enabled.
+ *
+ * @since 11.1
+ */
+public class SegmentAuditBackend extends AbstractAuditBackend implements AuditBackend {
+
+    public static final String DIRECTORY_PROPERTY = "nuxeo.audit.segment.directory";
+
+    public static final String DEFAULT_DIRECTORY = "audit";
+
+    public static final String MAX_SEGMENT_SIZE_PROPERTY = "nuxeo.audit.segment.maxSize";
+
+    public static final int DEFAULT_MAX_SEGMENT_SIZE = 1_000_000;
+
+    public static final String MERGE_FACTOR_PROPERTY = "nuxeo.audit.segment.mergeFactor";
+
+    public static final int DEFAULT_MERGE_FACTOR = 10;
+
+    /** Page size of the native queries without one, as for the JPA backend. */
+    protected static final int DEFAULT_PAGE_SIZE = 1000;
+
+    protected static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    protected AuditSegmentStore store;
+
+    protected SegmentLogEntryProvider provider = new SegmentLogEntryProvider();
+
+    protected CursorService<Iterator<LogEntry>, LogEntry, String> cursorService;
+
+    public SegmentAuditBackend(NXAuditEventsService component, AuditBackendDescriptor config) {
+        super(component, config);
+    }
+
+    public SegmentAuditBackend() {
+        super();
+    }
+
+    @Override
+    public int getApplicationStartedOrder() {
+        return config.getApplicationStartedOrder();
+    }
+
+    @Override
+    public void onApplicationStarted() {
+        if (Framework.getService(ClusterService.class).isEnabled()) {
+            throw new NuxeoException("The segment audit backend stores the entries in local files and cannot be used "
+                    + "when clustering is enabled, use a shared audit backend instead");
+        }
+        ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
+        String directory = configurationService.getString(DIRECTORY_PROPERTY,
+                new File(Environment.getDefault().getData(), DEFAULT_DIRECTORY).getPath());
+        int maxSegmentSize = configurationService.getInteger(MAX_SEGMENT_SIZE_PROPERTY, DEFAULT_MAX_SEGMENT_SIZE);
+        int mergeFactor = configurationService.getInteger(MERGE_FACTOR_PROPERTY, DEFAULT_MERGE_FACTOR);
+        log.info("Activate segment backend for Audit in: {}", directory);
+        store = new AuditSegmentStore(Paths.get(directory), maxSegmentSize, mergeFactor);
+        store.open();
+        cursorService = new CursorService<>(entry -> {
+            try {
+                return OBJECT_MAPPER.writeValueAsString(entry);
+            } catch (IOException e) {
+                throw new NuxeoException("Unable to serialize entry", e);
+            }
+        });
+    }
+
+    @Override
+    public void onApplicationStopped() {
+        store.close();
+        store = null;
+        cursorService.clear();
+        cursorService = null;
+    }
+
+    public AuditSegmentStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void addLogEntries(List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        long id = store.reserveIds(entries.size());
+        for (LogEntry entry : entries) {
+            entry.setId(id++);
+            entry.setLogDate(new Date());
+        }
+        store.append(entries);
+    }
+
+    @Override
+    public void append(List<String> jsonEntries) {
+        List<LogEntry> entries = new ArrayList<>(jsonEntries.size());
+        for (String json : jsonEntries) {
+            try {
+                LogEntryImpl entry = OBJECT_MAPPER.readValue(json, LogEntryImpl.class);
+                if (entry.getId() == 0) {
+                    throw new NuxeoException("A json entry has an empty id. entry=" + json);
+                }
+                entries.add(entry);
+            } catch (IOException e) {
+                throw new NuxeoException("Unable to deserialize json entry=" + json, e);
+            }
+        }
+        store.append(entries);
+    }
+
+    @Override
+    public List<LogEntry> queryLogs(QueryBuilder builder) {
+        return store.query(AuditSegmentQuery.of(builder));
+    }
+
+    @Override
+    public LogEntry getLogEntryByID(long id) {
+        QueryBuilder builder = new AuditQueryBuilder().predicate(Predicates.eq(LOG_ID, Long.valueOf(id))).limit(1);
+        List<LogEntry> entries = queryLogs(builder);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    @Override
+    public List<?> nativeQuery(String query, Map<String, Object> params, int pageNb, int pageSize) {
+        AuditNativeQueryParser parser = new AuditNativeQueryParser(query, params);
+        QueryBuilder builder = parser.parse();
+        if (parser.isCount()) {
+            return Collections.singletonList(Long.valueOf(store.count(AuditSegmentQuery.ofNative(builder))));
+        }
+        int size = pageSize <= 0 ? DEFAULT_PAGE_SIZE : pageSize;
+        if (pageNb > 1) {
+            builder.offset((long) (pageNb - 1) * size);
+        }
+        builder.limit(size);
+        return store.query(AuditSegmentQuery.ofNative(builder));
+    }
+
+    @Override
+    public Long getEventsCount(String eventId) {
+        QueryBuilder builder = new AuditQueryBuilder().predicate(Predicates.eq(LOG_EVENT_ID, eventId));
+        return Long.valueOf(store.count(AuditSegmentQuery.of(builder)));
+    }
+
+    @Override
+    public long syncLogCreationEntries(String repoId, String path, Boolean recurs) {
+        return syncLogCreationEntries(provider, repoId, path, recurs);
+    }
+
+    @Override
+    public ExtendedInfo newExtendedInfo(Serializable value) {
+        return ExtendedInfoImpl.createExtendedInfo(value);
+    }
+
+    @SuppressWarnings("resource") // CursorResult is being registered, must not be closed
+    @Override
+    public ScrollResult<String> scroll(QueryBuilder builder, int batchSize, int keepAliveSeconds) {
+        String scrollId = cursorService.registerCursorResult(
+                new SegmentAuditCursorResult(builder, batchSize, keepAliveSeconds));
+        return scroll(scrollId);
+    }
+
+    @Override
+    public ScrollResult<String> scroll(String scrollId) {
+        return cursorService.scroll(scrollId);
+    }
+
+    /**
+     * Cursor returning the entries by ascending id, each page starting after the last id of the previous one so that
+     * the segments of the previous pages are skipped.
+     */
+    public class SegmentAuditCursorResult extends CursorResult<Iterator<LogEntry>, LogEntry> {
+
+        protected final MultiExpression predicate;
+
+        protected long lastId = Long.MIN_VALUE;
+
+        protected boolean end;
+
+        public SegmentAuditCursorResult(QueryBuilder builder, int batchSize, int keepAliveSeconds) {
+            super(Collections.emptyIterator(), batchSize, keepAliveSeconds);
+            this.predicate = builder.predicate();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (cursor == null || end) {
+                return false;
+            } else if (cursor.hasNext()) {
+                return true;
+            } else {
+                runNextPage();
+                return !end;
+            }
+        }
+
+        @Override
+        public LogEntry next() {
+            if (cursor != null && !cursor.hasNext() && !end) {
+                // try to run a next scroll
+                runNextPage();
+            }
+            return super.next();
+        }
+
+        protected void runNextPage() {
+            QueryBuilder builder = new AuditQueryBuilder().predicate(predicate)
+                                                          .and(Predicates.gt(LOG_ID, Long.valueOf(lastId)))
+                                                          .order(OrderByExprs.asc(LOG_ID))
+                                                          .limit(batchSize);
+            List<LogEntry> entries = queryLogs(builder);
+            if (!entries.isEmpty()) {
+                lastId = entries.get(entries.size() - 1).getId();
+            }
+            cursor = entries.iterator();
+            end = !cursor.hasNext();
+        }
+
+        @Override
+        public void close() {
+            end = true;
+            // Call super close to clear cursor
+            super.close();
+        }
+
+    }
+
+    public class SegmentLogEntryProvider implements BaseLogEntryProvider {
+
+        @Override
+        public int removeEntries(String eventId, String pathPattern) {
+            QueryBuilder builder = new AuditQueryBuilder().predicate(Predicates.eq(LOG_EVENT_ID, eventId))
+                                                          .and(Predicates.startsWith(LOG_DOC_PATH, pathPattern));
+            return store.remove(AuditSegmentQuery.of(builder));
+        }
+
+        @Override
+        public void addLogEntry(LogEntry logEntry) {
+            addLogEntries(Collections.singletonList(logEntry));
+        }
+
+    }
+
+}
@@ -0,0 +1,313 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.ecm.platform.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_CATEGORY;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_PATH;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_UUID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_DATE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_ID;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExprs;
+import org.nuxeo.ecm.core.query.sql.model.Predicates;
+import org.nuxeo.ecm.platform.audit.api.AuditQueryBuilder;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.ecm.platform.audit.service.NXAuditEventsService;
+import org.nuxeo.ecm.platform.audit.service.segment.AuditSegment;
+import org.nuxeo.ecm.platform.audit.service.segment.AuditSegmentQuery;
+import org.nuxeo.ecm.platform.audit.service.segment.AuditSegmentStore;
+import org.nuxeo.ecm.platform.audit.service.segment.SegmentAuditBackend;
+import org.nuxeo.runtime.test.runner.ConsoleLogLevelThreshold;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.LogFeature;
+
+/**
+ * @since 11.1
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ AuditFeature.class, LogFeature.class })
+@Deploy("org.nuxeo.ecm.platform.audit:test-audit-segment-contrib.xml")
+public class TestSegmentAuditStorage extends AbstractAuditStorageTest {
+
+    @Inject
+    protected NXAuditEventsService auditEventsService;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Override
+    protected void flush() {
+        // entries are readable as soon as appended
+    }
+
+    @Test
+    public void shouldUseSegmentBackend() {
+        assertTrue(auditEventsService.getBackend() instanceof SegmentAuditBackend);
+    }
+
+    @Test
+    public void testQueryByDocumentAndDate() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DAY_OF_MONTH, -4);
+        List<LogEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            calendar.add(Calendar.HOUR_OF_DAY, 6);
+            entries.add(newEntry("doc-" + i % 3, calendar.getTime()));
+        }
+        auditBackend.addLogEntries(entries);
+
+        Date after = entries.get(5).getEventDate();
+        List<LogEntry> logs = auditBackend.queryLogs(
+                new AuditQueryBuilder().predicate(Predicates.eq(LOG_DOC_UUID, "doc-1"))
+                                       .and(Predicates.gt(LOG_EVENT_DATE, after))
+                                       .order(OrderByExprs.desc(LOG_EVENT_DATE)));
+        assertEquals(2, logs.size());
+        assertEquals(entries.get(10).getId(), logs.get(0).getId());
+        assertEquals(entries.get(7).getId(), logs.get(1).getId());
+        assertEquals("value", logs.get(0).getExtendedInfos().get("key").getValue(String.class));
+    }
+
+    @Test
+    public void testNativeQuery() {
+        Date now = new Date();
+        List<LogEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entries.add(newEntry("doc-native", now));
+        }
+        auditBackend.addLogEntries(entries);
+
+        // the history query of the DocumentHistoryPageProvider
+        String query = "from LogEntry log where ( log.docUUID = :param0 OR (log.docUUID = :param1 AND "
+                + "log.eventDate <= :param2) ) AND log.category IN ( :param3 , :param4 ) ORDER BY log.id DESC";
+        Map<String, Object> params = new HashMap<>();
+        params.put("param0", "doc-native");
+        params.put("param1", "no-such-doc");
+        params.put("param2", now);
+        params.put("param3", "segmentCategory");
+        params.put("param4", "otherCategory");
+
+        List<?> count = auditBackend.nativeQuery("select count(log.id) " + query, params, 1, 0);
+        assertEquals(Arrays.asList(5L), count);
+
+        List<?> page = auditBackend.nativeQuery(query, params, 2, 2);
+        assertEquals(2, page.size());
+        assertEquals(entries.get(2).getId(), ((LogEntry) page.get(0)).getId());
+        assertEquals(entries.get(1).getId(), ((LogEntry) page.get(1)).getId());
+    }
+
+    @Test
+    public void testReopenStore() {
+        Date today = new Date();
+        Date yesterday = new Date(today.getTime() - TimeUnit.DAYS.toMillis(1));
+        AuditSegmentStore store = openStore(10);
+        append(store, newEntry("doc-a", today), newEntry("doc-b", today));
+        append(store, newEntry("doc-a", yesterday), newEntry("doc-c", today), newEntry("doc-b", yesterday));
+        append(store, newEntry("doc-c", today));
+        List<Long> ids = queryIds(store);
+        assertEquals(6, ids.size());
+        store.close();
+
+        store = openStore(10);
+        try {
+            // same entries in the same order
+            assertEquals(ids, queryIds(store));
+            // new ids follow the restored ones
+            LogEntry entry = newEntry("doc-d", today);
+            append(store, entry);
+            assertEquals(7, entry.getId());
+            assertEquals("doc-d", queryLogs(store, LOG_DOC_UUID, "doc-d").get(0).getDocUUID());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        Date now = new Date();
+        AuditSegmentStore store = openStore(2);
+        for (int i = 0; i < 4; i++) {
+            append(store, newEntry("doc-" + i % 2, now));
+        }
+        List<Long> ids = queryIds(store);
+        List<LogEntry> entries = queryLogs(store, LOG_DOC_UUID, "doc-1");
+        // waits for the merges
+        store.close();
+        // with a merge factor of 2 the 4 segments of one entry are merged level by level into one
+        assertEquals(1, listSegments().size());
+
+        store = openStore(2);
+        try {
+            assertEquals(ids, queryIds(store));
+            List<LogEntry> merged = queryLogs(store, LOG_DOC_UUID, "doc-1");
+            assertEquals(2, merged.size());
+            for (int i = 0; i < merged.size(); i++) {
+                assertEquals(entries.get(i).getId(), merged.get(i).getId());
+                assertEquals("value", merged.get(i).getExtendedInfos().get("key").getValue(String.class));
+            }
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testRemoveEntries() throws IOException {
+        Date now = new Date();
+        AuditSegmentStore store = openStore(10);
+        LogEntry removed = newEntry("doc-a", now);
+        removed.setEventId("removedEvent");
+        append(store, removed, newEntry("doc-a", now), newEntry("doc-b", now));
+        LogEntry alone = newEntry("doc-c", now);
+        alone.setEventId("removedEvent");
+        append(store, alone);
+        List<Path> segments = listSegments();
+        assertEquals(2, segments.size());
+
+        // the query of BaseLogEntryProvider.removeEntries
+        AuditSegmentQuery query = AuditSegmentQuery.of(
+                new AuditQueryBuilder().predicate(Predicates.eq(LOG_EVENT_ID, "removedEvent"))
+                                       .and(Predicates.startsWith(LOG_DOC_PATH, "/segment/")));
+        assertEquals(2, store.remove(query));
+        // the first segment is rewritten with its other entries, the second one holding only removed entries is deleted
+        List<Path> rewritten = listSegments();
+        assertEquals(1, rewritten.size());
+        assertFalse(segments.contains(rewritten.get(0)));
+        List<Long> ids = queryIds(store);
+        assertEquals(2, ids.size());
+        assertFalse(ids.contains(Long.valueOf(removed.getId())));
+        store.close();
+
+        // the rewritten segment is not mistaken for an interrupted merge on reopen
+        store = openStore(10);
+        try {
+            assertEquals(ids, queryIds(store));
+            assertEquals(0, queryLogs(store, LOG_EVENT_ID, "removedEvent").size());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    // hide the expected error about the corrupt segment
+    @ConsoleLogLevelThreshold("FATAL")
+    public void testSkipCorruptSegment() throws IOException {
+        Date now = new Date();
+        AuditSegmentStore store = openStore(10);
+        LogEntry lost = newEntry("doc-a", now);
+        append(store, lost);
+        LogEntry kept = newEntry("doc-b", now);
+        append(store, kept);
+        store.close();
+        Path corrupt = listSegments().get(0);
+        Files.write(corrupt, "not a segment".getBytes());
+
+        store = openStore(10);
+        try {
+            assertEquals(Arrays.asList(Long.valueOf(kept.getId())), queryIds(store));
+            // the corrupt file is kept and its number is not reused
+            append(store, newEntry("doc-c", now));
+            List<Path> segments = listSegments();
+            assertEquals(3, segments.size());
+            assertTrue(segments.contains(corrupt));
+            assertEquals(2, queryIds(store).size());
+        } finally {
+            store.close();
+        }
+    }
+
+    protected AuditSegmentStore openStore(int mergeFactor) {
+        AuditSegmentStore store = new AuditSegmentStore(folder.getRoot().toPath(), 1000, mergeFactor);
+        store.open();
+        return store;
+    }
+
+    /**
+     * Appends the entries as the backend does, the entries of a partition being written into a new segment.
+     */
+    protected void append(AuditSegmentStore store, LogEntry... entries) {
+        long id = store.reserveIds(entries.length);
+        for (LogEntry entry : entries) {
+            entry.setId(id++);
+            entry.setLogDate(new Date());
+        }
+        store.append(Arrays.asList(entries));
+    }
+
+    /**
+     * Returns the ids of all the entries in scan order.
+     */
+    protected List<Long> queryIds(AuditSegmentStore store) {
+        return queryLogs(store, LOG_CATEGORY, "segmentCategory").stream()
+                                                                 .map(entry -> Long.valueOf(entry.getId()))
+                                                                 .collect(Collectors.toList());
+    }
+
+    protected List<LogEntry> queryLogs(AuditSegmentStore store, String key, String value) {
+        return store.query(AuditSegmentQuery.of(new AuditQueryBuilder().predicate(Predicates.eq(key, value))));
+    }
+
+    /**
+     * Returns the segment files of the store, sorted by partition then number.
+     */
+    protected List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.walk(folder.getRoot().toPath())) {
+            return files.filter(file -> file.getFileName().toString().endsWith(AuditSegment.FILE_EXTENSION))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    protected LogEntry newEntry(String docUUID, Date eventDate) {
+        LogEntry entry = new LogEntryImpl();
+        entry.setEventId("segmentEvent");
+        entry.setCategory("segmentCategory");
+        entry.setDocUUID(docUUID);
+        entry.setDocPath("/segment/" + docUUID);
+        entry.setEventDate(eventDate);
+        entry.setExtendedInfos(new HashMap<>());
+        entry.getExtendedInfos().put("key", auditBackend.newExtendedInfo("value"));
+        return entry;
+    }
+
+}
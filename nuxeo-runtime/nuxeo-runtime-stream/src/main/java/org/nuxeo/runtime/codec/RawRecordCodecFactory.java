@@ -0,0 +1,47 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.runtime.codec;
+
+import java.util.Map;
+
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RawRecordCodec;
+import org.nuxeo.lib.stream.computation.Record;
+
+/**
+ * Factory of the {@link RawRecordCodec}, it can only encode {@link Record}.
+ *
+ * @since 11.1
+ */
+public class RawRecordCodecFactory implements CodecFactory {
+
+    @Override
+    public void init(Map<String, String> options) {
+        // nothing to init
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> Codec<T> newCodec(Class<T> objectClass) {
+        if (!Record.class.isAssignableFrom(objectClass)) {
+            throw new IllegalArgumentException("Raw codec can only encode Record, not: " + objectClass.getName());
+        }
+        return (Codec<T>) new RawRecordCodec();
+    }
+}
@@ -130,6 +130,24 @@ public class StreamProcessorDescriptor implements Descriptor {
 
         public static final Duration DEFAULT_BATCH_THRESHOLD = Duration.ofSeconds(1);
 
+        // @since 11.1
+        public static final Integer DEFAULT_READ_BATCH_CAPACITY = 1;
+
+        // @since 11.1
+        public static final Long DEFAULT_READ_BATCH_MAX_BYTES = 1024L * 1024L;
+
+        // @since 11.1
+        public static final Duration DEFAULT_READ_BATCH_THRESHOLD = Duration.ofMillis(100);
+
+        // @since 11.1
+        public static final Long DEFAULT_AUTOSCALE_LAG_PER_THREAD = 1000L;
+
+        // @since 11.1
+        public static final Duration DEFAULT_AUTOSCALE_MAX_LATENCY = Duration.ofMinutes(1);
+
+        // @since 11.1
+        public static final Duration DEFAULT_AUTOSCALE_INTERVAL = Duration.ofSeconds(30);
+
         @XNode("@name")
         public String name;
 
@@ -165,6 +183,38 @@ public class StreamProcessorDescriptor implements Descriptor {
         @XNode("@batchThreshold")
         public Duration batchThreshold = DEFAULT_BATCH_THRESHOLD;
 
+        // @since 11.1 records read and processed together with a single checkpoint, 1 to process them one by one
+        @XNode("@readBatchCapacity")
+        public Integer readBatchCapacity = DEFAULT_READ_BATCH_CAPACITY;
+
+        // @since 11.1
+        @XNode("@readBatchMaxBytes")
+        public Long readBatchMaxBytes = DEFAULT_READ_BATCH_MAX_BYTES;
+
+        // @since 11.1
+        @XNode("@readBatchThreshold")
+        public Duration readBatchThreshold = DEFAULT_READ_BATCH_THRESHOLD;
+
+        // @since 11.1 adapts the number of threads to the lag when the max concurrency is greater than the min
+        @XNode("@autoscaleMinConcurrency")
+        public Integer autoscaleMinConcurrency = 0;
+
+        // @since 11.1
+        @XNode("@autoscaleMaxConcurrency")
+        public Integer autoscaleMaxConcurrency = 0;
+
+        // @since 11.1
+        @XNode("@autoscaleLagPerThread")
+        public Long autoscaleLagPerThread = DEFAULT_AUTOSCALE_LAG_PER_THREAD;
+
+        // @since 11.1
+        @XNode("@autoscaleMaxLatency")
+        public Duration autoscaleMaxLatency = DEFAULT_AUTOSCALE_MAX_LATENCY;
+
+        // @since 11.1
+        @XNode("@autoscaleInterval")
+        public Duration autoscaleInterval = DEFAULT_AUTOSCALE_INTERVAL;
+
     }
 
     public static final Integer DEFAULT_CONCURRENCY = 4;
@@ -228,12 +278,19 @@ public class StreamProcessorDescriptor implements Descriptor {
         RetryPolicy retryPolicy = new RetryPolicy().withMaxRetries(policyDescriptor.maxRetries)
                                                    .withBackoff(policyDescriptor.delay.toMillis(),
                                                            policyDescriptor.maxDelay.toMillis(), TimeUnit.MILLISECONDS);
-        return new ComputationPolicyBuilder().retryPolicy(retryPolicy)
-                                             .batchPolicy(policyDescriptor.batchCapacity,
-                                                     policyDescriptor.batchThreshold)
-                                             .continueOnFailure(policyDescriptor.continueOnFailure)
-                                             .skipFirstFailures(getSkipFirstFailures(policyDescriptor))
-                                             .build();
+        ComputationPolicyBuilder builder = new ComputationPolicyBuilder();
+        builder.retryPolicy(retryPolicy)
+               .batchPolicy(policyDescriptor.batchCapacity, policyDescriptor.batchThreshold)
+               .readBatchPolicy(policyDescriptor.readBatchCapacity, policyDescriptor.readBatchMaxBytes,
+                       policyDescriptor.readBatchThreshold)
+               .continueOnFailure(policyDescriptor.continueOnFailure)
+               .skipFirstFailures(getSkipFirstFailures(policyDescriptor));
+        if (policyDescriptor.autoscaleMaxConcurrency > policyDescriptor.autoscaleMinConcurrency) {
+            builder.autoscalePolicy(Math.max(1, policyDescriptor.autoscaleMinConcurrency),
+                    policyDescriptor.autoscaleMaxConcurrency, policyDescriptor.autoscaleLagPerThread,
+                    policyDescriptor.autoscaleMaxLatency, policyDescriptor.autoscaleInterval);
+        }
+        return builder.build();
     }
 
     protected int getSkipFirstFailures(PolicyDescriptor policyDescriptor) {
@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.nuxeo.lib.stream.computation.BufferRecord;
+import org.nuxeo.lib.stream.computation.Record;
+
+/**
+ * A compact binary encoding of {@link Record} without any schema: watermark, flags, key and data are written in this
+ * order.
+ * <p>
+ * The decoded records are {@link BufferRecord} sharing the encoded bytes, the data is not copied unless
+ * {@link Record#getData()} is called. The Chronicle Queue implementation recognizes this codec and writes the same
+ * fields directly in the queue, without an intermediate byte array. Reading from a Chronicle Queue is not zero-copy:
+ * the mapped memory is only readable while the excerpt is open, so the data is copied once into the record.
+ *
+ * @since 11.1
+ */
+public class RawRecordCodec implements Codec<Record> {
+
+    public static final String NAME = "raw";
+
+    protected static final int NULL_KEY = -1;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Record record) {
+        String key = record.getKey();
+        byte[] keyBytes = key == null ? null : key.getBytes(UTF_8);
+        ByteBuffer data = record.getDataBuffer();
+        int size = Long.BYTES + Byte.BYTES + Integer.BYTES + (keyBytes == null ? 0 : keyBytes.length) + Integer.BYTES
+                + data.remaining();
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(record.getWatermark());
+        buffer.put(record.getFlagsAsByte());
+        if (keyBytes == null) {
+            buffer.putInt(NULL_KEY);
+        } else {
+            buffer.putInt(keyBytes.length);
+            buffer.put(keyBytes);
+        }
+        buffer.putInt(data.remaining());
+        buffer.put(data);
+        return buffer.array();
+    }
+
+    @Override
+    public Record decode(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long watermark = buffer.getLong();
+            byte flags = buffer.get();
+            int keyLength = buffer.getInt();
+            String key = null;
+            if (keyLength != NULL_KEY) {
+                key = new String(bytes, buffer.position(), keyLength, UTF_8);
+                buffer.position(buffer.position() + keyLength);
+            }
+            int dataLength = buffer.getInt();
+            if (dataLength < 0 || dataLength > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid data length: " + dataLength);
+            }
+            buffer.limit(buffer.position() + dataLength);
+            return new BufferRecord(key, buffer.slice(), watermark, flags);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid raw record", e);
+        }
+    }
+
+}
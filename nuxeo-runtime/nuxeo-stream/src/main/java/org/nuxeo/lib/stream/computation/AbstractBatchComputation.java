@@ -47,6 +47,9 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
 
     protected boolean removeLastRecordOnRetry;
 
+    // @since 11.1
+    protected int removeLastRecordsOnRetry;
+
     /**
      * Constructor
      *
@@ -111,6 +114,26 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
         }
     }
 
+    /**
+     * Processes the records read together as a single batch, whatever the batch capacity.
+     *
+     * @since 11.1
+     */
+    @Override
+    public void processRecords(ComputationContext context, String inputStreamName, List<Record> records) {
+        if (!inputStreamName.equals(currentInputStream) && !batchRecords.isEmpty()) {
+            batchProcess(context);
+        }
+        if (newBatch) {
+            currentInputStream = inputStreamName;
+            newBatch = false;
+        }
+        batchRecords.addAll(records);
+        removeLastRecordsOnRetry = records.size();
+        batchProcess(context);
+        removeLastRecordsOnRetry = 0;
+    }
+
     private void batchProcess(ComputationContext context) {
         batchProcess(context, currentInputStream, batchRecords);
         checkpointBatch(context);
@@ -130,6 +153,11 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
             batchRecords.remove(batchRecords.size() -1);
             removeLastRecordOnRetry = false;
         }
+        if (removeLastRecordsOnRetry > 0) {
+            // same for the records read together, processRecords will be retried with the same records
+            batchRecords.subList(batchRecords.size() - removeLastRecordsOnRetry, batchRecords.size()).clear();
+            removeLastRecordsOnRetry = 0;
+        }
         log.warn(String.format("Computation: %s fails to process batch of %d records, last record: %s, retrying ...",
                 metadata.name(), batchRecords.size(), context.getLastOffset()), failure);
     }
@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.computation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A record which data is a read-only view on a buffer, the data is copied to a byte array only when
+ * {@link #getData()} is called.
+ * <p>
+ * This avoids allocating and copying the payload when a record is decoded but only its key, watermark or a part of its
+ * data is accessed.
+ *
+ * @since 11.1
+ */
+public class BufferRecord extends Record {
+
+    private static final long serialVersionUID = 1L;
+
+    protected transient ByteBuffer buffer;
+
+    public BufferRecord() {
+        // Empty constructor required for deserialization
+    }
+
+    /**
+     * Creates a record on a data buffer, the buffer content must not be modified afterward.
+     *
+     * @param flagsAsByte the flags encoded as a byte, see {@link #getFlagsAsByte()}
+     */
+    public BufferRecord(String key, ByteBuffer buffer, long watermark, byte flagsAsByte) {
+        this.key = key;
+        this.watermark = watermark;
+        this.flagsAsByte = flagsAsByte;
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            // the buffer covers the whole array, no need to copy
+            this.data = buffer.array();
+        } else {
+            this.buffer = buffer.asReadOnlyBuffer();
+        }
+    }
+
+    @Override
+    public byte[] getData() {
+        if (buffer != null) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            data = bytes;
+            buffer = null;
+        }
+        return data;
+    }
+
+    @Override
+    public void setData(byte[] data) {
+        buffer = null;
+        super.setData(data);
+    }
+
+    @Override
+    public ByteBuffer getDataBuffer() {
+        if (buffer != null) {
+            return buffer.duplicate();
+        }
+        return super.getDataBuffer();
+    }
+
+    /**
+     * Copies the data of a buffered record into its {@code data} field, this is needed before using a codec that
+     * accesses the record fields directly, like Avro reflection or Java serialization.
+     */
+    public static void materialize(Object message) {
+        if (message instanceof BufferRecord) {
+            ((BufferRecord) message).getData();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the data has not been copied yet.
+     */
+    public boolean isBuffered() {
+        return buffer != null;
+    }
+
+}
@@ -19,6 +19,8 @@
  */
 package org.nuxeo.lib.stream.computation;
 
+import java.util.List;
+
 /**
  * Computation receives records from input streams one at a time, it can produce record on its output streams. A timer
  * processing can be used for windowing computation.
@@ -53,6 +55,24 @@ public interface Computation {
      */
     void processRecord(ComputationContext context, String inputStreamName, Record record);
 
+    /**
+     * Process a batch of incoming records read from one of the computation's input streams.
+     * <p>
+     * Called instead of {@link #processRecord} when the computation policy defines a
+     * {@link ComputationPolicyBuilder#readBatchPolicy read batch}. If this method fails, the retry policy is applied to
+     * the whole batch. The default implementation processes the records one at a time.
+     *
+     * @param context The computation context object provided by the system.
+     * @param inputStreamName Name of the input stream that provides the records.
+     * @param records The records, in the order of the stream.
+     * @since 11.1
+     */
+    default void processRecords(ComputationContext context, String inputStreamName, List<Record> records) {
+        for (Record record : records) {
+            processRecord(context, inputStreamName, record);
+        }
+    }
+
     /**
      * Process a timer callback previously set via {@link ComputationContext#setTimer(String, long)}.
      *
@@ -46,12 +46,39 @@ public class ComputationPolicy {
 
     protected final int skipFirstFailures;
 
+    protected final boolean virtualThreads;
+
+    protected final int readBatchCapacity;
+
+    protected final long readBatchMaxBytes;
+
+    protected final Duration readBatchThreshold;
+
+    protected final int autoscaleMinConcurrency;
+
+    protected final int autoscaleMaxConcurrency;
+
+    protected final long autoscaleLagPerThread;
+
+    protected final Duration autoscaleMaxLatency;
+
+    protected final Duration autoscaleInterval;
+
     public ComputationPolicy(ComputationPolicyBuilder builder) {
         batchCapacity = builder.batchCapacity;
         batchThreshold = builder.batchThreshold;
         skipFailure = builder.skipFailure;
         retryPolicy = builder.retryPolicy;
         skipFirstFailures = builder.skipFirstFailures;
+        virtualThreads = builder.virtualThreads;
+        readBatchCapacity = builder.readBatchCapacity;
+        readBatchMaxBytes = builder.readBatchMaxBytes;
+        readBatchThreshold = builder.readBatchThreshold;
+        autoscaleMinConcurrency = builder.autoscaleMinConcurrency;
+        autoscaleMaxConcurrency = builder.autoscaleMaxConcurrency;
+        autoscaleLagPerThread = builder.autoscaleLagPerThread;
+        autoscaleMaxLatency = builder.autoscaleMaxLatency;
+        autoscaleInterval = builder.autoscaleInterval;
     }
 
     public RetryPolicy getRetryPolicy() {
@@ -74,6 +101,108 @@ public class ComputationPolicy {
         return skipFirstFailures;
     }
 
+    /**
+     * The maximum number of records read and processed together.
+     *
+     * @since 11.1
+     */
+    public int getReadBatchCapacity() {
+        return readBatchCapacity;
+    }
+
+    /**
+     * The maximum size of the data of the records read and processed together.
+     *
+     * @since 11.1
+     */
+    public long getReadBatchMaxBytes() {
+        return readBatchMaxBytes;
+    }
+
+    /**
+     * The maximum duration of the reading of a batch of records.
+     *
+     * @since 11.1
+     */
+    public Duration getReadBatchThreshold() {
+        return readBatchThreshold;
+    }
+
+    /**
+     * Whether the records are read and processed by batch, see
+     * {@link Computation#processRecords(ComputationContext, String, java.util.List)}.
+     *
+     * @since 11.1
+     */
+    public boolean isReadBatch() {
+        return readBatchCapacity > 1;
+    }
+
+    /**
+     * Whether the computation threads are virtual threads, when the JVM provides them.
+     *
+     * @since 11.1
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * The minimum number of threads when the computation is autoscaled.
+     *
+     * @since 11.1
+     */
+    public int getAutoscaleMinConcurrency() {
+        return autoscaleMinConcurrency;
+    }
+
+    /**
+     * The maximum number of threads when the computation is autoscaled.
+     *
+     * @since 11.1
+     */
+    public int getAutoscaleMaxConcurrency() {
+        return autoscaleMaxConcurrency;
+    }
+
+    /**
+     * The number of records of lag that justifies a thread when the computation is autoscaled. The lag is the one of
+     * the whole consumer group, each node running the computation sizes its pool on it.
+     *
+     * @since 11.1
+     */
+    public long getAutoscaleLagPerThread() {
+        return autoscaleLagPerThread;
+    }
+
+    /**
+     * The latency above which a thread is added when the computation is autoscaled.
+     *
+     * @since 11.1
+     */
+    public Duration getAutoscaleMaxLatency() {
+        return autoscaleMaxLatency;
+    }
+
+    /**
+     * The interval between two checks of the lag when the computation is autoscaled.
+     *
+     * @since 11.1
+     */
+    public Duration getAutoscaleInterval() {
+        return autoscaleInterval;
+    }
+
+    /**
+     * Whether the number of threads of the computation is adapted to its lag, see
+     * {@link ComputationPolicyBuilder#autoscalePolicy(int, int, long, Duration, Duration)}.
+     *
+     * @since 11.1
+     */
+    public boolean isAutoscale() {
+        return autoscaleMaxConcurrency > autoscaleMinConcurrency;
+    }
+
     /**
      * @deprecated since 10.3 use {@link #continueOnFailure()} instead
      */
@@ -86,6 +215,9 @@ public class ComputationPolicy {
     public String toString() {
         return "ComputationPolicy{" + "maxRetries=" + retryPolicy.getMaxRetries() + ", delay=" + retryPolicy.getDelay()
                 + ", delayMax=" + retryPolicy.getMaxDelay() + ", continueOnFailure=" + skipFailure + ", batchCapacity="
-                + batchCapacity + ", batchThreshold=" + batchThreshold + '}';
+                + batchCapacity + ", batchThreshold=" + batchThreshold + ", virtualThreads=" + virtualThreads
+                + ", readBatchCapacity=" + readBatchCapacity + ", readBatchMaxBytes=" + readBatchMaxBytes
+                + ", readBatchThreshold=" + readBatchThreshold + ", autoscaleMinConcurrency=" + autoscaleMinConcurrency
+                + ", autoscaleMaxConcurrency=" + autoscaleMaxConcurrency + '}';
     }
 }
@@ -33,6 +33,24 @@ public class ComputationPolicyBuilder {
 
     protected static final int DEFAULT_BATCH_THRESHOLD_SECOND = 1;
 
+    // @since 11.1
+    protected static final int DEFAULT_READ_BATCH_CAPACITY = 1;
+
+    // @since 11.1
+    protected static final long DEFAULT_READ_BATCH_MAX_BYTES = 1024 * 1024;
+
+    // @since 11.1
+    protected static final Duration DEFAULT_READ_BATCH_THRESHOLD = Duration.ofMillis(100);
+
+    // @since 11.1
+    public static final long DEFAULT_AUTOSCALE_LAG_PER_THREAD = 1000;
+
+    // @since 11.1
+    protected static final Duration DEFAULT_AUTOSCALE_MAX_LATENCY = Duration.ofMinutes(1);
+
+    // @since 11.1
+    protected static final Duration DEFAULT_AUTOSCALE_INTERVAL = Duration.ofSeconds(30);
+
     protected RetryPolicy retryPolicy = ComputationPolicy.NO_RETRY;
 
     protected boolean skipFailure = false;
@@ -43,6 +61,24 @@ public class ComputationPolicyBuilder {
 
     protected Duration batchThreshold = Duration.ofSeconds(DEFAULT_BATCH_THRESHOLD_SECOND);
 
+    protected boolean virtualThreads = false;
+
+    protected int readBatchCapacity = DEFAULT_READ_BATCH_CAPACITY;
+
+    protected long readBatchMaxBytes = DEFAULT_READ_BATCH_MAX_BYTES;
+
+    protected Duration readBatchThreshold = DEFAULT_READ_BATCH_THRESHOLD;
+
+    protected int autoscaleMinConcurrency;
+
+    protected int autoscaleMaxConcurrency;
+
+    protected long autoscaleLagPerThread = DEFAULT_AUTOSCALE_LAG_PER_THREAD;
+
+    protected Duration autoscaleMaxLatency = DEFAULT_AUTOSCALE_MAX_LATENCY;
+
+    protected Duration autoscaleInterval = DEFAULT_AUTOSCALE_INTERVAL;
+
     public ComputationPolicyBuilder() {
         // Empty constructor
     }
@@ -61,6 +97,59 @@ public class ComputationPolicyBuilder {
         return this;
     }
 
+    /**
+     * Defines how many records are read before being passed together to
+     * {@link Computation#processRecords(ComputationContext, String, java.util.List)}, the computation being
+     * checkpointed once for all of them.
+     * <p>
+     * The reading of a batch ends as soon as there is no record available, or one of the limits is reached. With a
+     * capacity of {@code 1}, the default, the records are passed one at a time to
+     * {@link Computation#processRecord(ComputationContext, String, Record)}.
+     *
+     * @param capacity the maximum number of records in the batch
+     * @param maxBytes the maximum size of the data of the records in the batch
+     * @param timeThreshold the maximum duration of the reading of the batch
+     * @since 11.1
+     */
+    public ComputationPolicyBuilder readBatchPolicy(int capacity, long maxBytes, Duration timeThreshold) {
+        readBatchCapacity = capacity;
+        readBatchMaxBytes = maxBytes;
+        readBatchThreshold = timeThreshold;
+        return this;
+    }
+
+    /**
+     * Lets the stream processor adapt the number of threads of the computation to its lag.
+     * <p>
+     * At each interval the lag and latency of the computation input streams are measured: the computation gets one
+     * thread per {@code lagPerThread} records of lag, and one more thread when its latency exceeds {@code maxLatency}.
+     * The number of threads stays within the bounds and never exceeds the number of partitions of the input streams.
+     * Threads are added as soon as needed but removed one at a time once the lag is low for a few intervals.
+     *
+     * @param minConcurrency the minimum number of threads
+     * @param maxConcurrency the maximum number of threads
+     * @param lagPerThread the number of records of lag that justifies a thread
+     * @param maxLatency the latency above which a thread is added
+     * @param interval the interval between two checks
+     * @since 11.1
+     */
+    public ComputationPolicyBuilder autoscalePolicy(int minConcurrency, int maxConcurrency, long lagPerThread,
+            Duration maxLatency, Duration interval) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException(
+                    "Invalid autoscale concurrency bounds: [" + minConcurrency + ", " + maxConcurrency + "]");
+        }
+        if (lagPerThread < 1) {
+            throw new IllegalArgumentException("Invalid autoscale lag per thread: " + lagPerThread);
+        }
+        autoscaleMinConcurrency = minConcurrency;
+        autoscaleMaxConcurrency = maxConcurrency;
+        autoscaleLagPerThread = lagPerThread;
+        autoscaleMaxLatency = maxLatency;
+        autoscaleInterval = interval;
+        return this;
+    }
+
     /**
      * Defines what to do in case of failure during the batch processing.
      */
@@ -93,6 +182,17 @@ public class ComputationPolicyBuilder {
         return this;
     }
 
+    /**
+     * Runs the computation threads on virtual threads, when the JVM provides them.
+     *
+     * @see VirtualThreadFactory
+     * @since 11.1
+     */
+    public ComputationPolicyBuilder virtualThreads(boolean value) {
+        virtualThreads = value;
+        return this;
+    }
+
     /**
      * Creates the policy.
      */
@@ -24,6 +24,7 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
@@ -139,6 +140,24 @@ public class Record implements Externalizable {
         }
     }
 
+    /**
+     * Gets a read-only view of the data, without copy.
+     *
+     * @since 11.1
+     */
+    public ByteBuffer getDataBuffer() {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the flags encoded as a byte, one bit per flag ordinal.
+     *
+     * @since 11.1
+     */
+    public byte getFlagsAsByte() {
+        return flagsAsByte;
+    }
+
     @Override
     public String toString() {
         String wmDate = "";
@@ -147,12 +166,14 @@ public class Record implements Externalizable {
             Watermark wm = Watermark.ofValue(watermark);
             wmDate = ", wmDate=" + dateFormat.format(new Date(wm.getTimestamp()));
         }
+        byte[] data = getData();
         return "Record{" + "watermark=" + watermark + wmDate + ", flags=" + getFlags() + ", key='" + key + '\''
                 + ", data.length=" + ((data == null) ? 0 : data.length) + ", data=\"" + dataOverview(127) + "\"}";
     }
 
     public String dataOverview(int maxLength) {
         String overview = "";
+        byte[] data = getData();
         if (data != null && data.length > 0) {
             String dataAsString = new String(data, StandardCharsets.UTF_8);
             overview = dataAsString.substring(0, min(dataAsString.length(), maxLength));
@@ -167,6 +188,7 @@ public class Record implements Externalizable {
         // use a short for backward compatibility
         out.writeShort(flagsAsByte);
         out.writeObject(key);
+        byte[] data = getData();
         if (data == null || data.length == 0) {
             out.writeInt(0);
         } else {
@@ -231,18 +253,19 @@ public class Record implements Externalizable {
         if (this == o) {
             return true;
         }
-        if (o == null || getClass() != o.getClass()) {
+        // a BufferRecord is equal to a Record with the same data
+        if (!(o instanceof Record)) {
             return false;
         }
         Record record = (Record) o;
         return watermark == record.watermark && flagsAsByte == record.flagsAsByte && Objects.equals(key, record.key)
-                && Arrays.equals(data, record.data);
+                && Arrays.equals(getData(), record.getData());
     }
 
     @Override
     public int hashCode() {
         int result = Objects.hash(watermark, flagsAsByte, key);
-        result = 31 * result + Arrays.hashCode(data);
+        result = 31 * result + Arrays.hashCode(getData());
         return result;
     }
 
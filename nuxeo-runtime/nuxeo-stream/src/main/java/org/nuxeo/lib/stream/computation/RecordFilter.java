@@ -65,4 +65,12 @@ public interface RecordFilter {
     default Record afterRead(Record record, LogOffset offset) {
         return record;
     }
+
+    /**
+     * Called when the filter is no longer used, to release its resources. A filter used again afterwards must reopen
+     * them.
+     */
+    default void close() {
+        // nothing
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.computation;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A thread factory creating virtual threads when the JVM provides them, platform threads otherwise.
+ * <p>
+ * Virtual threads are cheap to create and do not hold a platform thread while blocked on I/O, so they can be used to
+ * run many blocking tasks concurrently. The JVM API is looked up by reflection so that this code runs on a JVM without
+ * virtual threads, where the threads created are plain non-daemon platform threads.
+ *
+ * @since 11.1
+ */
+public class VirtualThreadFactory implements ThreadFactory {
+
+    private static final Log log = LogFactory.getLog(VirtualThreadFactory.class);
+
+    /** {@code Thread.ofVirtual()}, or {@code null} if not available. */
+    protected static final Method OF_VIRTUAL;
+
+    /** {@code Thread.Builder.name(String, long)}. */
+    protected static final Method BUILDER_NAME;
+
+    /** {@code Thread.Builder.factory()}. */
+    protected static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builderClass.getMethod("name", String.class, long.class);
+            factory = builderClass.getMethod("factory");
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = name;
+        BUILDER_FACTORY = factory;
+    }
+
+    protected final String prefix;
+
+    protected final Thread.UncaughtExceptionHandler handler;
+
+    protected final ThreadFactory virtualFactory;
+
+    protected final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Creates a factory.
+     *
+     * @param prefix the prefix of the thread names
+     * @param handler the handler for uncaught exceptions, or {@code null}
+     */
+    public VirtualThreadFactory(String prefix, Thread.UncaughtExceptionHandler handler) {
+        this.prefix = prefix;
+        this.handler = handler;
+        virtualFactory = newVirtualFactory(prefix);
+    }
+
+    /**
+     * Checks if the JVM provides virtual threads.
+     */
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    protected static ThreadFactory newVirtualFactory(String prefix) {
+        if (OF_VIRTUAL == null) {
+            return null;
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, prefix, Long.valueOf(1));
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Cannot create virtual threads, using platform threads", e);
+            return null;
+        }
+    }
+
+    /**
+     * Checks if the threads created by this factory are virtual.
+     */
+    public boolean isVirtual() {
+        return virtualFactory != null;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread;
+        if (virtualFactory != null) {
+            thread = virtualFactory.newThread(r);
+        } else {
+            thread = new Thread(r, prefix + count.incrementAndGet());
+        }
+        if (handler != null) {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+        return thread;
+    }
+
+}
@@ -71,4 +71,9 @@ public class RecordFilterChainImpl implements RecordFilterChain {
         }
         return record;
     }
+
+    @Override
+    public void close() {
+        filters.forEach(RecordFilter::close);
+    }
 }
@@ -0,0 +1,232 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.computation.log;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
+import org.nuxeo.lib.stream.computation.ComputationPolicy;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Settings;
+import org.nuxeo.lib.stream.computation.Watermark;
+import org.nuxeo.lib.stream.log.Latency;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogPartition;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Adapts periodically the number of threads of the computation pools that have an autoscale policy, see
+ * {@link ComputationPolicy#isAutoscale()}.
+ * <p>
+ * The lag and the latency are the ones of the whole consumer group, which is unaware of the other processes consuming
+ * the same streams: when N nodes run the computation, each node sizes its own pool for the whole lag. The
+ * {@link ComputationPolicy#getAutoscaleLagPerThread() lag per thread} must then be multiplied by N to get the same
+ * total number of threads as a single node, the threads exceeding the number of partitions of the group stay idle.
+ *
+ * @since 11.1
+ */
+public class ComputationAutoscaler {
+    private static final Log log = LogFactory.getLog(ComputationAutoscaler.class);
+
+    /** Number of consecutive checks requiring less threads before removing a thread. */
+    protected static final int DOWNSCALE_CHECKS = 3;
+
+    protected static final Duration RESIZE_TIMEOUT = Duration.ofSeconds(10);
+
+    protected final LogManager manager;
+
+    protected final Settings settings;
+
+    protected final AssignmentsProvider assignmentsProvider;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(
+            ComputationRunner.NUXEO_METRICS_REGISTRY_NAME);
+
+    protected final Map<String, Integer> downscaleChecks = new ConcurrentHashMap<>();
+
+    protected final List<String> gauges = new ArrayList<>();
+
+    protected ScheduledExecutorService scheduler;
+
+    /**
+     * Computes the partition assignments of a computation for a number of threads.
+     */
+    @FunctionalInterface
+    public interface AssignmentsProvider {
+        List<List<LogPartition>> getAssignments(ComputationMetadataMapping metadata, int threads);
+    }
+
+    public ComputationAutoscaler(LogManager manager, Settings settings, AssignmentsProvider assignmentsProvider) {
+        this.manager = manager;
+        this.settings = settings;
+        this.assignmentsProvider = assignmentsProvider;
+    }
+
+    /**
+     * Starts to check periodically the pools with an autoscale policy.
+     *
+     * @return {@code false} if there is no pool to autoscale
+     */
+    @SuppressWarnings("FutureReturnValueIgnored")
+    public synchronized boolean start(List<ComputationPool> pools) {
+        List<ComputationPool> autoscaled = new ArrayList<>();
+        for (ComputationPool pool : pools) {
+            if (pool.getPolicy().isAutoscale() && !pool.getMetadata().inputStreams().isEmpty()) {
+                autoscaled.add(pool);
+            }
+        }
+        if (autoscaled.isEmpty()) {
+            return false;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stream-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (ComputationPool pool : autoscaled) {
+            String gauge = getMetricName(pool, "threads");
+            registry.remove(gauge);
+            registry.register(gauge, (Gauge<Integer>) pool::getThreads);
+            gauges.add(gauge);
+            long interval = pool.getPolicy().getAutoscaleInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(() -> check(pool), interval, interval, TimeUnit.MILLISECONDS);
+            log.info(pool.getComputationName() + ": Autoscaling enabled " + pool.getPolicy());
+        }
+        return true;
+    }
+
+    /**
+     * Stops the periodic checks, waiting for a resize in progress to complete. A resize still waiting for the runners
+     * of its pool after twice the resize timeout is interrupted, which stops the pool.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(RESIZE_TIMEOUT.toMillis() * 2, TimeUnit.MILLISECONDS)) {
+                log.warn("Timeout waiting for autoscaler termination");
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.shutdownNow();
+        }
+        gauges.forEach(registry::remove);
+        gauges.clear();
+        scheduler = null;
+    }
+
+    protected void check(ComputationPool pool) {
+        try {
+            ComputationPolicy policy = pool.getPolicy();
+            Latency latency = getLatency(pool.getMetadata());
+            int current = pool.getThreads();
+            int target = getTargetConcurrency(current, policy.getAutoscaleMinConcurrency(),
+                    policy.getAutoscaleMaxConcurrency(), getPartitions(pool.getMetadata()), latency.lag().lag(),
+                    latency.latency(), policy.getAutoscaleLagPerThread(),
+                    policy.getAutoscaleMaxLatency().toMillis());
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("%s: threads: %d, target: %d, %s", pool.getComputationName(), current, target,
+                        latency));
+            }
+            if (target > current) {
+                downscaleChecks.remove(pool.getComputationName());
+                resize(pool, target, "autoscaleUp");
+            } else if (target < current) {
+                int checks = downscaleChecks.merge(pool.getComputationName(), 1, Integer::sum);
+                if (checks >= DOWNSCALE_CHECKS) {
+                    downscaleChecks.remove(pool.getComputationName());
+                    resize(pool, current - 1, "autoscaleDown");
+                }
+            } else {
+                downscaleChecks.remove(pool.getComputationName());
+            }
+        } catch (RuntimeException e) {
+            // keep on checking
+            log.error(pool.getComputationName() + ": Autoscale check failed: " + e.getMessage(), e);
+        }
+    }
+
+    protected void resize(ComputationPool pool, int threads, String counterName) {
+        List<List<LogPartition>> assignments = assignmentsProvider.getAssignments(pool.getMetadata(), threads);
+        if (pool.resize(assignments, RESIZE_TIMEOUT)) {
+            registry.counter(getMetricName(pool, counterName)).inc();
+        }
+    }
+
+    protected Latency getLatency(ComputationMetadataMapping metadata) {
+        List<Latency> latencies = new ArrayList<>();
+        String group = metadata.name();
+        for (String stream : metadata.inputStreams()) {
+            latencies.add(manager.getLatency(stream, group, settings.getCodec(stream),
+                    (rec -> Watermark.ofValue(rec.getWatermark()).getTimestamp()), (Record::getKey)));
+        }
+        return Latency.of(latencies);
+    }
+
+    /**
+     * Returns the maximum number of partitions of the input streams, this is the maximum number of threads that can
+     * be busy.
+     */
+    protected int getPartitions(ComputationMetadataMapping metadata) {
+        return metadata.inputStreams().stream().mapToInt(settings::getPartitions).max().orElse(1);
+    }
+
+    protected String getMetricName(ComputationPool pool, String name) {
+        return MetricRegistry.name("nuxeo", "stream", "computation", pool.getComputationName(), name);
+    }
+
+    /**
+     * Computes the number of threads needed by a computation.
+     *
+     * @param current the current number of threads
+     * @param min the minimum number of threads
+     * @param max the maximum number of threads
+     * @param partitions the number of partitions, the number of threads never exceeds it
+     * @param lag the number of records not yet processed
+     * @param latencyMs the latency of the computation in milliseconds
+     * @param lagPerThread the number of records of lag that justifies a thread
+     * @param maxLatencyMs the latency above which a thread is added
+     */
+    public static int getTargetConcurrency(int current, int min, int max, int partitions, long lag, long latencyMs,
+            long lagPerThread, long maxLatencyMs) {
+        int upper = Math.max(1, Math.min(max, partitions));
+        int lower = Math.max(1, Math.min(min, upper));
+        long target = (lag + lagPerThread - 1) / lagPerThread;
+        if (lag > 0 && latencyMs > maxLatencyMs) {
+            target = Math.max(target, current + 1L);
+        }
+        return (int) Math.max(lower, Math.min(upper, target));
+    }
+
+}
@@ -21,10 +21,10 @@ package org.nuxeo.lib.stream.computation.log;
 import static java.util.concurrent.Executors.newFixedThreadPool;
 
 import java.time.Duration;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -37,6 +37,7 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.computation.Computation;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
+import org.nuxeo.lib.stream.computation.VirtualThreadFactory;
 import org.nuxeo.lib.stream.computation.Watermark;
 import org.nuxeo.lib.stream.log.LogPartition;
 
@@ -50,11 +51,11 @@ public class ComputationPool {
 
     protected final ComputationMetadataMapping metadata;
 
-    protected final int threads;
+    protected volatile int threads;
 
     protected final Supplier<Computation> supplier;
 
-    protected final List<List<LogPartition>> defaultAssignments;
+    protected List<List<LogPartition>> defaultAssignments;
 
     protected final List<ComputationRunner> runners;
 
@@ -62,7 +63,10 @@ public class ComputationPool {
 
     protected final ComputationPolicy policy;
 
-    protected ExecutorService threadPool;
+    protected volatile ExecutorService threadPool;
+
+    // @since 11.1
+    protected volatile boolean resizing;
 
     public ComputationPool(Supplier<Computation> supplier, ComputationMetadataMapping metadata,
             List<List<LogPartition>> defaultAssignments, LogStreamManager streamManager, ComputationPolicy policy) {
@@ -73,17 +77,82 @@ public class ComputationPool {
         this.streamManager = streamManager;
         this.defaultAssignments = defaultAssignments;
         this.policy = policy;
-        this.runners = new ArrayList<>(threads);
+        this.runners = new CopyOnWriteArrayList<>();
     }
 
     public String getComputationName() {
         return metadata.name();
     }
 
+    /**
+     * @since 11.1
+     */
+    public ComputationMetadataMapping getMetadata() {
+        return metadata;
+    }
+
+    /**
+     * @since 11.1
+     */
+    public ComputationPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Returns the number of threads of the pool.
+     *
+     * @since 11.1
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Restarts the pool with a new number of threads, one per assignment.
+     * <p>
+     * The runners are stopped without checkpoint, so records processed since the last checkpoint are delivered again
+     * to the new runners. The runners are never interrupted and the new runners start only once all the previous ones
+     * have ended, so that a partition is never consumed by two runners, a warning is logged after each timeout.
+     *
+     * @return {@code false} if the pool is not running, or is stopped or interrupted during the resize
+     * @since 11.1
+     */
+    public synchronized boolean resize(List<List<LogPartition>> assignments, Duration timeout) {
+        ExecutorService pool = threadPool;
+        if (pool == null || pool.isTerminated()) {
+            // not started, stopped or terminated
+            return false;
+        }
+        log.info(metadata.name() + ": Resizing pool from " + threads + " to " + assignments.size() + " threads");
+        resizing = true;
+        try {
+            runners.forEach(ComputationRunner::stop);
+            while (!pool.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn(metadata.name() + ": Waiting for the termination of the runners to resize the pool");
+            }
+            if (threadPool != pool) {
+                // stopped meanwhile
+                return false;
+            }
+            runners.clear();
+            defaultAssignments = assignments;
+            threads = assignments.size();
+            start();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn(metadata.name() + ": Interrupted while resizing, stopping the pool");
+            shutdown();
+            return false;
+        } finally {
+            resizing = false;
+        }
+    }
+
     @SuppressWarnings("FutureReturnValueIgnored")
     public void start() {
         log.info(metadata.name() + ": Starting pool");
-        threadPool = newFixedThreadPool(threads, new NamedThreadFactory(metadata.name() + "Pool"));
+        threadPool = newFixedThreadPool(threads, newThreadFactory());
         defaultAssignments.forEach(assignments -> {
             ComputationRunner runner = new ComputationRunner(supplier, metadata, assignments, streamManager, policy);
             threadPool.submit(runner);
@@ -94,8 +163,26 @@ public class ComputationPool {
         log.debug(metadata.name() + ": Pool started, threads: " + threads);
     }
 
+    /**
+     * Creates the factory of the threads running the computations.
+     *
+     * @since 11.1
+     */
+    protected ThreadFactory newThreadFactory() {
+        if (policy.isVirtualThreads()) {
+            VirtualThreadFactory factory = new VirtualThreadFactory(metadata.name() + "Pool-",
+                    (t, e) -> log.error("Uncaught exception: " + e.getMessage(), e));
+            if (factory.isVirtual()) {
+                return factory;
+            }
+            log.info(metadata.name() + ": Virtual threads not supported by the JVM, using platform threads");
+        }
+        return new NamedThreadFactory(metadata.name() + "Pool");
+    }
+
     public boolean isTerminated() {
-        return threadPool.isTerminated();
+        ExecutorService pool = threadPool;
+        return !resizing && (pool == null || pool.isTerminated());
     }
 
     public boolean waitForAssignments(Duration timeout) throws InterruptedException {
@@ -19,6 +19,7 @@
 package org.nuxeo.lib.stream.computation.log;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -45,6 +46,7 @@ import org.nuxeo.lib.stream.log.RebalanceException;
 import org.nuxeo.lib.stream.log.RebalanceListener;
 
 import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.SharedMetricRegistries;
 import com.codahale.metrics.Timer;
@@ -124,6 +126,15 @@ public class ComputationRunner implements Runnable, RebalanceListener {
 
     protected Timer processTimerTimer;
 
+    // @since 11.1
+    protected Timer processRecordsTimer;
+
+    // @since 11.1
+    protected Histogram readBatchSize;
+
+    // @since 11.1
+    protected Histogram readBatchBytes;
+
     // @since 11.1
     protected static AtomicInteger skipFailures = new AtomicInteger(0);
 
@@ -224,6 +235,12 @@ public class ComputationRunner implements Runnable, RebalanceListener {
                 MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "processRecord"));
         processTimerTimer = registry.timer(
                 MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "processTimer"));
+        processRecordsTimer = registry.timer(
+                MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "processRecords"));
+        readBatchSize = registry.histogram(
+                MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "readBatchSize"));
+        readBatchBytes = registry.histogram(
+                MetricRegistry.name("nuxeo", "stream", "computation", metadata.name(), "readBatchBytes"));
     }
 
     protected void closeTailer() {
@@ -236,7 +253,7 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         boolean timerActivity;
         while (continueLoop()) {
             timerActivity = processTimer();
-            recordActivity = processRecord();
+            recordActivity = policy.isReadBatch() ? processRecords() : processRecord();
             counter++;
             if (!timerActivity && !recordActivity) {
                 // no activity take a break
@@ -356,6 +373,114 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         return false;
     }
 
+    /**
+     * Reads a batch of records, bounded by the read batch policy, and processes them with a single checkpoint.
+     * <p>
+     * The records of a batch come from the same input stream, when the stream changes the records already read are
+     * processed first. On a rebalance the records already read are dropped, as they may come from revoked partitions,
+     * they are read again from the last checkpoint by the owner of their partition.
+     *
+     * @since 11.1
+     */
+    protected boolean processRecords() throws InterruptedException {
+        if (context.requireTerminate()) {
+            stop = true;
+            return true;
+        }
+        if (tailer == null) {
+            return false;
+        }
+        int capacity = policy.getReadBatchCapacity();
+        long maxBytes = policy.getReadBatchMaxBytes();
+        long deadline = System.currentTimeMillis() + policy.getReadBatchThreshold().toMillis();
+        List<Record> records = new ArrayList<>(capacity);
+        String batchStream = null;
+        long bytes = 0;
+        boolean activity = false;
+        Duration timeoutRead = getTimeoutDuration();
+        while (records.size() < capacity && bytes < maxBytes && !stop && !context.requireTerminate()) {
+            LogRecord<Record> logRecord = null;
+            try {
+                logRecord = tailer.read(timeoutRead);
+            } catch (RebalanceException e) {
+                // the revoke has done a checkpoint, the context is for the new assignment, drop the in-flight batch
+                if (log.isDebugEnabled()) {
+                    log.debug(metadata.name() + ": Rebalance, dropping " + records.size() + " records read");
+                }
+                return true;
+            }
+            if (logRecord == null) {
+                break;
+            }
+            activity = true;
+            Record record = logRecord.message();
+            String stream = logRecord.offset().partition().name();
+            Record filteredRecord = streamManager.getFilter(stream).afterRead(record, logRecord.offset());
+            if (filteredRecord == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Filtering skip record: " + record);
+                }
+                continue;
+            }
+            record = filteredRecord;
+            String from = metadata.reverseMap(stream);
+            if (batchStream != null && !batchStream.equals(from)) {
+                processRecordsWithRetry(batchStream, records, bytes);
+                records = new ArrayList<>(capacity);
+                bytes = 0;
+                if (context.requireTerminate()) {
+                    return true;
+                }
+            }
+            batchStream = from;
+            lastReadTime = System.currentTimeMillis();
+            inRecords++;
+            lowWatermark.mark(record.getWatermark());
+            context.setLastOffset(logRecord.offset());
+            records.add(record);
+            bytes += record.getData().length;
+            if (record.getFlags().contains(Record.Flag.POISON_PILL)) {
+                break;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            timeoutRead = Duration.ofMillis(Math.min(READ_TIMEOUT.toMillis(), remaining));
+        }
+        if (!records.isEmpty()) {
+            processRecordsWithRetry(batchStream, records, bytes);
+        }
+        if (!activity) {
+            return false;
+        }
+        checkSourceLowWatermark();
+        setThreadName("records");
+        checkpointIfNecessary();
+        return true;
+    }
+
+    /**
+     * Processes a batch of records from the same input stream, checking their flags.
+     *
+     * @since 11.1
+     */
+    protected void processRecordsWithRetry(String from, List<Record> records, long bytes) {
+        readBatchSize.update(records.size());
+        readBatchBytes.update(bytes);
+        runningCount.inc();
+        try (Timer.Context ignored = processRecordsTimer.time()) {
+            Failsafe.with(policy.getRetryPolicy())
+                    .onRetry(failure -> computation.processRetry(context, failure))
+                    .onFailure(failure -> computation.processFailure(context, failure))
+                    .withFallback(() -> processFallback(context))
+                    .run(() -> computation.processRecords(context, from, records));
+        } finally {
+            runningCount.dec();
+        }
+        records.forEach(this::checkRecordFlags);
+    }
+
     protected void processRecordWithRetry(String from, Record record) {
         runningCount.inc();
         try (Timer.Context ignored = processRecordTimer.time()) {
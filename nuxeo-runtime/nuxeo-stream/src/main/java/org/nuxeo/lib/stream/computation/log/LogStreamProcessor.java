@@ -36,6 +36,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
+import org.nuxeo.lib.stream.computation.ComputationPolicy;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.computation.Settings;
 import org.nuxeo.lib.stream.computation.StreamProcessor;
@@ -64,6 +65,9 @@ public class LogStreamProcessor implements StreamProcessor {
 
     protected final boolean needRegister;
 
+    // @since 11.1
+    protected ComputationAutoscaler autoscaler;
+
     @Deprecated
     public LogStreamProcessor(LogManager manager) {
         needRegister = true;
@@ -95,6 +99,29 @@ public class LogStreamProcessor implements StreamProcessor {
         this.pools = initPools();
         Objects.requireNonNull(pools);
         pools.forEach(ComputationPool::start);
+        startAutoscaler();
+    }
+
+    /**
+     * Starts the autoscaler if some computations have an autoscale policy.
+     *
+     * @since 11.1
+     */
+    protected void startAutoscaler() {
+        ComputationAutoscaler newAutoscaler = new ComputationAutoscaler(manager, settings, this::getAssignments);
+        if (newAutoscaler.start(pools)) {
+            autoscaler = newAutoscaler;
+        }
+    }
+
+    /**
+     * @since 11.1
+     */
+    protected void stopAutoscaler() {
+        if (autoscaler != null) {
+            autoscaler.stop();
+            autoscaler = null;
+        }
     }
 
     @Override
@@ -119,6 +146,7 @@ public class LogStreamProcessor implements StreamProcessor {
         if (pools == null) {
             return true;
         }
+        stopAutoscaler();
         long failures = pools.parallelStream().filter(comp -> !comp.stop(timeout)).count();
         log.debug(String.format("Stopped %d failure", failures));
         return failures == 0;
@@ -131,6 +159,7 @@ public class LogStreamProcessor implements StreamProcessor {
         if (pools == null) {
             return true;
         }
+        stopAutoscaler();
         long failures = pools.stream().filter(comp -> !comp.drainAndStop(timeout)).count();
         log.debug(String.format("Drained and stopped %d failure", failures));
         return failures == 0;
@@ -142,6 +171,7 @@ public class LogStreamProcessor implements StreamProcessor {
         if (pools == null) {
             return;
         }
+        stopAutoscaler();
         pools.parallelStream().forEach(ComputationPool::shutdown);
         log.debug("Shutdown done");
     }
@@ -231,6 +261,21 @@ public class LogStreamProcessor implements StreamProcessor {
 
     protected List<List<LogPartition>> getDefaultAssignments(ComputationMetadataMapping meta) {
         int threads = settings.getConcurrency(meta.name());
+        ComputationPolicy policy = settings.getPolicy(meta.name());
+        if (policy.isAutoscale()) {
+            // start within the autoscale bounds
+            threads = Math.max(policy.getAutoscaleMinConcurrency(),
+                    min(threads, policy.getAutoscaleMaxConcurrency()));
+        }
+        return getAssignments(meta, threads);
+    }
+
+    /**
+     * Assigns the partitions of the computation input streams to a number of threads.
+     *
+     * @since 11.1
+     */
+    protected List<List<LogPartition>> getAssignments(ComputationMetadataMapping meta, int threads) {
         Map<String, Integer> streams = new HashMap<>();
         meta.inputStreams().forEach(streamName -> streams.put(streamName, settings.getPartitions(streamName)));
         return KafkaUtils.roundRobinAssignments(threads, streams);
@@ -24,6 +24,7 @@ import java.io.Externalizable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -41,6 +42,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.StreamRuntimeException;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RawRecordCodec;
+import org.nuxeo.lib.stream.computation.BufferRecord;
+import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogTailer;
@@ -293,10 +297,23 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
     public LogOffset append(int partition, M message) {
         ExcerptAppender appender = partitions.get(partition).acquireAppender();
         try {
-            if (NO_CODEC.equals(codec)) {
+            if (codec instanceof RawRecordCodec) {
+                // write the record fields directly into the queue
+                Record record = (Record) message;
+                ByteBuffer data = record.getDataBuffer();
+                appender.writeBytes(b -> {
+                    b.writeLong(record.getWatermark());
+                    b.writeByte(record.getFlagsAsByte());
+                    b.writeUtf8(record.getKey());
+                    b.writeInt(data.remaining());
+                    b.writeSome(data.duplicate());
+                });
+            } else if (NO_CODEC.equals(codec)) {
+                BufferRecord.materialize(message);
                 // default format for backward compatibility
                 appender.writeDocument(w -> w.write(MSG_KEY).object(message));
             } else {
+                BufferRecord.materialize(message);
                 appender.writeDocument(w -> w.write().bytes(codec.encode(message)));
             }
         } catch (DecoratedBufferOverflowException e) {
@@ -22,6 +22,7 @@ import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
 import static org.nuxeo.lib.stream.log.chronicle.ChronicleLogAppender.MSG_KEY;
 
 import java.io.Externalizable;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -34,6 +35,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RawRecordCodec;
+import org.nuxeo.lib.stream.computation.BufferRecord;
 import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogRecord;
@@ -115,7 +118,20 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
         }
         List<M> value = new ArrayList<>(1);
         long offset = cqTailer.index();
-        if (NO_CODEC.equals(codec)) {
+        if (codec instanceof RawRecordCodec) {
+            // read the record fields directly from the queue, without decoding an intermediate array
+            // the mapped memory does not outlive the excerpt: the data is copied once, the record owns the array
+            if (!cqTailer.readBytes(in -> {
+                long watermark = in.readLong();
+                byte flags = in.readByte();
+                String key = in.readUtf8();
+                byte[] data = new byte[in.readInt()];
+                in.read(data);
+                value.add((M) new BufferRecord(key, ByteBuffer.wrap(data), watermark, flags));
+            })) {
+                return null;
+            }
+        } else if (NO_CODEC.equals(codec)) {
             // default format to keep backward compatibility
             try {
                 if (!cqTailer.readDocument(w -> value.add((M) w.read(MSG_KEY).object()))) {
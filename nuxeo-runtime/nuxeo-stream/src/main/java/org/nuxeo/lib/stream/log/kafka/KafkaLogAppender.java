@@ -42,7 +42,9 @@ import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.utils.Bytes;
 import org.nuxeo.lib.stream.StreamRuntimeException;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RawRecordCodec;
 import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.lib.stream.computation.BufferRecord;
 import org.nuxeo.lib.stream.log.LogOffset;
 import org.nuxeo.lib.stream.log.internals.CloseableLogAppender;
 import org.nuxeo.lib.stream.log.internals.LogOffsetImpl;
@@ -136,6 +138,9 @@ public class KafkaLogAppender<M extends Externalizable> implements CloseableLogA
     }
 
     public LogOffset append(int partition, String key, M message) {
+        if (!(encodingCodec instanceof RawRecordCodec)) {
+            BufferRecord.materialize(message);
+        }
         Bytes value = Bytes.wrap(encodingCodec.encode(message));
         ProducerRecord<String, Bytes> record = new ProducerRecord<>(topic, partition, key, value);
         Future<RecordMetadata> future = producer.send(record);
@@ -25,7 +25,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.log.ComputationAutoscaler;
 import org.nuxeo.lib.stream.log.Latency;
 import org.nuxeo.lib.stream.log.LogManager;
 import org.nuxeo.lib.stream.log.internals.LogPartitionGroup;
@@ -50,16 +52,32 @@ public class LatencyMonitorComputation extends LatencyTrackerComputation {
 
     protected final String basePrefix;
 
+    // @since 11.1
+    protected final long lagPerThread;
+
     protected GraphiteSender graphite;
 
     public LatencyMonitorComputation(LogManager manager, List<String> logNames, String host, int port, boolean udp,
             String basePrefix, String computationName, int intervalSecond, int count, boolean verbose,
             Codec<Record> codec) {
+        this(manager, logNames, host, port, udp, basePrefix, computationName, intervalSecond, count, verbose, codec,
+                ComputationPolicyBuilder.DEFAULT_AUTOSCALE_LAG_PER_THREAD);
+    }
+
+    /**
+     * @param lagPerThread the number of records of lag that justifies a thread, used to publish the concurrency that
+     *            an autoscaled computation would target
+     * @since 11.1
+     */
+    public LatencyMonitorComputation(LogManager manager, List<String> logNames, String host, int port, boolean udp,
+            String basePrefix, String computationName, int intervalSecond, int count, boolean verbose,
+            Codec<Record> codec, long lagPerThread) {
         super(manager, logNames, computationName, intervalSecond, count, verbose, codec);
         this.host = host;
         this.port = port;
         this.udp = udp;
         this.basePrefix = basePrefix;
+        this.lagPerThread = lagPerThread;
     }
 
     @Override
@@ -80,7 +98,9 @@ public class LatencyMonitorComputation extends LatencyTrackerComputation {
     @Override
     protected void processLatencies(ComputationContext context, LogPartitionGroup logGroup, List<Latency> latencies) {
         Latency groupLatency = Latency.of(latencies);
-        publishMetrics(groupLatency, String.format("%s%s.%s.all.", basePrefix, logGroup.group, logGroup.name));
+        String groupPrefix = String.format("%s%s.%s.all.", basePrefix, logGroup.group, logGroup.name);
+        publishMetrics(groupLatency, groupPrefix);
+        publishConcurrency(groupLatency, latencies.size(), groupPrefix);
         for (int partition = 0; partition < latencies.size(); partition++) {
             publishMetrics(latencies.get(partition),
                     String.format("%s%s.%s.p%02d.", basePrefix, logGroup.group, logGroup.name, partition));
@@ -103,6 +123,25 @@ public class LatencyMonitorComputation extends LatencyTrackerComputation {
         }
     }
 
+    /**
+     * Publishes the number of threads that the autoscaler would target for the consumer group, see
+     * {@link ComputationAutoscaler#getTargetConcurrency}.
+     *
+     * @since 11.1
+     */
+    protected void publishConcurrency(Latency latency, int partitions, String prefix) {
+        int concurrency = ComputationAutoscaler.getTargetConcurrency(1, 1, partitions, partitions,
+                latency.lag().lag(), latency.latency(), lagPerThread, Long.MAX_VALUE);
+        if (verbose) {
+            log.info(prefix + "concurrency: " + concurrency);
+        }
+        try {
+            graphite.send(prefix + "concurrency", Integer.toString(concurrency), latency.upper() / 1000);
+        } catch (IOException e) {
+            log.error("Fail to send metric to graphite " + prefix + " " + latency, e);
+        }
+    }
+
     @Override
     public void destroy() {
         super.destroy();
@@ -27,6 +27,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
+import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
 import org.nuxeo.lib.stream.computation.Settings;
 import org.nuxeo.lib.stream.computation.StreamManager;
 import org.nuxeo.lib.stream.computation.StreamProcessor;
@@ -81,6 +82,9 @@ public class MonitorCommand extends Command {
 
     protected String prefix;
 
+    // @since 11.1
+    protected long lagPerThread;
+
     @Override
     public String name() {
         return NAME;
@@ -134,6 +138,13 @@ public class MonitorCommand extends Command {
                                 .hasArg()
                                 .argName("CODEC")
                                 .build());
+        options.addOption(Option.builder()
+                                .longOpt("lag-per-thread")
+                                .desc("The number of records of lag justifying a thread, used to publish the "
+                                        + "concurrency that an autoscaled computation would target")
+                                .hasArg()
+                                .argName("LAG")
+                                .build());
         options.addOption(Option.builder().longOpt("verbose").build());
     }
 
@@ -148,6 +159,8 @@ public class MonitorCommand extends Command {
         host = cmd.getOptionValue("host");
         udp = cmd.hasOption("udp");
         prefix = cmd.getOptionValue("prefix", getDefaultPrefix());
+        lagPerThread = Long.parseLong(cmd.getOptionValue("lag-per-thread",
+                String.valueOf(ComputationPolicyBuilder.DEFAULT_AUTOSCALE_LAG_PER_THREAD)));
         initTopology(manager);
         return runProcessor(manager);
     }
@@ -172,7 +185,8 @@ public class MonitorCommand extends Command {
         topology = Topology.builder()
                            .addComputation(
                                    () -> new LatencyMonitorComputation(manager, logNames, host, port, udp, prefix,
-                                           COMPUTATION_NAME, interval, count, verbose, getRecordCodec(codec)),
+                                           COMPUTATION_NAME, interval, count, verbose, getRecordCodec(codec),
+                                           lagPerThread),
                                    Arrays.asList("i1:" + INPUT_STREAM, "o1:" + output))
                            .build();
     }
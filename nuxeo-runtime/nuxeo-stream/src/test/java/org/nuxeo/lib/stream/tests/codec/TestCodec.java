@@ -20,12 +20,14 @@ package org.nuxeo.lib.stream.tests.codec;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -46,7 +48,9 @@ import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.AvroSchemaStore;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.codec.FileAvroSchemaStore;
+import org.nuxeo.lib.stream.codec.RawRecordCodec;
 import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.lib.stream.computation.BufferRecord;
 import org.nuxeo.lib.stream.computation.Record;
 
 /**
@@ -171,6 +175,47 @@ public class TestCodec {
         testCodecFromFile("data/record-avro-confluent.bin", codec);
     }
 
+    @Test
+    public void testRecordRaw() {
+        Record src = getRecord();
+        Codec<Record> codec = new RawRecordCodec();
+        Record dest = testCodec(src, codec);
+        assertEquals(src.toString(), dest.toString());
+
+        // null key and empty data
+        testCodec(new Record(null, null, 42L, EnumSet.of(Record.Flag.DEFAULT)), codec);
+    }
+
+    @Test
+    public void testRecordRawZeroCopy() {
+        Record src = getRecord();
+        Codec<Record> codec = new RawRecordCodec();
+        byte[] data = codec.encode(src);
+        BufferRecord dest = (BufferRecord) codec.decode(data);
+        assertEquals(src.getKey(), dest.getKey());
+        assertEquals(src.getWatermark(), dest.getWatermark());
+        assertEquals(src.getFlags(), dest.getFlags());
+        assertTrue(dest.isBuffered());
+
+        // the data buffer is a read-only view on the encoded bytes
+        ByteBuffer buffer = dest.getDataBuffer();
+        assertTrue(buffer.isReadOnly());
+        assertEquals(src.getData().length, buffer.remaining());
+        data[data.length - 1] = 'X';
+        assertEquals('X', buffer.get(buffer.limit() - 1));
+        assertTrue(dest.isBuffered());
+
+        // the data is copied on demand
+        assertEquals("valuX", new String(dest.getData(), UTF_8));
+        assertFalse(dest.isBuffered());
+
+        // a buffer record can be encoded with a codec that access the fields directly
+        BufferRecord other = (BufferRecord) codec.decode(codec.encode(src));
+        Codec<Record> avroCodec = new AvroMessageCodec<>(Record.class);
+        BufferRecord.materialize(other);
+        assertEquals(src, avroCodec.decode(avroCodec.encode(other)));
+    }
+
     @Test
     public void testInvalidEncoding() throws Exception {
         byte[] data = readFile("data/record-externalizable.bin");
@@ -197,6 +242,14 @@ public class TestCodec {
         } catch (IllegalArgumentException e) {
             // expected
         }
+
+        codec = new RawRecordCodec();
+        try {
+            codec.decode(new byte[] { 1, 2, 3 });
+            fail("failure expected on decode");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
     }
 
     protected void testCodecFromFile(String path, Codec<Record> codec) throws IOException {
@@ -19,24 +19,49 @@
 package org.nuxeo.lib.stream.tests.computation;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
 import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
 import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Settings;
+import org.nuxeo.lib.stream.computation.StreamProcessor;
+import org.nuxeo.lib.stream.computation.Topology;
 import org.nuxeo.lib.stream.computation.internals.ComputationContextImpl;
+import org.nuxeo.lib.stream.computation.log.LogStreamManager;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogOffset;
+import org.nuxeo.lib.stream.log.LogPartition;
+import org.nuxeo.lib.stream.log.LogRecord;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.RebalanceException;
+import org.nuxeo.lib.stream.log.chronicle.ChronicleLogManager;
 
 /**
  * @since 9.3
  */
 public class TestBatchComputation {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testComputationBatchForward() {
         int batchCapacity = 5;
@@ -100,4 +125,184 @@ public class TestBatchComputation {
         comp.destroy();
     }
 
+    @Test
+    public void testComputationReadBatch() {
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(2, Duration.ofMillis(500))
+                                                                 .readBatchPolicy(10, 1024, Duration.ofMillis(100))
+                                                                 .build();
+        ComputationBatchForward comp = new ComputationBatchForward("foo", 2);
+        ComputationContextImpl context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(comp.metadata(), Collections.emptyMap()), policy);
+        comp.init(context);
+        Record aRecord = Record.of("foo", "bar".getBytes(StandardCharsets.UTF_8));
+
+        // the records read together are a single batch, whatever the batch capacity
+        comp.processRecords(context, "i1", Arrays.asList(aRecord, aRecord, aRecord));
+        assertEquals(1, comp.processCounter);
+        assertEquals(3, context.getRecords("o1").size());
+        assertTrue(context.requireCheckpoint());
+        context.getRecords("o1").clear();
+        context.removeCheckpointFlag();
+
+        // a record pending from a single record processing is processed first
+        comp.processRecord(context, "i1", aRecord);
+        comp.processRecords(context, "i2", Arrays.asList(aRecord, aRecord));
+        assertEquals(3, comp.processCounter);
+        assertEquals(3, context.getRecords("o1").size());
+        context.getRecords("o1").clear();
+
+        comp.destroy();
+
+        // on retry the records read together are removed from the batch before being passed again
+        ComputationBatchFailureForward failing = new ComputationBatchFailureForward("bar", 1);
+        context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(failing.metadata(), Collections.emptyMap()), policy);
+        failing.init(context);
+        List<Record> records = Arrays.asList(aRecord, aRecord, aRecord);
+        for (int i = 1; i < ComputationBatchFailureForward.FAILURE_COUNT; i++) {
+            try {
+                failing.processRecords(context, "i1", records);
+                fail("should fail");
+            } catch (IllegalStateException e) {
+                failing.processRetry(context, e);
+            }
+        }
+        failing.processRecords(context, "i1", records);
+        // each attempt sees the same 3 records
+        assertEquals(3 * ComputationBatchFailureForward.FAILURE_COUNT, context.getRecords("o1").size());
+        failing.destroy();
+    }
+
+    @Test
+    public void testReadBatchRebalance() throws Exception {
+        Topology topology = Topology.builder()
+                                    .addComputation(() -> new ComputationForward("C1", 1, 1),
+                                            Arrays.asList("i1:input", "o1:output"))
+                                    .build();
+        ComputationPolicy policy = new ComputationPolicyBuilder().readBatchPolicy(10, 1024 * 1024,
+                Duration.ofMillis(500)).build();
+        Settings settings = new Settings(1, 1, policy);
+        try (LogManager manager = new ChronicleLogManager(folder.newFolder().toPath())) {
+            // a rebalance happens when reading the 4th record of the first batch
+            LogStreamManager streamManager = new LogStreamManager(manager) {
+                @Override
+                public LogTailer<Record> createTailer(String computationName,
+                        Collection<LogPartition> streamPartitions) {
+                    return new RebalanceTailer(super.createTailer(computationName, streamPartitions), 4);
+                }
+            };
+            StreamProcessor processor = streamManager.registerAndCreateProcessor("processor", topology, settings);
+            for (int i = 0; i < 6; i++) {
+                streamManager.append("input", Record.of("key" + i, "value".getBytes(StandardCharsets.UTF_8)));
+            }
+            processor.start();
+            assertTrue(processor.drainAndStop(Duration.ofMinutes(1)));
+
+            // the records read before the rebalance are dropped, each record is processed once
+            Set<String> keys = new HashSet<>();
+            try (LogTailer<Record> tailer = manager.createTailer("test", "output")) {
+                for (int i = 0; i < 6; i++) {
+                    LogRecord<Record> logRecord = tailer.read(Duration.ofSeconds(1));
+                    assertTrue(keys.add(logRecord.message().getKey()));
+                }
+                assertNull(tailer.read(Duration.ofSeconds(1)));
+            }
+        }
+    }
+
+    /**
+     * A tailer going back to its last committed offsets and throwing a {@link RebalanceException} on a given read, as
+     * a Kafka tailer re-assigned to the same partitions.
+     */
+    protected static class RebalanceTailer implements LogTailer<Record> {
+
+        protected final LogTailer<Record> tailer;
+
+        protected int rebalanceRead;
+
+        protected RebalanceTailer(LogTailer<Record> tailer, int rebalanceRead) {
+            this.tailer = tailer;
+            this.rebalanceRead = rebalanceRead;
+        }
+
+        @Override
+        public LogRecord<Record> read(Duration timeout) throws InterruptedException {
+            if (--rebalanceRead == 0) {
+                tailer.toLastCommitted();
+                throw new RebalanceException("Partitions has been rebalanced");
+            }
+            return tailer.read(timeout);
+        }
+
+        @Override
+        public String group() {
+            return tailer.group();
+        }
+
+        @Override
+        public Collection<LogPartition> assignments() {
+            return tailer.assignments();
+        }
+
+        @Override
+        public void commit() {
+            tailer.commit();
+        }
+
+        @Override
+        public LogOffset commit(LogPartition partition) {
+            return tailer.commit(partition);
+        }
+
+        @Override
+        public void toEnd() {
+            tailer.toEnd();
+        }
+
+        @Override
+        public void toStart() {
+            tailer.toStart();
+        }
+
+        @Override
+        public void toLastCommitted() {
+            tailer.toLastCommitted();
+        }
+
+        @Override
+        public void seek(LogOffset offset) {
+            tailer.seek(offset);
+        }
+
+        @Override
+        public LogOffset offsetForTimestamp(LogPartition partition, long timestamp) {
+            return tailer.offsetForTimestamp(partition, timestamp);
+        }
+
+        @Override
+        public void reset() {
+            tailer.reset();
+        }
+
+        @Override
+        public void reset(LogPartition partition) {
+            tailer.reset(partition);
+        }
+
+        @Override
+        public void close() {
+            tailer.close();
+        }
+
+        @Override
+        public boolean closed() {
+            return tailer.closed();
+        }
+
+        @Override
+        public Codec<Record> getCodec() {
+            return tailer.getCodec();
+        }
+    }
+
 }
@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2019 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Nuxeo - initial API and implementation
+ */
+package org.nuxeo.lib.stream.tests.computation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.nuxeo.lib.stream.computation.log.ComputationAutoscaler.getTargetConcurrency;
+
+import java.time.Duration;
+
+import org.junit.Test;
+import org.nuxeo.lib.stream.computation.ComputationPolicy;
+import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
+
+/**
+ * @since 11.1
+ */
+public class TestComputationAutoscaler {
+
+    protected static final long MAX_LATENCY = 60_000;
+
+    @Test
+    public void testTargetConcurrency() {
+        // no lag: min threads
+        assertEquals(1, getTargetConcurrency(4, 1, 8, 8, 0, 0, 100, MAX_LATENCY));
+        assertEquals(2, getTargetConcurrency(4, 2, 8, 8, 0, 0, 100, MAX_LATENCY));
+        // one thread per lag unit
+        assertEquals(1, getTargetConcurrency(1, 1, 8, 8, 100, 0, 100, MAX_LATENCY));
+        assertEquals(3, getTargetConcurrency(1, 1, 8, 8, 201, 0, 100, MAX_LATENCY));
+        // max bound
+        assertEquals(8, getTargetConcurrency(1, 1, 8, 16, 100_000, 0, 100, MAX_LATENCY));
+        // never more than partitions
+        assertEquals(4, getTargetConcurrency(1, 1, 8, 4, 100_000, 0, 100, MAX_LATENCY));
+        assertEquals(4, getTargetConcurrency(1, 6, 8, 4, 0, 0, 100, MAX_LATENCY));
+        // high latency adds a thread
+        assertEquals(3, getTargetConcurrency(2, 1, 8, 8, 10, MAX_LATENCY + 1, 100, MAX_LATENCY));
+        assertEquals(8, getTargetConcurrency(8, 1, 8, 8, 10, MAX_LATENCY + 1, 100, MAX_LATENCY));
+    }
+
+    @Test
+    public void testAutoscalePolicy() {
+        assertFalse(ComputationPolicy.NONE.isAutoscale());
+        ComputationPolicy policy = new ComputationPolicyBuilder().autoscalePolicy(1, 4, 100, Duration.ofMinutes(1),
+                Duration.ofSeconds(10)).build();
+        assertTrue(policy.isAutoscale());
+        assertEquals(1, policy.getAutoscaleMinConcurrency());
+        assertEquals(4, policy.getAutoscaleMaxConcurrency());
+        assertEquals(100, policy.getAutoscaleLagPerThread());
+        assertFalse(new ComputationPolicyBuilder().autoscalePolicy(2, 2, 100, Duration.ofMinutes(1),
+                Duration.ofSeconds(10)).build().isAutoscale());
+        try {
+            new ComputationPolicyBuilder().autoscalePolicy(4, 2, 100, Duration.ofMinutes(1), Duration.ofSeconds(10));
+            fail("Invalid bounds");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+}
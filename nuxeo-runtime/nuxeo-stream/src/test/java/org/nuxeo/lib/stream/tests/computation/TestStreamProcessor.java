@@ -28,6 +28,8 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,6 +40,7 @@ import org.nuxeo.lib.stream.codec.AvroJsonCodec;
 import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
 import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
 import org.nuxeo.lib.stream.computation.Record;
@@ -46,6 +49,8 @@ import org.nuxeo.lib.stream.computation.StreamManager;
 import org.nuxeo.lib.stream.computation.StreamProcessor;
 import org.nuxeo.lib.stream.computation.Topology;
 import org.nuxeo.lib.stream.computation.Watermark;
+import org.nuxeo.lib.stream.computation.log.ComputationPool;
+import org.nuxeo.lib.stream.computation.log.ComputationRunner;
 import org.nuxeo.lib.stream.computation.log.LogStreamManager;
 import org.nuxeo.lib.stream.log.Latency;
 import org.nuxeo.lib.stream.log.LogAppender;
@@ -54,6 +59,11 @@ import org.nuxeo.lib.stream.log.LogManager;
 import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogRecord;
 import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.kafka.KafkaUtils;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 
 import net.jodah.failsafe.RetryPolicy;
 
@@ -681,6 +691,117 @@ public abstract class TestStreamProcessor {
 
     }
 
+    @Test
+    public void testReadBatchComputation() throws Exception {
+        Topology topology = Topology.builder()
+                                    .addComputation(() -> new ComputationBatchForward("C1", 1),
+                                            Arrays.asList("i1:input", "o1:output"))
+                                    .build();
+        ComputationPolicy policy = new ComputationPolicyBuilder().readBatchPolicy(10, 1024 * 1024,
+                Duration.ofMillis(500)).build();
+        try (LogManager manager = getLogManager()) {
+            StreamManager streamManager = new LogStreamManager(manager);
+            Settings settings = new Settings(1, 1, policy);
+            streamManager.register("processor", topology, settings);
+            for (int i = 0; i < 25; i++) {
+                streamManager.append("input", Record.of("key" + i, null));
+            }
+            StreamProcessor processor = streamManager.createStreamProcessor("processor");
+            processor.start();
+            processor.waitForAssignments(Duration.ofSeconds(10));
+            assertTrue(processor.drainAndStop(Duration.ofSeconds(20)));
+            LogLag lag = manager.getLag("input", "C1");
+            assertEquals(lag.toString(), 0, lag.lag());
+            assertEquals(25, countRecordIn(manager, "output"));
+        }
+    }
+
+    @Test
+    public void testAutoscaleComputation() throws Exception {
+        final int NB_RECORDS = 200;
+        Topology topology = Topology.builder()
+                                    .addComputation(() -> new ComputationForwardSlow("autoscaled", 1, 1, 20),
+                                            Arrays.asList("i1:input", "o1:output"))
+                                    .build();
+        ComputationPolicy policy = new ComputationPolicyBuilder().autoscalePolicy(1, 4, 10, Duration.ofMinutes(1),
+                Duration.ofMillis(200)).build();
+        Counter upCounter = SharedMetricRegistries.getOrCreate(ComputationRunner.NUXEO_METRICS_REGISTRY_NAME)
+                                                  .counter(MetricRegistry.name("nuxeo", "stream", "computation",
+                                                          "autoscaled", "autoscaleUp"));
+        long upCount = upCounter.getCount();
+        try (LogManager manager = getLogManager()) {
+            StreamManager streamManager = new LogStreamManager(manager);
+            Settings settings = new Settings(1, 4, policy);
+            streamManager.register("processor", topology, settings);
+            for (int i = 0; i < NB_RECORDS; i++) {
+                streamManager.append("input", Record.of("key" + i, null));
+            }
+            StreamProcessor processor = streamManager.createStreamProcessor("processor");
+            processor.start();
+            processor.waitForAssignments(Duration.ofSeconds(10));
+            // the lag requires more threads
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (upCounter.getCount() == upCount && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertTrue("No autoscale up", upCounter.getCount() > upCount);
+            assertTrue(processor.drainAndStop(Duration.ofSeconds(20)));
+            LogLag lag = manager.getLag("input", "autoscaled");
+            assertEquals(lag.toString(), 0, lag.lag());
+            // records processed but not checkpointed before a resize are processed again
+            assertTrue(countRecordIn(manager, "output") >= NB_RECORDS);
+        }
+    }
+
+    @Test
+    public void testResizeDoesNotInterruptRunners() throws Exception {
+        final int NB_RECORDS = 4;
+        AtomicInteger interrupted = new AtomicInteger();
+        Topology topology = Topology.builder()
+                                    .addComputation(() -> new ComputationForward("resized", 1, 1) {
+                                        @Override
+                                        public void processRecord(ComputationContext context,
+                                                String inputStreamName, Record record) {
+                                            try {
+                                                Thread.sleep(500);
+                                            } catch (InterruptedException e) {
+                                                interrupted.incrementAndGet();
+                                                Thread.currentThread().interrupt();
+                                                throw new RuntimeException(e);
+                                            }
+                                            super.processRecord(context, inputStreamName, record);
+                                        }
+                                    }, Arrays.asList("i1:input", "o1:output"))
+                                    .build();
+        try (LogManager manager = getLogManager()) {
+            LogStreamManager streamManager = new LogStreamManager(manager);
+            Settings settings = new Settings(1, 2);
+            streamManager.register("processor", topology, settings);
+            for (int i = 0; i < NB_RECORDS; i++) {
+                streamManager.append("input", Record.of("key" + i, null));
+            }
+            Map<String, Integer> streams = Collections.singletonMap("input", 2);
+            ComputationPool pool = new ComputationPool(topology.getSupplier("resized"),
+                    topology.getMetadata("resized"), KafkaUtils.roundRobinAssignments(1, streams), streamManager,
+                    ComputationPolicy.NONE);
+            pool.start();
+            assertTrue(pool.waitForAssignments(Duration.ofSeconds(10)));
+            // a record is in flight, the resize timeout is shorter than its processing
+            Thread.sleep(200);
+            assertTrue(pool.resize(KafkaUtils.roundRobinAssignments(2, streams), Duration.ofMillis(50)));
+            assertEquals(2, pool.getThreads());
+            assertEquals(0, interrupted.get());
+            long deadline = System.currentTimeMillis() + 20_000;
+            while (countRecordIn(manager, "output") < NB_RECORDS && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertTrue(pool.stop(Duration.ofSeconds(10)));
+            assertEquals(0, interrupted.get());
+            // records processed but not checkpointed before the resize are processed again
+            assertTrue(countRecordIn(manager, "output") >= NB_RECORDS);
+        }
+    }
+
     // ---------------------------------
     // helpers
     protected int readOutputCounter(LogManager manager) throws InterruptedException {
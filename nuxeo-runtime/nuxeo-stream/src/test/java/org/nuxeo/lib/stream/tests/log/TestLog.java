@@ -30,6 +30,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -46,6 +47,7 @@ import org.nuxeo.lib.stream.codec.AvroBinaryCodec;
 import org.nuxeo.lib.stream.codec.AvroJsonCodec;
 import org.nuxeo.lib.stream.codec.AvroMessageCodec;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.RawRecordCodec;
 import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.computation.Watermark;
@@ -841,6 +843,33 @@ public abstract class TestLog {
         testCodec(codec);
     }
 
+    @Test
+    public void testRawRecordCodec() throws Exception {
+        final int LOG_SIZE = 1;
+        final String GROUP = "defaultTest";
+        manager.createIfNotExists(logName, LOG_SIZE);
+        Codec<Record> codec = new RawRecordCodec();
+
+        LogAppender<Record> appender = manager.getAppender(logName, codec);
+        Record rec1 = createRecord("key");
+        Record rec2 = new Record(null, null, 42L, EnumSet.of(Record.Flag.COMMIT));
+        Record rec3 = Record.of("1234567890", new byte[100_000]);
+        appender.append(0, rec1);
+        appender.append(0, rec2);
+        appender.append(0, rec3);
+
+        try (LogTailer<Record> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 0), codec)) {
+            Record dest = tailer.read(DEF_TIMEOUT).message();
+            assertEquals(rec1, dest);
+            // a read record can be appended again
+            appender.append(0, dest);
+            assertEquals(rec2, tailer.read(DEF_TIMEOUT).message());
+            assertEquals(rec3, tailer.read(DEF_TIMEOUT).message());
+            assertEquals(rec1, tailer.read(DEF_TIMEOUT).message());
+            assertNull(tailer.read(SMALL_TIMEOUT));
+        }
+    }
+
     protected void testCodec(Codec<KeyValueMessage> codec) throws Exception {
         final int LOG_SIZE = 1;
         final String GROUP = "defaultTest";